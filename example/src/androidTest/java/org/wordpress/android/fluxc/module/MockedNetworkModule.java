@@ -3,13 +3,13 @@ package org.wordpress.android.fluxc.module;
 import android.content.Context;
 
 import com.android.volley.RequestQueue;
-import com.android.volley.toolbox.Volley;
+import com.android.volley.toolbox.DiskBasedCache;
 
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.network.HTTPAuthManager;
-import org.wordpress.android.fluxc.network.OkHttpStack;
+import org.wordpress.android.fluxc.network.OkHttpNetwork;
 import org.wordpress.android.fluxc.network.UserAgent;
 import org.wordpress.android.fluxc.network.discovery.DiscoveryWPAPIRestClient;
 import org.wordpress.android.fluxc.network.discovery.DiscoveryXMLRPCClient;
@@ -28,6 +28,8 @@ import org.wordpress.android.fluxc.network.xmlrpc.media.MediaXMLRPCClient;
 import org.wordpress.android.fluxc.network.xmlrpc.post.PostXMLRPCClient;
 import org.wordpress.android.fluxc.network.xmlrpc.site.SiteXMLRPCClient;
 
+import java.io.File;
+
 import javax.inject.Singleton;
 
 import dagger.Module;
@@ -63,7 +65,10 @@ public class MockedNetworkModule {
     @Singleton
     @Provides
     public RequestQueue provideRequestQueue(OkHttpClient.Builder okHttpClientBuilder, Context appContext) {
-        return Volley.newRequestQueue(appContext, new OkHttpStack(okHttpClientBuilder));
+        File cacheDir = new File(appContext.getCacheDir(), "volley");
+        RequestQueue queue = new RequestQueue(new DiskBasedCache(cacheDir), new OkHttpNetwork(okHttpClientBuilder));
+        queue.start();
+        return queue;
     }
 
     @Singleton
@@ -0,0 +1,221 @@
+package org.wordpress.android.fluxc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.wordpress.android.fluxc.action.CommentAction;
+import org.wordpress.android.fluxc.action.PostAction;
+import org.wordpress.android.fluxc.model.MediaModel;
+import org.wordpress.android.fluxc.store.CommentStore.OnCommentChanged;
+import org.wordpress.android.fluxc.store.MediaStore.MediaError;
+import org.wordpress.android.fluxc.store.MediaStore.MediaErrorType;
+import org.wordpress.android.fluxc.store.MediaStore.OnMediaUploaded;
+import org.wordpress.android.fluxc.store.PostStore.OnPostChanged;
+import org.wordpress.android.fluxc.store.PostStore.PostError;
+import org.wordpress.android.fluxc.store.PostStore.PostErrorType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ChangeCoalescerTest {
+    private static final long WINDOW_MS = 200;
+
+    private final List<Object> mEmitted = new ArrayList<>();
+    private ManualScheduler mScheduler;
+    private ChangeCoalescer mCoalescer;
+
+    /**
+     * Runs scheduled tasks when the test moves the time forward.
+     */
+    private static class ManualScheduler implements ChangeCoalescer.Scheduler {
+        private final List<Long> mDueTimes = new ArrayList<>();
+        private final List<Runnable> mTasks = new ArrayList<>();
+        private long mNow = 1000;
+        private boolean mShutdown;
+
+        @Override
+        public long now() {
+            return mNow;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            // Like a ScheduledExecutorService once shut down
+            if (mShutdown) {
+                throw new RejectedExecutionException();
+            }
+            mDueTimes.add(mNow + delayMillis);
+            mTasks.add(task);
+        }
+
+        @Override
+        public void shutdown() {
+            mShutdown = true;
+            mDueTimes.clear();
+            mTasks.clear();
+        }
+
+        void advance(long millis) {
+            mNow += millis;
+            int i = 0;
+            while (i < mTasks.size()) {
+                if (mDueTimes.get(i) <= mNow) {
+                    mDueTimes.remove(i);
+                    mTasks.remove(i).run();
+                } else {
+                    i++;
+                }
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mEmitted.clear();
+        mScheduler = new ManualScheduler();
+        mCoalescer = new ChangeCoalescer(new ChangeCoalescer.Emitter() {
+            @Override
+            public void emit(Object event) {
+                mEmitted.add(event);
+            }
+        }, WINDOW_MS, 5, mScheduler);
+    }
+
+    @Test
+    public void testChangesWithinWindowAreMerged() {
+        assertTrue(mCoalescer.offer(newPostChanged(PostAction.FETCH_POSTS, 1, 20)));
+        assertTrue(mCoalescer.offer(newPostChanged(PostAction.FETCH_POSTS, 1, 20)));
+        assertTrue(mCoalescer.offer(newPostChanged(PostAction.FETCH_POSTS, 1, 5)));
+
+        // The first change is emitted right away, the following ones once the window ends
+        assertEquals(1, mEmitted.size());
+        assertEquals(20, ((OnPostChanged) mEmitted.get(0)).rowsAffected);
+
+        mScheduler.advance(WINDOW_MS - 1);
+        assertEquals(1, mEmitted.size());
+        mScheduler.advance(1);
+        assertEquals(2, mEmitted.size());
+        assertEquals(25, ((OnPostChanged) mEmitted.get(1)).rowsAffected);
+
+        // The window is over, the next change is emitted right away
+        mScheduler.advance(WINDOW_MS);
+        mCoalescer.offer(newPostChanged(PostAction.FETCH_POSTS, 1, 3));
+        assertEquals(3, mEmitted.size());
+    }
+
+    @Test
+    public void testChangesWithDifferentKeysAreNotMerged() {
+        mCoalescer.offer(newPostChanged(PostAction.FETCH_POSTS, 1, 1));
+        mCoalescer.offer(newPostChanged(PostAction.UPDATE_POST, 1, 1));
+
+        assertEquals(2, mEmitted.size());
+    }
+
+    @Test
+    public void testChangesOfDifferentSitesAreNotMerged() {
+        OnPostChanged first = newPostChanged(PostAction.FETCH_POSTS, 1, 20);
+        first.canLoadMore = true;
+        OnPostChanged second = newPostChanged(PostAction.FETCH_POSTS, 2, 20);
+        mCoalescer.offer(first);
+        mCoalescer.offer(second);
+
+        assertEquals(2, mEmitted.size());
+        assertTrue(((OnPostChanged) mEmitted.get(0)).canLoadMore);
+        assertFalse(((OnPostChanged) mEmitted.get(1)).canLoadMore);
+    }
+
+    @Test
+    public void testCommentChangesOfDifferentSitesAreNotMerged() {
+        mCoalescer.offer(newCommentChanged(1, 20));
+        mCoalescer.offer(newCommentChanged(2, 20));
+        mCoalescer.offer(newCommentChanged(2, 20));
+
+        assertEquals(2, mEmitted.size());
+        assertEquals(1, ((OnCommentChanged) mEmitted.get(0)).localSiteId);
+        assertEquals(2, ((OnCommentChanged) mEmitted.get(1)).localSiteId);
+        mScheduler.advance(WINDOW_MS);
+        assertEquals(3, mEmitted.size());
+        assertEquals(2, ((OnCommentChanged) mEmitted.get(2)).localSiteId);
+    }
+
+    @Test
+    public void testErrorsAreNotCoalesced() {
+        OnPostChanged event = newPostChanged(PostAction.FETCH_POSTS, 1, 0);
+        event.error = new PostError(PostErrorType.GENERIC_ERROR);
+
+        assertFalse(mCoalescer.offer(event));
+        assertEquals(0, mEmitted.size());
+    }
+
+    @Test
+    public void testProgressUpdatesAreRateLimited() {
+        MediaModel media = new MediaModel();
+        media.setId(42);
+        for (int i = 1; i <= 10; i++) {
+            mCoalescer.offer(new OnMediaUploaded(media, i / 10f, false, false));
+        }
+        mCoalescer.offer(new OnMediaUploaded(media, 1f, true, false));
+
+        assertEquals(1, mEmitted.size());
+        assertEquals(0.1f, ((OnMediaUploaded) mEmitted.get(0)).progress, 0.001f);
+
+        // Intermediate ticks are dropped, the completion replaces them
+        mScheduler.advance(WINDOW_MS);
+        assertEquals(2, mEmitted.size());
+        assertTrue(((OnMediaUploaded) mEmitted.get(1)).completed);
+    }
+
+    @Test
+    public void testUploadErrorsAreNotDelayed() {
+        MediaModel media = new MediaModel();
+        media.setId(42);
+        mCoalescer.offer(new OnMediaUploaded(media, 0.1f, false, false));
+        OnMediaUploaded failed = new OnMediaUploaded(media, 0.2f, false, false);
+        failed.error = new MediaError(MediaErrorType.GENERIC_ERROR);
+
+        assertFalse(mCoalescer.offer(failed));
+        assertEquals(1, mEmitted.size());
+    }
+
+    @Test
+    public void testShutdownEmitsPendingChanges() {
+        mCoalescer.offer(newPostChanged(PostAction.FETCH_POSTS, 1, 1));
+        mCoalescer.offer(newPostChanged(PostAction.FETCH_POSTS, 1, 2));
+        assertEquals(1, mEmitted.size());
+
+        mCoalescer.shutdown();
+        assertEquals(2, mEmitted.size());
+        assertEquals(2, ((OnPostChanged) mEmitted.get(1)).rowsAffected);
+    }
+
+    @Test
+    public void testChangesAreLeftToTheCallerAfterShutdown() {
+        mCoalescer.offer(newPostChanged(PostAction.FETCH_POSTS, 1, 1));
+        mCoalescer.shutdown();
+
+        // Within the window, but nothing can be scheduled anymore
+        assertFalse(mCoalescer.offer(newPostChanged(PostAction.FETCH_POSTS, 1, 2)));
+        assertEquals(1, mEmitted.size());
+    }
+
+    private static OnCommentChanged newCommentChanged(int localSiteId, int rowsAffected) {
+        OnCommentChanged event = new OnCommentChanged(rowsAffected);
+        event.causeOfChange = CommentAction.FETCH_COMMENTS;
+        event.localSiteId = localSiteId;
+        return event;
+    }
+
+    private static OnPostChanged newPostChanged(PostAction cause, int localSiteId, int rowsAffected) {
+        OnPostChanged event = new OnPostChanged(rowsAffected);
+        event.causeOfChange = cause;
+        event.localSiteId = localSiteId;
+        return event;
+    }
+}
@@ -0,0 +1,147 @@
+package org.wordpress.android.fluxc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.wordpress.android.fluxc.annotations.action.IAction;
+import org.wordpress.android.fluxc.generated.PluginActionBuilder;
+import org.wordpress.android.fluxc.generated.ThemeActionBuilder;
+import org.wordpress.android.fluxc.network.rest.wpcom.plugin.PluginRestClient;
+import org.wordpress.android.fluxc.network.rest.wpcom.theme.ThemeRestClient;
+import org.wordpress.android.fluxc.network.wporg.plugin.PluginWPOrgClient;
+import org.wordpress.android.fluxc.store.PluginStore;
+import org.wordpress.android.fluxc.store.Store;
+import org.wordpress.android.fluxc.store.ThemeStore;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(RobolectricTestRunner.class)
+public class DispatcherTest {
+    private static final int TIMEOUT_MS = 2000;
+
+    private ThemeRestClient mThemeRestClient;
+    private PluginWPOrgClient mPluginWPOrgClient;
+    private Dispatcher mDispatcher;
+    private ThemeStore mThemeStore;
+
+    @Before
+    public void setUp() {
+        mThemeRestClient = Mockito.mock(ThemeRestClient.class);
+        mPluginWPOrgClient = Mockito.mock(PluginWPOrgClient.class);
+
+        mDispatcher = new Dispatcher(true);
+        mThemeStore = new ThemeStore(mDispatcher, mThemeRestClient);
+        new PluginStore(mDispatcher, Mockito.mock(PluginRestClient.class), mPluginWPOrgClient);
+    }
+
+    @Test
+    public void testActionIsOnlyRoutedToHandlingStore() {
+        mDispatcher.dispatch(ThemeActionBuilder.newFetchWpComThemesAction());
+
+        verify(mThemeRestClient, timeout(TIMEOUT_MS)).fetchWpComThemes();
+        verifyZeroInteractions(mPluginWPOrgClient);
+    }
+
+    @Test
+    public void testActionsAreHandledInDispatchOrder() {
+        mDispatcher.dispatch(PluginActionBuilder.newFetchWporgPluginAction("first"));
+        mDispatcher.dispatch(PluginActionBuilder.newFetchWporgPluginAction("second"));
+        mDispatcher.dispatch(PluginActionBuilder.newFetchWporgPluginAction("third"));
+
+        verify(mPluginWPOrgClient, timeout(TIMEOUT_MS).times(3)).fetchWPOrgPlugin(anyString());
+        InOrder inOrder = Mockito.inOrder(mPluginWPOrgClient);
+        inOrder.verify(mPluginWPOrgClient).fetchWPOrgPlugin("first");
+        inOrder.verify(mPluginWPOrgClient).fetchWPOrgPlugin("second");
+        inOrder.verify(mPluginWPOrgClient).fetchWPOrgPlugin("third");
+        verify(mThemeRestClient, times(0)).fetchWpComThemes();
+    }
+
+    @Test
+    public void testHandlersAreTimedOnTheEventBus() throws InterruptedException {
+        Dispatcher dispatcher = new Dispatcher();
+        new ThemeStore(dispatcher, mThemeRestClient);
+        final AtomicReference<Class<? extends Store>> handlingStore = new AtomicReference<>();
+        final CountDownLatch handled = new CountDownLatch(1);
+        dispatcher.setMetrics(new DispatcherMetrics() {
+            @Override
+            public void onActionDispatched(IAction actionType, int pendingHandlers) {
+            }
+
+            @Override
+            public void onActionHandled(IAction actionType, Class<? extends Store> storeClass, long queuedNanos,
+                                        long handlingNanos) {
+                handlingStore.set(storeClass);
+                handled.countDown();
+            }
+
+            @Override
+            public void onChangeEmitted(Class<?> eventClass, long deliveryNanos) {
+            }
+        });
+        dispatcher.dispatch(ThemeActionBuilder.newFetchWpComThemesAction());
+
+        assertTrue(handled.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(ThemeStore.class, handlingStore.get());
+        // The store gets the dispatched action
+        verify(mThemeRestClient, timeout(TIMEOUT_MS)).fetchWpComThemes();
+    }
+
+    @Test
+    public void testStoreUnregisteredWhileDispatchingIsSkipped() throws InterruptedException {
+        final AtomicInteger pendingHandlers = new AtomicInteger(-1);
+        mDispatcher.setMetrics(new DispatcherMetrics() {
+            @Override
+            public void onActionDispatched(IAction actionType, int pending) {
+                pendingHandlers.set(pending);
+            }
+
+            @Override
+            public void onActionHandled(IAction actionType, Class<? extends Store> storeClass, long queuedNanos,
+                                        long handlingNanos) {
+            }
+
+            @Override
+            public void onChangeEmitted(Class<?> eventClass, long deliveryNanos) {
+            }
+        });
+        Thread toggler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    mDispatcher.unregister(mThemeStore);
+                    mDispatcher.register(mThemeStore);
+                }
+            }
+        });
+        toggler.start();
+        // Lanes shut down while an action is being routed must not make dispatch() throw
+        for (int i = 0; i < 500; i++) {
+            mDispatcher.dispatch(ThemeActionBuilder.newFetchWpComThemesAction());
+        }
+        toggler.join();
+        mDispatcher.unregister(mThemeStore);
+
+        // Once the queued handlers ran, nothing is pending: skipped handlers aren't counted
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        mDispatcher.dispatch(ThemeActionBuilder.newFetchWpComThemesAction());
+        while (pendingHandlers.get() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            mDispatcher.dispatch(ThemeActionBuilder.newFetchWpComThemesAction());
+        }
+        assertEquals(0, pendingHandlers.get());
+    }
+}
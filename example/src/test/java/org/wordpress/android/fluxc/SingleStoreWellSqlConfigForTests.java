@@ -26,6 +26,7 @@ public class SingleStoreWellSqlConfigForTests extends WellSqlConfig {
     @Override
     public void onCreate(SQLiteDatabase db, WellTableManager helper) {
         helper.createTable(mStoreClass);
+        createIndexes(db, mStoreClass);
     }
 
     /**
@@ -36,5 +37,6 @@ public class SingleStoreWellSqlConfigForTests extends WellSqlConfig {
         TableClass table = getTable(mStoreClass);
         db.execSQL("DROP TABLE " + table.getTableName());
         db.execSQL(table.createStatement());
+        createIndexes(db, mStoreClass);
     }
 }
@@ -0,0 +1,169 @@
+package org.wordpress.android.fluxc.comment;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLog;
+import org.wordpress.android.fluxc.Dispatcher;
+import org.wordpress.android.fluxc.action.CommentAction;
+import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.model.CommentModel;
+import org.wordpress.android.fluxc.model.CommentStatus;
+import org.wordpress.android.fluxc.model.SiteModel;
+import org.wordpress.android.fluxc.network.HTTPAuthManager;
+import org.wordpress.android.fluxc.network.UserAgent;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest;
+import org.wordpress.android.fluxc.network.xmlrpc.comment.CommentXMLRPCClient;
+import org.wordpress.android.fluxc.store.CommentStore.FetchCommentsResponsePayload;
+import org.wordpress.android.fluxc.store.CommentStore.RemoteCommentResponsePayload;
+import org.wordpress.android.util.DateTimeUtils;
+
+import java.lang.reflect.Method;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.wordpress.android.fluxc.site.SiteUtils.generateSelfHostedNonJPSite;
+
+@RunWith(RobolectricTestRunner.class)
+public class CommentXMLRPCClientTest {
+    // 2017-06-01T10:00:00 UTC
+    private static final Date PUBLISHED_DATE = new Date(1496311200000L);
+    private static final String HELD_COMMENT = "<value><struct>"
+            + "<member><name>date_created_gmt</name>"
+            + "<value><dateTime.iso8601>20170601T10:00:00</dateTime.iso8601></value></member>"
+            + "<member><name>user_id</name><value><string>0</string></value></member>"
+            + "<member><name>comment_id</name><value><string>12</string></value></member>"
+            + "<member><name>parent</name><value><string>11</string></value></member>"
+            + "<member><name>status</name><value><string>hold</string></value></member>"
+            + "<member><name>content</name><value><string>Nice &lt;b&gt;post&lt;/b&gt;</string></value></member>"
+            + "<member><name>post_id</name><value><string>7</string></value></member>"
+            + "<member><name>post_title</name><value><string>Tom &amp;amp; Jerry</string></value></member>"
+            + "<member><name>author</name><value><string>Caf&amp;eacute;</string></value></member>"
+            + "<member><name>author_url</name><value><string>http://author.url</string></value></member>"
+            + "<member><name>author_email</name><value><string>author@some.url</string></value></member>"
+            + "<member><name>author_ip</name><value><string>127.0.0.1</string></value></member>"
+            + "</struct></value>";
+
+    private CommentXMLRPCClient mClient;
+    private Dispatcher mDispatcher;
+    private String mMockedResponse = "";
+
+    @Before
+    public void setUp() {
+        ShadowLog.stream = System.out;
+
+        RequestQueue queue = mock(RequestQueue.class);
+        mDispatcher = mock(Dispatcher.class);
+        // Requests are answered with the mocked response as soon as they are queued
+        when(queue.add(any(Request.class))).thenAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) throws Exception {
+                XMLRPCRequest request = (XMLRPCRequest) invocation.getArguments()[0];
+                Method parseNetworkResponse = XMLRPCRequest.class.getDeclaredMethod("parseNetworkResponse",
+                        NetworkResponse.class);
+                parseNetworkResponse.setAccessible(true);
+                Response<?> response = (Response<?>) parseNetworkResponse.invoke(request,
+                        new NetworkResponse(mMockedResponse.getBytes("UTF-8")));
+                Method deliverResponse = XMLRPCRequest.class.getDeclaredMethod("deliverResponse", Object.class);
+                deliverResponse.setAccessible(true);
+                deliverResponse.invoke(request, response.result);
+                return null;
+            }
+        });
+        mClient = new CommentXMLRPCClient(mDispatcher, queue, mock(UserAgent.class), mock(HTTPAuthManager.class));
+    }
+
+    @Test
+    public void testFetchComments() {
+        SiteModel site = generateSelfHostedNonJPSite();
+        site.setId(3);
+        mMockedResponse = response("<value><array><data>"
+                + HELD_COMMENT
+                + "<value><string>not a comment</string></value>"
+                + "<value><struct>"
+                + "<member><name>comment_id</name><value><string>13</string></value></member>"
+                + "</struct></value>"
+                + "</data></array></value>");
+        mClient.fetchComments(site, 10, 0, CommentStatus.ALL);
+
+        FetchCommentsResponsePayload payload = (FetchCommentsResponsePayload) captureAction(
+                CommentAction.FETCHED_COMMENTS).getPayload();
+        assertFalse(payload.isError());
+        assertEquals(2, payload.comments.size());
+
+        CommentModel held = payload.comments.get(0);
+        assertEquals(3, held.getLocalSiteId());
+        assertEquals(6, held.getRemoteSiteId());
+        assertEquals(12, held.getRemoteCommentId());
+        assertEquals(11, held.getRemoteParentCommentId());
+        assertEquals(CommentStatus.UNAPPROVED.toString(), held.getStatus());
+        assertEquals(DateTimeUtils.iso8601UTCFromDate(PUBLISHED_DATE), held.getDatePublished());
+        assertEquals("Nice <b>post</b>", held.getContent());
+        assertEquals(7, held.getRemotePostId());
+        assertEquals("Tom & Jerry", held.getPostTitle());
+        assertEquals("Caf\u00e9", held.getAuthorName());
+        assertEquals("http://author.url", held.getAuthorUrl());
+        assertEquals("author@some.url", held.getAuthorEmail());
+
+        // Missing members get the defaults
+        CommentModel bare = payload.comments.get(1);
+        assertEquals(13, bare.getRemoteCommentId());
+        assertEquals(CommentStatus.APPROVED.toString(), bare.getStatus());
+        assertNotNull(bare.getDatePublished());
+        assertEquals("", bare.getContent());
+        assertEquals("", bare.getAuthorName());
+    }
+
+    @Test
+    public void testFetchCommentsUnexpectedResponse() {
+        SiteModel site = generateSelfHostedNonJPSite();
+        mMockedResponse = response("<value><boolean>0</boolean></value>");
+        mClient.fetchComments(site, 10, 0, CommentStatus.ALL);
+
+        FetchCommentsResponsePayload payload = (FetchCommentsResponsePayload) captureAction(
+                CommentAction.FETCHED_COMMENTS).getPayload();
+        assertFalse(payload.isError());
+        assertEquals(0, payload.comments.size());
+    }
+
+    @Test
+    public void testFetchComment() {
+        SiteModel site = generateSelfHostedNonJPSite();
+        site.setId(3);
+        mMockedResponse = response(HELD_COMMENT);
+        mClient.fetchComment(site, 12, null);
+
+        RemoteCommentResponsePayload payload = (RemoteCommentResponsePayload) captureAction(
+                CommentAction.FETCHED_COMMENT).getPayload();
+        assertFalse(payload.isError());
+        assertEquals(3, payload.comment.getLocalSiteId());
+        assertEquals(12, payload.comment.getRemoteCommentId());
+        assertEquals(CommentStatus.UNAPPROVED.toString(), payload.comment.getStatus());
+    }
+
+    private Action captureAction(CommentAction type) {
+        ArgumentCaptor<Action> captor = ArgumentCaptor.forClass(Action.class);
+        verify(mDispatcher).dispatch(captor.capture());
+        assertEquals(type, captor.getValue().getType());
+        return captor.getValue();
+    }
+
+    private static String response(String value) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+               + "<methodResponse><params><param>" + value + "</param></params></methodResponse>";
+    }
+}
@@ -0,0 +1,117 @@
+package org.wordpress.android.fluxc.media;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.yarolegovich.wellsql.WellSql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLog;
+import org.wordpress.android.fluxc.SingleStoreWellSqlConfigForTests;
+import org.wordpress.android.fluxc.model.MediaModel;
+import org.wordpress.android.fluxc.model.SiteModel;
+import org.wordpress.android.fluxc.persistence.MediaSqlUtils;
+import org.wordpress.android.fluxc.persistence.WellSqlConfig;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the cost of the (LOCAL_SITE_ID, MEDIA_ID) lookup with and without its index, timings being logged.
+ * Runs on 10k rows by default, pass -Dfluxc.benchmark.rows=100000 to measure bigger tables.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MediaLookupBenchmarkTest {
+    private static final int SITE_COUNT = 10;
+    private static final int LOOKUP_COUNT = 500;
+    private static final String INDEX_NAME = "MediaModel_LOCAL_SITE_ID_MEDIA_ID";
+
+    private Random mRandom = new Random(42);
+
+    @Before
+    public void setUp() {
+        ShadowLog.stream = System.out;
+        Context appContext = RuntimeEnvironment.application.getApplicationContext();
+
+        WellSqlConfig config = new SingleStoreWellSqlConfigForTests(appContext, MediaModel.class);
+        WellSql.init(config);
+        config.reset();
+    }
+
+    @Test
+    public void testSiteMediaLookupUsesIndex() {
+        String plan = getQueryPlan("SELECT * FROM MediaModel WHERE LOCAL_SITE_ID = 1 AND MEDIA_ID = 1");
+        assertTrue(plan, plan.contains(INDEX_NAME));
+    }
+
+    @Test
+    public void testSiteMediaLookupCost() {
+        int rowCount = Integer.getInteger("fluxc.benchmark.rows", 10000);
+        insertMedia(rowCount);
+
+        long indexedNanos = timeLookups(rowCount);
+        WellSql.giveMeWritableDb().execSQL("DROP INDEX " + INDEX_NAME);
+        // Make sure the second run measures a table scan
+        String plan = getQueryPlan("SELECT * FROM MediaModel WHERE LOCAL_SITE_ID = 1 AND MEDIA_ID = 1");
+        assertFalse(plan, plan.contains(INDEX_NAME));
+        long scanNanos = timeLookups(rowCount);
+
+        AppLog.i(T.TESTS, String.format(Locale.US, "Media lookup on %d rows: %.3f ms with index, %.3f ms without",
+                rowCount, indexedNanos / 1e6 / LOOKUP_COUNT, scanNanos / 1e6 / LOOKUP_COUNT));
+    }
+
+    private void insertMedia(int rowCount) {
+        List<MediaModel> mediaList = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            MediaModel media = new MediaModel();
+            media.setLocalSiteId(i % SITE_COUNT + 1);
+            media.setMediaId(i / SITE_COUNT + 1);
+            media.setTitle("Media " + i);
+            mediaList.add(media);
+        }
+        assertEquals(rowCount, MediaSqlUtils.insertOrUpdateMediaList(mediaList));
+    }
+
+    private long timeLookups(int rowCount) {
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            int siteId = mRandom.nextInt(SITE_COUNT) + 1;
+            long mediaId = mRandom.nextInt(rowCount / SITE_COUNT) + 1;
+            assertEquals(1, MediaSqlUtils.getSiteMediaWithId(getTestSite(siteId), mediaId).size());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private String getQueryPlan(String query) {
+        SQLiteDatabase db = WellSql.giveMeWritableDb();
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + query, null);
+        try {
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(cursor.getColumnCount() - 1)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan.toString();
+    }
+
+    private SiteModel getTestSite(int localSiteId) {
+        SiteModel site = new SiteModel();
+        site.setId(localSiteId);
+        return site;
+    }
+}
@@ -182,6 +182,49 @@ public class MediaSqlUtilsTest {
         }
     }
 
+    // Inserts media matching a search in different fields, verifies ranking and that updates and deletes are indexed
+    @Test
+    public void testMediaIndexSearch() {
+        SiteModel site = getTestSiteWithLocalId(TEST_LOCAL_SITE_ID);
+        MediaModel captionMatch = getTestMedia(1, "Beach", "", "Sunset at the lake");
+        MediaModel titleMatch = getTestMedia(2, "Lake sunset", "", "");
+        Assert.assertEquals(1, MediaSqlUtils.insertOrUpdateMedia(captionMatch));
+        Assert.assertEquals(1, MediaSqlUtils.insertOrUpdateMedia(titleMatch));
+        Assert.assertEquals(1, MediaSqlUtils.insertOrUpdateMedia(getTestMedia(3, "Mountains", "", "")));
+
+        List<MediaModel> results = MediaSqlUtils.searchSiteMediaIndex(site, "suns LAKE");
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals(2, results.get(0).getMediaId());
+        Assert.assertEquals(1, results.get(1).getMediaId());
+        Assert.assertTrue(MediaSqlUtils.searchSiteMediaIndex(getTestSiteWithLocalId(1), "sunset").isEmpty());
+        Assert.assertTrue(MediaSqlUtils.searchSiteMediaIndex(site, " - ").isEmpty());
+
+        titleMatch.setTitle("Forest");
+        Assert.assertEquals(1, MediaSqlUtils.insertOrUpdateMedia(titleMatch));
+        Assert.assertEquals(1, MediaSqlUtils.deleteMedia(captionMatch));
+        Assert.assertTrue(MediaSqlUtils.searchSiteMediaIndex(site, "sunset").isEmpty());
+        Assert.assertEquals(1, MediaSqlUtils.searchSiteMediaIndex(site, "for").size());
+    }
+
+    // Inserts media with non-ASCII titles, verifies search terms are folded like the index terms
+    @Test
+    public void testMediaIndexSearchNonAscii() {
+        SiteModel site = getTestSiteWithLocalId(TEST_LOCAL_SITE_ID);
+        MediaModel nonAsciiTitle = getTestMedia(1, "\u00c9cole d'\u00e9t\u00e9", "", "");
+        Assert.assertEquals(1, MediaSqlUtils.insertOrUpdateMedia(nonAsciiTitle));
+        Assert.assertEquals(1, MediaSqlUtils.insertOrUpdateMedia(getTestMedia(2, "Ecole", "", "")));
+
+        List<MediaModel> results = MediaSqlUtils.searchSiteMediaIndex(site, "\u00c9cole");
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(1, results.get(0).getMediaId());
+        // Only ASCII letters are case insensitive
+        Assert.assertEquals(1, MediaSqlUtils.searchSiteMediaIndex(site, "\u00c9COLE").size());
+        Assert.assertEquals(1, MediaSqlUtils.searchSiteMediaIndex(site, "\u00e9t\u00e9").size());
+        results = MediaSqlUtils.searchSiteMediaIndex(site, "ecole");
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(2, results.get(0).getMediaId());
+    }
+
     // Inserts many media with compounding titles, gets media with exact title and verifies
     @Test
     public void testMatchSiteMediaColumn() {
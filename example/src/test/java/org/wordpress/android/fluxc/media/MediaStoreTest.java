@@ -4,6 +4,7 @@ import android.content.Context;
 
 import com.yarolegovich.wellsql.WellSql;
 
+import org.greenrobot.eventbus.Subscribe;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -12,6 +13,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.SingleStoreWellSqlConfigForTests;
+import org.wordpress.android.fluxc.generated.MediaActionBuilder;
 import org.wordpress.android.fluxc.model.MediaModel;
 import org.wordpress.android.fluxc.model.MediaModel.MediaUploadState;
 import org.wordpress.android.fluxc.model.PostModel;
@@ -21,6 +23,7 @@ import org.wordpress.android.fluxc.network.xmlrpc.media.MediaXMLRPCClient;
 import org.wordpress.android.fluxc.persistence.MediaSqlUtils;
 import org.wordpress.android.fluxc.persistence.WellSqlConfig;
 import org.wordpress.android.fluxc.store.MediaStore;
+import org.wordpress.android.fluxc.store.MediaStore.OnMediaChanged;
 import org.wordpress.android.fluxc.utils.MediaUtils;
 
 import java.util.ArrayList;
@@ -40,9 +43,19 @@ import static org.wordpress.android.fluxc.media.MediaTestUtils.insertRandomMedia
 
 @RunWith(RobolectricTestRunner.class)
 public class MediaStoreTest {
-    private MediaStore mMediaStore = new MediaStore(new Dispatcher(),
+    private Dispatcher mDispatcher = new Dispatcher();
+    private MediaStore mMediaStore = new MediaStore(mDispatcher,
             Mockito.mock(MediaRestClient.class), Mockito.mock(MediaXMLRPCClient.class));
 
+    public static class MediaChangedListener {
+        private final List<OnMediaChanged> mEvents = new ArrayList<>();
+
+        @Subscribe
+        public void onMediaChanged(OnMediaChanged event) {
+            mEvents.add(event);
+        }
+    }
+
     @Before
     public void setUp() {
         Context context = RuntimeEnvironment.application.getApplicationContext();
@@ -513,6 +526,26 @@ public class MediaStoreTest {
         assertTrue(mMediaStore.getSiteMediaCount(testSite2) == 0);
     }
 
+    @Test
+    public void testUpdateUnchangedMedia() {
+        MediaModel testMedia = getBasicMedia();
+        testMedia.setLocalSiteId(26);
+        testMedia.setMediaId(12);
+        assertTrue(insertMediaIntoDatabase(testMedia) == 1);
+
+        MediaChangedListener listener = new MediaChangedListener();
+        mDispatcher.register(listener);
+        try {
+            // Saving the same values again doesn't write the row, but still succeeds
+            mMediaStore.onAction(MediaActionBuilder.newUpdateMediaAction(testMedia));
+        } finally {
+            mDispatcher.unregister(listener);
+        }
+        assertEquals(1, listener.mEvents.size());
+        assertFalse(listener.mEvents.get(0).isError());
+        assertEquals(testMedia, listener.mEvents.get(0).mediaList.get(0));
+    }
+
     private MediaModel getBasicMedia() {
         return generateMedia("Test Title", "Test Description", "Test Caption", "Test Alt");
     }
@@ -0,0 +1,194 @@
+package org.wordpress.android.fluxc.media;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLog;
+import org.wordpress.android.fluxc.Dispatcher;
+import org.wordpress.android.fluxc.action.MediaAction;
+import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.model.MediaModel;
+import org.wordpress.android.fluxc.model.SiteModel;
+import org.wordpress.android.fluxc.network.HTTPAuthManager;
+import org.wordpress.android.fluxc.network.UserAgent;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest;
+import org.wordpress.android.fluxc.network.xmlrpc.media.MediaXMLRPCClient;
+import org.wordpress.android.fluxc.store.MediaStore.FetchMediaListResponsePayload;
+import org.wordpress.android.fluxc.store.MediaStore.MediaErrorType;
+import org.wordpress.android.fluxc.store.MediaStore.MediaPayload;
+import org.wordpress.android.util.DateTimeUtils;
+
+import java.lang.reflect.Method;
+import java.util.Date;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.wordpress.android.fluxc.site.SiteUtils.generateSelfHostedNonJPSite;
+
+@RunWith(RobolectricTestRunner.class)
+public class MediaXMLRPCClientTest {
+    // 2017-06-01T10:00:00 UTC
+    private static final Date UPLOAD_DATE = new Date(1496311200000L);
+    private static final String IMAGE_ITEM = "<value><struct>"
+            + "<member><name>attachment_id</name><value><string>42</string></value></member>"
+            + "<member><name>date_created_gmt</name>"
+            + "<value><dateTime.iso8601>20170601T10:00:00</dateTime.iso8601></value></member>"
+            + "<member><name>parent</name><value><int>7</int></value></member>"
+            + "<member><name>link</name>"
+            + "<value><string>http://some.url/wp-content/uploads/2017/06/cat.jpg</string></value></member>"
+            + "<member><name>title</name><value><string>Tom &amp;amp; Jerry</string></value></member>"
+            + "<member><name>caption</name><value><string></string></value></member>"
+            + "<member><name>metadata</name><value><struct>"
+            + "<member><name>width</name><value><int>1024</int></value></member>"
+            + "<member><name>height</name><value><int>768</int></value></member>"
+            + "<member><name>file</name><value><string>2017/06/cat.jpg</string></value></member>"
+            + "<member><name>sizes</name><value><struct>"
+            + "<member><name>medium</name><value><struct>"
+            + "<member><name>file</name><value><string>cat-300x225.jpg</string></value></member>"
+            + "<member><name>width</name><value><int>300</int></value></member>"
+            + "</struct></value></member>"
+            + "</struct></value></member>"
+            + "<member><name>image_meta</name><value><struct>"
+            + "<member><name>keywords</name><value><array><data></data></array></value></member>"
+            + "</struct></value></member>"
+            + "</struct></value></member>"
+            + "<member><name>thumbnail</name>"
+            + "<value><string>http://some.url/wp-content/uploads/2017/06/cat-150x150.jpg</string></value></member>"
+            + "</struct></value>";
+
+    private MediaXMLRPCClient mClient;
+    private Dispatcher mDispatcher;
+    private String mMockedResponse = "";
+
+    @Before
+    public void setUp() {
+        ShadowLog.stream = System.out;
+
+        RequestQueue queue = mock(RequestQueue.class);
+        mDispatcher = mock(Dispatcher.class);
+        // Requests are answered with the mocked response as soon as they are queued
+        when(queue.add(any(Request.class))).thenAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) throws Exception {
+                XMLRPCRequest request = (XMLRPCRequest) invocation.getArguments()[0];
+                Method parseNetworkResponse = XMLRPCRequest.class.getDeclaredMethod("parseNetworkResponse",
+                        NetworkResponse.class);
+                parseNetworkResponse.setAccessible(true);
+                Response<?> response = (Response<?>) parseNetworkResponse.invoke(request,
+                        new NetworkResponse(mMockedResponse.getBytes("UTF-8")));
+                Method deliverResponse = XMLRPCRequest.class.getDeclaredMethod("deliverResponse", Object.class);
+                deliverResponse.setAccessible(true);
+                deliverResponse.invoke(request, response.result);
+                return null;
+            }
+        });
+        mClient = new MediaXMLRPCClient(mDispatcher, queue, new OkHttpClient(), mock(UserAgent.class),
+                mock(HTTPAuthManager.class));
+    }
+
+    @Test
+    public void testFetchMediaList() {
+        SiteModel site = generateSelfHostedNonJPSite();
+        site.setId(3);
+        mMockedResponse = response("<value><array><data>"
+                + IMAGE_ITEM
+                + "<value><boolean>0</boolean></value>"
+                + "<value><struct>"
+                + "<member><name>attachment_id</name><value><string>43</string></value></member>"
+                + "<member><name>link</name>"
+                + "<value><string>http://some.url/wp-content/uploads/2017/06/song.mp3</string></value></member>"
+                + "</struct></value>"
+                + "</data></array></value>");
+        mClient.fetchMediaList(site, 2, 0, null);
+
+        FetchMediaListResponsePayload payload = (FetchMediaListResponsePayload) captureAction(
+                MediaAction.FETCHED_MEDIA_LIST).getPayload();
+        assertFalse(payload.isError());
+        assertTrue(payload.canLoadMore);
+        assertEquals(2, payload.mediaList.size());
+
+        MediaModel image = payload.mediaList.get(0);
+        assertEquals(3, image.getLocalSiteId());
+        assertEquals(42, image.getMediaId());
+        assertEquals(7, image.getPostId());
+        assertEquals("Tom & Jerry", image.getTitle());
+        assertEquals("", image.getCaption());
+        assertEquals("", image.getDescription());
+        assertEquals(DateTimeUtils.iso8601UTCFromDate(UPLOAD_DATE), image.getUploadDate());
+        assertEquals("http://some.url/wp-content/uploads/2017/06/cat.jpg", image.getUrl());
+        assertEquals("cat.jpg", image.getFileName());
+        assertEquals("jpg", image.getFileExtension());
+        assertEquals("image/jpg", image.getMimeType());
+        assertEquals("http://some.url/wp-content/uploads/2017/06/cat-150x150.jpg", image.getThumbnailUrl());
+        assertEquals(1024, image.getWidth());
+        assertEquals(768, image.getHeight());
+        assertEquals("http://some.url/wp-content/uploads/2017/06/cat-300x225.jpg", image.getFileUrlMediumSize());
+        assertNull(image.getFileUrlLargeSize());
+
+        MediaModel song = payload.mediaList.get(1);
+        assertEquals(43, song.getMediaId());
+        assertEquals("", song.getTitle());
+        assertEquals("audio/mp3", song.getMimeType());
+        assertEquals(0, song.getWidth());
+    }
+
+    @Test
+    public void testFetchMedia() {
+        SiteModel site = generateSelfHostedNonJPSite();
+        site.setId(3);
+        MediaModel media = new MediaModel();
+        media.setId(5);
+        media.setMediaId(42);
+        mMockedResponse = response(IMAGE_ITEM);
+        mClient.fetchMedia(site, media);
+
+        MediaPayload payload = (MediaPayload) captureAction(MediaAction.FETCHED_MEDIA).getPayload();
+        assertFalse(payload.isError());
+        // Local IDs are kept
+        assertEquals(5, payload.media.getId());
+        assertEquals(3, payload.media.getLocalSiteId());
+        assertEquals(42, payload.media.getMediaId());
+        assertEquals("Tom & Jerry", payload.media.getTitle());
+    }
+
+    @Test
+    public void testFetchMediaEmptyResponse() {
+        SiteModel site = generateSelfHostedNonJPSite();
+        MediaModel media = new MediaModel();
+        media.setMediaId(42);
+        mMockedResponse = response("<value><struct></struct></value>");
+        mClient.fetchMedia(site, media);
+
+        MediaPayload payload = (MediaPayload) captureAction(MediaAction.FETCHED_MEDIA).getPayload();
+        assertTrue(payload.isError());
+        assertEquals(MediaErrorType.PARSE_ERROR, payload.error.type);
+    }
+
+    private Action captureAction(MediaAction type) {
+        ArgumentCaptor<Action> captor = ArgumentCaptor.forClass(Action.class);
+        verify(mDispatcher).dispatch(captor.capture());
+        assertEquals(type, captor.getValue().getType());
+        return captor.getValue();
+    }
+
+    private static String response(String value) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+               + "<methodResponse><params><param>" + value + "</param></params></methodResponse>";
+    }
+}
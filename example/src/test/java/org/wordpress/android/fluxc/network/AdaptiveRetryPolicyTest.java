@@ -0,0 +1,75 @@
+package org.wordpress.android.fluxc.network;
+
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class AdaptiveRetryPolicyTest {
+    private static final int MAX_TIMEOUT_MS = 30000;
+
+    @Test
+    public void testRetriesDoubleTimeoutAndDelay() throws VolleyError {
+        HostHealth health = new HostHealth();
+        for (int i = 0; i < 10; i++) {
+            health.onSuccess(100);
+        }
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(health, MAX_TIMEOUT_MS);
+        int timeoutMs = policy.getCurrentTimeout();
+        assertEquals(HostHealth.MIN_TIMEOUT_MS, timeoutMs);
+        for (int retry = 1; retry <= AdaptiveRetryPolicy.MAX_RETRIES; retry++) {
+            policy.retry(new TimeoutError());
+            timeoutMs = Math.min(timeoutMs * 2, MAX_TIMEOUT_MS);
+            assertEquals(timeoutMs, policy.getCurrentTimeout());
+            // Half of the backoff, and a random part of the other half
+            long backoffMs = AdaptiveRetryPolicy.BASE_BACKOFF_MS << (retry - 1);
+            assertTrue(policy.getRetryDelayMs() >= backoffMs / 2);
+            assertTrue(policy.getRetryDelayMs() <= backoffMs);
+        }
+        TimeoutError error = new TimeoutError();
+        try {
+            policy.retry(error);
+            fail("Expected the error to be thrown");
+        } catch (VolleyError e) {
+            assertSame(error, e);
+        }
+    }
+
+    @Test
+    public void testRetryDelaysAreJittered() throws VolleyError {
+        Set<Long> delays = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(new HostHealth(), MAX_TIMEOUT_MS);
+            policy.retry(new TimeoutError());
+            delays.add(policy.getRetryDelayMs());
+        }
+        assertTrue(delays.size() > 1);
+    }
+
+    @Test
+    public void testNoRetryWhileHostIsUnavailable() {
+        HostHealth health = new HostHealth();
+        for (int i = 0; i < HostHealth.FAILURE_THRESHOLD; i++) {
+            health.onFailure(1000);
+        }
+        AdaptiveRetryPolicy policy = new AdaptiveRetryPolicy(health, MAX_TIMEOUT_MS);
+        TimeoutError error = new TimeoutError();
+        try {
+            policy.retry(error);
+            fail("Expected the error to be thrown");
+        } catch (VolleyError e) {
+            assertSame(error, e);
+        }
+    }
+}
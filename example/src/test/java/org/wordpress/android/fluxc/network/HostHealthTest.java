@@ -0,0 +1,123 @@
+package org.wordpress.android.fluxc.network;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class HostHealthTest {
+    private static final int MAX_TIMEOUT_MS = 30000;
+
+    @Test
+    public void testCircuitOpensAfterConsecutiveFailures() {
+        HostHealth health = new HostHealth();
+        long now = 1000;
+        for (int i = 0; i < HostHealth.FAILURE_THRESHOLD - 1; i++) {
+            assertTrue(health.allowRequest(now));
+            health.onFailure(now);
+        }
+        assertTrue(health.isAvailable());
+        health.onFailure(now);
+        assertFalse(health.isAvailable());
+        assertFalse(health.allowRequest(now + HostHealth.MIN_OPEN_MS - 1));
+    }
+
+    @Test
+    public void testSuccessfulProbeClosesCircuit() {
+        HostHealth health = new HostHealth();
+        long now = 1000;
+        openCircuit(health, now);
+
+        now += HostHealth.MIN_OPEN_MS;
+        // A single probe goes through
+        assertTrue(health.allowRequest(now));
+        assertFalse(health.allowRequest(now));
+
+        health.onSuccess(100);
+        assertTrue(health.isAvailable());
+        assertTrue(health.allowRequest(now));
+    }
+
+    @Test
+    public void testFailedProbeDoublesOpenDuration() {
+        HostHealth health = new HostHealth();
+        long now = 1000;
+        openCircuit(health, now);
+
+        now += HostHealth.MIN_OPEN_MS;
+        assertTrue(health.allowRequest(now));
+        health.onFailure(now);
+        assertFalse(health.allowRequest(now + HostHealth.MIN_OPEN_MS));
+        assertTrue(health.allowRequest(now + 2 * HostHealth.MIN_OPEN_MS));
+    }
+
+    @Test
+    public void testConnectionFailuresDontOpenCircuit() {
+        HostHealth health = new HostHealth();
+        long now = 1000;
+        for (int i = 0; i < 2 * HostHealth.FAILURE_THRESHOLD; i++) {
+            health.onConnectionFailure();
+        }
+        assertTrue(health.isAvailable());
+        assertTrue(health.allowRequest(now));
+    }
+
+    @Test
+    public void testConnectionFailureOfProbeAllowsAnotherProbe() {
+        HostHealth health = new HostHealth();
+        long now = 1000;
+        openCircuit(health, now);
+
+        now += HostHealth.MIN_OPEN_MS;
+        assertTrue(health.allowRequest(now));
+        health.onConnectionFailure();
+        assertFalse(health.isAvailable());
+        assertTrue(health.allowRequest(now));
+    }
+
+    @Test
+    public void testResetClosesCircuit() {
+        HostHealth health = new HostHealth();
+        long now = 1000;
+        openCircuit(health, now);
+
+        health.reset();
+        assertTrue(health.isAvailable());
+        assertTrue(health.allowRequest(now));
+    }
+
+    @Test
+    public void testTimeoutFollowsLatency() {
+        HostHealth health = new HostHealth();
+        // Not enough samples yet
+        health.onSuccess(100);
+        assertEquals(MAX_TIMEOUT_MS, health.getTimeoutMs(MAX_TIMEOUT_MS));
+
+        for (int i = 0; i < 10; i++) {
+            health.onSuccess(100);
+        }
+        assertEquals(HostHealth.MIN_TIMEOUT_MS, health.getTimeoutMs(MAX_TIMEOUT_MS));
+
+        for (int i = 0; i < 32; i++) {
+            health.onSuccess(4200);
+        }
+        // 4 times the latency, rounded up to the second
+        assertEquals(17000, health.getTimeoutMs(MAX_TIMEOUT_MS));
+
+        for (int i = 0; i < 32; i++) {
+            health.onSuccess(20000);
+        }
+        assertEquals(MAX_TIMEOUT_MS, health.getTimeoutMs(MAX_TIMEOUT_MS));
+    }
+
+    private static void openCircuit(HostHealth health, long now) {
+        for (int i = 0; i < HostHealth.FAILURE_THRESHOLD; i++) {
+            health.onFailure(now);
+        }
+        assertFalse(health.isAvailable());
+    }
+}
@@ -0,0 +1,166 @@
+package org.wordpress.android.fluxc.network;
+
+import android.support.annotation.NonNull;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+public class InFlightRequestsTest {
+    private RequestQueue mMockedQueue;
+    private InFlightRequests mInFlightRequests;
+
+    private static class ErrorCollector implements BaseErrorListener {
+        private final List<BaseNetworkError> mErrors = new ArrayList<>();
+
+        @Override
+        public void onErrorResponse(@NonNull BaseNetworkError error) {
+            mErrors.add(error);
+        }
+    }
+
+    private static class TestRequest extends BaseRequest<StringBuilder> {
+        private final String mKey;
+        private final ErrorCollector mErrorCollector;
+        private final List<StringBuilder> mResponses = new ArrayList<>();
+        private int mBaseNetworkErrorCount;
+
+        TestRequest(String key) {
+            this(key, new ErrorCollector());
+        }
+
+        private TestRequest(String key, ErrorCollector errorCollector) {
+            super(Method.GET, "https://example.com", errorCollector);
+            mKey = key;
+            mErrorCollector = errorCollector;
+        }
+
+        @Override
+        protected String getSingleFlightKey() {
+            return mKey;
+        }
+
+        @Override
+        protected Response<StringBuilder> parseNetworkResponse(final NetworkResponse response) {
+            parseResponseForFollowers(new FollowerResponseParser<StringBuilder>() {
+                @Override
+                public Response<StringBuilder> parse(BaseRequest<StringBuilder> follower) {
+                    return ((TestRequest) follower).parseNetworkResponse(response);
+                }
+            });
+            return Response.success(new StringBuilder(new String(response.data)), null);
+        }
+
+        @Override
+        public void deliverResponse(StringBuilder response) {
+            mResponses.add(response);
+            deliverResponseToFollowers();
+        }
+
+        @Override
+        public BaseNetworkError deliverBaseNetworkError(@NonNull BaseNetworkError error) {
+            mBaseNetworkErrorCount++;
+            return error;
+        }
+
+        void receive(String body) {
+            deliverResponse(parseNetworkResponse(new NetworkResponse(body.getBytes())).result);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mMockedQueue = mock(RequestQueue.class);
+        mInFlightRequests = new InFlightRequests(mMockedQueue);
+    }
+
+    @Test
+    public void testIdenticalRequestsShareResponse() {
+        TestRequest first = new TestRequest("key");
+        TestRequest second = new TestRequest("key");
+        TestRequest other = new TestRequest("other-key");
+        assertFalse(mInFlightRequests.join(first));
+        assertTrue(mInFlightRequests.join(second));
+        assertFalse(mInFlightRequests.join(other));
+
+        first.receive("response");
+        assertEquals(1, first.mResponses.size());
+        assertEquals(1, second.mResponses.size());
+        assertEquals("response", second.mResponses.get(0).toString());
+        // Each request gets its own copy of the response, free to change it
+        assertNotSame(first.mResponses.get(0), second.mResponses.get(0));
+        assertEquals(0, other.mResponses.size());
+
+        // The response was delivered, an identical request is sent again
+        assertFalse(mInFlightRequests.join(new TestRequest("key")));
+    }
+
+    @Test
+    public void testRequestsWithoutKeyAreNeverShared() {
+        assertFalse(mInFlightRequests.join(new TestRequest(null)));
+        assertFalse(mInFlightRequests.join(new TestRequest(null)));
+    }
+
+    @Test
+    public void testCanceledFollowerIsSkipped() {
+        TestRequest first = new TestRequest("key");
+        TestRequest second = new TestRequest("key");
+        mInFlightRequests.join(first);
+        mInFlightRequests.join(second);
+
+        second.cancel();
+        first.receive("response");
+        assertEquals(0, second.mResponses.size());
+    }
+
+    @Test
+    public void testErrorIsReportedOnce() {
+        TestRequest first = new TestRequest("key");
+        TestRequest second = new TestRequest("key");
+        mInFlightRequests.join(first);
+        mInFlightRequests.join(second);
+
+        first.deliverError(new VolleyError("error"));
+        assertEquals(1, first.mErrorCollector.mErrors.size());
+        assertEquals(1, second.mErrorCollector.mErrors.size());
+        // Auth and other global error handling only runs for the request that was sent
+        assertEquals(1, first.mBaseNetworkErrorCount);
+        assertEquals(0, second.mBaseNetworkErrorCount);
+    }
+
+    @Test
+    public void testFollowerIsSentWhenRequestIsCanceled() {
+        TestRequest first = new TestRequest("key");
+        TestRequest second = new TestRequest("key");
+        TestRequest third = new TestRequest("key");
+        mInFlightRequests.join(first);
+        mInFlightRequests.join(second);
+        mInFlightRequests.join(third);
+
+        first.cancel();
+        // The second request takes the place of the first one, the third one keeps waiting for it
+        verify(mMockedQueue).add(second);
+        second.receive("response");
+        assertEquals(0, first.mResponses.size());
+        assertEquals(1, third.mResponses.size());
+    }
+}
@@ -0,0 +1,199 @@
+package org.wordpress.android.fluxc.network;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+
+import com.android.volley.Cache;
+import com.android.volley.DefaultRetryPolicy;
+import com.android.volley.NetworkResponse;
+import com.android.volley.NoConnectionError;
+import com.android.volley.Request;
+import com.android.volley.ServerError;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class OkHttpNetworkTest {
+    private static final String URL = "https://public-api.wordpress.com/rest/v1.1/me";
+
+    private okhttp3.Request mLastRequest;
+
+    private static class TestRequest extends Request<String> {
+        TestRequest() {
+            this(URL);
+        }
+
+        TestRequest(String url) {
+            super(Method.GET, url, null);
+        }
+
+        @Override
+        protected com.android.volley.Response<String> parseNetworkResponse(NetworkResponse response) {
+            return null;
+        }
+
+        @Override
+        protected void deliverResponse(String response) {
+        }
+    }
+
+    private OkHttpNetwork newNetwork(final int code, final String body) {
+        return new OkHttpNetwork(new OkHttpClient.Builder().addInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                mLastRequest = chain.request();
+                return new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_2)
+                        .code(code)
+                        .message("")
+                        .header("ETag", "\"v1\"")
+                        .body(ResponseBody.create(MediaType.parse("application/json"), body))
+                        .build();
+            }
+        }));
+    }
+
+    @Test
+    public void testSuccessfulResponse() throws VolleyError {
+        NetworkResponse response = newNetwork(200, "{}").performRequest(new TestRequest());
+        assertEquals(200, response.statusCode);
+        assertArrayEquals("{}".getBytes(), response.data);
+        assertFalse(response.notModified);
+        // Headers are case insensitive, like in Volley's BasicNetwork
+        assertEquals("\"v1\"", response.headers.get("etag"));
+    }
+
+    @Test
+    public void testNotModifiedResponseUsesCachedData() throws VolleyError {
+        Cache.Entry entry = new Cache.Entry();
+        entry.data = "cached".getBytes();
+        entry.etag = "\"v1\"";
+        entry.responseHeaders = new HashMap<>();
+        TestRequest request = new TestRequest();
+        request.setCacheEntry(entry);
+
+        NetworkResponse response = newNetwork(304, "").performRequest(request);
+        assertEquals("\"v1\"", mLastRequest.header("If-None-Match"));
+        assertTrue(response.notModified);
+        assertArrayEquals(entry.data, response.data);
+    }
+
+    @Test
+    public void testConnectionFailuresWhileOfflineDontMakeHostUnavailable() {
+        Context context = RuntimeEnvironment.application;
+        Shadows.shadowOf((ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE))
+               .setActiveNetworkInfo(null);
+        OkHttpNetwork network = new OkHttpNetwork(new OkHttpClient.Builder().addInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                throw new ConnectException("Network is unreachable");
+            }
+        }), context);
+        HostHealth hostHealth = HostHealth.forHost("public-api.wordpress.com");
+        hostHealth.reset();
+        for (int i = 0; i < 2 * HostHealth.FAILURE_THRESHOLD; i++) {
+            try {
+                network.performRequest(new TestRequest());
+                fail("Expected a NoConnectionError");
+            } catch (VolleyError e) {
+                assertTrue(e instanceof NoConnectionError);
+                assertFalse(e instanceof HostUnavailableError);
+            }
+        }
+        assertTrue(hostHealth.isAvailable());
+    }
+
+    @Test
+    public void testRefusedConnectionsMakeHostUnavailable() {
+        String url = "https://down.example.com/xmlrpc.php";
+        OkHttpNetwork network = new OkHttpNetwork(new OkHttpClient.Builder().addInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                throw new ConnectException("Connection refused");
+            }
+        }), RuntimeEnvironment.application);
+        // Robolectric's default active network is connected
+        HostHealth hostHealth = HostHealth.forHost("down.example.com");
+        hostHealth.reset();
+        for (int i = 0; i < HostHealth.FAILURE_THRESHOLD; i++) {
+            try {
+                network.performRequest(new TestRequest(url));
+                fail("Expected a NoConnectionError");
+            } catch (VolleyError e) {
+                assertFalse(e instanceof HostUnavailableError);
+            }
+        }
+        assertFalse(hostHealth.isAvailable());
+        // The next request fails right away
+        try {
+            network.performRequest(new TestRequest(url));
+            fail("Expected a HostUnavailableError");
+        } catch (VolleyError e) {
+            assertTrue(e instanceof HostUnavailableError);
+        }
+        hostHealth.reset();
+    }
+
+    @Test
+    public void testConnectTimeoutsCountAsHostFailures() {
+        String url = "https://slow.example.com/xmlrpc.php";
+        OkHttpNetwork network = new OkHttpNetwork(new OkHttpClient.Builder().addInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                throw new SocketTimeoutException("connect timed out");
+            }
+        }));
+        HostHealth hostHealth = HostHealth.forHost("slow.example.com");
+        hostHealth.reset();
+        TestRequest request = new TestRequest(url);
+        // No retries, each request is a single attempt
+        request.setRetryPolicy(new DefaultRetryPolicy(1000, 0, 1));
+        for (int i = 0; i < HostHealth.FAILURE_THRESHOLD; i++) {
+            try {
+                network.performRequest(request);
+                fail("Expected a TimeoutError");
+            } catch (VolleyError e) {
+                assertTrue(e instanceof TimeoutError);
+            }
+        }
+        assertFalse(hostHealth.isAvailable());
+        hostHealth.reset();
+    }
+
+    @Test
+    public void testErrorResponseKeepsBody() {
+        try {
+            newNetwork(404, "{\"error\":\"unknown_post\"}").performRequest(new TestRequest());
+            fail("Expected a ServerError");
+        } catch (VolleyError e) {
+            assertTrue(e instanceof ServerError);
+            assertEquals(404, e.networkResponse.statusCode);
+            assertArrayEquals("{\"error\":\"unknown_post\"}".getBytes(), e.networkResponse.data);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.wordpress.android.fluxc.network;
+
+import android.support.annotation.NonNull;
+
+import com.android.volley.ExecutorDelivery;
+import com.android.volley.Network;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue.RequestFilter;
+import com.android.volley.Response;
+import com.android.volley.toolbox.NoCache;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class PriorityRequestQueueTest {
+    private static final int TIMEOUT_MS = 2000;
+
+    private final List<String> mSentUrls = Collections.synchronizedList(new ArrayList<String>());
+    private final Semaphore mSent = new Semaphore(0);
+    // Requests to URLs ending with "blocked" are held until released
+    private final CountDownLatch mUnblock = new CountDownLatch(1);
+    private PriorityRequestQueue mQueue;
+
+    private static class TestRequest extends Request<Object> {
+        private final Priority mPriority;
+
+        TestRequest(String url, Priority priority) {
+            super(Method.GET, url, null);
+            mPriority = priority;
+            setShouldCache(false);
+        }
+
+        @Override
+        public Priority getPriority() {
+            return mPriority;
+        }
+
+        @Override
+        protected Response<Object> parseNetworkResponse(NetworkResponse response) {
+            return Response.success(null, null);
+        }
+
+        @Override
+        protected void deliverResponse(Object response) {
+        }
+    }
+
+    private static class RetriedRequest extends BaseRequest<String> {
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private volatile String mResponse;
+        private volatile BaseNetworkError mError;
+
+        RetriedRequest(String url) {
+            // Errors are recorded by deliverBaseNetworkError()
+            super(Method.GET, url, new BaseErrorListener() {
+                @Override
+                public void onErrorResponse(@NonNull BaseNetworkError error) {
+                }
+            });
+        }
+
+        @Override
+        protected Response<String> parseNetworkResponse(NetworkResponse response) {
+            return Response.success(new String(response.data), null);
+        }
+
+        @Override
+        protected void deliverResponse(String response) {
+            mResponse = response;
+            mDone.countDown();
+        }
+
+        @Override
+        public BaseNetworkError deliverBaseNetworkError(@NonNull BaseNetworkError error) {
+            mError = error;
+            mDone.countDown();
+            return error;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mUnblock.countDown();
+        if (mQueue != null) {
+            mQueue.stop();
+        }
+    }
+
+    @Test
+    public void testWaitingRequestsAreSentByPriority() throws InterruptedException {
+        startQueue(1, 1);
+        mQueue.add(new TestRequest("https://a.example.com/blocked", Request.Priority.NORMAL));
+        awaitSent(1);
+        mQueue.add(new TestRequest("https://a.example.com/low", Request.Priority.LOW));
+        mQueue.add(new TestRequest("https://a.example.com/normal", Request.Priority.NORMAL));
+        mQueue.add(new TestRequest("https://a.example.com/immediate", Request.Priority.IMMEDIATE));
+        mQueue.add(new TestRequest("https://a.example.com/high", Request.Priority.HIGH));
+
+        mUnblock.countDown();
+        awaitSent(4);
+        assertEquals(Arrays.asList("https://a.example.com/blocked", "https://a.example.com/immediate",
+                "https://a.example.com/high", "https://a.example.com/normal", "https://a.example.com/low"), mSentUrls);
+    }
+
+    @Test
+    public void testSlowHostDoesNotHoldOtherHosts() throws InterruptedException {
+        startQueue(2, 1);
+        mQueue.add(new TestRequest("https://slow.example.com/blocked", Request.Priority.NORMAL));
+        awaitSent(1);
+        mQueue.add(new TestRequest("https://slow.example.com/second", Request.Priority.NORMAL));
+        mQueue.add(new TestRequest("https://fast.example.com/", Request.Priority.NORMAL));
+
+        // The other host gets the free thread, the second request to the slow host waits for the first one
+        awaitSent(1);
+        assertEquals("https://fast.example.com/", mSentUrls.get(1));
+        assertFalse(mSent.tryAcquire(100, TimeUnit.MILLISECONDS));
+
+        mUnblock.countDown();
+        awaitSent(1);
+        assertEquals("https://slow.example.com/second", mSentUrls.get(2));
+    }
+
+    @Test
+    public void testCanceledWaitingRequestIsNotSent() throws InterruptedException {
+        startQueue(1, 1);
+        mQueue.add(new TestRequest("https://a.example.com/blocked", Request.Priority.NORMAL));
+        awaitSent(1);
+        final TestRequest canceled = new TestRequest("https://a.example.com/canceled", Request.Priority.NORMAL);
+        mQueue.add(canceled);
+
+        mQueue.cancelAll(new RequestFilter() {
+            @Override
+            public boolean apply(Request<?> request) {
+                return request == canceled;
+            }
+        });
+        assertTrue(canceled.isCanceled());
+
+        // The host slot is released once the first request completes
+        mUnblock.countDown();
+        mQueue.add(new TestRequest("https://a.example.com/next", Request.Priority.NORMAL));
+        awaitSent(1);
+        assertEquals(Arrays.asList("https://a.example.com/blocked", "https://a.example.com/next"), mSentUrls);
+    }
+
+    @Test
+    public void testTimedOutRequestIsRetriedWithoutHoldingThread() throws InterruptedException {
+        final AtomicInteger retriedAttempts = new AtomicInteger();
+        OkHttpNetwork network = new OkHttpNetwork(new OkHttpClient.Builder().addInterceptor(new Interceptor() {
+            @Override
+            public okhttp3.Response intercept(Chain chain) throws IOException {
+                String host = chain.request().url().host();
+                mSentUrls.add(host);
+                if (host.equals("retried.example.com") && retriedAttempts.incrementAndGet() == 1) {
+                    throw new SocketTimeoutException("timeout");
+                }
+                return new okhttp3.Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("")
+                        .body(ResponseBody.create(MediaType.parse("text/plain"), host))
+                        .build();
+            }
+        }));
+        HostHealth.forHost("retried.example.com").reset();
+        startQueue(network, 1, 1);
+
+        RetriedRequest retried = new RetriedRequest("https://retried.example.com/");
+        mQueue.add(retried);
+        // While the first request waits for its retry, the single network thread sends the other one
+        RetriedRequest other = new RetriedRequest("https://other.example.com/");
+        mQueue.add(other);
+        assertTrue(other.mDone.await(AdaptiveRetryPolicy.BASE_BACKOFF_MS / 2, TimeUnit.MILLISECONDS));
+        assertEquals(1, retriedAttempts.get());
+
+        assertTrue(retried.mDone.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(2, retriedAttempts.get());
+        assertEquals("retried.example.com", retried.mResponse);
+        assertNull(retried.mError);
+        assertEquals(Arrays.asList("retried.example.com", "other.example.com", "retried.example.com"), mSentUrls);
+    }
+
+    private void startQueue(int threads, int maxRequestsPerHost) {
+        Network network = new Network() {
+            @Override
+            public NetworkResponse performRequest(Request<?> request) {
+                mSentUrls.add(request.getUrl());
+                mSent.release();
+                if (request.getUrl().endsWith("blocked")) {
+                    try {
+                        mUnblock.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new NetworkResponse(new byte[0]);
+            }
+        };
+        startQueue(network, threads, maxRequestsPerHost);
+    }
+
+    private void startQueue(Network network, int threads, int maxRequestsPerHost) {
+        // Responses are delivered on the network threads, instead of the main thread
+        mQueue = new PriorityRequestQueue(new NoCache(), network, threads, maxRequestsPerHost,
+                new ExecutorDelivery(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        command.run();
+                    }
+                }));
+        mQueue.start();
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        assertTrue(mSent.tryAcquire(count, TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+}
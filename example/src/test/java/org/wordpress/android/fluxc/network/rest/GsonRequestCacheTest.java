@@ -0,0 +1,248 @@
+package org.wordpress.android.fluxc.network.rest;
+
+import android.support.annotation.NonNull;
+
+import com.android.volley.Cache;
+import com.android.volley.ExecutorDelivery;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response.Listener;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
+import org.wordpress.android.fluxc.network.OkHttpNetwork;
+import org.wordpress.android.fluxc.network.rest.GsonRequest.OnNotModifiedListener;
+import org.wordpress.android.fluxc.network.rest.GsonRequest.ResponseStreamParser;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class GsonRequestCacheTest {
+    private static final String HOST = "catalog.example.com";
+    private static final String URL = "https://" + HOST + "/themes";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+    private static final int TIMEOUT_MS = 2000;
+
+    private final MemoryCache mCache = new MemoryCache();
+    private final AtomicInteger mParseCount = new AtomicInteger();
+    private RequestQueue mQueue;
+    // The response of the server to the next requests, and the last request it received
+    private volatile int mCode;
+    private volatile String mEtag;
+    private volatile String mBody;
+    private volatile String mCacheControl;
+    private volatile Request mLastRequest;
+
+    public static class Catalog {
+        public String name;
+    }
+
+    private static class MemoryCache implements Cache {
+        private final Map<String, Entry> mEntries = new HashMap<>();
+        private int mPutCount;
+
+        @Override
+        public synchronized Entry get(String key) {
+            return mEntries.get(key);
+        }
+
+        @Override
+        public synchronized void put(String key, Entry entry) {
+            mPutCount++;
+            mEntries.put(key, entry);
+        }
+
+        synchronized int getPutCount() {
+            return mPutCount;
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public synchronized void invalidate(String key, boolean fullExpire) {
+            mEntries.remove(key);
+        }
+
+        @Override
+        public synchronized void remove(String key) {
+            mEntries.remove(key);
+        }
+
+        @Override
+        public synchronized void clear() {
+            mEntries.clear();
+        }
+    }
+
+    private class CatalogRequest extends GsonRequest<Catalog> {
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private Catalog mResponse;
+        private boolean mNotModified;
+
+        CatalogRequest(boolean revalidate) {
+            // Errors make the request time out
+            super(Method.GET, null, null, URL, Catalog.class, null, new Listener<Catalog>() {
+                @Override
+                public void onResponse(Catalog response) {
+                }
+            }, new BaseErrorListener() {
+                @Override
+                public void onErrorResponse(@NonNull BaseNetworkError error) {
+                }
+            });
+            setStreamParser(new ResponseStreamParser<Catalog>() {
+                @Override
+                public Catalog parse(Gson gson, JsonReader reader) throws IOException {
+                    mParseCount.incrementAndGet();
+                    return gson.fromJson(reader, Catalog.class);
+                }
+            });
+            if (revalidate) {
+                enableRevalidatingCache(new OnNotModifiedListener() {
+                    @Override
+                    public void onNotModified() {
+                        mNotModified = true;
+                    }
+                });
+            }
+        }
+
+        @Override
+        protected void deliverResponse(Catalog response) {
+            mResponse = response;
+            super.deliverResponse(response);
+            mDone.countDown();
+        }
+
+        @Override
+        public BaseNetworkError deliverBaseNetworkError(@NonNull BaseNetworkError error) {
+            return error;
+        }
+
+        void send() throws InterruptedException {
+            mQueue.add(this);
+            assertTrue(mDone.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Before
+    public void setUp() {
+        OkHttpNetwork network = new OkHttpNetwork(new OkHttpClient.Builder().addInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                mLastRequest = chain.request();
+                Response.Builder response = new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_2)
+                        .code(mCode)
+                        .message("")
+                        .header("ETag", mEtag)
+                        .header("Last-Modified", LAST_MODIFIED)
+                        .body(ResponseBody.create(MediaType.parse("application/json"), mBody));
+                if (mCacheControl != null) {
+                    response.header("Cache-Control", mCacheControl);
+                }
+                return response.build();
+            }
+        }));
+        // Responses are delivered on the network threads, instead of the main thread
+        mQueue = new RequestQueue(mCache, network, 1, new ExecutorDelivery(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }));
+        mQueue.start();
+    }
+
+    @After
+    public void tearDown() {
+        mQueue.stop();
+    }
+
+    @Test
+    public void testNotModifiedResponseIsNotParsedOrStored() throws InterruptedException {
+        respond(200, "\"v1\"", "{\"name\": \"first\"}");
+        CatalogRequest first = new CatalogRequest(true);
+        first.send();
+        assertEquals("first", first.mResponse.name);
+        assertNull(mLastRequest.header("If-None-Match"));
+        assertEquals(1, mParseCount.get());
+        assertEquals(1, mCache.getPutCount());
+
+        respond(304, "\"v1\"", "");
+        CatalogRequest second = new CatalogRequest(true);
+        second.send();
+        // The validators of the cached response were sent
+        assertEquals("\"v1\"", mLastRequest.header("If-None-Match"));
+        assertEquals(LAST_MODIFIED, mLastRequest.header("If-Modified-Since"));
+        assertTrue(second.mNotModified);
+        assertNull(second.mResponse);
+        assertEquals(1, mParseCount.get());
+        assertEquals(1, mCache.getPutCount());
+    }
+
+    @Test
+    public void testModifiedResponseIsParsedAndStored() throws InterruptedException {
+        respond(200, "\"v1\"", "{\"name\": \"first\"}");
+        new CatalogRequest(true).send();
+
+        respond(200, "\"v2\"", "{\"name\": \"second\"}");
+        CatalogRequest second = new CatalogRequest(true);
+        second.send();
+        assertEquals("\"v1\"", mLastRequest.header("If-None-Match"));
+        assertEquals("second", second.mResponse.name);
+        assertEquals(2, mParseCount.get());
+        assertEquals(2, mCache.getPutCount());
+        assertEquals("\"v2\"", mCache.get(second.getCacheKey()).etag);
+    }
+
+    @Test
+    public void testRequestIsNotCachedUnlessEnabled() throws InterruptedException {
+        respond(200, "\"v1\"", "{\"name\": \"first\"}");
+        new CatalogRequest(false).send();
+        new CatalogRequest(false).send();
+        assertNull(mLastRequest.header("If-None-Match"));
+        assertEquals(0, mCache.getPutCount());
+    }
+
+    @Test
+    public void testNoStoreResponseIsNotCached() throws InterruptedException {
+        respond(200, "\"v1\"", "{\"name\": \"first\"}");
+        mCacheControl = "no-store";
+        new CatalogRequest(true).send();
+        assertEquals(0, mCache.getPutCount());
+    }
+
+    private void respond(int code, String etag, String body) {
+        mCode = code;
+        mEtag = etag;
+        mBody = body;
+    }
+}
@@ -0,0 +1,243 @@
+package org.wordpress.android.fluxc.network.rest.wpcom;
+
+import android.support.annotation.NonNull;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.Response.Listener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.wordpress.android.fluxc.Dispatcher;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
+import org.wordpress.android.fluxc.network.BaseRequest.GenericErrorType;
+import org.wordpress.android.fluxc.network.UserAgent;
+import org.wordpress.android.fluxc.network.rest.GsonRequest;
+import org.wordpress.android.fluxc.network.rest.GsonRequest.OnNotModifiedListener;
+import org.wordpress.android.fluxc.network.rest.wpcom.WPComGsonRequest.WPComGsonNetworkError;
+import org.wordpress.android.fluxc.network.rest.wpcom.auth.AccessToken;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class WPComBatchRequestTest {
+    private static final String V1_1 = "https://public-api.wordpress.com/rest/v1.1";
+    private static final String V1_2 = "https://public-api.wordpress.com/rest/v1.2";
+
+    private final List<Request> mQueuedRequests = new ArrayList<>();
+    private BaseWPComRestClient mClient;
+
+    public static class PostResponse {
+        public long ID;
+        public String title;
+    }
+
+    private static class Call {
+        final List<PostResponse> mResponses = new ArrayList<>();
+        final List<BaseNetworkError> mErrors = new ArrayList<>();
+        final WPComGsonRequest<PostResponse> mRequest;
+
+        Call(String url) {
+            mRequest = WPComGsonRequest.buildGetRequest(url, null, PostResponse.class,
+                    new Listener<PostResponse>() {
+                        @Override
+                        public void onResponse(PostResponse response) {
+                            mResponses.add(response);
+                        }
+                    }, new BaseErrorListener() {
+                        @Override
+                        public void onErrorResponse(@NonNull BaseNetworkError error) {
+                            mErrors.add(error);
+                        }
+                    });
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mQueuedRequests.clear();
+        RequestQueue queue = mock(RequestQueue.class);
+        when(queue.add(any(Request.class))).thenAnswer(new Answer<Request>() {
+            @Override
+            public Request answer(InvocationOnMock invocation) {
+                Request request = (Request) invocation.getArguments()[0];
+                mQueuedRequests.add(request);
+                return request;
+            }
+        });
+        mClient = new BaseWPComRestClient(RuntimeEnvironment.application, mock(Dispatcher.class), queue,
+                mock(AccessToken.class), mock(UserAgent.class)) {};
+    }
+
+    @Test
+    public void testVersionRootAndBatchPath() {
+        WPComGsonRequest<PostResponse> request = new Call(V1_1 + "/sites/6/posts/7/?fields=ID").mRequest;
+        assertEquals(V1_1, WPComBatchRequest.getVersionRoot(request));
+        assertEquals("/sites/6/posts/7/?fields=ID", WPComBatchRequest.getBatchPath(request));
+        assertEquals(V1_2, WPComBatchRequest.getVersionRoot(new Call(V1_2 + "/sites/6/posts/").mRequest));
+
+        // Requests that can't be part of a batch
+        assertNull(WPComBatchRequest.getVersionRoot(new Call("https://example.com/wp-json/posts/7").mRequest));
+        assertNull(WPComBatchRequest.getVersionRoot(WPComGsonRequest.buildPostRequest(V1_1 + "/sites/6/posts/7/",
+                null, PostResponse.class, null, null)));
+        WPComGsonRequest<PostResponse> cached = new Call(V1_1 + "/sites/6/posts/8/").mRequest;
+        cached.enableRevalidatingCache(new OnNotModifiedListener() {
+            @Override
+            public void onNotModified() {
+            }
+        });
+        assertNull(WPComBatchRequest.getVersionRoot(cached));
+    }
+
+    @Test
+    public void testRequestsAreBatchedByVersion() {
+        Call first = new Call(V1_1 + "/sites/6/posts/7/");
+        Call second = new Call(V1_1 + "/sites/6/posts/8/");
+        Call other = new Call(V1_2 + "/sites/6/posts/");
+        Call notBatched = new Call("https://example.com/wp-json/posts/7");
+        mClient.addBatch(first.mRequest, second.mRequest, other.mRequest, notBatched.mRequest);
+
+        assertEquals(3, mQueuedRequests.size());
+        assertSame(notBatched.mRequest, mQueuedRequests.get(0));
+        assertTrue(mQueuedRequests.get(1) instanceof WPComBatchRequest);
+        String batchUrl = mQueuedRequests.get(1).getUrl();
+        assertTrue(batchUrl.startsWith(V1_1 + "/batch"));
+        assertTrue(batchUrl.contains("sites%2F6%2Fposts%2F7"));
+        assertTrue(batchUrl.contains("sites%2F6%2Fposts%2F8"));
+        // A single request of a version is sent as is
+        assertSame(other.mRequest, mQueuedRequests.get(2));
+    }
+
+    @Test
+    public void testEntriesAreDeliveredToEachRequest() throws Exception {
+        Call first = new Call(V1_1 + "/sites/6/posts/7/");
+        Call second = new Call(V1_1 + "/sites/6/posts/8/");
+        Call third = new Call(V1_1 + "/sites/6/posts/9/");
+        mClient.addBatch(first.mRequest, second.mRequest, third.mRequest);
+
+        receive((WPComBatchRequest) mQueuedRequests.get(0), "{"
+                + entry(first, "{\"ID\":7,\"title\":\"Seven\"}") + ","
+                + entry(second, "{\"error\":\"unknown_post\",\"message\":\"Unknown post\"}") + ","
+                + entry(third, "{\"status_code\":403,\"error\":\"unauthorized\",\"message\":\"Nope\"}") + ","
+                // Unknown entries are skipped
+                + "\"/sites/6/posts/10/\":{\"ID\":10}}");
+
+        assertEquals(1, first.mResponses.size());
+        assertEquals(7, first.mResponses.get(0).ID);
+        assertEquals("Seven", first.mResponses.get(0).title);
+        assertEquals(0, first.mErrors.size());
+
+        assertEquals(0, second.mResponses.size());
+        assertEquals(1, second.mErrors.size());
+        assertEquals("unknown_post", ((WPComGsonNetworkError) second.mErrors.get(0)).apiError);
+        assertEquals("Unknown post", second.mErrors.get(0).message);
+
+        assertEquals(1, third.mErrors.size());
+        assertEquals("unauthorized", ((WPComGsonNetworkError) third.mErrors.get(0)).apiError);
+        assertEquals(403, third.mErrors.get(0).volleyError.networkResponse.statusCode);
+        assertEquals(1, mQueuedRequests.size());
+    }
+
+    @Test
+    public void testMissingEntriesAreSentAgain() throws Exception {
+        Call first = new Call(V1_1 + "/sites/6/posts/7/");
+        Call second = new Call(V1_1 + "/sites/6/posts/8/");
+        mClient.addBatch(first.mRequest, second.mRequest);
+
+        receive((WPComBatchRequest) mQueuedRequests.get(0), "{" + entry(first, "{\"ID\":7}") + "}");
+
+        assertEquals(1, first.mResponses.size());
+        assertEquals(0, second.mResponses.size());
+        assertEquals(0, second.mErrors.size());
+        assertEquals(2, mQueuedRequests.size());
+        assertSame(second.mRequest, mQueuedRequests.get(1));
+    }
+
+    @Test
+    public void testCanceledRequestsGetNothing() throws Exception {
+        Call first = new Call(V1_1 + "/sites/6/posts/7/");
+        Call canceledBeforeResponse = new Call(V1_1 + "/sites/6/posts/8/");
+        Call canceledBeforeDelivery = new Call(V1_1 + "/sites/6/posts/9/");
+        Call canceledMissing = new Call(V1_1 + "/sites/6/posts/10/");
+        mClient.addBatch(first.mRequest, canceledBeforeResponse.mRequest, canceledBeforeDelivery.mRequest,
+                canceledMissing.mRequest);
+        WPComBatchRequest batchRequest = (WPComBatchRequest) mQueuedRequests.get(0);
+
+        canceledBeforeResponse.mRequest.cancel();
+        canceledMissing.mRequest.cancel();
+        Response<List<Response<?>>> response = parse(batchRequest, "{"
+                + entry(first, "{\"ID\":7}") + ","
+                + entry(canceledBeforeResponse, "{\"ID\":8}") + ","
+                + entry(canceledBeforeDelivery, "{\"ID\":9}") + "}");
+        // The entries of requests canceled before the response are skipped, not parsed
+        assertTrue(response.isSuccess());
+        assertNull(response.result.get(1));
+        canceledBeforeDelivery.mRequest.cancel();
+        batchRequest.deliverResponse(response.result);
+
+        assertEquals(1, first.mResponses.size());
+        for (Call call : new Call[]{canceledBeforeResponse, canceledBeforeDelivery, canceledMissing}) {
+            assertEquals(0, call.mResponses.size());
+            assertEquals(0, call.mErrors.size());
+        }
+        // Canceled requests aren't sent again
+        assertEquals(1, mQueuedRequests.size());
+    }
+
+    @Test
+    public void testUnexpectedResponseIsAParseError() throws Exception {
+        Call first = new Call(V1_1 + "/sites/6/posts/7/");
+        Call second = new Call(V1_1 + "/sites/6/posts/8/");
+        mClient.addBatch(first.mRequest, second.mRequest);
+        WPComBatchRequest batchRequest = (WPComBatchRequest) mQueuedRequests.get(0);
+
+        Response<List<Response<?>>> response = parse(batchRequest, "[]");
+        assertFalse(response.isSuccess());
+        batchRequest.deliverError(response.error);
+
+        // The response was unreadable, the requests aren't sent again: each of them gets the error
+        assertEquals(1, first.mErrors.size());
+        assertEquals(GenericErrorType.PARSE_ERROR, first.mErrors.get(0).type);
+        assertEquals(1, second.mErrors.size());
+    }
+
+    private static String entry(Call call, String json) {
+        // The paths of the requests hold their locale parameter
+        return "\"" + WPComBatchRequest.getBatchPath(call.mRequest) + "\":" + json;
+    }
+
+    private static void receive(WPComBatchRequest request, String body) throws Exception {
+        Response<List<Response<?>>> response = parse(request, body);
+        assertTrue(response.isSuccess());
+        request.deliverResponse(response.result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Response<List<Response<?>>> parse(WPComBatchRequest request, String body) throws Exception {
+        Method parseNetworkResponse = GsonRequest.class.getDeclaredMethod("parseNetworkResponse",
+                NetworkResponse.class);
+        parseNetworkResponse.setAccessible(true);
+        return (Response<List<Response<?>>>) parseNetworkResponse.invoke(request,
+                new NetworkResponse(200, body.getBytes("UTF-8"), Collections.<String, String>emptyMap(), false));
+    }
+}
@@ -0,0 +1,172 @@
+package org.wordpress.android.fluxc.network.xmlrpc;
+
+import android.support.annotation.NonNull;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.Response.Listener;
+import com.android.volley.ServerError;
+import com.android.volley.VolleyError;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.wordpress.android.fluxc.Dispatcher;
+import org.wordpress.android.fluxc.generated.endpoint.XMLRPC;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
+import org.wordpress.android.fluxc.network.BaseRequest.GenericErrorType;
+import org.wordpress.android.fluxc.network.HTTPAuthManager;
+import org.wordpress.android.fluxc.network.UserAgent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class BaseXMLRPCClientTest {
+    private static int sSiteCount;
+
+    private final List<Request> mQueuedRequests = new ArrayList<>();
+    private BaseXMLRPCClient mClient;
+    // Multicall support is remembered per endpoint for the whole process: each test uses its own endpoint
+    private String mUrl;
+
+    private static class Call {
+        final List<Object> mResponses = new ArrayList<>();
+        final List<BaseNetworkError> mErrors = new ArrayList<>();
+        final XMLRPCRequest mRequest;
+
+        Call(String url, int postId) {
+            List<Object> params = new ArrayList<>();
+            params.add(postId);
+            mRequest = new XMLRPCRequest(url, XMLRPC.EDIT_POST, params, new Listener<Object>() {
+                @Override
+                public void onResponse(Object response) {
+                    mResponses.add(response);
+                }
+            }, new BaseErrorListener() {
+                @Override
+                public void onErrorResponse(@NonNull BaseNetworkError error) {
+                    mErrors.add(error);
+                }
+            });
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mQueuedRequests.clear();
+        mUrl = "https://site" + (++sSiteCount) + ".example.com/xmlrpc.php";
+        RequestQueue queue = mock(RequestQueue.class);
+        when(queue.add(any(Request.class))).thenAnswer(new Answer<Request>() {
+            @Override
+            public Request answer(InvocationOnMock invocation) {
+                Request request = (Request) invocation.getArguments()[0];
+                mQueuedRequests.add(request);
+                return request;
+            }
+        });
+        mClient = new BaseXMLRPCClient(mock(Dispatcher.class), queue, mock(UserAgent.class),
+                mock(HTTPAuthManager.class)) {};
+    }
+
+    @Test
+    public void testCallsToSameEndpointAreSentAsOneMulticall() {
+        Call first = new Call(mUrl, 1);
+        Call second = new Call(mUrl, 2);
+        Call other = new Call("https://other.example.com/xmlrpc.php", 3);
+        mClient.addBatch(first.mRequest, second.mRequest, other.mRequest);
+
+        assertEquals(2, mQueuedRequests.size());
+        assertTrue(mQueuedRequests.get(0) instanceof MulticallXMLRPCRequest);
+        assertEquals(mUrl, mQueuedRequests.get(0).getUrl());
+        // A single call to an endpoint is sent as is
+        assertSame(other.mRequest, mQueuedRequests.get(1));
+    }
+
+    @Test
+    public void testMulticallResultsAreDeliveredToEachCall() {
+        Call first = new Call(mUrl, 1);
+        Call second = new Call(mUrl, 2);
+        mClient.addBatch(first.mRequest, second.mRequest);
+
+        receive((XMLRPCRequest) mQueuedRequests.get(0), "<value><array><data>"
+                + "<value><boolean>1</boolean></value>"
+                + "</data></array></value>"
+                + "<value><struct>"
+                + "<member><name>faultCode</name><value><int>404</int></value></member>"
+                + "<member><name>faultString</name><value><string>Invalid post ID.</string></value></member>"
+                + "</struct></value>");
+
+        assertEquals(1, first.mResponses.size());
+        assertEquals(true, first.mResponses.get(0));
+        assertEquals(0, first.mErrors.size());
+        assertEquals(0, second.mResponses.size());
+        assertEquals(1, second.mErrors.size());
+        assertEquals(GenericErrorType.NOT_FOUND, second.mErrors.get(0).type);
+        assertEquals("Invalid post ID.", second.mErrors.get(0).message);
+    }
+
+    @Test
+    public void testCallsAreSentSeparatelyWhenMulticallIsNotFound() {
+        Call first = new Call(mUrl, 1);
+        Call second = new Call(mUrl, 2);
+        mClient.addBatch(first.mRequest, second.mRequest);
+
+        mQueuedRequests.get(0).deliverError(new VolleyError(new XMLRPCFault(
+                "server error. requested method system.multicall does not exist.", -32601)));
+        assertEquals(3, mQueuedRequests.size());
+        assertSame(first.mRequest, mQueuedRequests.get(1));
+        assertSame(second.mRequest, mQueuedRequests.get(2));
+        assertEquals(0, first.mErrors.size());
+        assertEquals(0, second.mErrors.size());
+
+        // Multicall isn't tried again on this endpoint
+        Call third = new Call(mUrl, 3);
+        Call fourth = new Call(mUrl, 4);
+        mClient.addBatch(third.mRequest, fourth.mRequest);
+        assertSame(third.mRequest, mQueuedRequests.get(3));
+        assertSame(fourth.mRequest, mQueuedRequests.get(4));
+    }
+
+    @Test
+    public void testServerErrorIsDeliveredToCalls() {
+        Call first = new Call(mUrl, 1);
+        Call second = new Call(mUrl, 2);
+        mClient.addBatch(first.mRequest, second.mRequest);
+
+        NetworkResponse unavailable = new NetworkResponse(503, new byte[0], Collections.<String, String>emptyMap(),
+                false);
+        mQueuedRequests.get(0).deliverError(new ServerError(unavailable));
+        assertEquals(1, mQueuedRequests.size());
+        assertEquals(1, first.mErrors.size());
+        assertEquals(1, second.mErrors.size());
+
+        // The endpoint may still support multicall
+        mClient.addBatch(new Call(mUrl, 3).mRequest, new Call(mUrl, 4).mRequest);
+        assertEquals(2, mQueuedRequests.size());
+        assertTrue(mQueuedRequests.get(1) instanceof MulticallXMLRPCRequest);
+    }
+
+    private static void receive(XMLRPCRequest request, String values) {
+        String body = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                      + "<methodResponse><params><param><value><array><data>"
+                      + values
+                      + "</data></array></value></param></params></methodResponse>";
+        Response<Object> response = request.parseNetworkResponse(new NetworkResponse(body.getBytes()));
+        request.deliverResponse(response.result);
+    }
+}
@@ -13,6 +13,7 @@ import org.robolectric.RuntimeEnvironment;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.SingleStoreWellSqlConfigForTests;
 import org.wordpress.android.fluxc.model.PostModel;
+import org.wordpress.android.fluxc.model.PostSummary;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.network.rest.wpcom.post.PostRestClient;
 import org.wordpress.android.fluxc.network.xmlrpc.post.PostXMLRPCClient;
@@ -122,6 +123,177 @@ public class PostStoreUnitTest {
         assertEquals(newTitle, PostTestUtils.getPosts().get(0).getTitle());
     }
 
+    @Test
+    public void testBulkInsertOrUpdateKeepingLocalChanges() {
+        PostModel changedPost = PostTestUtils.generateSampleUploadedPost();
+        changedPost.setIsLocallyChanged(true);
+        PostSqlUtils.insertPostForResult(changedPost);
+        PostModel unchangedPost = PostTestUtils.generateSampleUploadedPost();
+        unchangedPost.setRemotePostId(6);
+        PostSqlUtils.insertPostForResult(unchangedPost);
+
+        List<PostModel> fetchedPosts = new ArrayList<>();
+        for (long remotePostId = 5; remotePostId <= 7; remotePostId++) {
+            PostModel fetchedPost = PostTestUtils.generateSampleUploadedPost();
+            fetchedPost.setRemotePostId(remotePostId);
+            fetchedPost.setTitle("Fetched title");
+            fetchedPosts.add(fetchedPost);
+        }
+
+        // The locally changed post is left alone, the other one is updated and the new one is inserted
+        assertEquals(2, PostSqlUtils.insertOrUpdatePosts(fetchedPosts, false));
+        assertEquals(3, PostTestUtils.getPostsCount());
+        assertEquals("A test post", mPostStore.getPostByLocalPostId(changedPost.getId()).getTitle());
+        assertEquals("Fetched title", mPostStore.getPostByLocalPostId(unchangedPost.getId()).getTitle());
+        assertEquals(unchangedPost.getId(), fetchedPosts.get(1).getId());
+        assertNotEquals(0, fetchedPosts.get(2).getId());
+        assertEquals("Fetched title", mPostStore.getPostByLocalPostId(fetchedPosts.get(2).getId()).getTitle());
+
+        // Fetching the same page again doesn't add duplicates, and only rewrites the locally changed post
+        for (PostModel fetchedPost : fetchedPosts) {
+            fetchedPost.setId(0);
+        }
+        assertEquals(1, PostSqlUtils.insertOrUpdatePosts(fetchedPosts, true));
+        assertEquals(3, PostTestUtils.getPostsCount());
+        assertEquals("Fetched title", mPostStore.getPostByLocalPostId(changedPost.getId()).getTitle());
+    }
+
+    @Test
+    public void testUpdateOnlyCountsChangedPosts() {
+        PostModel postModel = PostTestUtils.generateSampleUploadedPost();
+        PostSqlUtils.insertPostForResult(postModel);
+
+        // Same values as the stored row: nothing is written
+        assertEquals(0, PostSqlUtils.insertOrUpdatePostOverwritingLocalChanges(postModel));
+
+        postModel.setContent("Changed content");
+        assertEquals(1, PostSqlUtils.insertOrUpdatePostOverwritingLocalChanges(postModel));
+        assertEquals("Changed content", mPostStore.getPostByLocalPostId(postModel.getId()).getContent());
+        assertEquals(postModel.getTitle(), mPostStore.getPostByLocalPostId(postModel.getId()).getTitle());
+    }
+
+    @Test
+    public void testGetOldestUploadedPosts() {
+        SiteModel site = new SiteModel();
+        site.setId(6);
+        assertEquals(null, PostSqlUtils.getOldestUploadedPostDate(site, false));
+
+        String[] dates = {"2017-06-02T10:00:00+00:00", "2017-06-01T10:00:00+00:00", "2017-06-01T10:00:00+00:00"};
+        for (int i = 0; i < dates.length; i++) {
+            PostModel post = PostTestUtils.generateSampleUploadedPost();
+            post.setRemotePostId(i + 1);
+            post.setDateCreated(dates[i]);
+            PostSqlUtils.insertPostForResult(post);
+        }
+        PostModel localDraft = PostTestUtils.generateSampleLocalDraftPost();
+        localDraft.setDateCreated("2017-01-01T10:00:00+00:00");
+        PostSqlUtils.insertPostForResult(localDraft);
+
+        assertEquals(4, mPostStore.getPostsCountForSite(site));
+        assertEquals(3, mPostStore.getUploadedPostsCountForSite(site));
+        String oldestDate = PostSqlUtils.getOldestUploadedPostDate(site, false);
+        assertEquals("2017-06-01T10:00:00+00:00", oldestDate);
+        List<Long> oldestRemotePostIds = PostSqlUtils.getUploadedPostRemoteIdsWithDate(site, false, oldestDate);
+        assertEquals(2, oldestRemotePostIds.size());
+        assertTrue(oldestRemotePostIds.contains(2L));
+        assertTrue(oldestRemotePostIds.contains(3L));
+    }
+
+    @Test
+    public void testGetOldestUploadedPostsWithOffsets() {
+        SiteModel site = new SiteModel();
+        site.setId(6);
+
+        // As strings, the last date is the smallest one, but it's the latest post
+        String[] dates = {"2017-06-01T12:00:00+02:00", "2017-06-01T10:00:00+00:00", "2017-06-01T11:00:00+00:00",
+                "2017-06-01T09:00:00-02:00"};
+        for (int i = 0; i < dates.length; i++) {
+            PostModel post = PostTestUtils.generateSampleUploadedPost();
+            post.setRemotePostId(i + 1);
+            post.setDateCreated(dates[i]);
+            PostSqlUtils.insertPostForResult(post);
+        }
+
+        String oldestDate = PostSqlUtils.getOldestUploadedPostDate(site, false);
+        assertEquals("2017-06-01T10:00:00+00:00", oldestDate);
+        List<Long> oldestRemotePostIds = PostSqlUtils.getUploadedPostRemoteIdsWithDate(site, false, oldestDate);
+        assertEquals(2, oldestRemotePostIds.size());
+        assertTrue(oldestRemotePostIds.contains(1L));
+        assertTrue(oldestRemotePostIds.contains(2L));
+    }
+
+    @Test
+    public void testOldestUploadedPostDateFollowsUpdates() {
+        SiteModel site = new SiteModel();
+        site.setId(6);
+
+        PostModel post = PostTestUtils.generateSampleUploadedPost();
+        post.setDateCreated("2017-06-01T10:00:00+00:00");
+        PostSqlUtils.insertPostForResult(post);
+        PostModel invalidDatePost = PostTestUtils.generateSampleUploadedPost();
+        invalidDatePost.setRemotePostId(7);
+        invalidDatePost.setDateCreated("not a date");
+        PostSqlUtils.insertPostForResult(invalidDatePost);
+        assertEquals("2017-06-01T10:00:00+00:00", PostSqlUtils.getOldestUploadedPostDate(site, false));
+
+        PostModel storedPost = mPostStore.getPostByLocalPostId(post.getId());
+        storedPost.setDateCreated("2017-05-01T12:00:00+02:00");
+        assertEquals(1, PostSqlUtils.insertOrUpdatePostOverwritingLocalChanges(storedPost));
+        assertEquals("2017-05-01T10:00:00+00:00", PostSqlUtils.getOldestUploadedPostDate(site, false));
+        assertEquals(1, PostSqlUtils.getUploadedPostRemoteIdsWithDate(site, false,
+                "2017-05-01T10:00:00+00:00").size());
+    }
+
+    @Test
+    public void testIncrementalSyncHelpers() {
+        SiteModel site = new SiteModel();
+        site.setId(6);
+        assertEquals(null, PostSqlUtils.getLatestUploadedPostModifiedDate(site, false));
+
+        PostModel olderPost = PostTestUtils.generateSampleUploadedPost();
+        olderPost.setDateModified("2017-06-01T10:00:00+00:00");
+        PostSqlUtils.insertPostForResult(olderPost);
+        PostModel newerPost = PostTestUtils.generateSampleUploadedPost();
+        newerPost.setRemotePostId(6);
+        newerPost.setDateModified("2017-06-02T10:00:00+00:00");
+        newerPost.setIsLocallyChanged(true);
+        PostSqlUtils.insertPostForResult(newerPost);
+
+        assertEquals("2017-06-02T10:00:00+00:00", PostSqlUtils.getLatestUploadedPostModifiedDate(site, false));
+
+        // Locally changed posts are kept
+        List<Long> trashedRemotePostIds = new ArrayList<>();
+        trashedRemotePostIds.add(5L);
+        trashedRemotePostIds.add(6L);
+        assertEquals(1, PostSqlUtils.deleteUploadedPostsWithRemoteIds(site, trashedRemotePostIds));
+        assertEquals(1, PostTestUtils.getPostsCount());
+        assertEquals(6, PostTestUtils.getPosts().get(0).getRemotePostId());
+    }
+
+    @Test
+    public void testLatestModifiedDateWithOffsets() {
+        SiteModel site = new SiteModel();
+        site.setId(6);
+
+        // As strings, the first date is the largest one, but it's the oldest modification
+        String[] dates = {"2017-06-02T11:00:00+02:00", "2017-06-02T10:00:00+00:00", "2017-06-02T12:00:00+02:00"};
+        for (int i = 0; i < dates.length; i++) {
+            PostModel post = PostTestUtils.generateSampleUploadedPost();
+            post.setRemotePostId(i + 1);
+            post.setDateModified(dates[i]);
+            PostSqlUtils.insertPostForResult(post);
+        }
+
+        String lastModified = PostSqlUtils.getLatestUploadedPostModifiedDate(site, false);
+        assertEquals("2017-06-02T10:00:00+00:00", lastModified);
+        // The posts modified at the boundary are skipped by the next incremental fetch
+        List<Long> lastModifiedRemotePostIds = PostSqlUtils.getUploadedPostRemoteIdsModifiedAt(site, false,
+                lastModified);
+        assertEquals(2, lastModifiedRemotePostIds.size());
+        assertTrue(lastModifiedRemotePostIds.contains(2L));
+        assertTrue(lastModifiedRemotePostIds.contains(3L));
+    }
+
     @Test
     public void testGetPostsForSite() {
         PostModel uploadedPost1 = PostTestUtils.generateSampleUploadedPost();
@@ -339,4 +511,39 @@ public class PostStoreUnitTest {
 
         assertEquals(0, PostTestUtils.getPostsCount());
     }
+
+    @Test
+    public void testGetPostSummaries() {
+        PostModel uploadedPost = PostTestUtils.generateSampleUploadedPost();
+        uploadedPost.setDateCreated("2017-06-01T10:00:00+00:00");
+        uploadedPost.setFeaturedImageId(42);
+        PostSqlUtils.insertPostForResult(uploadedPost);
+        PostModel localDraft = PostTestUtils.generateSampleLocalDraftPost();
+        PostSqlUtils.insertPostForResult(localDraft);
+        PostModel page = PostTestUtils.generateSampleUploadedPost();
+        page.setRemotePostId(6);
+        page.setIsPage(true);
+        PostSqlUtils.insertPostForResult(page);
+
+        SiteModel site = new SiteModel();
+        site.setId(6);
+        List<PostSummary> summaries = mPostStore.getPostSummariesForSite(site);
+
+        // Same posts in the same order as the full models
+        List<PostModel> posts = mPostStore.getPostsForSite(site);
+        assertEquals(2, summaries.size());
+        for (int i = 0; i < posts.size(); i++) {
+            assertEquals(posts.get(i).getId(), summaries.get(i).getId());
+            assertEquals(posts.get(i).getTitle(), summaries.get(i).getTitle());
+            assertEquals(posts.get(i).isLocalDraft(), summaries.get(i).isLocalDraft());
+        }
+        PostSummary uploadedSummary = summaries.get(1);
+        assertEquals(5, uploadedSummary.getRemotePostId());
+        assertEquals("2017-06-01T10:00:00+00:00", uploadedSummary.getDateCreated());
+        assertEquals(42, uploadedSummary.getFeaturedImageId());
+        assertFalse(uploadedSummary.isPage());
+
+        assertEquals(1, mPostStore.getPageSummariesForSite(site).size());
+        assertEquals(page.getId(), mPostStore.getPageSummariesForSite(site).get(0).getId());
+    }
 }
@@ -823,4 +823,69 @@ public class SiteStoreUnitTest {
             assertTrue(mSiteStore.getSiteBySiteId(site.getSiteId()) != null);
         }
     }
+
+    @Test
+    public void testCachedSitesFollowWritesAndCantBeMutated() throws DuplicateSiteException {
+        WellSqlTestUtils.setupWordPressComAccount();
+
+        SiteModel wpComSite = generateWPComSite();
+        SiteSqlUtils.insertOrUpdateSite(wpComSite);
+        assertEquals(1, mSiteStore.getVisibleSitesCount());
+        assertEquals(wpComSite.getId(), mSiteStore.getLocalIdForRemoteSiteId(wpComSite.getSiteId()));
+
+        // Mutating a returned site must not change the cached copy
+        SiteModel returnedSite = mSiteStore.getSiteByLocalId(wpComSite.getId());
+        returnedSite.setSiteId(1234);
+        mSiteStore.getSites().get(0).setIsVisible(false);
+        assertEquals(wpComSite.getSiteId(), mSiteStore.getSiteByLocalId(wpComSite.getId()).getSiteId());
+        assertEquals(1, mSiteStore.getVisibleSitesCount());
+
+        // Every write path refreshes the cache
+        SiteSqlUtils.setSiteVisibility(wpComSite, false);
+        assertEquals(0, mSiteStore.getVisibleSitesCount());
+        assertFalse(mSiteStore.isWPComSiteVisibleByLocalId(wpComSite.getId()));
+
+        SiteModel selfHostedSite = generateSelfHostedNonJPSite();
+        SiteSqlUtils.insertOrUpdateSite(selfHostedSite);
+        assertEquals(2, mSiteStore.getSitesCount());
+        assertEquals(selfHostedSite.getId(), mSiteStore.getLocalIdForSelfHostedSiteIdAndXmlRpcUrl(
+                selfHostedSite.getSelfHostedSiteId(), selfHostedSite.getXmlRpcUrl()));
+
+        SiteSqlUtils.removeWPComRestSitesAbsentFromList(new ArrayList<SiteModel>());
+        assertFalse(mSiteStore.hasSiteWithLocalId(wpComSite.getId()));
+        assertNull(mSiteStore.getSiteBySiteId(wpComSite.getSiteId()));
+
+        SiteSqlUtils.deleteSite(selfHostedSite);
+        assertFalse(mSiteStore.hasSite());
+    }
+
+    @Test
+    public void testInsertOrUpdateSitesRemovesAbsentWPComRestSites() throws DuplicateSiteException {
+        WellSqlTestUtils.setupWordPressComAccount();
+
+        SiteModel removedSite = generateTestSite(1, "https://pony1.com", "https://pony1.com/xmlrpc.php", true, true);
+        SiteModel updatedSite = generateTestSite(2, "https://pony2.com", "https://pony2.com/xmlrpc.php", true, true);
+        SiteModel selfHostedSite = generateSelfHostedNonJPSite();
+        SiteSqlUtils.insertOrUpdateSite(removedSite);
+        SiteSqlUtils.insertOrUpdateSite(updatedSite);
+        SiteSqlUtils.insertOrUpdateSite(selfHostedSite);
+
+        List<SiteModel> fetchedSites = new ArrayList<>();
+        SiteModel fetchedUpdatedSite = generateTestSite(2, "https://pony2.com", "https://pony2.com/xmlrpc.php", true,
+                false);
+        fetchedSites.add(fetchedUpdatedSite);
+        fetchedSites.add(generateTestSite(3, "https://pony3.com", "https://pony3.com/xmlrpc.php", true, true));
+        // Same XML-RPC url as an existing WP.com site
+        fetchedSites.add(generateTestSite(4, "http://pony3.com", "http://pony3.com/xmlrpc.php", false, true));
+
+        SiteSqlUtils.SitesUpdateResult result = SiteSqlUtils.insertOrUpdateSites(fetchedSites, true);
+
+        assertTrue(result.duplicateSiteFound);
+        assertEquals(2, result.rowsAffected);
+        assertEquals(3, mSiteStore.getSitesCount());
+        assertFalse(mSiteStore.hasSiteWithLocalId(removedSite.getId()));
+        assertFalse(mSiteStore.getSiteByLocalId(updatedSite.getId()).isVisible());
+        assertNotNull(mSiteStore.getSiteBySiteId(3));
+        assertTrue(mSiteStore.hasSiteWithLocalId(selfHostedSite.getId()));
+    }
 }
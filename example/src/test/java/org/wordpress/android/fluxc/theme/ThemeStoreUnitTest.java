@@ -11,6 +11,7 @@ import org.mockito.Mockito;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.wordpress.android.fluxc.Dispatcher;
+import org.wordpress.android.fluxc.generated.ThemeActionBuilder;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.model.ThemeModel;
 import org.wordpress.android.fluxc.network.rest.wpcom.theme.ThemeRestClient;
@@ -19,6 +20,7 @@ import org.wordpress.android.fluxc.persistence.ThemeSqlUtils;
 import org.wordpress.android.fluxc.persistence.WellSqlConfig;
 import org.wordpress.android.fluxc.site.SiteUtils;
 import org.wordpress.android.fluxc.store.ThemeStore;
+import org.wordpress.android.fluxc.store.ThemeStore.FetchedWpComThemesPayload;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -167,6 +169,23 @@ public class ThemeStoreUnitTest {
         assertEquals(0, mThemeStore.getWpComThemes().size());
     }
 
+    @Test
+    public void testNotModifiedWpComThemesAreKept() {
+        final List<ThemeModel> testThemes = generateThemesTestList(5);
+        ThemeSqlUtils.insertOrReplaceWpComThemes(testThemes);
+
+        // A 304 response comes with no themes, the stored ones must not be replaced
+        FetchedWpComThemesPayload payload = new FetchedWpComThemesPayload(new ArrayList<ThemeModel>());
+        payload.notModified = true;
+        mThemeStore.onAction(ThemeActionBuilder.newFetchedWpComThemesAction(payload));
+        assertEquals(testThemes.size(), mThemeStore.getWpComThemes().size());
+
+        // A regular response still replaces them
+        mThemeStore.onAction(ThemeActionBuilder.newFetchedWpComThemesAction(
+                new FetchedWpComThemesPayload(generateThemesTestList(2))));
+        assertEquals(2, mThemeStore.getWpComThemes().size());
+    }
+
     @Test
     public void testRemoveInstalledSiteThemes() throws SiteSqlUtils.DuplicateSiteException {
         final SiteModel site = SiteUtils.generateJetpackSiteOverRestOnly();
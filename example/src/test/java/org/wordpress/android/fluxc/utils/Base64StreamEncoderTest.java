@@ -0,0 +1,44 @@
+package org.wordpress.android.fluxc.utils;
+
+import android.util.Base64;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.Random;
+
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class Base64StreamEncoderTest {
+    private Random mRandom = new Random(42);
+
+    @Test
+    public void testEncodingMatchesBase64Default() throws IOException {
+        Buffer buffer = new Buffer();
+        Base64StreamEncoder encoder = new Base64StreamEncoder(buffer);
+        // Covers every padding case, lines ending exactly at the end of the input, and more than an output buffer
+        int[] lengths = {0, 1, 2, 3, 56, 57, 58, 114, 1000, 3600, 20000};
+        for (int length : lengths) {
+            byte[] input = new byte[length];
+            mRandom.nextBytes(input);
+
+            // Written in chunks of random sizes, not aligned on groups of 3 bytes
+            int offset = 0;
+            while (offset < length) {
+                int chunkLength = Math.min(length - offset, 1 + mRandom.nextInt(100));
+                encoder.write(input, offset, chunkLength);
+                offset += chunkLength;
+            }
+            encoder.finish();
+
+            String encoded = buffer.readUtf8();
+            assertEquals(Base64.encodeToString(input, Base64.DEFAULT), encoded);
+            assertEquals(encoded.length(), Base64StreamEncoder.getEncodedLength(length));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.wordpress.android.fluxc.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLog;
+import org.wordpress.android.fluxc.network.rest.GsonRegistry;
+import org.wordpress.android.fluxc.network.rest.JsonObjectOrEmptyArray;
+import org.wordpress.android.fluxc.network.rest.JsonObjectOrEmptyArrayDeserializer;
+import org.wordpress.android.fluxc.network.rest.JsonObjectOrFalse;
+import org.wordpress.android.fluxc.network.rest.JsonObjectOrFalseDeserializer;
+import org.wordpress.android.fluxc.network.rest.wpcom.post.PostWPComRestResponse.PostsResponse;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Measures the cost of parsing a posts response with the shared REST Gson, and with a new Gson per response as
+ * requests used to do, timings being logged. Pass -Dfluxc.benchmark.parses=1000 to run more parses.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GsonParsingBenchmarkTest {
+    private static final int POST_COUNT = 20;
+
+    private String mJson;
+
+    @Before
+    public void setUp() {
+        ShadowLog.stream = System.out;
+        StringBuilder json = new StringBuilder("{\"found\": " + POST_COUNT + ", \"posts\": [");
+        for (int i = 1; i <= POST_COUNT; i++) {
+            json.append(i == 1 ? "" : ",")
+                .append("{\"ID\": ").append(i)
+                .append(", \"site_ID\": 1")
+                .append(", \"date\": \"2017-06-01T10:00:00+02:00\"")
+                .append(", \"title\": \"Post ").append(i).append('"')
+                .append(", \"content\": \"<p>Content of post ").append(i).append("</p>\"")
+                .append(", \"status\": \"publish\"")
+                .append(", \"parent\": ").append(i % 2 == 0 ? "false" : "{\"ID\": 1, \"type\": \"page\"}")
+                .append('}');
+        }
+        mJson = json.append("]}").toString();
+    }
+
+    @Test
+    public void testPostsParsingCost() {
+        int parseCount = Integer.getInteger("fluxc.benchmark.parses", 200);
+
+        // Same configuration as the shared instance, built again for each response
+        long start = System.nanoTime();
+        for (int i = 0; i < parseCount; i++) {
+            Gson gson = new GsonBuilder()
+                    .setLenient()
+                    .registerTypeHierarchyAdapter(JsonObjectOrFalse.class, new JsonObjectOrFalseDeserializer())
+                    .registerTypeHierarchyAdapter(JsonObjectOrEmptyArray.class,
+                            new JsonObjectOrEmptyArrayDeserializer())
+                    .create();
+            assertEquals(POST_COUNT, gson.fromJson(mJson, PostsResponse.class).posts.size());
+        }
+        long newGsonNanos = System.nanoTime() - start;
+
+        Gson gson = GsonRegistry.getRestGson();
+        start = System.nanoTime();
+        for (int i = 0; i < parseCount; i++) {
+            assertEquals(POST_COUNT, gson.fromJson(mJson, PostsResponse.class).posts.size());
+        }
+        long sharedGsonNanos = System.nanoTime() - start;
+
+        // The adapter was built once and reused by every parse
+        assertSame(gson.getAdapter(PostsResponse.class), GsonRegistry.getRestGson().getAdapter(PostsResponse.class));
+
+        AppLog.i(T.TESTS, String.format(Locale.US, "Posts response parsing: %.3f ms with a new Gson, %.3f ms shared",
+                newGsonNanos / 1e6 / parseCount, sharedGsonNanos / 1e6 / parseCount));
+    }
+}
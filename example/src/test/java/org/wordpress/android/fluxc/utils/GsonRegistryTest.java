@@ -0,0 +1,44 @@
+package org.wordpress.android.fluxc.utils;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.wordpress.android.fluxc.network.rest.GsonRegistry;
+import org.wordpress.android.fluxc.network.rest.wpcom.post.PostWPComRestResponse;
+import org.wordpress.android.fluxc.network.rest.wpcom.post.PostWPComRestResponse.PostsResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class GsonRegistryTest {
+    @Test
+    public void testRestGsonIsShared() {
+        Gson gson = GsonRegistry.getRestGson();
+
+        assertSame(gson, GsonRegistry.getRestGson());
+        assertSame(gson.getAdapter(PostsResponse.class), gson.getAdapter(PostsResponse.class));
+    }
+
+    @Test
+    public void testRestGsonHandlesObjectOrFalse() {
+        String json = "{\"posts\": ["
+                + "{\"ID\": 1, \"parent\": false},"
+                + "{\"ID\": 2, \"parent\": {\"ID\": 1, \"type\": \"page\"}}"
+                + "]}";
+
+        PostsResponse response = GsonRegistry.getRestGson().fromJson(json, PostsResponse.class);
+
+        assertEquals(2, response.posts.size());
+        PostWPComRestResponse first = response.posts.get(0);
+        PostWPComRestResponse second = response.posts.get(1);
+        assertNull(first.parent);
+        assertNotNull(second.parent);
+        assertEquals(1, second.parent.ID);
+        assertEquals("page", second.parent.type);
+    }
+}
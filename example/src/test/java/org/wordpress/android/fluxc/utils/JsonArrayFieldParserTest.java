@@ -0,0 +1,63 @@
+package org.wordpress.android.fluxc.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.wordpress.android.fluxc.model.SiteModel;
+import org.wordpress.android.fluxc.network.rest.GsonRegistry;
+import org.wordpress.android.fluxc.network.rest.JsonArrayFieldParser;
+import org.wordpress.android.fluxc.network.rest.JsonArrayFieldParser.ElementConverter;
+import org.wordpress.android.fluxc.network.rest.wpcom.site.SiteWPComRestResponse;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class JsonArrayFieldParserTest {
+    private final JsonArrayFieldParser<SiteWPComRestResponse, SiteModel> mParser = new JsonArrayFieldParser<>(
+            "sites", SiteWPComRestResponse.class, new ElementConverter<SiteWPComRestResponse, SiteModel>() {
+                @Override
+                public SiteModel convert(SiteWPComRestResponse element) {
+                    SiteModel site = new SiteModel();
+                    site.setSiteId(element.ID);
+                    site.setName(element.name);
+                    return site;
+                }
+            });
+
+    @Test
+    public void testParseListField() throws IOException {
+        List<SiteModel> sites = parse("{\"found\": 2, \"sites\": ["
+                + "{\"ID\": 1, \"name\": \"first\", \"options\": {\"videopress_enabled\": true}},"
+                + "{\"ID\": 2, \"name\": \"second\"}"
+                + "], \"other\": null}");
+
+        assertEquals(2, sites.size());
+        assertEquals(1, sites.get(0).getSiteId());
+        assertEquals("first", sites.get(0).getName());
+        assertEquals(2, sites.get(1).getSiteId());
+    }
+
+    @Test
+    public void testMissingListField() throws IOException {
+        assertNull(parse("{\"found\": 0}"));
+        assertNull(parse("false"));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testMalformedList() throws IOException {
+        parse("{\"sites\": [1, 2]}");
+    }
+
+    private List<SiteModel> parse(String json) throws IOException {
+        Gson gson = GsonRegistry.getRestGson();
+        return mParser.parse(gson, gson.newJsonReader(new StringReader(json)));
+    }
+}
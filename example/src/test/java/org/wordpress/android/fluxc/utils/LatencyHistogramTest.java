@@ -0,0 +1,69 @@
+package org.wordpress.android.fluxc.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class LatencyHistogramTest {
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 4; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(2, histogram.getValueAtPercentile(50));
+        assertEquals(4, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000000);
+        }
+
+        assertWithinPrecision(500000000L, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(990000000L, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(1000000000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testBucketBoundsCoverValues() {
+        long[] values = {0, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.getBucketIndex(value);
+            assertTrue(value <= LatencyHistogram.getBucketUpperBound(index));
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.getBucketUpperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("Expected ~" + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
@@ -0,0 +1,209 @@
+package org.wordpress.android.fluxc.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLog;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCSerializer;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLSerializerUtils;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the cost of parsing raw XML-RPC responses in place, and the way requests used to parse them: decoded to a
+ * String, encoded again, scrubbed as a stream and read by a parser from a new factory. Timings are logged. Pass
+ * -Dfluxc.benchmark.parses=1000 to run more parses.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class XMLRPCParsingBenchmarkTest {
+    private static final int ITEM_COUNT = 50;
+    private static final int MAX_SCRUB_CHARACTERS = 5000;
+    private static final String RESPONSE_START = "Warning: virtual() [function.virtual2]: Unable to include "
+            + "'/cgi-bin/l'\n<?xml version=\"1.0\" encoding=\"UTF-8\"?><methodResponse><params><param><value><array>"
+            + "<data>";
+    private static final String RESPONSE_END = "</data></array></value></param></params></methodResponse>";
+
+    private byte[] mPostsResponse;
+    private byte[] mMediaLibraryResponse;
+
+    @Before
+    public void setUp() throws Exception {
+        ShadowLog.stream = System.out;
+
+        StringBuilder posts = new StringBuilder(RESPONSE_START);
+        for (int i = 1; i <= ITEM_COUNT; i++) {
+            posts.append("<value><struct>")
+                 .append(member("post_id", "<string>" + i + "</string>"))
+                 .append(member("post_title", "<string>Caf\u00e9 " + i + "</string>"))
+                 .append(member("post_content", "<string>&lt;p&gt;Content \u2615 " + i + "&lt;/p&gt;</string>"))
+                 .append(member("post_status", "<string>publish</string>"))
+                 .append("</struct></value>");
+        }
+        mPostsResponse = posts.append(RESPONSE_END).toString().getBytes("UTF-8");
+
+        // wp.getMediaLibrary: nested metadata structs, dates and integers
+        StringBuilder media = new StringBuilder(RESPONSE_START);
+        for (int i = 1; i <= ITEM_COUNT; i++) {
+            String file = "2017/06/image-" + i;
+            media.append("<value><struct>")
+                 .append(member("attachment_id", "<string>" + i + "</string>"))
+                 .append(member("date_created_gmt", "<dateTime.iso8601>20170601T10:00:00</dateTime.iso8601>"))
+                 .append(member("parent", "<int>0</int>"))
+                 .append(member("link", "<string>https://example.com/wp-content/uploads/" + file
+                         + ".jpg</string>"))
+                 .append(member("title", "<string>Caf\u00e9 " + i + "</string>"))
+                 .append(member("caption", "<string></string>"))
+                 .append(member("description", "<string>Photo &amp;amp; caption \u2615</string>"))
+                 .append(member("metadata", "<struct>"
+                         + member("width", "<int>2048</int>")
+                         + member("height", "<int>1536</int>")
+                         + member("file", "<string>" + file + ".jpg</string>")
+                         + member("sizes", "<struct>"
+                                 + size("thumbnail", file, 150, 150)
+                                 + size("medium", file, 300, 225)
+                                 + size("medium_large", file, 768, 576)
+                                 + size("large", file, 1024, 768)
+                                 + "</struct>")
+                         + member("image_meta", "<struct>"
+                                 + member("aperture", "<string>2.2</string>")
+                                 + member("camera", "<string>iPhone 6</string>")
+                                 + member("created_timestamp", "<string>1496311200</string>")
+                                 + member("focal_length", "<string>4.15</string>")
+                                 + member("iso", "<string>32</string>")
+                                 + member("orientation", "<string>1</string>")
+                                 + member("keywords", "<array><data></data></array>")
+                                 + "</struct>")
+                         + "</struct>"))
+                 .append(member("type", "<string>image/jpeg</string>"))
+                 .append(member("thumbnail", "<string>https://example.com/wp-content/uploads/" + file
+                         + "-150x150.jpg</string>"))
+                 .append("</struct></value>");
+        }
+        mMediaLibraryResponse = media.append(RESPONSE_END).toString().getBytes("UTF-8");
+    }
+
+    @Test
+    public void testPostsParsingCost() throws Exception {
+        benchmark("wp.getPosts", mPostsResponse);
+    }
+
+    @Test
+    public void testMediaLibraryParsingCost() throws Exception {
+        benchmark("wp.getMediaLibrary", mMediaLibraryResponse);
+    }
+
+    private static void benchmark(String method, byte[] response) throws Exception {
+        int parseCount = Integer.getInteger("fluxc.benchmark.parses", 200);
+
+        Object[] roundTripResult = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < parseCount; i++) {
+            roundTripResult = (Object[]) deserializeThroughString(response);
+        }
+        long roundTripNanos = System.nanoTime() - start;
+
+        Object[] inPlaceResult = null;
+        start = System.nanoTime();
+        for (int i = 0; i < parseCount; i++) {
+            inPlaceResult = (Object[]) XMLSerializerUtils.deserialize(response, "UTF-8");
+        }
+        long inPlaceNanos = System.nanoTime() - start;
+
+        assertEquals(ITEM_COUNT, inPlaceResult.length);
+        assertSameValue(roundTripResult, inPlaceResult);
+
+        AppLog.i(T.TESTS, String.format(Locale.US, "XML-RPC %s response parsing: %.3f ms through a String, "
+                + "%.3f ms in place", method, roundTripNanos / 1e6 / parseCount, inPlaceNanos / 1e6 / parseCount));
+    }
+
+    // The way XMLRPCRequest parsed responses before they were parsed in place
+    private static Object deserializeThroughString(byte[] response) throws Exception {
+        String data = new String(response, "UTF-8");
+        InputStream is = scrubXmlResponseThroughStreams(new ByteArrayInputStream(data.getBytes("UTF-8")));
+        XmlPullParser pullParser = XmlPullParserFactory.newInstance().newPullParser();
+        pullParser.setInput(is, "UTF-8");
+        pullParser.nextTag(); // <methodResponse>
+        pullParser.nextTag(); // <params>
+        pullParser.nextTag(); // <param>
+        pullParser.nextTag(); // <value>
+        return XMLRPCSerializer.deserialize(pullParser);
+    }
+
+    // XMLSerializerUtils.scrubXmlResponse as it was, chaining a SequenceInputStream for each '<' before the XML
+    private static InputStream scrubXmlResponseThroughStreams(InputStream is) throws IOException {
+        int bomCheck;
+        int stopper = 0;
+        while ((bomCheck = is.read()) != -1 && stopper <= MAX_SCRUB_CHARACTERS) {
+            stopper++;
+            String snippet = "";
+            if (bomCheck == '<') {
+                for (int i = 0; i < 4; i++) {
+                    byte[] chunk = new byte[1];
+                    int numRead = is.read(chunk);
+                    if (numRead > 0) {
+                        snippet += new String(chunk, "UTF-8");
+                    }
+                }
+                if (snippet.equals("?xml")) {
+                    String start = "<" + snippet;
+                    List<InputStream> streams = Arrays.asList(new ByteArrayInputStream(start.getBytes()), is);
+                    is = new SequenceInputStream(Collections.enumeration(streams));
+                    break;
+                } else {
+                    List<InputStream> streams = Arrays.asList(new ByteArrayInputStream(snippet.getBytes()), is);
+                    is = new SequenceInputStream(Collections.enumeration(streams));
+                }
+            }
+        }
+        return is;
+    }
+
+    // Structs are maps, comparing the arrays they hold by reference
+    private static void assertSameValue(Object expected, Object actual) {
+        if (expected instanceof Object[]) {
+            Object[] expectedArray = (Object[]) expected;
+            Object[] actualArray = (Object[]) actual;
+            assertEquals(expectedArray.length, actualArray.length);
+            for (int i = 0; i < expectedArray.length; i++) {
+                assertSameValue(expectedArray[i], actualArray[i]);
+            }
+        } else if (expected instanceof Map) {
+            Map<?, ?> expectedMap = (Map<?, ?>) expected;
+            Map<?, ?> actualMap = (Map<?, ?>) actual;
+            assertEquals(expectedMap.keySet(), actualMap.keySet());
+            for (Object key : expectedMap.keySet()) {
+                assertSameValue(expectedMap.get(key), actualMap.get(key));
+            }
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+
+    private static String member(String name, String value) {
+        return "<member><name>" + name + "</name><value>" + value + "</value></member>";
+    }
+
+    private static String size(String name, String file, int width, int height) {
+        return member(name, "<struct>"
+                + member("file", "<string>" + file + "-" + width + "x" + height + ".jpg</string>")
+                + member("width", "<int>" + width + "</int>")
+                + member("height", "<int>" + height + "</int>")
+                + member("mime-type", "<string>image/jpeg</string>")
+                + "</struct>");
+    }
+}
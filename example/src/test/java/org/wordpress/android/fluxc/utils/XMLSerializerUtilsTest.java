@@ -1,15 +1,26 @@
 package org.wordpress.android.fluxc.utils;
 
+import android.util.Xml;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
+import org.wordpress.android.fluxc.generated.endpoint.XMLRPC;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest.ResponseStreamParser;
 import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCSerializer;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCValueReader;
 import org.wordpress.android.fluxc.network.xmlrpc.XMLSerializerUtils;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 @RunWith(RobolectricTestRunner.class)
 public class XMLSerializerUtilsTest {
@@ -58,6 +69,76 @@ public class XMLSerializerUtilsTest {
         return null;
     }
 
+    @Test
+    public void testFindXmlStartWithJunk() throws IOException {
+        final String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><nothing></nothing>";
+        final String junk = "this is junk text 12345,./;'pp<<><><;;<?xm";
+        Assert.assertEquals(junk.length(), XMLSerializerUtils.findXmlStart((junk + xml).getBytes("UTF-8")));
+    }
+
+    @Test
+    public void testFindXmlStartWithoutDeclaration() throws IOException {
+        Assert.assertEquals(0, XMLSerializerUtils.findXmlStart("<methodResponse/>".getBytes("UTF-8")));
+        Assert.assertEquals(0, XMLSerializerUtils.findXmlStart(new byte[0]));
+    }
+
+    @Test
+    public void testDeserializeRawResponseWithJunk() throws Exception {
+        final String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><methodResponse><params><param><value>"
+                           + "<struct><member><name>title</name><value><string>caf\u00e9 \u2615</string></value>"
+                           + "</member></struct></value></param></params></methodResponse>";
+        final String junk = "Warning: virtual() [function.virtual2]: Unable to include '/cgi-bin/script/l'\n";
+        final Object result = XMLSerializerUtils.deserialize((junk + xml).getBytes("UTF-8"), "UTF-8");
+        Assert.assertTrue(result instanceof Map);
+        Assert.assertEquals("caf\u00e9 \u2615", ((Map) result).get("title"));
+    }
+
+    @Test
+    public void testDeserializeWithStreamParser() throws Exception {
+        final String xml = "<?xml version=\"1.0\"?><methodResponse><params><param><value><array><data>"
+                           + "<value><struct><member><name>ignored</name><value><array><data><value><int>1</int>"
+                           + "</value></data></array></value></member><member><name>id</name><value><string>42"
+                           + "</string></value></member></struct></value>"
+                           + "<value><struct><member><name>id</name><value><int>43</int></value></member>"
+                           + "</struct></value></data></array></value></param></params></methodResponse>";
+        final List<Long> ids = XMLSerializerUtils.deserialize(xml.getBytes("UTF-8"), "UTF-8",
+                new ResponseStreamParser<List<Long>>() {
+                    @Override
+                    public List<Long> parse(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+                        List<Long> result = new ArrayList<>();
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            reader.beginStruct();
+                            String name;
+                            while ((name = reader.nextMemberName()) != null) {
+                                if (name.equals("id")) {
+                                    result.add(reader.nextLong(0));
+                                } else {
+                                    reader.skipValue();
+                                }
+                            }
+                            reader.endStruct();
+                        }
+                        reader.endArray();
+                        return result;
+                    }
+                });
+        Assert.assertEquals(Arrays.asList(42L, 43L), ids);
+    }
+
+    @Test
+    public void testSerializeToStreamMatchesStringOutput() throws IOException {
+        final Object[] params = {1, "user", "caf\u00e9 \u2615"};
+        final String expected = XMLSerializerUtils.serialize(Xml.newSerializer(), XMLRPC.GET_POSTS, params).toString();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        XMLSerializerUtils.serialize(Xml.newSerializer(), os, XMLRPC.GET_POSTS, params);
+        final String streamed = os.toString("UTF-8");
+
+        // Only the XML declaration differs, the streamed one carrying the encoding
+        Assert.assertEquals(expected.substring(expected.indexOf("?>")), streamed.substring(streamed.indexOf("?>")));
+        Assert.assertTrue(streamed.startsWith("<?xml version='1.0' encoding='UTF-8' ?>"));
+    }
+
     @Test
     public void testXMLRPCSerializer_makeValidInputString_emoji() throws IOException {
         // Not a XML 1.0 valid character
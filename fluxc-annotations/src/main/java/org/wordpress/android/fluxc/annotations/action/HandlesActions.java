@@ -0,0 +1,16 @@
+package org.wordpress.android.fluxc.annotations.action;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the {@link IAction} enums a store handles. Used by the dispatcher to route actions only to the stores
+ * interested in them. Stores without this annotation receive every action.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HandlesActions {
+    Class<? extends IAction>[] value();
+}
@@ -0,0 +1,211 @@
+package org.wordpress.android.fluxc;
+
+import org.wordpress.android.fluxc.store.Store.CoalescableChange;
+import org.wordpress.android.fluxc.store.Store.OnChanged;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges {@link CoalescableChange} events of the same class and key emitted in quick succession.
+ *
+ * The first event for a key is emitted right away. Events for the same key following it within the window are
+ * merged together and emitted as a single event when the window ends. Progress updates use their own, usually
+ * shorter, window, which limits them to a maximum rate per key.
+ */
+class ChangeCoalescer {
+    private static final int MAX_IDLE_WINDOWS = 64;
+
+    interface Emitter {
+        void emit(Object event);
+    }
+
+    /**
+     * Source of time and delayed execution, replaced in tests.
+     */
+    interface Scheduler {
+        long now();
+        void schedule(Runnable task, long delayMillis);
+        void shutdown();
+    }
+
+    private static class ExecutorScheduler implements Scheduler {
+        private final ScheduledExecutorService mExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FluxC-ChangeCoalescer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        @Override
+        public long now() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            mExecutor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void shutdown() {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    private static class Key {
+        private final Class<?> mEventClass;
+        private final Object mKey;
+
+        Key(Class<?> eventClass, Object key) {
+            mEventClass = eventClass;
+            mKey = key;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key otherKey = (Key) other;
+            return mEventClass == otherKey.mEventClass && mKey.equals(otherKey.mKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mEventClass.hashCode() + mKey.hashCode();
+        }
+    }
+
+    private static class Window {
+        long mLastEmittedAt;
+        CoalescableChange mPending;
+    }
+
+    private final Emitter mEmitter;
+    private final long mWindowMillis;
+    private final long mProgressWindowMillis;
+    private final Scheduler mScheduler;
+
+    // Guarded by itself
+    private final Map<Key, Window> mWindows = new HashMap<>();
+    // Guarded by mWindows, set once the scheduler is about to be shut down
+    private boolean mClosed;
+
+    /**
+     * @param windowMillis window during which changes of the same class and key are merged
+     * @param maxProgressUpdatesPerSecond maximum rate of progress updates emitted for a given key
+     */
+    ChangeCoalescer(Emitter emitter, long windowMillis, int maxProgressUpdatesPerSecond) {
+        this(emitter, windowMillis, maxProgressUpdatesPerSecond, new ExecutorScheduler());
+    }
+
+    ChangeCoalescer(Emitter emitter, long windowMillis, int maxProgressUpdatesPerSecond, Scheduler scheduler) {
+        mEmitter = emitter;
+        mWindowMillis = windowMillis;
+        mProgressWindowMillis = maxProgressUpdatesPerSecond > 0 ? 1000 / maxProgressUpdatesPerSecond : 0;
+        mScheduler = scheduler;
+    }
+
+    /**
+     * @return false if the event can't be coalesced and must be emitted by the caller, which is also the case once
+     * the coalescer is shut down
+     */
+    @SuppressWarnings("unchecked")
+    boolean offer(final CoalescableChange event) {
+        Object eventKey = event.getCoalescingKey();
+        if (eventKey == null) {
+            return false;
+        }
+        final Key key = new Key(event.getClass(), eventKey);
+        long window = event.isProgressUpdate() ? mProgressWindowMillis : mWindowMillis;
+        long now = mScheduler.now();
+        synchronized (mWindows) {
+            if (mClosed) {
+                return false;
+            }
+            Window state = mWindows.get(key);
+            if (state == null) {
+                pruneIdleWindows(now);
+                state = new Window();
+                mWindows.put(key, state);
+            }
+            if (state.mPending != null) {
+                state.mPending = (CoalescableChange) state.mPending.coalesce((OnChanged) event);
+                return true;
+            }
+            long elapsed = now - state.mLastEmittedAt;
+            if (elapsed < window) {
+                state.mPending = event;
+                mScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(key);
+                    }
+                }, window - elapsed);
+                return true;
+            }
+            state.mLastEmittedAt = now;
+        }
+        mEmitter.emit(event);
+        return true;
+    }
+
+    /**
+     * Emits the changes still waiting for their window to end. Changes offered from then on are left to the caller.
+     */
+    void shutdown() {
+        List<CoalescableChange> pending = new ArrayList<>();
+        synchronized (mWindows) {
+            // Nothing is scheduled once closed, so offer() can't race with the scheduler shutdown
+            mClosed = true;
+            for (Window state : mWindows.values()) {
+                if (state.mPending != null) {
+                    pending.add(state.mPending);
+                }
+            }
+            mWindows.clear();
+        }
+        mScheduler.shutdown();
+        for (CoalescableChange event : pending) {
+            mEmitter.emit(event);
+        }
+    }
+
+    private void pruneIdleWindows(long now) {
+        if (mWindows.size() < MAX_IDLE_WINDOWS) {
+            return;
+        }
+        long maxWindow = Math.max(mWindowMillis, mProgressWindowMillis);
+        Iterator<Window> iterator = mWindows.values().iterator();
+        while (iterator.hasNext()) {
+            Window state = iterator.next();
+            if (state.mPending == null && now - state.mLastEmittedAt >= maxWindow) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void flush(Key key) {
+        CoalescableChange pending;
+        synchronized (mWindows) {
+            Window state = mWindows.get(key);
+            if (state == null || state.mPending == null) {
+                return;
+            }
+            pending = state.mPending;
+            state.mPending = null;
+            state.mLastEmittedAt = mScheduler.now();
+        }
+        mEmitter.emit(pending);
+    }
+}
@@ -1,47 +1,360 @@
 package org.wordpress.android.fluxc;
 
+import android.support.annotation.Nullable;
+
 import org.greenrobot.eventbus.EventBus;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
+import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.store.Store;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.inject.Singleton;
 
 @Singleton
 public class Dispatcher {
+    private static final long LANE_KEEP_ALIVE_SECONDS = 30;
+    private static final long BUS_KEEP_ALIVE_SECONDS = 60;
+
     private final EventBus mBus;
+    private final boolean mRouteActionsPerStore;
+
+    // Guarded by itself, also used to serialize route table updates
+    private final Map<Store, ActionLane> mLanes = new LinkedHashMap<>();
+    private final Map<Class<?>, ActionLane[]> mRoutes = new ConcurrentHashMap<>();
+
+    private final Map<IAction, String> mDispatchLogMessages = new ConcurrentHashMap<>();
+    private final AtomicInteger mPendingHandlers = new AtomicInteger();
+    private volatile DispatcherMetrics mMetrics;
+    private volatile ChangeCoalescer mChangeCoalescer;
 
     public Dispatcher() {
+        this(false);
+    }
+
+    /**
+     * @param routeActionsPerStore if true, an action is only delivered to the stores declaring its type with
+     * {@link HandlesActions}, instead of being posted to every store through the event bus. Each store then gets its
+     * own lane: its actions are handled one at a time, in dispatch order, on a single thread that is released when
+     * the store is idle.
+     */
+    public Dispatcher(boolean routeActionsPerStore) {
+        mRouteActionsPerStore = routeActionsPerStore;
         mBus = EventBus.builder()
+                .executorService(new AsyncHandlerExecutor())
                 .logNoSubscriberMessages(true)
                 .sendNoSubscriberEvent(true)
                 .throwSubscriberException(true)
                 .build();
     }
 
+    /**
+     * Sets the listener receiving dispatch and handling timings, or removes it if null. No timing is taken while
+     * there is no listener.
+     */
+    public void setMetrics(@Nullable DispatcherMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Enables the coalescing of {@link Store.CoalescableChange} events: the first change for a given event class and
+     * key is emitted right away, following changes within the window are merged and emitted once the window ends.
+     *
+     * @param windowMillis window during which changes are merged, 0 or less to disable coalescing
+     * @param maxProgressUpdatesPerSecond maximum rate of progress updates emitted for a given key
+     */
+    public void setChangeCoalescing(long windowMillis, int maxProgressUpdatesPerSecond) {
+        ChangeCoalescer previous = mChangeCoalescer;
+        if (windowMillis > 0) {
+            mChangeCoalescer = new ChangeCoalescer(new ChangeCoalescer.Emitter() {
+                @Override
+                public void emit(Object event) {
+                    postChange(event);
+                }
+            }, windowMillis, maxProgressUpdatesPerSecond);
+        } else {
+            mChangeCoalescer = null;
+        }
+        if (previous != null) {
+            // Emits changes still waiting for their window to end
+            previous.shutdown();
+        }
+    }
+
     public void register(final Object object) {
         mBus.register(object);
         if (object instanceof Store) {
+            if (mRouteActionsPerStore) {
+                addLane((Store) object);
+            }
             ((Store) object).onRegister();
         }
     }
 
     public void unregister(final Object object) {
         mBus.unregister(object);
+        if (mRouteActionsPerStore && object instanceof Store) {
+            removeLane((Store) object);
+        }
     }
 
     public void dispatch(Action action) {
-        AppLog.d(T.API, "Dispatching action: " + action.getType().getClass().getSimpleName()
-                + "-" + action.getType().toString());
-        post(action);
+        AppLog.d(T.API, getDispatchLogMessage(action.getType()));
+        DispatcherMetrics metrics = mMetrics;
+        if (mRouteActionsPerStore) {
+            route(action, metrics);
+        } else if (metrics != null) {
+            post(new TimedAction(action, System.nanoTime()));
+        } else {
+            post(action);
+        }
+        if (metrics != null) {
+            metrics.onActionDispatched(action.getType(), mPendingHandlers.get());
+        }
+    }
+
+    /**
+     * Called by {@link Store#onActionPosted} for each action it receives from the event bus.
+     */
+    public void handlePostedAction(Store store, Action action) {
+        if (action instanceof TimedAction) {
+            TimedAction timedAction = (TimedAction) action;
+            handleTimed(store, timedAction.mAction, timedAction.mDispatchedAt);
+        } else {
+            store.onAction(action);
+        }
     }
 
     public void emitChange(final Object changeEvent) {
+        ChangeCoalescer coalescer = mChangeCoalescer;
+        if (coalescer != null && changeEvent instanceof Store.CoalescableChange
+                && coalescer.offer((Store.CoalescableChange) changeEvent)) {
+            return;
+        }
+        postChange(changeEvent);
+    }
+
+    private void postChange(final Object changeEvent) {
+        DispatcherMetrics metrics = mMetrics;
+        if (metrics == null) {
+            mBus.post(changeEvent);
+            return;
+        }
+        long start = System.nanoTime();
         mBus.post(changeEvent);
+        metrics.onChangeEmitted(changeEvent.getClass(), System.nanoTime() - start);
     }
 
     private void post(final Object event) {
         mBus.post(event);
     }
+
+    private void handleTimed(Store store, Action action, long dispatchedAt) {
+        long startedAt = System.nanoTime();
+        try {
+            store.onAction(action);
+        } finally {
+            DispatcherMetrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.onActionHandled(action.getType(), store.getClass(), startedAt - dispatchedAt,
+                        System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    private String getDispatchLogMessage(IAction actionType) {
+        // Action types are enum values: build each message once instead of on every dispatch
+        String message = mDispatchLogMessages.get(actionType);
+        if (message == null) {
+            message = "Dispatching action: " + actionType.getClass().getSimpleName() + "-" + actionType.toString();
+            mDispatchLogMessages.put(actionType, message);
+        }
+        return message;
+    }
+
+    private void route(final Action action, @Nullable DispatcherMetrics metrics) {
+        Class<?> actionEnum = getActionEnum(action.getType());
+        ActionLane[] lanes = mRoutes.get(actionEnum);
+        if (lanes == null) {
+            lanes = buildRoute(actionEnum);
+        }
+        for (ActionLane lane : lanes) {
+            lane.enqueue(action, metrics);
+        }
+    }
+
+    private ActionLane[] buildRoute(Class<?> actionEnum) {
+        synchronized (mLanes) {
+            List<ActionLane> lanes = new ArrayList<>();
+            for (ActionLane lane : mLanes.values()) {
+                if (lane.handles(actionEnum)) {
+                    lanes.add(lane);
+                }
+            }
+            ActionLane[] route = lanes.toArray(new ActionLane[lanes.size()]);
+            mRoutes.put(actionEnum, route);
+            return route;
+        }
+    }
+
+    private void addLane(Store store) {
+        synchronized (mLanes) {
+            if (mLanes.containsKey(store)) {
+                return;
+            }
+            mLanes.put(store, new ActionLane(store));
+            mRoutes.clear();
+        }
+    }
+
+    private void removeLane(Store store) {
+        synchronized (mLanes) {
+            ActionLane lane = mLanes.remove(store);
+            if (lane != null) {
+                lane.shutdown();
+                mRoutes.clear();
+            }
+        }
+    }
+
+    private static Class<?> getActionEnum(IAction actionType) {
+        if (actionType instanceof Enum) {
+            return ((Enum) actionType).getDeclaringClass();
+        }
+        return actionType.getClass();
+    }
+
+    /**
+     * Ordered queue of actions for a single store.
+     */
+    private class ActionLane {
+        private final Store mStore;
+        private final Class<? extends IAction>[] mActionTypes;
+        private final ThreadPoolExecutor mExecutor;
+
+        ActionLane(Store store) {
+            mStore = store;
+            HandlesActions handlesActions = store.getClass().getAnnotation(HandlesActions.class);
+            mActionTypes = handlesActions != null ? handlesActions.value() : null;
+
+            final String threadName = "FluxC-" + store.getClass().getSimpleName();
+            // A single worker, created on demand and released after being idle for a while. The queue is unbounded:
+            // bounding it would mean blocking or dropping actions, and stores dispatch actions from their own lane.
+            mExecutor = new ThreadPoolExecutor(0, 1, LANE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            return new Thread(runnable, threadName);
+                        }
+                    });
+        }
+
+        boolean handles(Class<?> actionEnum) {
+            if (mActionTypes == null) {
+                return true;
+            }
+            for (Class<? extends IAction> actionType : mActionTypes) {
+                if (actionType == actionEnum) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void enqueue(Action action, @Nullable DispatcherMetrics metrics) {
+            mPendingHandlers.incrementAndGet();
+            try {
+                mExecutor.execute(new QueuedAction(action, metrics != null));
+            } catch (RejectedExecutionException e) {
+                mPendingHandlers.decrementAndGet();
+                // The store was unregistered after the route was read: like the event bus, skip it
+                AppLog.w(T.API, "Dropping " + action.getType() + ", " + mStore.getClass().getSimpleName()
+                        + " is unregistered");
+            }
+        }
+
+        void shutdown() {
+            mExecutor.shutdown();
+        }
+
+        private class QueuedAction implements Runnable {
+            private final Action mAction;
+            private final boolean mTimed;
+            private final long mDispatchedAt;
+
+            QueuedAction(Action action, boolean timed) {
+                mAction = action;
+                mTimed = timed;
+                mDispatchedAt = timed ? System.nanoTime() : 0;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    if (mTimed) {
+                        handleTimed(mStore, mAction, mDispatchedAt);
+                    } else {
+                        mStore.onAction(mAction);
+                    }
+                } finally {
+                    mPendingHandlers.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Action posted on the event bus while the dispatcher has metrics, unwrapped by {@link #handlePostedAction}.
+     * Subscribers other than stores get it as a regular action.
+     */
+    private static class TimedAction extends Action<Object> {
+        private final Action mAction;
+        private final long mDispatchedAt;
+
+        TimedAction(Action action, long dispatchedAt) {
+            super(action.getType(), action.getPayload());
+            mAction = action;
+            mDispatchedAt = dispatchedAt;
+        }
+    }
+
+    /**
+     * Runs the asynchronous event bus subscribers, like the default executor of the bus, and counts the ones queued
+     * or running in the pending handlers.
+     */
+    private class AsyncHandlerExecutor extends ThreadPoolExecutor {
+        AsyncHandlerExecutor() {
+            super(0, Integer.MAX_VALUE, BUS_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            mPendingHandlers.incrementAndGet();
+            try {
+                super.execute(command);
+            } catch (RejectedExecutionException e) {
+                mPendingHandlers.decrementAndGet();
+                throw e;
+            }
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable) {
+            mPendingHandlers.decrementAndGet();
+        }
+    }
 }
@@ -0,0 +1,34 @@
+package org.wordpress.android.fluxc;
+
+import org.wordpress.android.fluxc.annotations.action.IAction;
+import org.wordpress.android.fluxc.store.Store;
+
+/**
+ * Receives timings from the {@link Dispatcher}, see {@link Dispatcher#setMetrics(DispatcherMetrics)}.
+ *
+ * Callbacks are made on the dispatching and handling threads: implementations must be thread safe, return quickly
+ * and avoid allocating.
+ */
+public interface DispatcherMetrics {
+    /**
+     * Called when an action is dispatched.
+     *
+     * @param pendingHandlers the number of asynchronous handler invocations queued or running, including the ones for
+     * this action: store handlers, and event bus subscribers with the ASYNC thread mode.
+     */
+    void onActionDispatched(IAction actionType, int pendingHandlers);
+
+    /**
+     * Called after a store handled an action, on the thread that handled it.
+     *
+     * @param queuedNanos time between the dispatch of the action and the start of the store handler
+     * @param handlingNanos time spent in the store handler
+     */
+    void onActionHandled(IAction actionType, Class<? extends Store> storeClass, long queuedNanos, long handlingNanos);
+
+    /**
+     * Called after a change event was posted to its subscribers. Subscribers running on the posting thread are
+     * included in the delivery time, subscribers running on another thread only account for their enqueuing.
+     */
+    void onChangeEmitted(Class<?> eventClass, long deliveryNanos);
+}
@@ -0,0 +1,99 @@
+package org.wordpress.android.fluxc;
+
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.fluxc.annotations.action.IAction;
+import org.wordpress.android.fluxc.store.Store;
+import org.wordpress.android.fluxc.utils.LatencyHistogram;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DispatcherMetrics} keeping latency histograms per action type, per store and per change event.
+ *
+ * Histograms are created the first time an action type, store or event class is seen, recording doesn't allocate
+ * afterwards.
+ */
+public class HistogramDispatcherMetrics implements DispatcherMetrics {
+    private final ConcurrentMap<IAction, LatencyHistogram> mQueuedByAction = new ConcurrentHashMap<>();
+    private final ConcurrentMap<IAction, LatencyHistogram> mHandlingByAction = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, LatencyHistogram> mHandlingByStore = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, LatencyHistogram> mDeliveryByEvent = new ConcurrentHashMap<>();
+    private final AtomicInteger mPendingHandlers = new AtomicInteger();
+    private final AtomicInteger mMaxPendingHandlers = new AtomicInteger();
+
+    @Override
+    public void onActionDispatched(IAction actionType, int pendingHandlers) {
+        mPendingHandlers.set(pendingHandlers);
+        int max = mMaxPendingHandlers.get();
+        while (pendingHandlers > max && !mMaxPendingHandlers.compareAndSet(max, pendingHandlers)) {
+            max = mMaxPendingHandlers.get();
+        }
+    }
+
+    @Override
+    public void onActionHandled(IAction actionType, Class<? extends Store> storeClass, long queuedNanos,
+                                long handlingNanos) {
+        getOrCreate(mQueuedByAction, actionType).record(queuedNanos);
+        getOrCreate(mHandlingByAction, actionType).record(handlingNanos);
+        getOrCreate(mHandlingByStore, storeClass).record(handlingNanos);
+    }
+
+    @Override
+    public void onChangeEmitted(Class<?> eventClass, long deliveryNanos) {
+        getOrCreate(mDeliveryByEvent, eventClass).record(deliveryNanos);
+    }
+
+    /**
+     * Time between the dispatch of actions of the given type and the start of their store handlers.
+     */
+    public @Nullable LatencyHistogram getQueuedLatency(IAction actionType) {
+        return mQueuedByAction.get(actionType);
+    }
+
+    /**
+     * Time spent by stores handling actions of the given type.
+     */
+    public @Nullable LatencyHistogram getHandlingDuration(IAction actionType) {
+        return mHandlingByAction.get(actionType);
+    }
+
+    /**
+     * Time spent by the given store handling actions.
+     */
+    public @Nullable LatencyHistogram getHandlingDuration(Class<? extends Store> storeClass) {
+        return mHandlingByStore.get(storeClass);
+    }
+
+    /**
+     * Time spent posting change events of the given class to their subscribers.
+     */
+    public @Nullable LatencyHistogram getDeliveryDuration(Class<?> eventClass) {
+        return mDeliveryByEvent.get(eventClass);
+    }
+
+    /**
+     * Store handler invocations queued or running, as of the last dispatched action.
+     */
+    public int getPendingHandlers() {
+        return mPendingHandlers.get();
+    }
+
+    public int getMaxPendingHandlers() {
+        return mMaxPendingHandlers.get();
+    }
+
+    private static <K> LatencyHistogram getOrCreate(ConcurrentMap<K, LatencyHistogram> histograms, K key) {
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = histograms.putIfAbsent(key, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+}
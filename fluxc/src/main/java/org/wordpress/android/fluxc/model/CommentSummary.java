@@ -0,0 +1,80 @@
+package org.wordpress.android.fluxc.model;
+
+/**
+ * Columns of a {@link CommentModel} needed to list it, without its content. The full model can be loaded
+ * by local id, with {@link org.wordpress.android.fluxc.store.CommentStore#getCommentByLocalId(int)}.
+ */
+public class CommentSummary {
+    private int mId;
+    private long mRemoteCommentId;
+    private long mRemotePostId;
+    private String mAuthorName;
+    private String mAuthorProfileImageUrl;
+    private String mPostTitle;
+    private String mStatus;
+    private String mDatePublished;
+
+    public int getId() {
+        return mId;
+    }
+
+    public void setId(int id) {
+        mId = id;
+    }
+
+    public long getRemoteCommentId() {
+        return mRemoteCommentId;
+    }
+
+    public void setRemoteCommentId(long remoteCommentId) {
+        mRemoteCommentId = remoteCommentId;
+    }
+
+    public long getRemotePostId() {
+        return mRemotePostId;
+    }
+
+    public void setRemotePostId(long remotePostId) {
+        mRemotePostId = remotePostId;
+    }
+
+    public String getAuthorName() {
+        return mAuthorName;
+    }
+
+    public void setAuthorName(String authorName) {
+        mAuthorName = authorName;
+    }
+
+    public String getAuthorProfileImageUrl() {
+        return mAuthorProfileImageUrl;
+    }
+
+    public void setAuthorProfileImageUrl(String authorProfileImageUrl) {
+        mAuthorProfileImageUrl = authorProfileImageUrl;
+    }
+
+    public String getPostTitle() {
+        return mPostTitle;
+    }
+
+    public void setPostTitle(String postTitle) {
+        mPostTitle = postTitle;
+    }
+
+    public String getStatus() {
+        return mStatus;
+    }
+
+    public void setStatus(String status) {
+        mStatus = status;
+    }
+
+    public String getDatePublished() {
+        return mDatePublished;
+    }
+
+    public void setDatePublished(String datePublished) {
+        mDatePublished = datePublished;
+    }
+}
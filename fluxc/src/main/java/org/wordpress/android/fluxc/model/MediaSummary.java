@@ -0,0 +1,90 @@
+package org.wordpress.android.fluxc.model;
+
+/**
+ * Columns of a {@link MediaModel} needed to list it, without its description, caption and other large
+ * fields. The full model can be loaded by local id, with
+ * {@link org.wordpress.android.fluxc.store.MediaStore#getMediaWithLocalId(int)}.
+ */
+public class MediaSummary {
+    private int mId;
+    private int mLocalSiteId;
+    private long mMediaId;
+    private String mTitle;
+    private String mUploadDate;
+    private String mUrl;
+    private String mThumbnailUrl;
+    private String mMimeType;
+    private String mUploadState;
+
+    public int getId() {
+        return mId;
+    }
+
+    public void setId(int id) {
+        mId = id;
+    }
+
+    public int getLocalSiteId() {
+        return mLocalSiteId;
+    }
+
+    public void setLocalSiteId(int localSiteId) {
+        mLocalSiteId = localSiteId;
+    }
+
+    public long getMediaId() {
+        return mMediaId;
+    }
+
+    public void setMediaId(long mediaId) {
+        mMediaId = mediaId;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public void setTitle(String title) {
+        mTitle = title;
+    }
+
+    public String getUploadDate() {
+        return mUploadDate;
+    }
+
+    public void setUploadDate(String uploadDate) {
+        mUploadDate = uploadDate;
+    }
+
+    public String getUrl() {
+        return mUrl;
+    }
+
+    public void setUrl(String url) {
+        mUrl = url;
+    }
+
+    public String getThumbnailUrl() {
+        return mThumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        mThumbnailUrl = thumbnailUrl;
+    }
+
+    public String getMimeType() {
+        return mMimeType;
+    }
+
+    public void setMimeType(String mimeType) {
+        mMimeType = mimeType;
+    }
+
+    public String getUploadState() {
+        return mUploadState;
+    }
+
+    public void setUploadState(String uploadState) {
+        mUploadState = uploadState;
+    }
+}
@@ -15,6 +15,7 @@ import org.json.JSONObject;
 import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.model.post.PostLocation;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
+import org.wordpress.android.fluxc.utils.DateUtils;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.StringUtils;
 
@@ -27,6 +28,8 @@ import java.util.List;
 public class PostModel extends Payload<BaseNetworkError> implements Cloneable, Identifiable, Serializable {
     private static final long LATITUDE_REMOVED_VALUE = 8888;
     private static final long LONGITUDE_REMOVED_VALUE = 8888;
+    // Derived timestamps not computed yet, since the date they're derived from was set
+    private static final long TIMESTAMP_NOT_COMPUTED = -1;
 
     @PrimaryKey
     @Column private int mId;
@@ -35,7 +38,11 @@ public class PostModel extends Payload<BaseNetworkError> implements Cloneable, I
     @Column private long mRemotePostId;
     @Column private String mTitle;
     @Column private String mContent;
-    @Column private String mDateCreated; // ISO 8601-formatted date in UTC, e.g. 1955-11-05T14:15:00Z
+    @Column private String mDateCreated; // ISO 8601-formatted date, in UTC or with the site's offset (REST API)
+    @Column private String mDateModified; // Last modification on the server, same format as mDateCreated
+    // Dates in ms since the epoch (0 if they can't be parsed), to sort and compare them whatever their offset
+    @Column private long mDateCreatedMillis = TIMESTAMP_NOT_COMPUTED;
+    @Column private long mDateModifiedMillis = TIMESTAMP_NOT_COMPUTED;
     @Column private String mCategoryIds;
     @Column private String mCustomFields;
     @Column private String mLink;
@@ -127,6 +134,51 @@ public class PostModel extends Payload<BaseNetworkError> implements Cloneable, I
 
     public void setDateCreated(String dateCreated) {
         mDateCreated = dateCreated;
+        mDateCreatedMillis = TIMESTAMP_NOT_COMPUTED;
+    }
+
+    /**
+     * @return the creation date in ms since the epoch, or 0 if it can't be parsed
+     */
+    public long getDateCreatedMillis() {
+        // Computed on demand, so that reading posts from the database doesn't parse their dates
+        if (mDateCreatedMillis == TIMESTAMP_NOT_COMPUTED) {
+            mDateCreatedMillis = DateUtils.timestampFromIso8601(mDateCreated);
+        }
+        return mDateCreatedMillis;
+    }
+
+    /**
+     * Only meant to be used by WellSql, the timestamp is derived from {@link #setDateCreated}.
+     */
+    public void setDateCreatedMillis(long dateCreatedMillis) {
+        mDateCreatedMillis = dateCreatedMillis;
+    }
+
+    public @NonNull String getDateModified() {
+        return StringUtils.notNullStr(mDateModified);
+    }
+
+    public void setDateModified(String dateModified) {
+        mDateModified = dateModified;
+        mDateModifiedMillis = TIMESTAMP_NOT_COMPUTED;
+    }
+
+    /**
+     * @return the server modification date in ms since the epoch, or 0 if it can't be parsed
+     */
+    public long getDateModifiedMillis() {
+        if (mDateModifiedMillis == TIMESTAMP_NOT_COMPUTED) {
+            mDateModifiedMillis = DateUtils.timestampFromIso8601(mDateModified);
+        }
+        return mDateModifiedMillis;
+    }
+
+    /**
+     * Only meant to be used by WellSql, the timestamp is derived from {@link #setDateModified}.
+     */
+    public void setDateModifiedMillis(long dateModifiedMillis) {
+        mDateModifiedMillis = dateModifiedMillis;
     }
 
     public @NonNull String getCategoryIds() {
@@ -362,6 +414,7 @@ public class PostModel extends Payload<BaseNetworkError> implements Cloneable, I
                 && StringUtils.equals(getTitle(), otherPost.getTitle())
                 && StringUtils.equals(getContent(), otherPost.getContent())
                 && StringUtils.equals(getDateCreated(), otherPost.getDateCreated())
+                && StringUtils.equals(getDateModified(), otherPost.getDateModified())
                 && StringUtils.equals(getCategoryIds(), otherPost.getCategoryIds())
                 && StringUtils.equals(getCustomFields(), otherPost.getCustomFields())
                 && StringUtils.equals(getLink(), otherPost.getLink())
@@ -0,0 +1,98 @@
+package org.wordpress.android.fluxc.model;
+
+/**
+ * Columns of a {@link PostModel} needed to list it, without its content and other large fields. The full
+ * model can be loaded by local id, with {@link org.wordpress.android.fluxc.store.PostStore#getPostByLocalPostId(int)}.
+ */
+public class PostSummary {
+    private int mId;
+    private int mLocalSiteId;
+    private long mRemotePostId;
+    private String mTitle;
+    private String mDateCreated;
+    private String mStatus;
+    private long mFeaturedImageId;
+    private boolean mIsPage;
+    private boolean mIsLocalDraft;
+    private boolean mIsLocallyChanged;
+
+    public int getId() {
+        return mId;
+    }
+
+    public void setId(int id) {
+        mId = id;
+    }
+
+    public int getLocalSiteId() {
+        return mLocalSiteId;
+    }
+
+    public void setLocalSiteId(int localSiteId) {
+        mLocalSiteId = localSiteId;
+    }
+
+    public long getRemotePostId() {
+        return mRemotePostId;
+    }
+
+    public void setRemotePostId(long remotePostId) {
+        mRemotePostId = remotePostId;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public void setTitle(String title) {
+        mTitle = title;
+    }
+
+    public String getDateCreated() {
+        return mDateCreated;
+    }
+
+    public void setDateCreated(String dateCreated) {
+        mDateCreated = dateCreated;
+    }
+
+    public String getStatus() {
+        return mStatus;
+    }
+
+    public void setStatus(String status) {
+        mStatus = status;
+    }
+
+    public long getFeaturedImageId() {
+        return mFeaturedImageId;
+    }
+
+    public void setFeaturedImageId(long featuredImageId) {
+        mFeaturedImageId = featuredImageId;
+    }
+
+    public boolean isPage() {
+        return mIsPage;
+    }
+
+    public void setIsPage(boolean isPage) {
+        mIsPage = isPage;
+    }
+
+    public boolean isLocalDraft() {
+        return mIsLocalDraft;
+    }
+
+    public void setIsLocalDraft(boolean isLocalDraft) {
+        mIsLocalDraft = isLocalDraft;
+    }
+
+    public boolean isLocallyChanged() {
+        return mIsLocallyChanged;
+    }
+
+    public void setIsLocallyChanged(boolean isLocallyChanged) {
+        mIsLocallyChanged = isLocallyChanged;
+    }
+}
@@ -4,17 +4,20 @@ import android.content.Context;
 
 import com.android.volley.Network;
 import com.android.volley.RequestQueue;
-import com.android.volley.toolbox.BasicNetwork;
 import com.android.volley.toolbox.DiskBasedCache;
 
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.network.HTTPAuthManager;
+import org.wordpress.android.fluxc.network.HistogramRequestQueueMetrics;
 import org.wordpress.android.fluxc.network.MemorizingTrustManager;
-import org.wordpress.android.fluxc.network.OkHttpStack;
+import org.wordpress.android.fluxc.network.OkHttpNetwork;
+import org.wordpress.android.fluxc.network.PriorityRequestQueue;
+import org.wordpress.android.fluxc.network.RequestQueueMetrics;
 import org.wordpress.android.fluxc.network.UserAgent;
 import org.wordpress.android.fluxc.network.discovery.DiscoveryWPAPIRestClient;
 import org.wordpress.android.fluxc.network.discovery.DiscoveryXMLRPCClient;
 import org.wordpress.android.fluxc.network.discovery.SelfHostedEndpointFinder;
+import org.wordpress.android.fluxc.network.rest.GsonRegistry;
 import org.wordpress.android.fluxc.network.rest.wpcom.account.AccountRestClient;
 import org.wordpress.android.fluxc.network.rest.wpcom.auth.AccessToken;
 import org.wordpress.android.fluxc.network.rest.wpcom.auth.AppSecrets;
@@ -46,12 +49,18 @@ import okhttp3.OkHttpClient;
 public class ReleaseNetworkModule {
     private static final String DEFAULT_CACHE_DIR = "volley-fluxc";
     private static final int NETWORK_THREAD_POOL_SIZE = 10;
+    // Less than half of the network threads: a host slow to respond can't hold most of them
+    private static final int MAX_REQUESTS_PER_HOST = 4;
 
-    private RequestQueue newRequestQueue(OkHttpClient.Builder okHttpClientBuilder, Context appContext) {
+    private RequestQueue newRequestQueue(OkHttpClient.Builder okHttpClientBuilder, Context appContext,
+                                         RequestQueueMetrics metrics) {
         File cacheDir = new File(appContext.getCacheDir(), DEFAULT_CACHE_DIR);
-        Network network = new BasicNetwork(new OkHttpStack(okHttpClientBuilder));
-        RequestQueue queue = new RequestQueue(new DiskBasedCache(cacheDir), network, NETWORK_THREAD_POOL_SIZE);
+        Network network = new OkHttpNetwork(okHttpClientBuilder, appContext);
+        PriorityRequestQueue queue = new PriorityRequestQueue(new DiskBasedCache(cacheDir), network,
+                NETWORK_THREAD_POOL_SIZE, MAX_REQUESTS_PER_HOST);
+        queue.setMetrics(metrics);
         queue.start();
+        GsonRegistry.warmUpInBackground();
         return queue;
     }
 
@@ -59,16 +68,25 @@ public class ReleaseNetworkModule {
     @Named("regular")
     @Provides
     public RequestQueue provideRequestQueue(@Named("regular") OkHttpClient.Builder okHttpClientBuilder,
-                                            Context appContext) {
-        return newRequestQueue(okHttpClientBuilder, appContext);
+                                            Context appContext, HistogramRequestQueueMetrics metrics) {
+        return newRequestQueue(okHttpClientBuilder, appContext, metrics);
     }
 
     @Singleton
     @Named("custom-ssl")
     @Provides
     public RequestQueue provideRequestQueueCustomSSL(@Named("custom-ssl") OkHttpClient.Builder okHttpClientBuilder,
-                                                     Context appContext) {
-        return newRequestQueue(okHttpClientBuilder, appContext);
+                                                     Context appContext, HistogramRequestQueueMetrics metrics) {
+        return newRequestQueue(okHttpClientBuilder, appContext, metrics);
+    }
+
+    /**
+     * Queue wait times of the requests sent by both request queues.
+     */
+    @Singleton
+    @Provides
+    public HistogramRequestQueueMetrics provideRequestQueueMetrics() {
+        return new HistogramRequestQueueMetrics();
     }
 
     @Singleton
@@ -0,0 +1,65 @@
+package org.wordpress.android.fluxc.network;
+
+import com.android.volley.RetryPolicy;
+import com.android.volley.VolleyError;
+
+import java.util.Random;
+
+/**
+ * Retry policy with a first timeout driven by the latencies of the host (see {@link HostHealth#getTimeoutMs}), and
+ * an exponential backoff: each retry gets twice the time, and waits twice as long before being sent, with some
+ * jitter so that requests failing together aren't all sent again at once. The wait doesn't hold a network thread,
+ * the request is queued again once it's over, see {@link PriorityRequestQueue}. Requests aren't retried while the
+ * host is unavailable.
+ */
+class AdaptiveRetryPolicy implements RetryPolicy {
+    static final int MAX_RETRIES = 2;
+    // Wait before the first retry, doubled for each following retry
+    static final int BASE_BACKOFF_MS = 500;
+    private static final int MAX_BACKOFF_MS = 4000;
+    private static final Random RANDOM = new Random();
+
+    private final HostHealth mHostHealth;
+    private final int mMaxTimeoutMs;
+    // Set on the first attempt, the request can wait in the queue for a while before
+    private int mCurrentTimeoutMs;
+    private int mCurrentRetryCount;
+    private long mRetryDelayMs;
+
+    AdaptiveRetryPolicy(HostHealth hostHealth, int maxTimeoutMs) {
+        mHostHealth = hostHealth;
+        mMaxTimeoutMs = maxTimeoutMs;
+    }
+
+    @Override
+    public int getCurrentTimeout() {
+        if (mCurrentTimeoutMs == 0) {
+            mCurrentTimeoutMs = mHostHealth.getTimeoutMs(mMaxTimeoutMs);
+        }
+        return mCurrentTimeoutMs;
+    }
+
+    @Override
+    public int getCurrentRetryCount() {
+        return mCurrentRetryCount;
+    }
+
+    /**
+     * @return how long to wait before sending the retry allowed by the last call to {@link #retry}, in ms: half of
+     * the backoff, plus a random part of up to the other half
+     */
+    long getRetryDelayMs() {
+        return mRetryDelayMs;
+    }
+
+    @Override
+    public void retry(VolleyError error) throws VolleyError {
+        mCurrentRetryCount++;
+        if (mCurrentRetryCount > MAX_RETRIES || !mHostHealth.isAvailable()) {
+            throw error;
+        }
+        mCurrentTimeoutMs = Math.min(getCurrentTimeout() * 2, mMaxTimeoutMs);
+        int backoffMs = Math.min(BASE_BACKOFF_MS << (mCurrentRetryCount - 1), MAX_BACKOFF_MS);
+        mRetryDelayMs = backoffMs / 2 + RANDOM.nextInt(backoffMs / 2 + 1);
+    }
+}
@@ -3,6 +3,8 @@ package org.wordpress.android.fluxc.network;
 import android.net.Uri;
 import android.net.Uri.Builder;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
 import android.util.Base64;
 
 import com.android.volley.AuthFailureError;
@@ -11,15 +13,25 @@ import com.android.volley.NetworkError;
 import com.android.volley.NoConnectionError;
 import com.android.volley.ParseError;
 import com.android.volley.Request;
+import com.android.volley.Response;
 import com.android.volley.TimeoutError;
 import com.android.volley.VolleyError;
+import com.android.volley.VolleyLog;
 
 import org.wordpress.android.fluxc.FluxCError;
 import org.wordpress.android.fluxc.store.AccountStore.AuthenticateErrorPayload;
 import org.wordpress.android.fluxc.utils.ErrorUtils.OnUnexpectedError;
 import org.wordpress.android.util.AppLog;
 
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import javax.net.ssl.SSLHandshakeException;
@@ -38,14 +50,38 @@ public abstract class BaseRequest<T> extends Request<T> {
     public interface OnParseErrorListener {
         void onParseError(OnUnexpectedError event);
     }
+    /**
+     * Parses the response of a request again, for one of the identical requests waiting for it.
+     */
+    protected interface FollowerResponseParser<T> {
+        Response<T> parse(BaseRequest<T> follower);
+    }
 
     private static final String USER_AGENT_HEADER = "User-Agent";
+    protected static final String AUTHORIZATION_HEADER = "Authorization";
 
     protected OnAuthFailedListener mOnAuthFailedListener;
     protected OnParseErrorListener mOnParseErrorListener;
     protected final Map<String, String> mHeaders = new HashMap<>(2);
     private BaseErrorListener mErrorListener;
 
+    // Set when this request is the one sent for identical requests, see InFlightRequests
+    private InFlightRequests mInFlightRequests;
+    private String mSingleFlightKey;
+    // Identical requests waiting for the result of this one, guarded by this
+    private List<BaseRequest<T>> mFollowers;
+    // Followers whose copy of the response was parsed, and their copies, in the same order, guarded by this
+    private List<BaseRequest<T>> mParsedFollowers;
+    private List<Response<T>> mFollowerResponses;
+    private boolean mResultDelivered;
+
+    private Priority mPriority = Priority.NORMAL;
+    // Set when the request is added to a PriorityRequestQueue
+    private volatile long mQueuedAtNanos;
+    private volatile boolean mDelayedRetriesEnabled;
+    // Wait before queuing the request again, set by the network instead of retrying right away
+    private volatile long mRetryDelayMs;
+
     public static class BaseNetworkError implements FluxCError {
         public GenericErrorType type;
         public String message;
@@ -115,10 +151,15 @@ public abstract class BaseRequest<T> extends Request<T> {
             mUri = Uri.EMPTY;
         }
         mErrorListener = errorListener;
-        // Make sure all our custom Requests are never cached.
+        // Requests are never cached, unless they opt in, see GsonRequest#enableRevalidatingCache
         setShouldCache(false);
-        setRetryPolicy(new DefaultRetryPolicy(DEFAULT_REQUEST_TIMEOUT,
-                DefaultRetryPolicy.DEFAULT_MAX_RETRIES, DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+        String host = mUri.getHost();
+        if (host != null) {
+            setRetryPolicy(new AdaptiveRetryPolicy(HostHealth.forHost(host), DEFAULT_REQUEST_TIMEOUT));
+        } else {
+            setRetryPolicy(new DefaultRetryPolicy(DEFAULT_REQUEST_TIMEOUT,
+                    DefaultRetryPolicy.DEFAULT_MAX_RETRIES, DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+        }
     }
 
     @Override
@@ -149,7 +190,7 @@ public abstract class BaseRequest<T> extends Request<T> {
         if (httpAuthModel != null) {
             String creds = String.format("%s:%s", httpAuthModel.getUsername(), httpAuthModel.getPassword());
             String auth = "Basic " + Base64.encodeToString(creds.getBytes(), Base64.NO_WRAP);
-            mHeaders.put("Authorization", auth);
+            mHeaders.put(AUTHORIZATION_HEADER, auth);
         }
     }
 
@@ -170,14 +211,248 @@ public abstract class BaseRequest<T> extends Request<T> {
     }
 
     /**
-     * Convenience method for setting a {@link com.android.volley.RetryPolicy} with no retries.
+     * Sets the priority of the request in the request queue: requests of higher priority are sent first. Use
+     * {@link Priority#HIGH} for requests the user is waiting for, and {@link Priority#LOW} for background work
+     * like syncing catalogs or paging through lists.
+     */
+    public void setPriority(@NonNull Priority priority) {
+        mPriority = priority;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Sets the priority of this request to the highest priority of the given requests, for requests sending them
+     * all at once.
+     */
+    protected void setPriorityOf(List<? extends Request<?>> requests) {
+        for (Request<?> request : requests) {
+            if (request.getPriority().ordinal() > mPriority.ordinal()) {
+                mPriority = request.getPriority();
+            }
+        }
+    }
+
+    void setQueuedAtNanos(long queuedAtNanos) {
+        mQueuedAtNanos = queuedAtNanos;
+    }
+
+    long getQueuedAtNanos() {
+        return mQueuedAtNanos;
+    }
+
+    /**
+     * Called by the queues queuing requests again once their retry delay is over, see {@link #retryLater}.
+     */
+    void enableDelayedRetries() {
+        mDelayedRetriesEnabled = true;
+    }
+
+    /**
+     * Asks the queue to send this request again after the given delay, instead of retrying it right away on the
+     * network thread. The network must then throw a {@link RetryLaterError}, which isn't delivered.
+     *
+     * @return false if the queue can't do it, the request must be retried right away
+     */
+    boolean retryLater(long delayMs) {
+        // Volley's debug event log of a request can't be added to once the request finished
+        if (!mDelayedRetriesEnabled || VolleyLog.DEBUG) {
+            return false;
+        }
+        mRetryDelayMs = delayMs;
+        return true;
+    }
+
+    /**
+     * @return the delay set by {@link #retryLater}, or 0 if the request must not be sent again
+     */
+    long takeRetryDelayMs() {
+        long delayMs = mRetryDelayMs;
+        mRetryDelayMs = 0;
+        return delayMs;
+    }
+
+    /**
+     * Convenience method for setting a {@link com.android.volley.RetryPolicy} with no retries. The request also keeps
+     * the default timeout, whatever the latency of the host: use it for requests that must not be sent twice.
      */
     public void disableRetries() {
         setRetryPolicy(new DefaultRetryPolicy(DEFAULT_REQUEST_TIMEOUT, 0, DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
     }
 
+    /**
+     * @return a key identifying what this request fetches: the same for requests that can share a single response,
+     * or null if the request must always be sent (the default). Requests changing anything on the server, or whose
+     * response depends on more than the key, must return null.
+     */
+    @Nullable
+    protected String getSingleFlightKey() {
+        return null;
+    }
+
+    void setInFlight(InFlightRequests inFlightRequests, String key) {
+        mInFlightRequests = inFlightRequests;
+        mSingleFlightKey = key;
+    }
+
+    /**
+     * Makes an identical request wait for the result of this one, instead of being sent.
+     *
+     * @return false if it's too late: the result was already delivered, or this request was canceled
+     */
+    @SuppressWarnings("unchecked")
+    synchronized boolean addFollower(BaseRequest<?> request) {
+        if (mResultDelivered || isCanceled()) {
+            return false;
+        }
+        if (mFollowers == null) {
+            mFollowers = new ArrayList<>();
+        }
+        // Requests with the same key parse their response to the same type
+        mFollowers.add((BaseRequest<T>) request);
+        return true;
+    }
+
+    /**
+     * Stops accepting followers, and unregisters this request so that the next identical request is sent.
+     */
+    @NonNull
+    private List<BaseRequest<T>> takeFollowers() {
+        List<BaseRequest<T>> followers;
+        synchronized (this) {
+            mResultDelivered = true;
+            followers = mFollowers;
+            mFollowers = null;
+        }
+        // Outside of the lock: InFlightRequests locks its map before locking requests
+        if (mInFlightRequests != null) {
+            mInFlightRequests.remove(mSingleFlightKey, this);
+        }
+        return followers != null ? followers : Collections.<BaseRequest<T>>emptyList();
+    }
+
+    /**
+     * Parses the response once for each identical request waiting for this one, so that each of them gets its own
+     * copy of the response, which its listener is free to change. Must be called once the response of this request
+     * was parsed successfully, e.g. at the end of parseNetworkResponse(). The copies are delivered by
+     * {@link #deliverResponseToFollowers()}.
+     */
+    protected void parseResponseForFollowers(@NonNull FollowerResponseParser<T> parser) {
+        List<BaseRequest<T>> followers = takeFollowers();
+        if (followers.isEmpty()) {
+            return;
+        }
+        List<Response<T>> responses = new ArrayList<>(followers.size());
+        for (BaseRequest<T> follower : followers) {
+            responses.add(follower.isCanceled() ? null : parser.parse(follower));
+        }
+        synchronized (this) {
+            mParsedFollowers = followers;
+            mFollowerResponses = responses;
+        }
+    }
+
+    /**
+     * Delivers their copy of the response to the identical requests waiting for this one. Must be called by
+     * {@link #deliverResponse(Object)}, after delivering the response to this request's own listener.
+     */
+    protected void deliverResponseToFollowers() {
+        // Followers without a copy of the response are sent on their own
+        resendFollowers(takeFollowers());
+        List<BaseRequest<T>> followers;
+        List<Response<T>> responses;
+        synchronized (this) {
+            followers = mParsedFollowers;
+            responses = mFollowerResponses;
+            mParsedFollowers = null;
+            mFollowerResponses = null;
+        }
+        if (followers == null) {
+            return;
+        }
+        for (int i = 0; i < followers.size(); i++) {
+            BaseRequest<T> follower = followers.get(i);
+            Response<T> response = responses.get(i);
+            if (follower.isCanceled() || response == null) {
+                continue;
+            }
+            if (response.isSuccess()) {
+                follower.deliverResponse(response.result);
+            } else {
+                follower.deliverError(response.error);
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        if (mInFlightRequests == null) {
+            return;
+        }
+        // The identical requests waiting for this one are sent instead, the first one taking its place
+        resendFollowers(takeFollowers());
+        resendFollowers(takeParsedFollowers());
+    }
+
+    @NonNull
+    private synchronized List<BaseRequest<T>> takeParsedFollowers() {
+        List<BaseRequest<T>> followers = mParsedFollowers;
+        mParsedFollowers = null;
+        mFollowerResponses = null;
+        return followers != null ? followers : Collections.<BaseRequest<T>>emptyList();
+    }
+
+    private void resendFollowers(List<BaseRequest<T>> followers) {
+        for (BaseRequest<T> follower : followers) {
+            if (!follower.isCanceled() && !mInFlightRequests.join(follower)) {
+                mInFlightRequests.send(follower);
+            }
+        }
+    }
+
+    /**
+     * @return the URL of this request, with its query parameters sorted, so that URLs differing only by the order
+     * of their parameters are the same
+     */
+    protected String getNormalizedUrl() {
+        String query = mUri.getEncodedQuery();
+        if (query == null) {
+            return getUrl();
+        }
+        List<String> parameters = Arrays.asList(query.split("&"));
+        Collections.sort(parameters);
+        return mUri.buildUpon().encodedQuery(TextUtils.join("&", parameters)).build().toString();
+    }
+
+    protected static String sha256(String value) {
+        return sha256(value.getBytes(Charset.forName("UTF-8")));
+    }
+
+    protected static String sha256(byte[] value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(value)) {
+                hex.append(String.format(Locale.US, "%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java implementation supports SHA-256
+            throw new AssertionError(e);
+        }
+    }
+
     @NonNull
     private BaseNetworkError getBaseNetworkError(VolleyError volleyError) {
+        // Not sent, the host is unavailable
+        if (volleyError instanceof HostUnavailableError) {
+            return new BaseNetworkError(GenericErrorType.NO_CONNECTION, volleyError.getMessage(), volleyError);
+        }
+
         // No connection
         if (volleyError.getCause() instanceof NoConnectionError) {
             return new BaseNetworkError(GenericErrorType.NO_CONNECTION, volleyError);
@@ -233,6 +508,11 @@ public abstract class BaseRequest<T> extends Request<T> {
 
     @Override
     public final void deliverError(VolleyError volleyError) {
+        if (volleyError instanceof RetryLaterError) {
+            // The request is queued again once it finishes, identical requests keep waiting for it
+            AppLog.i(AppLog.T.API, "Retrying later " + getUrl());
+            return;
+        }
         AppLog.e(AppLog.T.API, "Volley error on " + getUrl(), volleyError);
         if (volleyError instanceof ParseError) {
             OnUnexpectedError error = new OnUnexpectedError(volleyError, "API response parse error");
@@ -242,5 +522,13 @@ public abstract class BaseRequest<T> extends Request<T> {
         BaseNetworkError baseNetworkError = getBaseNetworkError(volleyError);
         BaseNetworkError modifiedBaseNetworkError = deliverBaseNetworkError(baseNetworkError);
         mErrorListener.onErrorResponse(modifiedBaseNetworkError);
+        // Identical requests get the same error, without reporting it again to the parse error and auth listeners
+        List<BaseRequest<T>> followers = new ArrayList<>(takeFollowers());
+        followers.addAll(takeParsedFollowers());
+        for (BaseRequest<T> follower : followers) {
+            if (!follower.isCanceled()) {
+                follower.mErrorListener.onErrorResponse(modifiedBaseNetworkError);
+            }
+        }
     }
 }
@@ -0,0 +1,57 @@
+package org.wordpress.android.fluxc.network;
+
+import android.support.annotation.Nullable;
+
+import com.android.volley.Request.Priority;
+
+import org.wordpress.android.fluxc.utils.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link RequestQueueMetrics} keeping queue wait time histograms per priority and per host.
+ *
+ * Histograms are created the first time a host is seen, recording doesn't allocate afterwards.
+ */
+public class HistogramRequestQueueMetrics implements RequestQueueMetrics {
+    private final Map<Priority, LatencyHistogram> mQueuedByPriority = new EnumMap<>(Priority.class);
+    private final ConcurrentMap<String, LatencyHistogram> mQueuedByHost = new ConcurrentHashMap<>();
+
+    public HistogramRequestQueueMetrics() {
+        // Never modified afterwards, so it can be read from any thread
+        for (Priority priority : Priority.values()) {
+            mQueuedByPriority.put(priority, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public void onRequestStarted(String host, Priority priority, long queuedNanos) {
+        mQueuedByPriority.get(priority).record(queuedNanos);
+        LatencyHistogram histogram = mQueuedByHost.get(host);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = mQueuedByHost.putIfAbsent(host, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        histogram.record(queuedNanos);
+    }
+
+    /**
+     * Time requests of the given priority waited in the queue before being sent.
+     */
+    public LatencyHistogram getQueuedLatency(Priority priority) {
+        return mQueuedByPriority.get(priority);
+    }
+
+    /**
+     * Time requests to the given host waited in the queue before being sent.
+     */
+    public @Nullable LatencyHistogram getQueuedLatency(String host) {
+        return mQueuedByHost.get(host);
+    }
+}
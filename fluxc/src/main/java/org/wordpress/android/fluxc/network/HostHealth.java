@@ -0,0 +1,154 @@
+package org.wordpress.android.fluxc.network;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Health of a host, from the outcome of the requests sent to it. Recent latencies set the timeouts of the next
+ * requests (see {@link AdaptiveRetryPolicy}), and consecutive failures open a circuit breaker: requests to the host
+ * then fail right away, without being sent, until a probe request goes through.
+ *
+ * Only failures of the host itself count: gateway errors, timeouts, and refused connections while the device is
+ * connected. Any other response means the host is up, and other failures to reach it (no connectivity, DNS
+ * failures) tell nothing about it. The health of all hosts is reset when the connectivity of the device changes,
+ * see {@link #resetAll}.
+ */
+class HostHealth {
+    private static final ConcurrentMap<String, HostHealth> HOSTS = new ConcurrentHashMap<>();
+
+    private static final int LATENCY_SAMPLES = 32;
+    private static final int MIN_LATENCY_SAMPLES = 8;
+    private static final double LATENCY_PERCENTILE = 0.95;
+    private static final int TIMEOUT_LATENCY_MULTIPLIER = 4;
+    static final int MIN_TIMEOUT_MS = 10000;
+
+    static final int FAILURE_THRESHOLD = 5;
+    static final long MIN_OPEN_MS = 30000;
+    static final long MAX_OPEN_MS = 300000;
+    // A probe that never completed doesn't keep the circuit open forever
+    private static final long PROBE_TIMEOUT_MS = 2 * BaseRequest.DEFAULT_REQUEST_TIMEOUT;
+
+    // Ring buffer of the latest latencies, in ms
+    private final long[] mLatencies = new long[LATENCY_SAMPLES];
+    private int mLatencyCount;
+    private int mNextLatency;
+
+    private int mConsecutiveFailures;
+    // 0 while the circuit is closed
+    private long mOpenUntil;
+    private long mOpenDurationMs;
+    private boolean mProbing;
+    private long mProbeStartedAt;
+
+    /**
+     * Forgets the latencies and failures of all hosts, measured through another network.
+     */
+    static void resetAll() {
+        for (HostHealth health : HOSTS.values()) {
+            health.reset();
+        }
+    }
+
+    @NonNull
+    static HostHealth forHost(@NonNull String host) {
+        String key = host.toLowerCase(Locale.ROOT);
+        HostHealth health = HOSTS.get(key);
+        if (health == null) {
+            health = new HostHealth();
+            HostHealth existing = HOSTS.putIfAbsent(key, health);
+            if (existing != null) {
+                health = existing;
+            }
+        }
+        return health;
+    }
+
+    /**
+     * Must be called before sending a request to the host. Once the circuit was open for long enough, lets a single
+     * request through to probe the host.
+     *
+     * @return false if the request must not be sent
+     */
+    synchronized boolean allowRequest(long nowMs) {
+        if (mOpenUntil == 0) {
+            return true;
+        }
+        if (nowMs < mOpenUntil || (mProbing && nowMs - mProbeStartedAt < PROBE_TIMEOUT_MS)) {
+            return false;
+        }
+        mProbing = true;
+        mProbeStartedAt = nowMs;
+        return true;
+    }
+
+    /**
+     * @return false if the circuit is open, and requests to the host aren't sent
+     */
+    synchronized boolean isAvailable() {
+        return mOpenUntil == 0;
+    }
+
+    synchronized void onSuccess(long latencyMs) {
+        mLatencies[mNextLatency] = latencyMs;
+        mNextLatency = (mNextLatency + 1) % LATENCY_SAMPLES;
+        mLatencyCount = Math.min(mLatencyCount + 1, LATENCY_SAMPLES);
+        mConsecutiveFailures = 0;
+        mOpenUntil = 0;
+        mOpenDurationMs = 0;
+        mProbing = false;
+    }
+
+    synchronized void onFailure(long nowMs) {
+        mConsecutiveFailures++;
+        if (mProbing) {
+            // The host is still down: wait twice as long before the next probe
+            mProbing = false;
+            open(nowMs, Math.min(mOpenDurationMs * 2, MAX_OPEN_MS));
+        } else if (mOpenUntil == 0 && mConsecutiveFailures >= FAILURE_THRESHOLD) {
+            open(nowMs, MIN_OPEN_MS);
+        }
+    }
+
+    /**
+     * The request didn't reach the host, e.g. while the device is offline: the host might still be up. Lets the next
+     * request probe it again if this one was the probe.
+     */
+    synchronized void onConnectionFailure() {
+        mProbing = false;
+    }
+
+    synchronized void reset() {
+        mLatencyCount = 0;
+        mNextLatency = 0;
+        mConsecutiveFailures = 0;
+        mOpenUntil = 0;
+        mOpenDurationMs = 0;
+        mProbing = false;
+    }
+
+    private void open(long nowMs, long durationMs) {
+        mOpenDurationMs = durationMs;
+        mOpenUntil = nowMs + durationMs;
+    }
+
+    /**
+     * @return a timeout of a few times the recent latency percentile of the host, between {@link #MIN_TIMEOUT_MS}
+     * and the given maximum, rounded up to the second. The maximum until enough requests completed.
+     */
+    synchronized int getTimeoutMs(int maxTimeoutMs) {
+        if (mLatencyCount < MIN_LATENCY_SAMPLES) {
+            return maxTimeoutMs;
+        }
+        long[] latencies = Arrays.copyOf(mLatencies, mLatencyCount);
+        Arrays.sort(latencies);
+        long percentile = latencies[(int) Math.ceil(LATENCY_PERCENTILE * mLatencyCount) - 1];
+        long timeoutMs = Math.max(MIN_TIMEOUT_MS, percentile * TIMEOUT_LATENCY_MULTIPLIER);
+        // Few distinct values, so clients can be reused for each timeout
+        timeoutMs = (timeoutMs + 999) / 1000 * 1000;
+        return (int) Math.min(timeoutMs, maxTimeoutMs);
+    }
+}
@@ -0,0 +1,12 @@
+package org.wordpress.android.fluxc.network;
+
+import com.android.volley.NoConnectionError;
+
+/**
+ * Error of a request that wasn't sent, because its host failed too many requests in a row (see {@link HostHealth}).
+ */
+public class HostUnavailableError extends NoConnectionError {
+    public HostUnavailableError(String host) {
+        super(new Exception("Host " + host + " is unavailable, request not sent"));
+    }
+}
@@ -0,0 +1,62 @@
+package org.wordpress.android.fluxc.network;
+
+import android.support.annotation.NonNull;
+
+import com.android.volley.RequestQueue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Requests in flight, by the key of what they fetch (see {@link BaseRequest#getSingleFlightKey()}). A request joining
+ * an identical request in flight isn't sent: it gets the response or error of the request in flight, which is only
+ * sent and parsed once.
+ */
+public class InFlightRequests {
+    private final RequestQueue mRequestQueue;
+    private final Map<String, BaseRequest<?>> mRequests = new HashMap<>();
+
+    public InFlightRequests(RequestQueue requestQueue) {
+        mRequestQueue = requestQueue;
+    }
+
+    /**
+     * Must be called once the request is ready to be sent, with all its parameters and headers.
+     *
+     * @return true if the request joined an identical request in flight, and must not be sent
+     */
+    public boolean join(@NonNull BaseRequest<?> request) {
+        String key = request.getSingleFlightKey();
+        if (key == null) {
+            return false;
+        }
+        synchronized (mRequests) {
+            BaseRequest<?> inFlight = mRequests.get(key);
+            if (inFlight == request) {
+                // Sent again, e.g. on its own after a rejected batch
+                return false;
+            }
+            if (inFlight != null && inFlight.addFollower(request)) {
+                return true;
+            }
+            mRequests.put(key, request);
+            request.setInFlight(this, key);
+        }
+        return false;
+    }
+
+    void remove(String key, BaseRequest<?> request) {
+        synchronized (mRequests) {
+            if (mRequests.get(key) == request) {
+                mRequests.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Sends a request that was waiting for a request that got canceled.
+     */
+    void send(BaseRequest<?> request) {
+        mRequestQueue.add(request);
+    }
+}
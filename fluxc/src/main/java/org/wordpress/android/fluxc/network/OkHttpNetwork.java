@@ -0,0 +1,387 @@
+package org.wordpress.android.fluxc.network;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.SystemClock;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Cache;
+import com.android.volley.Network;
+import com.android.volley.NetworkError;
+import com.android.volley.NetworkResponse;
+import com.android.volley.NoConnectionError;
+import com.android.volley.Request;
+import com.android.volley.RetryPolicy;
+import com.android.volley.ServerError;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Call;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request.Builder;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+
+/**
+ * Volley {@link Network} sending requests with OkHttp. Response bodies are read once, straight from the connection
+ * into the response's byte array, and requests to the same host share OkHttp's connection pool, HTTP/2 connections
+ * included.
+ *
+ * Follows the contract of Volley's BasicNetwork: conditional requests for cached responses, retries through the
+ * request's {@link RetryPolicy}, and the same {@link VolleyError} subclasses for failures. Requests to a host that
+ * keeps failing aren't sent, and fail with a {@link HostUnavailableError} instead, see {@link HostHealth}. Retries
+ * with a backoff delay are left to the queue when it supports it, see {@link BaseRequest#retryLater}.
+ */
+public class OkHttpNetwork implements Network {
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static final AtomicBoolean CONNECTIVITY_RECEIVER_REGISTERED = new AtomicBoolean();
+
+    // Network interceptors only run once connected to the host
+    private static final Interceptor CONNECTION_INTERCEPTOR = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Object tag = chain.request().tag();
+            if (tag instanceof Attempt) {
+                ((Attempt) tag).mConnected = true;
+            }
+            return chain.proceed(chain.request());
+        }
+    };
+
+    private final OkHttpClient mClient;
+    // Null if the connectivity of the device is unknown
+    private final ConnectivityManager mConnectivityManager;
+    // Clients sharing the connection pool of mClient, by request timeout
+    private final ConcurrentMap<Integer, OkHttpClient> mClientsByTimeout = new ConcurrentHashMap<>();
+
+    /**
+     * Tag of the OkHttp request of an attempt, telling whether a connection to the host was made.
+     */
+    private static class Attempt {
+        volatile boolean mConnected;
+    }
+
+    /**
+     * Without the connectivity of the device, failures to connect to a host always count as failures of the host.
+     */
+    public OkHttpNetwork(OkHttpClient.Builder clientBuilder) {
+        this(clientBuilder, (ConnectivityManager) null);
+    }
+
+    /**
+     * Failures to connect to a host only count as failures of the host while the device is connected. Also resets
+     * the health of all hosts when the connectivity of the device changes, so that failures on the previous network
+     * don't keep requests from being sent on the new one.
+     */
+    public OkHttpNetwork(OkHttpClient.Builder clientBuilder, Context appContext) {
+        this(clientBuilder, (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE));
+        if (CONNECTIVITY_RECEIVER_REGISTERED.compareAndSet(false, true)) {
+            appContext.registerReceiver(new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    if (!isInitialStickyBroadcast()) {
+                        HostHealth.resetAll();
+                    }
+                }
+            }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        }
+    }
+
+    private OkHttpNetwork(OkHttpClient.Builder clientBuilder, ConnectivityManager connectivityManager) {
+        mClient = clientBuilder.build().newBuilder().addNetworkInterceptor(CONNECTION_INTERCEPTOR).build();
+        mConnectivityManager = connectivityManager;
+    }
+
+    @Override
+    public NetworkResponse performRequest(Request<?> request) throws VolleyError {
+        long requestStart = SystemClock.elapsedRealtime();
+        while (true) {
+            Response response = null;
+            Map<String, String> responseHeaders = null;
+            byte[] responseContents = null;
+            long attemptStart = SystemClock.elapsedRealtime();
+            Attempt attempt = new Attempt();
+            try {
+                okhttp3.Request okHttpRequest = buildRequest(request, attempt);
+                String host = okHttpRequest.url().host();
+                HostHealth hostHealth = HostHealth.forHost(host);
+                if (!hostHealth.allowRequest(attemptStart)) {
+                    throw new HostUnavailableError(host);
+                }
+                Call call = getClient(request.getTimeoutMs()).newCall(okHttpRequest);
+                try {
+                    response = call.execute();
+                } catch (IOException e) {
+                    recordFailure(hostHealth, e, attempt);
+                    throw e;
+                }
+                recordResponse(hostHealth, response, attemptStart);
+                int statusCode = response.code();
+                responseHeaders = convertHeaders(response.headers());
+
+                if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    Cache.Entry entry = request.getCacheEntry();
+                    long networkTimeMs = SystemClock.elapsedRealtime() - requestStart;
+                    if (entry == null) {
+                        return new NetworkResponse(statusCode, null, responseHeaders, true, networkTimeMs);
+                    }
+                    // A 304 response doesn't repeat all the headers of the cached response
+                    entry.responseHeaders.putAll(responseHeaders);
+                    return new NetworkResponse(statusCode, entry.data, entry.responseHeaders, true, networkTimeMs);
+                }
+
+                ResponseBody body = response.body();
+                responseContents = body != null ? body.bytes() : EMPTY_BODY;
+                if (statusCode < 200 || statusCode > 299) {
+                    throw new IOException("Unexpected response code " + statusCode + " for " + request.getUrl());
+                }
+                return new NetworkResponse(statusCode, responseContents, responseHeaders, false,
+                        SystemClock.elapsedRealtime() - requestStart);
+            } catch (SocketTimeoutException e) {
+                // Once sent, only requests reading data are sent again, others might have been handled by the host
+                if (attempt.mConnected && request.getMethod() != Request.Method.GET) {
+                    throw new TimeoutError();
+                }
+                attemptRetryOnException("socket", request, new TimeoutError());
+            } catch (IllegalArgumentException e) {
+                // Thrown by OkHttp for malformed URLs
+                throw new RuntimeException("Bad URL " + request.getUrl(), e);
+            } catch (IOException e) {
+                if (response == null) {
+                    throw new NoConnectionError(e);
+                }
+                if (responseContents == null) {
+                    throw new NetworkError(e);
+                }
+                int statusCode = response.code();
+                NetworkResponse networkResponse = new NetworkResponse(statusCode, responseContents, responseHeaders,
+                        false, SystemClock.elapsedRealtime() - requestStart);
+                if (statusCode == HttpURLConnection.HTTP_UNAUTHORIZED
+                    || statusCode == HttpURLConnection.HTTP_FORBIDDEN) {
+                    attemptRetryOnException("auth", request, new AuthFailureError(networkResponse));
+                } else {
+                    throw new ServerError(networkResponse);
+                }
+            } finally {
+                if (response != null) {
+                    response.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports a request without response to the health of its host. Timeouts and refused connections count as
+     * failures of the host, unless the device is offline: a host that is down never accepts the connection. Other
+     * failures (DNS, TLS...) say nothing about the host.
+     */
+    private void recordFailure(HostHealth hostHealth, IOException e, Attempt attempt) {
+        boolean hostFailure = e instanceof SocketTimeoutException || e instanceof ConnectException;
+        if (hostFailure && (attempt.mConnected || isDeviceConnected())) {
+            hostHealth.onFailure(SystemClock.elapsedRealtime());
+        } else {
+            hostHealth.onConnectionFailure();
+        }
+    }
+
+    private boolean isDeviceConnected() {
+        if (mConnectivityManager == null) {
+            return true;
+        }
+        NetworkInfo networkInfo = mConnectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    /**
+     * Reports how fast the host answered to its health. Gateway errors mean the host itself is down.
+     */
+    private static void recordResponse(HostHealth hostHealth, Response response, long attemptStart) {
+        long nowMs = SystemClock.elapsedRealtime();
+        switch (response.code()) {
+            case HttpURLConnection.HTTP_BAD_GATEWAY:
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+            case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+                hostHealth.onFailure(nowMs);
+                break;
+            default:
+                hostHealth.onSuccess(nowMs - attemptStart);
+                break;
+        }
+    }
+
+    /**
+     * Client with the timeouts of the request. Timeouts are rounded to the second, so there are only a few of them.
+     */
+    private OkHttpClient getClient(int timeoutMs) {
+        OkHttpClient client = mClientsByTimeout.get(timeoutMs);
+        if (client == null) {
+            client = mClient.newBuilder()
+                    .connectTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .writeTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                    .build();
+            OkHttpClient existing = mClientsByTimeout.putIfAbsent(timeoutMs, client);
+            if (existing != null) {
+                client = existing;
+            }
+        }
+        return client;
+    }
+
+    private static okhttp3.Request buildRequest(Request<?> request, Attempt attempt)
+            throws IOException, AuthFailureError {
+        Builder okHttpRequestBuilder = new okhttp3.Request.Builder();
+        okHttpRequestBuilder.url(request.getUrl());
+        okHttpRequestBuilder.tag(attempt);
+
+        Map<String, String> headers = request.getHeaders();
+        for (final String name : headers.keySet()) {
+            okHttpRequestBuilder.addHeader(name, headers.get(name));
+        }
+        addCacheHeaders(okHttpRequestBuilder, request.getCacheEntry());
+
+        setConnectionParametersForRequest(okHttpRequestBuilder, request);
+        return okHttpRequestBuilder.build();
+    }
+
+    private static void addCacheHeaders(Builder builder, Cache.Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        if (entry.etag != null) {
+            builder.addHeader(HEADER_IF_NONE_MATCH, entry.etag);
+        }
+        if (entry.lastModified > 0) {
+            SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            builder.addHeader(HEADER_IF_MODIFIED_SINCE, format.format(new Date(entry.lastModified)));
+        }
+    }
+
+    private static Map<String, String> convertHeaders(Headers headers) {
+        Map<String, String> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0, len = headers.size(); i < len; i++) {
+            result.put(headers.name(i), headers.value(i));
+        }
+        return result;
+    }
+
+    private static void attemptRetryOnException(String logPrefix, Request<?> request, VolleyError exception)
+            throws VolleyError {
+        RetryPolicy retryPolicy = request.getRetryPolicy();
+        int oldTimeout = request.getTimeoutMs();
+        try {
+            retryPolicy.retry(exception);
+        } catch (VolleyError e) {
+            request.addMarker(String.format(Locale.US, "%s-timeout-giveup [timeout=%s]", logPrefix, oldTimeout));
+            throw e;
+        }
+        long delayMs = retryPolicy instanceof AdaptiveRetryPolicy
+                ? ((AdaptiveRetryPolicy) retryPolicy).getRetryDelayMs() : 0;
+        if (delayMs > 0 && request instanceof BaseRequest && ((BaseRequest<?>) request).retryLater(delayMs)) {
+            request.addMarker(String.format(Locale.US, "%s-retry-later [timeout=%s, delay=%s]", logPrefix,
+                    oldTimeout, delayMs));
+            throw new RetryLaterError(exception);
+        }
+        request.addMarker(String.format(Locale.US, "%s-retry [timeout=%s]", logPrefix, oldTimeout));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void setConnectionParametersForRequest(Builder builder, Request<?> request)
+            throws IOException, AuthFailureError {
+        switch (request.getMethod()) {
+            case Request.Method.DEPRECATED_GET_OR_POST:
+                // Ensure backwards compatibility.  Volley assumes a request with a null body is a GET.
+                byte[] postBody = request.getPostBody();
+                if (postBody != null) {
+                    builder.post(RequestBody.create(MediaType.parse(request.getPostBodyContentType()), postBody));
+                }
+                break;
+            case Request.Method.GET:
+                builder.get();
+                break;
+            case Request.Method.DELETE:
+                builder.delete();
+                break;
+            case Request.Method.POST:
+                builder.post(createRequestBody(request));
+                break;
+            case Request.Method.PUT:
+                builder.put(createRequestBody(request));
+                break;
+            case Request.Method.HEAD:
+                builder.head();
+                break;
+            case Request.Method.OPTIONS:
+                builder.method("OPTIONS", null);
+                break;
+            case Request.Method.TRACE:
+                builder.method("TRACE", null);
+                break;
+            case Request.Method.PATCH:
+                builder.patch(createRequestBody(request));
+                break;
+            default:
+                throw new IllegalStateException("Unknown method type.");
+        }
+    }
+
+    private static RequestBody createRequestBody(Request r) throws AuthFailureError {
+        if (r instanceof StreamingBodyRequest) {
+            return createStreamingRequestBody((StreamingBodyRequest) r, MediaType.parse(r.getBodyContentType()));
+        }
+        byte[] body = r.getBody();
+        if (body == null) {
+            // Use the empty body when we get the null body
+            body = "".getBytes();
+        }
+        return RequestBody.create(MediaType.parse(r.getBodyContentType()), body);
+    }
+
+    private static RequestBody createStreamingRequestBody(final StreamingBodyRequest request,
+                                                          final MediaType contentType) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return request.getBodyContentLength();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                request.writeBodyTo(sink);
+            }
+        };
+    }
+}
@@ -0,0 +1,242 @@
+package org.wordpress.android.fluxc.network;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.android.volley.Cache;
+import com.android.volley.ExecutorDelivery;
+import com.android.volley.Network;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.ResponseDelivery;
+import com.android.volley.VolleyError;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request queue sending requests by priority (see {@link BaseRequest#setPriority}), with at most
+ * {@code maxRequestsPerHost} requests in the queue at once for each host. Requests over that limit wait outside of
+ * the queue, so a slow host can't hold all the network threads while requests to other hosts are waiting.
+ *
+ * Requests to retry after a delay (see {@link BaseRequest#retryLater}) finish, and are added again once the delay
+ * is over, without holding a network thread meanwhile.
+ */
+public class PriorityRequestQueue extends RequestQueue {
+    private static final ScheduledExecutorService RETRY_SCHEDULER = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FluxC-RetryScheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final int mMaxRequestsPerHost;
+    // Guarded by itself
+    private final Map<String, HostRequests> mHosts = new HashMap<>();
+    // Requests waiting for their retry delay to be over, guarded by itself
+    private final List<Request<?>> mDelayedRequests = new ArrayList<>();
+    private volatile RequestQueueMetrics mMetrics;
+
+    private static class HostRequests {
+        int mQueued;
+        // In the order they were added
+        final List<Request<?>> mWaiting = new ArrayList<>();
+    }
+
+    /**
+     * Reports when requests start being sent to the queue metrics, if any.
+     */
+    private static class MeteredNetwork implements Network {
+        private final Network mNetwork;
+        private PriorityRequestQueue mQueue;
+
+        MeteredNetwork(Network network) {
+            mNetwork = network;
+        }
+
+        @Override
+        public NetworkResponse performRequest(Request<?> request) throws VolleyError {
+            RequestQueueMetrics metrics = mQueue.mMetrics;
+            if (metrics != null && request instanceof BaseRequest) {
+                long queuedNanos = System.nanoTime() - ((BaseRequest<?>) request).getQueuedAtNanos();
+                metrics.onRequestStarted(getHost(request), request.getPriority(), queuedNanos);
+            }
+            return mNetwork.performRequest(request);
+        }
+    }
+
+    public PriorityRequestQueue(Cache cache, Network network, int threadPoolSize, int maxRequestsPerHost) {
+        this(cache, new MeteredNetwork(network), threadPoolSize, maxRequestsPerHost,
+                new ExecutorDelivery(new Handler(Looper.getMainLooper())));
+    }
+
+    PriorityRequestQueue(Cache cache, Network network, int threadPoolSize, int maxRequestsPerHost,
+                         ResponseDelivery delivery) {
+        this(cache, new MeteredNetwork(network), threadPoolSize, maxRequestsPerHost, delivery);
+    }
+
+    private PriorityRequestQueue(Cache cache, MeteredNetwork network, int threadPoolSize, int maxRequestsPerHost,
+                                 ResponseDelivery delivery) {
+        super(cache, network, threadPoolSize, delivery);
+        network.mQueue = this;
+        mMaxRequestsPerHost = maxRequestsPerHost;
+        addRequestFinishedListener(new RequestFinishedListener<Object>() {
+            @Override
+            public void onRequestFinished(Request<Object> request) {
+                Request<?> next = onHostRequestFinished(getHost(request));
+                if (next != null) {
+                    PriorityRequestQueue.super.add(next);
+                }
+                if (request instanceof BaseRequest) {
+                    long retryDelayMs = ((BaseRequest<?>) request).takeRetryDelayMs();
+                    if (retryDelayMs > 0 && !request.isCanceled()) {
+                        addDelayed(request, retryDelayMs);
+                    }
+                }
+            }
+        });
+    }
+
+    public void setMetrics(@Nullable RequestQueueMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    @Override
+    public <T> Request<T> add(Request<T> request) {
+        if (request instanceof BaseRequest) {
+            ((BaseRequest<?>) request).setQueuedAtNanos(System.nanoTime());
+            ((BaseRequest<?>) request).enableDelayedRetries();
+        }
+        String host = getHost(request);
+        synchronized (mHosts) {
+            HostRequests hostRequests = mHosts.get(host);
+            if (hostRequests == null) {
+                hostRequests = new HostRequests();
+                mHosts.put(host, hostRequests);
+            }
+            if (hostRequests.mQueued >= mMaxRequestsPerHost) {
+                hostRequests.mWaiting.add(request);
+                return request;
+            }
+            hostRequests.mQueued++;
+        }
+        return super.add(request);
+    }
+
+    private void addDelayed(final Request<?> request, long delayMs) {
+        synchronized (mDelayedRequests) {
+            mDelayedRequests.add(request);
+        }
+        RETRY_SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                boolean waiting;
+                synchronized (mDelayedRequests) {
+                    waiting = mDelayedRequests.remove(request);
+                }
+                if (waiting && !request.isCanceled()) {
+                    add(request);
+                }
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Also cancels the matching requests waiting for other requests to their host to complete, or for their retry
+     * delay to be over.
+     */
+    @Override
+    public void cancelAll(RequestFilter filter) {
+        List<Request<?>> canceled = new ArrayList<>();
+        synchronized (mDelayedRequests) {
+            Iterator<Request<?>> iterator = mDelayedRequests.iterator();
+            while (iterator.hasNext()) {
+                Request<?> request = iterator.next();
+                if (filter.apply(request)) {
+                    iterator.remove();
+                    canceled.add(request);
+                }
+            }
+        }
+        synchronized (mHosts) {
+            for (HostRequests hostRequests : mHosts.values()) {
+                Iterator<Request<?>> iterator = hostRequests.mWaiting.iterator();
+                while (iterator.hasNext()) {
+                    Request<?> request = iterator.next();
+                    if (filter.apply(request)) {
+                        iterator.remove();
+                        canceled.add(request);
+                    }
+                }
+            }
+        }
+        // Outside of the lock, canceling a request can add others
+        for (Request<?> request : canceled) {
+            request.cancel();
+        }
+        super.cancelAll(filter);
+    }
+
+    /**
+     * @return the waiting request to the host to queue in place of the finished one, or null if there's none
+     */
+    @Nullable
+    private Request<?> onHostRequestFinished(String host) {
+        synchronized (mHosts) {
+            HostRequests hostRequests = mHosts.get(host);
+            if (hostRequests == null) {
+                return null;
+            }
+            Request<?> next = takeNextRequest(hostRequests.mWaiting);
+            if (next == null) {
+                hostRequests.mQueued--;
+                if (hostRequests.mQueued <= 0) {
+                    mHosts.remove(host);
+                }
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Takes the first waiting request of the highest priority, dropping canceled requests.
+     */
+    @Nullable
+    private static Request<?> takeNextRequest(List<Request<?>> waiting) {
+        Request<?> next = null;
+        Iterator<Request<?>> iterator = waiting.iterator();
+        while (iterator.hasNext()) {
+            Request<?> request = iterator.next();
+            if (request.isCanceled()) {
+                iterator.remove();
+            } else if (next == null || request.getPriority().ordinal() > next.getPriority().ordinal()) {
+                next = request;
+            }
+        }
+        if (next != null) {
+            waiting.remove(next);
+        }
+        return next;
+    }
+
+    @NonNull
+    private static String getHost(Request<?> request) {
+        String host = request instanceof BaseRequest ? ((BaseRequest<?>) request).mUri.getHost()
+                : Uri.parse(request.getUrl()).getHost();
+        return host != null ? host : "";
+    }
+}
@@ -0,0 +1,20 @@
+package org.wordpress.android.fluxc.network;
+
+import com.android.volley.Request.Priority;
+
+/**
+ * Receives timings from a {@link PriorityRequestQueue}, see {@link PriorityRequestQueue#setMetrics}.
+ *
+ * Callbacks are made on the network threads: implementations must be thread safe, return quickly and avoid
+ * allocating.
+ */
+public interface RequestQueueMetrics {
+    /**
+     * Called when a network thread starts sending a request.
+     *
+     * @param host the host the request is sent to
+     * @param queuedNanos time between the request being added to the queue and being sent, including the time it
+     * waited for other requests to the same host to complete
+     */
+    void onRequestStarted(String host, Priority priority, long queuedNanos);
+}
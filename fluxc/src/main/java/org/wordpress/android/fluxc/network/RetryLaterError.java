@@ -0,0 +1,13 @@
+package org.wordpress.android.fluxc.network;
+
+import com.android.volley.VolleyError;
+
+/**
+ * Thrown by the network instead of retrying a request right away: the request isn't delivered this error, it's
+ * queued again once its retry delay is over, see {@link BaseRequest#retryLater}.
+ */
+class RetryLaterError extends VolleyError {
+    RetryLaterError(VolleyError cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,21 @@
+package org.wordpress.android.fluxc.network;
+
+import java.io.IOException;
+
+import okio.BufferedSink;
+
+/**
+ * A request whose body is written straight to the connection by {@link OkHttpNetwork}, instead of being built in
+ * memory through {@link com.android.volley.Request#getBody()}.
+ */
+public interface StreamingBodyRequest {
+    /**
+     * @return the size of the body in bytes, or -1 if unknown (the body is then sent with chunked encoding)
+     */
+    long getBodyContentLength() throws IOException;
+
+    /**
+     * Writes the body to the given sink. This can be called more than once when the request is retried.
+     */
+    void writeBodyTo(BufferedSink sink) throws IOException;
+}
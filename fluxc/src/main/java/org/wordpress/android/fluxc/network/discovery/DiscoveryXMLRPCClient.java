@@ -86,7 +86,9 @@ public class DiscoveryXMLRPCClient extends BaseXMLRPCClient {
         add(request);
 
         try {
-            return future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            Object[] methods = future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            setMulticallSupport(url, methods);
+            return methods;
         } catch (InterruptedException | TimeoutException e) {
             AppLog.e(AppLog.T.API, "Couldn't get XML-RPC response.");
         } catch (ExecutionException e) {
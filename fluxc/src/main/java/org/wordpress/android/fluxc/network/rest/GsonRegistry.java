@@ -0,0 +1,71 @@
+package org.wordpress.android.fluxc.network.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.wordpress.android.fluxc.network.rest.wpcom.comment.CommentWPComRestResponse.CommentsWPComRestResponse;
+import org.wordpress.android.fluxc.network.rest.wpcom.media.MediaWPComRestResponse.MultipleMediaResponse;
+import org.wordpress.android.fluxc.network.rest.wpcom.post.PostWPComRestResponse.PostsResponse;
+import org.wordpress.android.fluxc.network.rest.wpcom.site.SiteWPComRestResponse.SitesResponse;
+import org.wordpress.android.fluxc.network.rest.wpcom.taxonomy.TermWPComRestResponse.TermsResponse;
+
+/**
+ * Process-wide {@link Gson} instances used to parse network responses.
+ *
+ * Gson instances are thread safe and cache the type adapters they build by reflection: sharing them means these
+ * adapters are only built once per type instead of once per request.
+ */
+public class GsonRegistry {
+    private static final Class<?>[] HOT_RESPONSE_TYPES = {
+            PostsResponse.class,
+            MultipleMediaResponse.class,
+            SitesResponse.class,
+            CommentsWPComRestResponse.class,
+            TermsResponse.class
+    };
+
+    private static final Gson REST_GSON = new GsonBuilder()
+            .setLenient()
+            .registerTypeHierarchyAdapter(JsonObjectOrFalse.class, new JsonObjectOrFalseDeserializer())
+            .registerTypeHierarchyAdapter(JsonObjectOrEmptyArray.class, new JsonObjectOrEmptyArrayDeserializer())
+            .create();
+
+    private static final Gson PLAIN_GSON = new Gson();
+
+    private static volatile boolean sWarmedUp;
+
+    /**
+     * @return the {@link Gson} instance used by {@link GsonRequest}
+     */
+    public static Gson getRestGson() {
+        return REST_GSON;
+    }
+
+    /**
+     * @return a {@link Gson} instance without custom deserializers
+     */
+    public static Gson getPlainGson() {
+        return PLAIN_GSON;
+    }
+
+    /**
+     * Builds the type adapters of the largest and most frequent responses on a background thread, so the first
+     * requests don't pay for it.
+     */
+    public static void warmUpInBackground() {
+        if (sWarmedUp) {
+            return;
+        }
+        sWarmedUp = true;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (Class<?> responseType : HOT_RESPONSE_TYPES) {
+                    REST_GSON.getAdapter(responseType);
+                }
+            }
+        }, "FluxC-GsonWarmUp");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+}
@@ -1,21 +1,32 @@
 package org.wordpress.android.fluxc.network.rest;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
 import com.android.volley.AuthFailureError;
+import com.android.volley.Cache;
 import com.android.volley.NetworkResponse;
 import com.android.volley.ParseError;
 import com.android.volley.Response;
 import com.android.volley.Response.Listener;
 import com.android.volley.toolbox.HttpHeaderParser;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 
 import org.wordpress.android.fluxc.network.BaseRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 public abstract class GsonRequest<T> extends BaseRequest<T> {
@@ -28,6 +39,24 @@ public abstract class GsonRequest<T> extends BaseRequest<T> {
     private final Listener<T> mListener;
     private final Map<String, String> mParams;
     private final Map<String, Object> mBody;
+    private ResponseStreamParser<T> mStreamParser;
+    private OnNotModifiedListener mOnNotModifiedListener;
+    // Set on the network thread, read on the main thread when the response is delivered
+    private volatile boolean mNotModified;
+
+    /**
+     * Parses a response straight from the JSON stream, instead of mapping it to a response class first.
+     */
+    public interface ResponseStreamParser<T> {
+        T parse(Gson gson, JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Called instead of the response listener when the server confirms the cached response is still current.
+     */
+    public interface OnNotModifiedListener {
+        void onNotModified();
+    }
 
     protected GsonRequest(int method, Map<String, String> params, Map<String, Object> body, String url, Class<T> clazz,
                        Type type, Listener<T> listener, BaseErrorListener errorListener) {
@@ -40,14 +69,77 @@ public abstract class GsonRequest<T> extends BaseRequest<T> {
         mClass = clazz;
         mType = type;
         mListener = listener;
-        mGson = setupGsonBuilder().create();
+        mGson = GsonRegistry.getRestGson();
         mParams = params;
         mBody = body;
     }
 
+    protected void setStreamParser(ResponseStreamParser<T> streamParser) {
+        mStreamParser = streamParser;
+    }
+
+    /**
+     * Caches the response of this GET request, and revalidates it the next time the same request is sent, with the
+     * ETag and Last-Modified validators of the cached response. If the server answers 304 Not Modified, the response
+     * isn't parsed and the listener given here is called instead of the response listener, so callers can skip
+     * saving what they already have. Only use it for requests whose response is already stored.
+     *
+     * Cached responses are keyed by the URL, and by the Authorization header of the request, so responses are never
+     * shared between accounts or tokens.
+     */
+    public void enableRevalidatingCache(@NonNull OnNotModifiedListener listener) {
+        if (getMethod() != Method.GET) {
+            return;
+        }
+        mOnNotModifiedListener = listener;
+        setShouldCache(true);
+    }
+
+    /**
+     * Identical GET requests share a single response, unless they use the cache or parse their response with a
+     * stream parser, which might depend on the caller.
+     */
+    @Override
+    protected String getSingleFlightKey() {
+        if (getMethod() != Method.GET || shouldCache() || mStreamParser != null) {
+            return null;
+        }
+        String authorization = mHeaders.get(AUTHORIZATION_HEADER);
+        return "GET " + getNormalizedUrl() + " " + (mClass != null ? mClass.getName() : String.valueOf(mType))
+               + (authorization != null ? " " + sha256(authorization) : "");
+    }
+
+    @Override
+    public String getCacheKey() {
+        String authorization = mHeaders.get(AUTHORIZATION_HEADER);
+        if (authorization == null) {
+            return getUrl();
+        }
+        // The key is written to the cache files, it must not hold the token itself
+        return getUrl() + "#" + sha256(authorization);
+    }
+
+    /**
+     * Parses a response that was already read as part of another one, like an entry of a batch response.
+     */
+    protected T parseJsonElement(JsonElement json) throws IOException {
+        if (mStreamParser != null) {
+            return mStreamParser.parse(mGson, mGson.newJsonReader(new StringReader(json.toString())));
+        } else if (mClass == null) {
+            return mGson.fromJson(json, mType);
+        } else {
+            return mGson.fromJson(json, mClass);
+        }
+    }
+
     @Override
     protected void deliverResponse(T response) {
+        if (mNotModified) {
+            mOnNotModifiedListener.onNotModified();
+            return;
+        }
         mListener.onResponse(response);
+        deliverResponseToFollowers();
     }
 
     @Override
@@ -70,29 +162,69 @@ public abstract class GsonRequest<T> extends BaseRequest<T> {
     }
 
     @Override
-    protected Response<T> parseNetworkResponse(NetworkResponse response) {
+    protected Response<T> parseNetworkResponse(final NetworkResponse response) {
+        if (response.notModified && mOnNotModifiedListener != null) {
+            // The cached copy is still current, there's no need to parse it, or to write it to the cache again
+            mNotModified = true;
+            return Response.success(null, null);
+        }
         try {
-            String json = new String(response.data, HttpHeaderParser.parseCharset(response.headers));
+            // Read the response bytes directly, without decoding them to an intermediate String
+            Reader reader = new InputStreamReader(new ByteArrayInputStream(response.data),
+                    HttpHeaderParser.parseCharset(response.headers));
             T res;
-            if (mClass == null) {
-                res = mGson.fromJson(json, mType);
+            if (mStreamParser != null) {
+                res = mStreamParser.parse(mGson, mGson.newJsonReader(reader));
+            } else if (mClass == null) {
+                res = mGson.fromJson(reader, mType);
             } else {
-                res = mGson.fromJson(json, mClass);
+                res = mGson.fromJson(reader, mClass);
             }
-            return Response.success(res, HttpHeaderParser.parseCacheHeaders(response));
+            Cache.Entry cacheEntry = mOnNotModifiedListener != null ? getRevalidatingCacheEntry(response)
+                    : HttpHeaderParser.parseCacheHeaders(response);
+            parseResponseForFollowers(new FollowerResponseParser<T>() {
+                @Override
+                public Response<T> parse(BaseRequest<T> follower) {
+                    return ((GsonRequest<T>) follower).parseNetworkResponse(response);
+                }
+            });
+            return Response.success(res, cacheEntry);
         } catch (UnsupportedEncodingException e) {
             return Response.error(new ParseError(e));
-        } catch (JsonSyntaxException e) {
+        } catch (JsonParseException e) {
+            return Response.error(new ParseError(e));
+        } catch (IOException e) {
             return Response.error(new ParseError(e));
         }
     }
 
-    private GsonBuilder setupGsonBuilder() {
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.setLenient();
-        gsonBuilder.registerTypeHierarchyAdapter(JsonObjectOrFalse.class, new JsonObjectOrFalseDeserializer());
-        gsonBuilder.registerTypeHierarchyAdapter(JsonObjectOrEmptyArray.class,
-                new JsonObjectOrEmptyArrayDeserializer());
-        return gsonBuilder;
+    /**
+     * @return a cache entry that must be revalidated before every use, or null if the response can't be revalidated
+     * or must not be stored
+     */
+    @Nullable
+    private static Cache.Entry getRevalidatingCacheEntry(NetworkResponse response) {
+        Map<String, String> headers = response.headers;
+        String cacheControl = headers.get("Cache-Control");
+        if (cacheControl != null && cacheControl.toLowerCase(Locale.US).contains("no-store")) {
+            return null;
+        }
+        String etag = headers.get("ETag");
+        String lastModified = headers.get("Last-Modified");
+        if (etag == null && lastModified == null) {
+            return null;
+        }
+
+        Cache.Entry entry = new Cache.Entry();
+        entry.data = response.data;
+        entry.etag = etag;
+        entry.lastModified = lastModified != null ? HttpHeaderParser.parseDateAsEpoch(lastModified) : 0;
+        String serverDate = headers.get("Date");
+        entry.serverDate = serverDate != null ? HttpHeaderParser.parseDateAsEpoch(serverDate) : 0;
+        // Expired right away, so the cached response is only ever used through a conditional request
+        entry.ttl = 0;
+        entry.softTtl = 0;
+        entry.responseHeaders = headers;
+        return entry;
     }
 }
@@ -0,0 +1,78 @@
+package org.wordpress.android.fluxc.network.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.wordpress.android.fluxc.network.rest.GsonRequest.ResponseStreamParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the elements of an array field of a JSON object response, converting each element to a model as soon as
+ * it's read. Only one response element is held in memory at a time, next to the converted models.
+ *
+ * The parse result is null if the response isn't an object or doesn't have the array field.
+ */
+public class JsonArrayFieldParser<E, M> implements ResponseStreamParser<List<M>> {
+    public interface ElementConverter<E, M> {
+        /**
+         * @return the model for the given response element, or null to skip it
+         */
+        M convert(E element);
+    }
+
+    private final String mFieldName;
+    private final Class<E> mElementClass;
+    private final ElementConverter<E, M> mConverter;
+
+    public JsonArrayFieldParser(String fieldName, Class<E> elementClass, ElementConverter<E, M> converter) {
+        mFieldName = fieldName;
+        mElementClass = elementClass;
+        mConverter = converter;
+    }
+
+    @Override
+    public List<M> parse(Gson gson, JsonReader reader) throws IOException {
+        try {
+            return parseObject(gson, reader);
+        } catch (IllegalStateException e) {
+            // Unexpected token
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private List<M> parseObject(Gson gson, JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        TypeAdapter<E> adapter = gson.getAdapter(mElementClass);
+        List<M> models = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (!mFieldName.equals(name) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            models = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                E element = adapter.read(reader);
+                M model = element != null ? mConverter.convert(element) : null;
+                if (model != null) {
+                    models.add(model);
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return models;
+    }
+}
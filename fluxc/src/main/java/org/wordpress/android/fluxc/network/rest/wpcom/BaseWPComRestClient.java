@@ -1,14 +1,20 @@
 package org.wordpress.android.fluxc.network.rest.wpcom;
 
 import android.content.Context;
+import android.support.annotation.NonNull;
 
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
+import com.android.volley.Response.Listener;
+import com.android.volley.VolleyError;
 
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.generated.AuthenticationActionBuilder;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
 import org.wordpress.android.fluxc.network.BaseRequest.OnAuthFailedListener;
 import org.wordpress.android.fluxc.network.BaseRequest.OnParseErrorListener;
+import org.wordpress.android.fluxc.network.InFlightRequests;
 import org.wordpress.android.fluxc.network.UserAgent;
 import org.wordpress.android.fluxc.network.rest.wpcom.account.AccountSocialRequest;
 import org.wordpress.android.fluxc.network.rest.wpcom.auth.AccessToken;
@@ -16,19 +22,38 @@ import org.wordpress.android.fluxc.store.AccountStore.AuthenticateErrorPayload;
 import org.wordpress.android.fluxc.utils.ErrorUtils.OnUnexpectedError;
 import org.wordpress.android.util.LanguageUtils;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 public abstract class BaseWPComRestClient {
+    private static final long BATCH_WINDOW_MS = 50;
+
+    private static ScheduledExecutorService sBatchExecutor;
+
     private AccessToken mAccessToken;
     private final Context mAppContext;
     private final RequestQueue mRequestQueue;
+    private final InFlightRequests mInFlightRequests;
     protected final Dispatcher mDispatcher;
     protected UserAgent mUserAgent;
 
     private OnAuthFailedListener mOnAuthFailedListener;
     private OnParseErrorListener mOnParseErrorListener;
 
+    // Requests waiting for the batch window to end, by API version root
+    private final Map<String, List<WPComGsonRequest<?>>> mPendingBatches = new HashMap<>();
+
     public BaseWPComRestClient(Context appContext, Dispatcher dispatcher, RequestQueue requestQueue,
                                AccessToken accessToken, UserAgent userAgent) {
         mRequestQueue = requestQueue;
+        mInFlightRequests = new InFlightRequests(requestQueue);
         mDispatcher = dispatcher;
         mAccessToken = accessToken;
         mUserAgent = userAgent;
@@ -57,7 +82,109 @@ public abstract class BaseWPComRestClient {
             request.addQueryParameter("locale", LanguageUtils.getPatchedCurrentDeviceLanguage(mAppContext));
         }
         // TODO: If !mAccountToken.exists() then trigger the mOnAuthFailedListener
-        return mRequestQueue.add(setRequestAuthParams(request, true));
+        setRequestAuthParams(request, true);
+        // An identical request in flight gets the response for both
+        if (mInFlightRequests.join(request)) {
+            return request;
+        }
+        return mRequestQueue.add(request);
+    }
+
+    /**
+     * Queues a GET request to be sent in a /batch call along with the other requests of the same API version added
+     * within a short window. It's sent on its own if it can't be batched.
+     */
+    protected void addBatched(WPComGsonRequest<?> request) {
+        final String versionRoot = WPComBatchRequest.getVersionRoot(request);
+        if (versionRoot == null) {
+            add(request);
+            return;
+        }
+        request.addQueryParameter("locale", LanguageUtils.getPatchedCurrentDeviceLanguage(mAppContext));
+        if (mInFlightRequests.join(setRequestAuthParams(request, true))) {
+            return;
+        }
+        synchronized (mPendingBatches) {
+            List<WPComGsonRequest<?>> batch = mPendingBatches.get(versionRoot);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                mPendingBatches.put(versionRoot, batch);
+                getBatchExecutor().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<WPComGsonRequest<?>> calls;
+                        synchronized (mPendingBatches) {
+                            calls = mPendingBatches.remove(versionRoot);
+                        }
+                        addBatchRequest(versionRoot, calls);
+                    }
+                }, BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+            }
+            batch.add(request);
+        }
+    }
+
+    /**
+     * Sends the requests right away, in /batch calls grouping the GET requests of the same API version. Each request
+     * still gets its own response or error.
+     */
+    protected void addBatch(WPComGsonRequest<?>... requests) {
+        Map<String, List<WPComGsonRequest<?>>> batches = new LinkedHashMap<>();
+        for (WPComGsonRequest<?> request : requests) {
+            String versionRoot = WPComBatchRequest.getVersionRoot(request);
+            if (versionRoot == null) {
+                add(request);
+                continue;
+            }
+            request.addQueryParameter("locale", LanguageUtils.getPatchedCurrentDeviceLanguage(mAppContext));
+            if (mInFlightRequests.join(setRequestAuthParams(request, true))) {
+                continue;
+            }
+            List<WPComGsonRequest<?>> batch = batches.get(versionRoot);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batches.put(versionRoot, batch);
+            }
+            batch.add(request);
+        }
+        for (Map.Entry<String, List<WPComGsonRequest<?>>> batch : batches.entrySet()) {
+            addBatchRequest(batch.getKey(), batch.getValue());
+        }
+    }
+
+    // The requests already have their locale parameter and auth params
+    private void addBatchRequest(String versionRoot, final List<WPComGsonRequest<?>> requests) {
+        if (requests.size() == 1) {
+            mRequestQueue.add(requests.get(0));
+            return;
+        }
+        WPComBatchRequest batchRequest = new WPComBatchRequest(versionRoot, requests,
+                new Listener<List<WPComGsonRequest<?>>>() {
+            @Override
+            public void onResponse(List<WPComGsonRequest<?>> missingRequests) {
+                // Requests without an entry in the response are sent again, on their own
+                for (WPComGsonRequest<?> request : missingRequests) {
+                    mRequestQueue.add(request);
+                }
+            }
+        }, new BaseErrorListener() {
+            @Override
+            public void onErrorResponse(@NonNull BaseNetworkError error) {
+                if (error.volleyError != null && error.volleyError.networkResponse != null) {
+                    // The server rejected the batch call itself: the requests might still go through on their own
+                    for (WPComGsonRequest<?> request : requests) {
+                        if (!request.isCanceled()) {
+                            mRequestQueue.add(request);
+                        }
+                    }
+                } else {
+                    WPComBatchRequest.deliverError(requests, error.volleyError != null ? error.volleyError
+                            : new VolleyError(error.message));
+                }
+            }
+        });
+        batchRequest.addQueryParameter("locale", LanguageUtils.getPatchedCurrentDeviceLanguage(mAppContext));
+        mRequestQueue.add(setRequestAuthParams(batchRequest, true));
     }
 
     protected Request addUnauthedRequest(AccountSocialRequest request) {
@@ -83,13 +210,31 @@ public abstract class BaseWPComRestClient {
         if (addLocaleParameter) {
             request.addQueryParameter("locale", LanguageUtils.getPatchedCurrentDeviceLanguage(mAppContext));
         }
-        return mRequestQueue.add(setRequestAuthParams(request, false));
+        setRequestAuthParams(request, false);
+        if (mInFlightRequests.join(request)) {
+            return request;
+        }
+        return mRequestQueue.add(request);
     }
 
     protected AccessToken getAccessToken() {
         return mAccessToken;
     }
 
+    private static synchronized ScheduledExecutorService getBatchExecutor() {
+        if (sBatchExecutor == null) {
+            sBatchExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FluxC-WPComBatch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sBatchExecutor;
+    }
+
     private WPComGsonRequest setRequestAuthParams(WPComGsonRequest request, boolean shouldAuth) {
         request.setOnAuthFailedListener(mOnAuthFailedListener);
         request.setOnParseErrorListener(mOnParseErrorListener);
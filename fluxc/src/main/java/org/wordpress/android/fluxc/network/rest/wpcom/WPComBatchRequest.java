@@ -0,0 +1,148 @@
+package org.wordpress.android.fluxc.network.rest.wpcom;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.android.volley.Response;
+import com.android.volley.Response.Listener;
+import com.android.volley.VolleyError;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.wordpress.android.fluxc.generated.endpoint.WPCOMREST;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A WordPress.com /batch call, sending several GET requests of the same API version at once. The requests aren't
+ * queued themselves: each one gets its entry of the batch response, parsed with its own response class on the
+ * network thread, like the response of a request sent on its own.
+ */
+public class WPComBatchRequest extends WPComGsonRequest<List<Response<?>>> {
+    private static final Pattern VERSIONED_URL =
+            Pattern.compile("^(https://public-api\\.wordpress\\.com/rest/v[0-9.]+)(/.*)$");
+    private static final String URLS_PARAMETER = "urls[]";
+
+    private final List<WPComGsonRequest<?>> mRequests;
+    private final Listener<List<WPComGsonRequest<?>>> mMissingEntriesListener;
+
+    /**
+     * @param missingEntriesListener receives the requests missing from the batch response, once the other ones got
+     * their entry
+     */
+    WPComBatchRequest(String versionRoot, List<WPComGsonRequest<?>> requests,
+                      Listener<List<WPComGsonRequest<?>>> missingEntriesListener, BaseErrorListener errorListener) {
+        super(Method.GET, versionRoot + WPCOMREST.batch.getEndpoint(), Collections.<String, String>emptyMap(), null,
+                null, null, null, errorListener);
+        mRequests = new ArrayList<>(requests);
+        mMissingEntriesListener = missingEntriesListener;
+        for (WPComGsonRequest<?> request : requests) {
+            addQueryParameter(URLS_PARAMETER, getBatchPath(request));
+        }
+        setPriorityOf(requests);
+        setStreamParser(new ResponseStreamParser<List<Response<?>>>() {
+            @Override
+            public List<Response<?>> parse(Gson gson, JsonReader reader) throws IOException {
+                return parseEntries(gson, reader);
+            }
+        });
+    }
+
+    /**
+     * @return the API version root of the request, e.g. "https://public-api.wordpress.com/rest/v1.1", or null if it
+     * can't be part of a batch
+     */
+    @Nullable
+    static String getVersionRoot(WPComGsonRequest<?> request) {
+        // Cached requests are sent on their own, a batch entry can't be revalidated
+        if (request.getMethod() != Method.GET || request.shouldCache()) {
+            return null;
+        }
+        Matcher matcher = VERSIONED_URL.matcher(request.getUrl());
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * @return the path of the request in the batch call, relative to its API version root
+     */
+    static String getBatchPath(WPComGsonRequest<?> request) {
+        Matcher matcher = VERSIONED_URL.matcher(request.getUrl());
+        return matcher.matches() ? matcher.group(2) : request.getUrl();
+    }
+
+    static void deliverError(List<WPComGsonRequest<?>> requests, VolleyError error) {
+        for (WPComGsonRequest<?> request : requests) {
+            if (!request.isCanceled()) {
+                request.deliverError(error);
+            }
+        }
+    }
+
+    /**
+     * Reads the batch response, parsing the entry of each request that's still wanted, and skipping the others.
+     *
+     * @return the parsed entries, in the order of the requests, null for the requests without an entry
+     */
+    private List<Response<?>> parseEntries(Gson gson, JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new JsonSyntaxException("Expected a batch response object, got " + reader.peek());
+        }
+        List<Response<?>> entries = new ArrayList<>(Collections.<Response<?>>nCopies(mRequests.size(), null));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String path = reader.nextName();
+            JsonElement entry = null;
+            for (int i = 0; i < mRequests.size(); i++) {
+                WPComGsonRequest<?> request = mRequests.get(i);
+                if (request.isCanceled() || !path.equals(getBatchPath(request))) {
+                    continue;
+                }
+                if (entry == null) {
+                    entry = gson.fromJson(reader, JsonElement.class);
+                }
+                entries.set(i, request.parseBatchEntry(entry));
+            }
+            if (entry == null) {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return entries;
+    }
+
+    /**
+     * Delivers each parsed entry of the batch response to its request, then passes the requests missing from the
+     * response on to the listener.
+     */
+    @Override
+    protected void deliverResponse(List<Response<?>> entries) {
+        List<WPComGsonRequest<?>> missing = new ArrayList<>();
+        for (int i = 0; i < mRequests.size(); i++) {
+            WPComGsonRequest<?> request = mRequests.get(i);
+            if (request.isCanceled()) {
+                continue;
+            }
+            Response<?> entry = entries.get(i);
+            if (entry == null) {
+                missing.add(request);
+            } else {
+                request.deliverBatchEntry(entry);
+            }
+        }
+        mMissingEntriesListener.onResponse(missing);
+    }
+
+    @Override
+    public BaseNetworkError deliverBaseNetworkError(@NonNull BaseNetworkError error) {
+        // Authentication errors are reported by the requests themselves, once the error is passed on to them
+        return error;
+    }
+}
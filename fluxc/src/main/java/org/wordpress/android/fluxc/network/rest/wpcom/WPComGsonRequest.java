@@ -3,23 +3,38 @@ package org.wordpress.android.fluxc.network.rest.wpcom;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Response;
 import com.android.volley.Response.Listener;
+import com.android.volley.ServerError;
 import com.android.volley.toolbox.HttpHeaderParser;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.wordpress.android.fluxc.network.BaseRequest;
 import org.wordpress.android.fluxc.network.rest.GsonRequest;
+import org.wordpress.android.fluxc.network.rest.JsonArrayFieldParser;
+import org.wordpress.android.fluxc.network.rest.JsonArrayFieldParser.ElementConverter;
 import org.wordpress.android.fluxc.network.rest.wpcom.auth.Authenticator;
 import org.wordpress.android.fluxc.store.AccountStore.AuthenticateErrorPayload;
 import org.wordpress.android.fluxc.store.AccountStore.AuthenticationError;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class WPComGsonRequest<T> extends GsonRequest<T> {
     public static final String REST_AUTHORIZATION_HEADER = "Authorization";
     public static final String REST_AUTHORIZATION_FORMAT = "Bearer %s";
+    private static final String BATCH_STATUS_CODE = "status_code";
 
     public static class WPComGsonNetworkError extends BaseNetworkError {
         public String apiError;
@@ -29,7 +44,7 @@ public class WPComGsonRequest<T> extends GsonRequest<T> {
         }
     }
 
-    private WPComGsonRequest(int method, String url, Map<String, String> params, Map<String, Object> body,
+    protected WPComGsonRequest(int method, String url, Map<String, String> params, Map<String, Object> body,
                              Class<T> clazz, Type type, Listener<T> listener, BaseErrorListener errorListener) {
         super(method, params, body, url, clazz, type, listener, errorListener);
         // If it's a GET request, add the parameters to the URL
@@ -56,6 +71,26 @@ public class WPComGsonRequest<T> extends GsonRequest<T> {
         return new WPComGsonRequest<>(Method.GET, url, params, null, null, type, listener, errorListener);
     }
 
+    /**
+     * Creates a new GET request for a response holding a list of items, each item being converted to a model as soon
+     * as it's read from the response, instead of parsing the whole response first.
+     * @param url the request URL
+     * @param params the parameters to append to the request URL
+     * @param listField the name of the response field holding the list
+     * @param elementClass the class defining each item of the list
+     * @param converter converts each item to a model, on the network thread
+     * @param listener the success listener, receiving null if the response doesn't hold the list
+     * @param errorListener the error listener
+     */
+    public static <E, M> WPComGsonRequest<List<M>> buildGetListRequest(String url, Map<String, String> params,
+            String listField, Class<E> elementClass, ElementConverter<E, M> converter, Listener<List<M>> listener,
+            BaseErrorListener errorListener) {
+        WPComGsonRequest<List<M>> request = new WPComGsonRequest<>(Method.GET, url, params, null, null, null,
+                listener, errorListener);
+        request.setStreamParser(new JsonArrayFieldParser<>(listField, elementClass, converter));
+        return request;
+    }
+
     /**
      * Creates a new JSON-formatted POST request.
      * @param url the request URL
@@ -74,6 +109,64 @@ public class WPComGsonRequest<T> extends GsonRequest<T> {
         return new WPComGsonRequest<>(Method.POST, url, null, body, null, type, listener, errorListener);
     }
 
+    /**
+     * Parses this request's entry of a /batch response, and the copies of the identical requests waiting for it, as
+     * if it had been sent on its own. Called on the network thread, the result is delivered by
+     * {@link #deliverBatchEntry(Response)}.
+     */
+    Response<T> parseBatchEntry(final JsonElement entry) {
+        if (isBatchErrorEntry(entry)) {
+            // Let deliverBaseNetworkError() read the API error from the entry, as it does for an error response
+            JsonElement statusCode = entry.getAsJsonObject().get(BATCH_STATUS_CODE);
+            int status = statusCode != null && statusCode.isJsonPrimitive() ? statusCode.getAsInt() : 400;
+            byte[] data = entry.toString().getBytes(Charset.forName("UTF-8"));
+            return Response.error(new ServerError(new NetworkResponse(status, data,
+                    Collections.<String, String>emptyMap(), false)));
+        }
+        T response;
+        try {
+            response = parseJsonElement(entry);
+        } catch (JsonParseException | IOException | NumberFormatException e) {
+            return Response.error(new ParseError(e));
+        }
+        parseResponseForFollowers(new FollowerResponseParser<T>() {
+            @Override
+            public Response<T> parse(BaseRequest<T> follower) {
+                try {
+                    return Response.success(((WPComGsonRequest<T>) follower).parseJsonElement(entry), null);
+                } catch (JsonParseException | IOException | NumberFormatException e) {
+                    return Response.error(new ParseError(e));
+                }
+            }
+        });
+        return Response.success(response, null);
+    }
+
+    /**
+     * Delivers the entry of a /batch response parsed by {@link #parseBatchEntry(JsonElement)}.
+     */
+    @SuppressWarnings("unchecked")
+    void deliverBatchEntry(Response<?> entry) {
+        if (entry.isSuccess()) {
+            deliverResponse((T) entry.result);
+        } else {
+            deliverError(entry.error);
+        }
+    }
+
+    private static boolean isBatchErrorEntry(JsonElement entry) {
+        if (!entry.isJsonObject()) {
+            return false;
+        }
+        JsonObject object = entry.getAsJsonObject();
+        JsonElement statusCode = object.get(BATCH_STATUS_CODE);
+        if (statusCode != null && statusCode.isJsonPrimitive() && statusCode.getAsJsonPrimitive().isNumber()) {
+            return statusCode.getAsInt() >= 400;
+        }
+        JsonElement error = object.get("error");
+        return error != null && error.isJsonPrimitive() && object.has("message");
+    }
+
     private String addDefaultParameters(String url) {
         return url;
     }
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import com.android.volley.Request.Priority;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response.Listener;
 import com.google.gson.Gson;
@@ -24,6 +25,8 @@ import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
 import org.wordpress.android.fluxc.network.BaseUploadRequestBody.ProgressListener;
 import org.wordpress.android.fluxc.network.UserAgent;
+import org.wordpress.android.fluxc.network.rest.GsonRegistry;
+import org.wordpress.android.fluxc.network.rest.JsonArrayFieldParser.ElementConverter;
 import org.wordpress.android.fluxc.network.rest.wpcom.BaseWPComRestClient;
 import org.wordpress.android.fluxc.network.rest.wpcom.WPComGsonRequest;
 import org.wordpress.android.fluxc.network.rest.wpcom.auth.AccessToken;
@@ -190,7 +193,7 @@ public class MediaRestClient extends BaseWPComRestClient implements ProgressList
                     AppLog.d(T.MEDIA, "media upload successful: " + response);
                     String jsonBody = responseBody.string();
 
-                    Gson gson = new Gson();
+                    Gson gson = GsonRegistry.getPlainGson();
                     JsonReader reader = new JsonReader(new StringReader(jsonBody));
                     reader.setLenient(true);
                     MultipleMediaResponse mediaResponse = gson.fromJson(reader, MultipleMediaResponse.class);
@@ -243,17 +246,25 @@ public class MediaRestClient extends BaseWPComRestClient implements ProgressList
             params.put("mime_type", mimeType);
         }
         String url = WPCOMREST.sites.site(site.getSiteId()).media.getUrlV1_1();
-        add(WPComGsonRequest.buildGetRequest(url, params, MultipleMediaResponse.class,
-                new Listener<MultipleMediaResponse>() {
+        WPComGsonRequest<List<MediaModel>> request = WPComGsonRequest.buildGetListRequest(url, params, "media",
+                MediaWPComRestResponse.class,
+                new ElementConverter<MediaWPComRestResponse, MediaModel>() {
                     @Override
-                    public void onResponse(MultipleMediaResponse response) {
-                        List<MediaModel> mediaList = getMediaListFromRestResponse(response, site.getId());
+                    public MediaModel convert(MediaWPComRestResponse mediaItem) {
+                        MediaModel mediaModel = getMediaFromRestResponse(mediaItem);
+                        mediaModel.setLocalSiteId(site.getId());
+                        return mediaModel;
+                    }
+                },
+                new Listener<List<MediaModel>>() {
+                    @Override
+                    public void onResponse(List<MediaModel> mediaList) {
                         if (mediaList != null) {
                             AppLog.v(T.MEDIA, "Fetched media list for site with size: " + mediaList.size());
                             boolean canLoadMore = mediaList.size() == number;
                             notifyMediaListFetched(site, mediaList, offset > 0, canLoadMore, mimeType);
                         } else {
-                            AppLog.w(T.MEDIA, "could not parse Fetch all media response: " + response);
+                            AppLog.w(T.MEDIA, "could not parse Fetch all media response");
                             MediaError error = new MediaError(MediaErrorType.PARSE_ERROR);
                             notifyMediaListFetched(site, error, mimeType);
                         }
@@ -266,7 +277,9 @@ public class MediaRestClient extends BaseWPComRestClient implements ProgressList
                         notifyMediaListFetched(site, mediaError, mimeType);
                     }
                 }
-        ));
+        );
+        request.setPriority(Priority.LOW);
+        add(request);
     }
 
     /**
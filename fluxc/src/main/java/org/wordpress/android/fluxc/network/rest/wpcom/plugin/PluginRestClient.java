@@ -3,6 +3,7 @@ package org.wordpress.android.fluxc.network.rest.wpcom.plugin;
 import android.content.Context;
 import android.support.annotation.NonNull;
 
+import com.android.volley.Request.Priority;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response.Listener;
 
@@ -76,6 +77,7 @@ public class PluginRestClient extends BaseWPComRestClient {
                     }
                 }
         );
+        request.setPriority(Priority.LOW);
         add(request);
     }
 
@@ -2,8 +2,10 @@ package org.wordpress.android.fluxc.network.rest.wpcom.post;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import com.android.volley.Request.Priority;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response.Listener;
 
@@ -19,6 +21,7 @@ import org.wordpress.android.fluxc.model.post.PostStatus;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
 import org.wordpress.android.fluxc.network.UserAgent;
+import org.wordpress.android.fluxc.network.rest.JsonArrayFieldParser.ElementConverter;
 import org.wordpress.android.fluxc.network.rest.wpcom.BaseWPComRestClient;
 import org.wordpress.android.fluxc.network.rest.wpcom.WPComGsonRequest;
 import org.wordpress.android.fluxc.network.rest.wpcom.WPComGsonRequest.WPComGsonNetworkError;
@@ -31,9 +34,12 @@ import org.wordpress.android.fluxc.store.PostStore.FetchPostsResponsePayload;
 import org.wordpress.android.fluxc.store.PostStore.SearchPostsResponsePayload;
 import org.wordpress.android.fluxc.store.PostStore.PostError;
 import org.wordpress.android.fluxc.store.PostStore.RemotePostPayload;
+import org.wordpress.android.fluxc.utils.DateUtils;
+import org.wordpress.android.util.DateTimeUtils;
 import org.wordpress.android.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -81,11 +87,19 @@ public class PostRestClient extends BaseWPComRestClient {
                     }
                 }
         );
+        // Posts are fetched while the user waits to edit them
+        request.setPriority(Priority.HIGH);
         add(request);
     }
 
+    /**
+     * Fetches a page of posts, from newest to oldest.
+     *
+     * @param oldestDate creation date of the oldest post already fetched, or null to fetch the first page
+     * @param oldestRemotePostIds remote IDs of the posts already fetched that were created at {@code oldestDate}
+     */
     public void fetchPosts(final SiteModel site, final boolean getPages, final List<PostStatus> statusList,
-                           final int offset) {
+                           @Nullable String oldestDate, @NonNull List<Long> oldestRemotePostIds) {
         String url = WPCOMREST.sites.site(site.getSiteId()).posts.getUrlV1_1();
 
         Map<String, String> params = new HashMap<>();
@@ -101,27 +115,39 @@ public class PostRestClient extends BaseWPComRestClient {
             params.put("status", PostStatus.postStatusListToString(statusList));
         }
 
-        if (offset > 0) {
-            params.put("offset", String.valueOf(offset));
+        final boolean loadedMore = oldestDate != null;
+        if (loadedMore) {
+            // Keyset pagination on (date, ID): unlike an offset, it doesn't skip or repeat posts when posts are
+            // added or removed between two pages. "before" is strict and dates have a one second precision, so
+            // the posts sharing the oldest date are fetched again, except the ones we already have.
+            Date oldest = DateTimeUtils.dateUTCFromIso8601(oldestDate);
+            if (oldest != null) {
+                params.put("before", DateTimeUtils.iso8601UTCFromDate(new Date(oldest.getTime() + 1000)));
+            }
+            if (!oldestRemotePostIds.isEmpty()) {
+                params.put("exclude", TextUtils.join(",", oldestRemotePostIds));
+            }
         }
 
-        final WPComGsonRequest<PostsResponse> request = WPComGsonRequest.buildGetRequest(url, params,
-                PostsResponse.class,
-                new Listener<PostsResponse>() {
+        final WPComGsonRequest<List<PostModel>> request = WPComGsonRequest.buildGetListRequest(url, params,
+                "posts", PostWPComRestResponse.class,
+                new ElementConverter<PostWPComRestResponse, PostModel>() {
                     @Override
-                    public void onResponse(PostsResponse response) {
-                        List<PostModel> postArray = new ArrayList<>();
-                        PostModel post;
-                        for (PostWPComRestResponse postResponse : response.posts) {
-                            post = postResponseToPostModel(postResponse);
-                            post.setLocalSiteId(site.getId());
-                            postArray.add(post);
-                        }
+                    public PostModel convert(PostWPComRestResponse postResponse) {
+                        PostModel post = postResponseToPostModel(postResponse);
+                        post.setLocalSiteId(site.getId());
+                        return post;
+                    }
+                },
+                new Listener<List<PostModel>>() {
+                    @Override
+                    public void onResponse(List<PostModel> response) {
+                        List<PostModel> postArray = response != null ? response : new ArrayList<PostModel>();
 
                         boolean canLoadMore = postArray.size() == PostStore.NUM_POSTS_PER_FETCH;
 
                         FetchPostsResponsePayload payload = new FetchPostsResponsePayload(new PostsModel(postArray),
-                                site, getPages, offset > 0, canLoadMore);
+                                site, getPages, loadedMore, canLoadMore);
                         mDispatcher.dispatch(PostActionBuilder.newFetchedPostsAction(payload));
                     }
                 },
@@ -138,6 +164,102 @@ public class PostRestClient extends BaseWPComRestClient {
         add(request);
     }
 
+    /**
+     * Fetches the posts modified on the server since the given date, oldest modification first. Trashed posts are
+     * included, so they can be removed locally. Each page is dispatched on its own, until we're caught up.
+     *
+     * @param modifiedSince modification date of the latest post already fetched
+     * @param modifiedSinceRemotePostIds remote IDs of the posts already fetched that were modified at
+     * {@code modifiedSince}
+     */
+    public void fetchPostsModifiedAfter(final SiteModel site, final boolean getPages, final String modifiedSince,
+                                        @NonNull final List<Long> modifiedSinceRemotePostIds) {
+        String url = WPCOMREST.sites.site(site.getSiteId()).posts.getUrlV1_1();
+
+        List<PostStatus> statusList = new ArrayList<>(PostStore.DEFAULT_POST_STATUS_LIST);
+        statusList.add(PostStatus.TRASHED);
+
+        Map<String, String> params = new HashMap<>();
+        params.put("context", "edit");
+        params.put("number", String.valueOf(PostStore.NUM_MODIFIED_POSTS_PER_FETCH));
+        params.put("status", PostStatus.postStatusListToString(statusList));
+        // "modified_after" is strict and dates have a one second precision: like "before" in fetchPosts, the posts
+        // sharing the boundary date are fetched again, except the ones we already have
+        final Date since = DateUtils.dateFromIso8601(modifiedSince);
+        if (since != null) {
+            params.put("modified_after", DateTimeUtils.iso8601UTCFromDate(new Date(since.getTime() - 1000)));
+        }
+        if (!modifiedSinceRemotePostIds.isEmpty()) {
+            params.put("exclude", TextUtils.join(",", modifiedSinceRemotePostIds));
+        }
+        params.put("order_by", "modified");
+        params.put("order", "ASC");
+        if (getPages) {
+            params.put("type", "page");
+        }
+
+        final WPComGsonRequest<List<PostModel>> request = WPComGsonRequest.buildGetListRequest(url, params,
+                "posts", PostWPComRestResponse.class,
+                new ElementConverter<PostWPComRestResponse, PostModel>() {
+                    @Override
+                    public PostModel convert(PostWPComRestResponse postResponse) {
+                        PostModel post = postResponseToPostModel(postResponse);
+                        post.setLocalSiteId(site.getId());
+                        return post;
+                    }
+                },
+                new Listener<List<PostModel>>() {
+                    @Override
+                    public void onResponse(List<PostModel> response) {
+                        List<PostModel> postArray = response != null ? response : new ArrayList<PostModel>();
+
+                        // Older posts can still be loaded with loadMore
+                        FetchPostsResponsePayload payload = new FetchPostsResponsePayload(new PostsModel(postArray),
+                                site, getPages, false, true);
+                        payload.incremental = true;
+                        mDispatcher.dispatch(PostActionBuilder.newFetchedPostsAction(payload));
+
+                        if (postArray.size() == PostStore.NUM_MODIFIED_POSTS_PER_FETCH) {
+                            fetchNextPostsModifiedAfter(site, getPages, since, modifiedSinceRemotePostIds,
+                                    postArray);
+                        }
+                    }
+                },
+                new BaseErrorListener() {
+                    @Override
+                    public void onErrorResponse(@NonNull BaseNetworkError error) {
+                        PostError postError = new PostError(((WPComGsonNetworkError) error).apiError, error.message);
+                        FetchPostsResponsePayload payload = new FetchPostsResponsePayload(postError);
+                        mDispatcher.dispatch(PostActionBuilder.newFetchedPostsAction(payload));
+                    }
+                }
+        );
+        add(request);
+    }
+
+    /**
+     * Fetches the page following the given one, starting from the modification date of its last post.
+     */
+    private void fetchNextPostsModifiedAfter(SiteModel site, boolean getPages, @Nullable Date since,
+                                             List<Long> sinceRemotePostIds, List<PostModel> page) {
+        String lastModified = page.get(page.size() - 1).getDateModified();
+        Date last = DateUtils.dateFromIso8601(lastModified);
+        if (last == null) {
+            return;
+        }
+        // Skip the posts of this page modified at the same date, and the previous ones if the date didn't change
+        List<Long> lastRemotePostIds = new ArrayList<>();
+        if (last.equals(since)) {
+            lastRemotePostIds.addAll(sinceRemotePostIds);
+        }
+        for (PostModel post : page) {
+            if (last.equals(DateUtils.dateFromIso8601(post.getDateModified()))) {
+                lastRemotePostIds.add(post.getRemotePostId());
+            }
+        }
+        fetchPostsModifiedAfter(site, getPages, DateTimeUtils.iso8601UTCFromDate(last), lastRemotePostIds);
+    }
+
     public void pushPost(final PostModel post, final SiteModel site) {
         String url;
 
@@ -272,6 +394,7 @@ public class PostRestClient extends BaseWPComRestClient {
         post.setRemoteSiteId(from.site_ID);
         post.setLink(from.URL); // Is this right?
         post.setDateCreated(from.date);
+        post.setDateModified(from.modified);
         post.setTitle(from.title);
         post.setContent(from.content);
         post.setExcerpt(from.excerpt);
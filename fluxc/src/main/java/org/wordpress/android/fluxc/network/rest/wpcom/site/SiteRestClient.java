@@ -24,13 +24,15 @@ import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
 import org.wordpress.android.fluxc.network.BaseRequest.GenericErrorType;
 import org.wordpress.android.fluxc.network.UserAgent;
+import org.wordpress.android.fluxc.network.rest.GsonRequest.OnNotModifiedListener;
+import org.wordpress.android.fluxc.network.rest.JsonArrayFieldParser.ElementConverter;
 import org.wordpress.android.fluxc.network.rest.wpcom.BaseWPComRestClient;
 import org.wordpress.android.fluxc.network.rest.wpcom.WPComGsonRequest;
 import org.wordpress.android.fluxc.network.rest.wpcom.WPComGsonRequest.WPComGsonNetworkError;
 import org.wordpress.android.fluxc.network.rest.wpcom.auth.AccessToken;
 import org.wordpress.android.fluxc.network.rest.wpcom.auth.AppSecrets;
-import org.wordpress.android.fluxc.network.rest.wpcom.site.SiteWPComRestResponse.SitesResponse;
 import org.wordpress.android.fluxc.network.rest.wpcom.site.UserRoleWPComRestResponse.UserRolesResponse;
+import org.wordpress.android.fluxc.persistence.SiteSqlUtils;
 import org.wordpress.android.fluxc.store.SiteStore.ConnectSiteInfoPayload;
 import org.wordpress.android.fluxc.store.SiteStore.DeleteSiteError;
 import org.wordpress.android.fluxc.store.SiteStore.FetchedPostFormatsPayload;
@@ -104,17 +106,18 @@ public class SiteRestClient extends BaseWPComRestClient {
 
     public void fetchSites() {
         String url = WPCOMREST.me.sites.getUrlV1_1();
-        final WPComGsonRequest<SitesResponse> request = WPComGsonRequest.buildGetRequest(url, null,
-                SitesResponse.class,
-                new Listener<SitesResponse>() {
+        final WPComGsonRequest<List<SiteModel>> request = WPComGsonRequest.buildGetListRequest(url, null,
+                "sites", SiteWPComRestResponse.class,
+                new ElementConverter<SiteWPComRestResponse, SiteModel>() {
                     @Override
-                    public void onResponse(SitesResponse response) {
-                        if (response != null) {
-                            List<SiteModel> siteArray = new ArrayList<>();
-
-                            for (SiteWPComRestResponse siteResponse : response.sites) {
-                                siteArray.add(siteResponseToSiteModel(siteResponse));
-                            }
+                    public SiteModel convert(SiteWPComRestResponse siteResponse) {
+                        return siteResponseToSiteModel(siteResponse);
+                    }
+                },
+                new Listener<List<SiteModel>>() {
+                    @Override
+                    public void onResponse(List<SiteModel> siteArray) {
+                        if (siteArray != null) {
                             mDispatcher.dispatch(SiteActionBuilder.newFetchedSitesAction(new SitesModel(siteArray)));
                         } else {
                             AppLog.e(T.API, "Received empty response to /me/sites/");
@@ -243,7 +246,18 @@ public class SiteRestClient extends BaseWPComRestClient {
                     }
                 }
         );
-        add(request);
+        if (!SiteSqlUtils.getPostFormats(site).isEmpty()) {
+            request.enableRevalidatingCache(new OnNotModifiedListener() {
+                @Override
+                public void onNotModified() {
+                    FetchedPostFormatsPayload payload = new FetchedPostFormatsPayload(site,
+                            Collections.<PostFormatModel>emptyList());
+                    payload.notModified = true;
+                    mDispatcher.dispatch(SiteActionBuilder.newFetchedPostFormatsAction(payload));
+                }
+            });
+        }
+        addBatched(request);
     }
 
     public void fetchUserRoles(@NonNull final SiteModel site) {
@@ -275,7 +289,18 @@ public class SiteRestClient extends BaseWPComRestClient {
                     }
                 }
         );
-        add(request);
+        if (!SiteSqlUtils.getUserRoles(site).isEmpty()) {
+            request.enableRevalidatingCache(new OnNotModifiedListener() {
+                @Override
+                public void onNotModified() {
+                    FetchedUserRolesPayload payload = new FetchedUserRolesPayload(site,
+                            Collections.<RoleModel>emptyList());
+                    payload.notModified = true;
+                    mDispatcher.dispatch(SiteActionBuilder.newFetchedUserRolesAction(payload));
+                }
+            });
+        }
+        addBatched(request);
     }
 
     public void deleteSite(final SiteModel site) {
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import com.android.volley.Request.Priority;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response;
 
@@ -15,12 +16,14 @@ import org.wordpress.android.fluxc.model.ThemeModel;
 import org.wordpress.android.fluxc.network.BaseRequest;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
 import org.wordpress.android.fluxc.network.UserAgent;
+import org.wordpress.android.fluxc.network.rest.GsonRequest.OnNotModifiedListener;
 import org.wordpress.android.fluxc.network.rest.wpcom.BaseWPComRestClient;
 import org.wordpress.android.fluxc.network.rest.wpcom.WPComGsonRequest;
 import org.wordpress.android.fluxc.network.rest.wpcom.WPComGsonRequest.WPComGsonNetworkError;
 import org.wordpress.android.fluxc.network.rest.wpcom.auth.AccessToken;
 import org.wordpress.android.fluxc.network.rest.wpcom.theme.JetpackThemeResponse.JetpackThemeListResponse;
 import org.wordpress.android.fluxc.network.rest.wpcom.theme.WPComThemeResponse.WPComThemeListResponse;
+import org.wordpress.android.fluxc.persistence.ThemeSqlUtils;
 import org.wordpress.android.fluxc.store.ThemeStore.SiteThemePayload;
 import org.wordpress.android.fluxc.store.ThemeStore.FetchedCurrentThemePayload;
 import org.wordpress.android.fluxc.store.ThemeStore.FetchedSiteThemesPayload;
@@ -30,6 +33,7 @@ import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -131,7 +135,8 @@ public class ThemeRestClient extends BaseWPComRestClient {
      */
     public void fetchWpComThemes() {
         String url = WPCOMREST.themes.getUrlV1_2() + "?" + WP_THEME_FETCH_NUMBER_PARAM;
-        add(WPComGsonRequest.buildGetRequest(url, null, WPComThemeListResponse.class,
+        WPComGsonRequest<WPComThemeListResponse> request = WPComGsonRequest.buildGetRequest(url, null,
+                WPComThemeListResponse.class,
                 new Response.Listener<WPComThemeListResponse>() {
                     @Override
                     public void onResponse(WPComThemeListResponse response) {
@@ -149,7 +154,21 @@ public class ThemeRestClient extends BaseWPComRestClient {
                         FetchedWpComThemesPayload payload = new FetchedWpComThemesPayload(themeError);
                         mDispatcher.dispatch(ThemeActionBuilder.newFetchedWpComThemesAction(payload));
                     }
-                }));
+                });
+        if (ThemeSqlUtils.hasWpComThemes()) {
+            request.enableRevalidatingCache(new OnNotModifiedListener() {
+                @Override
+                public void onNotModified() {
+                    AppLog.d(AppLog.T.API, "WP.com themes didn't change since the last fetch.");
+                    FetchedWpComThemesPayload payload =
+                            new FetchedWpComThemesPayload(Collections.<ThemeModel>emptyList());
+                    payload.notModified = true;
+                    mDispatcher.dispatch(ThemeActionBuilder.newFetchedWpComThemesAction(payload));
+                }
+            });
+        }
+        request.setPriority(Priority.LOW);
+        add(request);
     }
 
     /**
@@ -7,11 +7,13 @@ import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.generated.AuthenticationActionBuilder;
 import org.wordpress.android.fluxc.network.BaseRequest;
 import org.wordpress.android.fluxc.network.BaseRequest.OnAuthFailedListener;
+import org.wordpress.android.fluxc.network.InFlightRequests;
 import org.wordpress.android.fluxc.network.UserAgent;
 import org.wordpress.android.fluxc.store.AccountStore.AuthenticateErrorPayload;
 
 public abstract class BaseWPOrgAPIClient {
     private final RequestQueue mRequestQueue;
+    private final InFlightRequests mInFlightRequests;
     private final Dispatcher mDispatcher;
     private UserAgent mUserAgent;
 
@@ -21,6 +23,7 @@ public abstract class BaseWPOrgAPIClient {
                               UserAgent userAgent) {
         mDispatcher = dispatcher;
         mRequestQueue = requestQueue;
+        mInFlightRequests = new InFlightRequests(requestQueue);
         mUserAgent = userAgent;
         mOnAuthFailedListener = new OnAuthFailedListener() {
             @Override
@@ -31,7 +34,12 @@ public abstract class BaseWPOrgAPIClient {
     }
 
     protected Request add(WPOrgAPIGsonRequest request) {
-        return mRequestQueue.add(setRequestAuthParams(request));
+        setRequestAuthParams(request);
+        // An identical request in flight gets the response for both
+        if (mInFlightRequests.join(request)) {
+            return request;
+        }
+        return mRequestQueue.add(request);
     }
 
     private BaseRequest setRequestAuthParams(BaseRequest request) {
@@ -3,6 +3,7 @@ package org.wordpress.android.fluxc.network.wporg.plugin;
 import android.support.annotation.NonNull;
 
 import com.android.volley.Request.Method;
+import com.android.volley.Request.Priority;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response.Listener;
 
@@ -13,8 +14,10 @@ import org.wordpress.android.fluxc.model.WPOrgPluginModel;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
 import org.wordpress.android.fluxc.network.UserAgent;
+import org.wordpress.android.fluxc.network.rest.GsonRequest.OnNotModifiedListener;
 import org.wordpress.android.fluxc.network.wporg.BaseWPOrgAPIClient;
 import org.wordpress.android.fluxc.network.wporg.WPOrgAPIGsonRequest;
+import org.wordpress.android.fluxc.persistence.PluginSqlUtils;
 import org.wordpress.android.fluxc.store.PluginStore.FetchWPOrgPluginError;
 import org.wordpress.android.fluxc.store.PluginStore.FetchWPOrgPluginErrorType;
 import org.wordpress.android.fluxc.store.PluginStore.FetchedWPOrgPluginPayload;
@@ -67,6 +70,18 @@ public class PluginWPOrgClient extends BaseWPOrgAPIClient {
                             }
                         }
                 );
+        if (PluginSqlUtils.getWPOrgPluginBySlug(pluginSlug) != null) {
+            request.enableRevalidatingCache(new OnNotModifiedListener() {
+                @Override
+                public void onNotModified() {
+                    FetchedWPOrgPluginPayload payload =
+                            new FetchedWPOrgPluginPayload(pluginSlug, (WPOrgPluginModel) null);
+                    payload.notModified = true;
+                    mDispatcher.dispatch(PluginActionBuilder.newFetchedWporgPluginAction(payload));
+                }
+            });
+        }
+        request.setPriority(Priority.LOW);
         add(request);
     }
 
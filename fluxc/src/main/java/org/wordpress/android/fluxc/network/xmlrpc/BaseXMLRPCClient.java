@@ -1,22 +1,57 @@
 package org.wordpress.android.fluxc.network.xmlrpc;
 
+import android.support.annotation.NonNull;
+
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
+import com.android.volley.Response.Listener;
+import com.android.volley.VolleyError;
 
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.generated.AuthenticationActionBuilder;
 import org.wordpress.android.fluxc.network.BaseRequest;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseErrorListener;
+import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
 import org.wordpress.android.fluxc.network.BaseRequest.OnAuthFailedListener;
 import org.wordpress.android.fluxc.network.BaseRequest.OnParseErrorListener;
 import org.wordpress.android.fluxc.network.HTTPAuthManager;
+import org.wordpress.android.fluxc.network.InFlightRequests;
 import org.wordpress.android.fluxc.network.UserAgent;
 import org.wordpress.android.fluxc.network.discovery.DiscoveryRequest;
 import org.wordpress.android.fluxc.network.discovery.DiscoveryXMLRPCRequest;
 import org.wordpress.android.fluxc.store.AccountStore.AuthenticateErrorPayload;
 import org.wordpress.android.fluxc.utils.ErrorUtils.OnUnexpectedError;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 public abstract class BaseXMLRPCClient {
+    private static final String METHOD_MULTICALL = "system.multicall";
+    private static final long MULTICALL_WINDOW_MS = 50;
+    // Standard XML-RPC fault of a call to an unknown method
+    private static final int FAULT_METHOD_NOT_FOUND = -32601;
+
+    // system.multicall support by XML-RPC endpoint, as found by discovery or by a rejected multicall.
+    // Endpoints missing from the map haven't been checked yet: multicall is tried on them.
+    private static final Map<String, Boolean> MULTICALL_SUPPORT = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService sBatchExecutor;
+
     private final RequestQueue mRequestQueue;
+    private final InFlightRequests mInFlightRequests;
+    // Calls waiting for the end of the batching window, by XML-RPC endpoint
+    private final Map<String, List<XMLRPCRequest>> mPendingBatches = new HashMap<>();
     protected final Dispatcher mDispatcher;
     protected UserAgent mUserAgent;
     protected HTTPAuthManager mHTTPAuthManager;
@@ -27,6 +62,7 @@ public abstract class BaseXMLRPCClient {
     public BaseXMLRPCClient(Dispatcher dispatcher, RequestQueue requestQueue, UserAgent userAgent,
                             HTTPAuthManager httpAuthManager) {
         mRequestQueue = requestQueue;
+        mInFlightRequests = new InFlightRequests(requestQueue);
         mDispatcher = dispatcher;
         mUserAgent = userAgent;
         mHTTPAuthManager = httpAuthManager;
@@ -45,7 +81,12 @@ public abstract class BaseXMLRPCClient {
     }
 
     protected Request add(XMLRPCRequest request) {
-        return mRequestQueue.add(setRequestAuthParams(request));
+        setRequestAuthParams(request);
+        // An identical call in flight gets the response for both
+        if (mInFlightRequests.join(request)) {
+            return request;
+        }
+        return mRequestQueue.add(request);
     }
 
     protected Request add(DiscoveryRequest request) {
@@ -56,6 +97,146 @@ public abstract class BaseXMLRPCClient {
         return mRequestQueue.add(setRequestAuthParams(request));
     }
 
+    /**
+     * Adds the request to the batch of calls made to the same endpoint within the next {@value #MULTICALL_WINDOW_MS}
+     * ms, all sent as a single system.multicall request. Falls back to {@link #add(XMLRPCRequest)} if the endpoint
+     * doesn't support multicall or the request can't be batched.
+     */
+    protected void addBatched(XMLRPCRequest request) {
+        final String url = request.getUrl();
+        if (!request.isBatchable() || Boolean.FALSE.equals(MULTICALL_SUPPORT.get(url))) {
+            add(request);
+            return;
+        }
+        if (mInFlightRequests.join(setRequestAuthParams(request))) {
+            return;
+        }
+        synchronized (mPendingBatches) {
+            List<XMLRPCRequest> batch = mPendingBatches.get(url);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                mPendingBatches.put(url, batch);
+                getBatchExecutor().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<XMLRPCRequest> calls;
+                        synchronized (mPendingBatches) {
+                            calls = mPendingBatches.remove(url);
+                        }
+                        addBatch(calls);
+                    }
+                }, MULTICALL_WINDOW_MS, TimeUnit.MILLISECONDS);
+            }
+            batch.add(request);
+        }
+    }
+
+    /**
+     * Sends the given calls right away, those made to the same endpoint being grouped in a system.multicall request.
+     */
+    protected void addBatch(XMLRPCRequest... requests) {
+        addBatch(Arrays.asList(requests));
+    }
+
+    private void addBatch(List<XMLRPCRequest> requests) {
+        Map<String, List<XMLRPCRequest>> callsByUrl = new LinkedHashMap<>();
+        for (XMLRPCRequest request : requests) {
+            String url = request.getUrl();
+            if (!request.isBatchable() || Boolean.FALSE.equals(MULTICALL_SUPPORT.get(url))) {
+                add(request);
+                continue;
+            }
+            if (mInFlightRequests.join(setRequestAuthParams(request))) {
+                continue;
+            }
+            List<XMLRPCRequest> calls = callsByUrl.get(url);
+            if (calls == null) {
+                calls = new ArrayList<>();
+                callsByUrl.put(url, calls);
+            }
+            calls.add(request);
+        }
+        for (Map.Entry<String, List<XMLRPCRequest>> entry : callsByUrl.entrySet()) {
+            List<XMLRPCRequest> calls = entry.getValue();
+            if (calls.size() == 1) {
+                add(calls.get(0));
+            } else {
+                addMulticall(entry.getKey(), calls);
+            }
+        }
+    }
+
+    private void addMulticall(final String url, final List<XMLRPCRequest> calls) {
+        final boolean supportConfirmed = Boolean.TRUE.equals(MULTICALL_SUPPORT.get(url));
+        MulticallXMLRPCRequest multicall = new MulticallXMLRPCRequest(url, calls,
+                new Listener<Object[]>() {
+                    @Override
+                    public void onResponse(Object[] response) {
+                        MULTICALL_SUPPORT.put(url, true);
+                        MulticallXMLRPCRequest.deliverResults(calls, response);
+                    }
+                },
+                new BaseErrorListener() {
+                    @Override
+                    public void onErrorResponse(@NonNull BaseNetworkError error) {
+                        VolleyError volleyError = error.hasVolleyError() ? error.volleyError
+                                : new VolleyError(error.message);
+                        if (!supportConfirmed && isMulticallRejected(volleyError)) {
+                            // Some security plugins disable system.multicall: send the calls one by one from now on
+                            AppLog.w(T.API, "system.multicall rejected by " + url + ", sending calls separately");
+                            MULTICALL_SUPPORT.put(url, false);
+                            for (XMLRPCRequest call : calls) {
+                                add(call);
+                            }
+                        } else {
+                            MulticallXMLRPCRequest.deliverError(calls, volleyError);
+                        }
+                    }
+                });
+        for (XMLRPCRequest call : calls) {
+            // Calls aren't queued, but they report their own errors
+            setRequestAuthParams(call);
+        }
+        add(multicall);
+    }
+
+    /**
+     * @return true if the error means the endpoint doesn't accept system.multicall, as opposed to a failure of
+     * the request that the calls would have run into as well
+     */
+    private static boolean isMulticallRejected(VolleyError error) {
+        if (error.getCause() instanceof XMLRPCFault) {
+            int faultCode = ((XMLRPCFault) error.getCause()).getFaultCode();
+            // Security plugins either remove the method or answer with a 405 fault
+            return faultCode == FAULT_METHOD_NOT_FOUND || faultCode == HttpURLConnection.HTTP_BAD_METHOD;
+        }
+        // Some block it before it reaches WordPress
+        return error.networkResponse != null && (error.networkResponse.statusCode == HttpURLConnection.HTTP_BAD_METHOD
+                || error.networkResponse.statusCode == HttpURLConnection.HTTP_NOT_IMPLEMENTED);
+    }
+
+    /**
+     * Records whether the endpoint supports system.multicall, from its system.listMethods response.
+     */
+    protected static void setMulticallSupport(String xmlrpcUrl, Object[] availableMethods) {
+        boolean supported = availableMethods != null && Arrays.asList(availableMethods).contains(METHOD_MULTICALL);
+        MULTICALL_SUPPORT.put(xmlrpcUrl, supported);
+    }
+
+    private static synchronized ScheduledExecutorService getBatchExecutor() {
+        if (sBatchExecutor == null) {
+            sBatchExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FluxC-XMLRPCBatch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sBatchExecutor;
+    }
+
     private BaseRequest setRequestAuthParams(BaseRequest request) {
         request.setOnAuthFailedListener(mOnAuthFailedListener);
         request.setOnParseErrorListener(mOnParseErrorListener);
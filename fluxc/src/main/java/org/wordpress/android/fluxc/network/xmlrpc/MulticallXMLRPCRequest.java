@@ -0,0 +1,94 @@
+package org.wordpress.android.fluxc.network.xmlrpc;
+
+import android.support.annotation.NonNull;
+
+import com.android.volley.ParseError;
+import com.android.volley.Response.Listener;
+import com.android.volley.VolleyError;
+
+import org.wordpress.android.fluxc.generated.endpoint.XMLRPC;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends several XML-RPC calls to the same endpoint as a single system.multicall request. The calls aren't queued
+ * themselves: their listeners get the matching result, or fault, of the multicall response.
+ */
+public class MulticallXMLRPCRequest extends XMLRPCRequest {
+    private static final String KEY_METHOD_NAME = "methodName";
+    private static final String KEY_PARAMS = "params";
+    private static final String KEY_FAULT_CODE = "faultCode";
+    private static final String KEY_FAULT_STRING = "faultString";
+
+    MulticallXMLRPCRequest(String url, List<XMLRPCRequest> calls, Listener<? super Object[]> listener,
+                           BaseErrorListener errorListener) {
+        super(url, XMLRPC.MULTICALL, buildParams(calls), listener, errorListener);
+        setPriorityOf(calls);
+    }
+
+    /**
+     * Delivers each entry of the multicall response to the matching call: a one-value array on success, a fault
+     * struct otherwise.
+     */
+    static void deliverResults(List<XMLRPCRequest> calls, Object[] results) {
+        if (results == null || results.length != calls.size()) {
+            deliverError(calls, new ParseError(new XMLRPCException("system.multicall returned "
+                    + (results == null ? "no result" : results.length + " results") + " for " + calls.size()
+                    + " calls")));
+            return;
+        }
+        for (int i = 0; i < results.length; i++) {
+            XMLRPCRequest call = calls.get(i);
+            if (call.isCanceled()) {
+                continue;
+            }
+            Object result = results[i];
+            if (result instanceof Object[] && ((Object[]) result).length == 1) {
+                call.deliverMulticallResult(((Object[]) result)[0]);
+            } else if (result instanceof Map) {
+                Map<?, ?> fault = (Map<?, ?>) result;
+                String faultString = XMLRPCUtils.safeGetMapValue(fault, KEY_FAULT_STRING, "");
+                int faultCode = XMLRPCUtils.safeGetMapValue(fault, KEY_FAULT_CODE, 0);
+                call.deliverError(new VolleyError(new XMLRPCFault(faultString, faultCode)));
+            } else {
+                call.deliverError(new ParseError(new XMLRPCException("Invalid system.multicall result for "
+                        + call.mMethod)));
+            }
+        }
+    }
+
+    static void deliverError(List<XMLRPCRequest> calls, VolleyError error) {
+        for (XMLRPCRequest call : calls) {
+            if (!call.isCanceled()) {
+                call.deliverError(error);
+            }
+        }
+    }
+
+    @Override
+    public BaseNetworkError deliverBaseNetworkError(@NonNull BaseNetworkError error) {
+        // Authentication errors are reported by the calls themselves, once the error is passed on to them
+        return error;
+    }
+
+    @Override
+    boolean isBatchable() {
+        return false;
+    }
+
+    private static List<Object> buildParams(List<XMLRPCRequest> calls) {
+        List<Object> multicall = new ArrayList<>(calls.size());
+        for (XMLRPCRequest call : calls) {
+            Map<String, Object> struct = new HashMap<>();
+            struct.put(KEY_METHOD_NAME, call.mMethod.toString());
+            struct.put(KEY_PARAMS, call.mParams != null ? call.mParams : new Object[0]);
+            multicall.add(struct);
+        }
+        List<Object> params = new ArrayList<>(1);
+        params.add(multicall);
+        return params;
+    }
+}
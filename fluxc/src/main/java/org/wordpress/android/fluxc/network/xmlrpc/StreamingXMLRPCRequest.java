@@ -0,0 +1,62 @@
+package org.wordpress.android.fluxc.network.xmlrpc;
+
+import com.android.volley.Response.Listener;
+
+import org.wordpress.android.fluxc.generated.endpoint.XMLRPC;
+import org.wordpress.android.fluxc.network.StreamingBodyRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import okio.BufferedSink;
+
+/**
+ * {@link XMLRPCRequest} serializing its call straight to the connection, so memory use doesn't grow with the size
+ * of the call. Meant for calls carrying large content, like {@link XMLRPC#EDIT_POST}.
+ */
+public class StreamingXMLRPCRequest extends XMLRPCRequest implements StreamingBodyRequest {
+    // Counts bytes written, to send a Content-Length without keeping the body around
+    private static class CountingOutputStream extends OutputStream {
+        private long mCount;
+
+        @Override
+        public void write(int b) {
+            mCount++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            mCount += len;
+        }
+    }
+
+    private long mContentLength = -1;
+
+    public StreamingXMLRPCRequest(String url, XMLRPC method, List<Object> params, Listener<? super Object[]> listener,
+                                  BaseErrorListener errorListener) {
+        super(url, method, params, listener, errorListener);
+    }
+
+    @Override
+    boolean isBatchable() {
+        // Batching would put the body back in memory
+        return false;
+    }
+
+    @Override
+    public synchronized long getBodyContentLength() throws IOException {
+        // Some self-hosted servers reject chunked request bodies: do a first serialization pass to get the length
+        if (mContentLength < 0) {
+            CountingOutputStream counter = new CountingOutputStream();
+            XMLSerializerUtils.serialize(mSerializer, counter, mMethod, mParams);
+            mContentLength = counter.mCount;
+        }
+        return mContentLength;
+    }
+
+    @Override
+    public synchronized void writeBodyTo(BufferedSink sink) throws IOException {
+        XMLSerializerUtils.serialize(mSerializer, sink.outputStream(), mMethod, mParams);
+    }
+}
@@ -21,28 +21,47 @@ import org.wordpress.android.util.AppLog.T;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlSerializer;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
-import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-// TODO: Would be great to use generics / return POJO or model direclty (see GSON code?)
 public class XMLRPCRequest extends BaseRequest<Object> {
     private static final String PROTOCOL_CHARSET = "utf-8";
     private static final String PROTOCOL_CONTENT_TYPE = String.format("text/xml; charset=%s", PROTOCOL_CHARSET);
 
-    private final Listener<? super Object[]> mListener;
-    private final XMLRPC mMethod;
-    private final Object[] mParams;
-    private final XmlSerializer mSerializer = Xml.newSerializer();
+    /**
+     * Maps the response value to the result delivered to the listener while it's being parsed.
+     */
+    public interface ResponseStreamParser<T> {
+        T parse(XMLRPCValueReader reader) throws IOException, XmlPullParserException;
+    }
+
+    private final Listener<?> mListener;
+    private final ResponseStreamParser<?> mResponseParser;
+    protected final XMLRPC mMethod;
+    protected final Object[] mParams;
+    protected final XmlSerializer mSerializer = Xml.newSerializer();
+    // Serialized once, for the single flight key and for sending
+    private byte[] mBody;
 
     public XMLRPCRequest(String url, XMLRPC method, List<Object> params, Listener<? super Object[]> listener,
                          BaseErrorListener errorListener) {
+        this(url, method, params, null, listener, errorListener);
+    }
+
+    /**
+     * Builds a request whose response is read by the given parser, instead of being delivered as a tree of
+     * HashMap and Object[] values.
+     */
+    public <T> XMLRPCRequest(String url, XMLRPC method, List<Object> params, ResponseStreamParser<T> responseParser,
+                             Listener<? super T> listener, BaseErrorListener errorListener) {
         super(Method.POST, url, errorListener);
         mListener = listener;
+        mResponseParser = responseParser;
         mMethod = method;
         // First params are always username/password
         mParams = (params == null ? null : params.toArray());
@@ -51,14 +70,70 @@ public class XMLRPCRequest extends BaseRequest<Object> {
     @Override
     protected void deliverResponse(Object response) {
         deliverResponse(mListener, response);
+        deliverResponseToFollowers();
+    }
+
+    /**
+     * Delivers the result of this call read from a system.multicall response. Identical calls waiting for this one
+     * get their own copy of the result.
+     */
+    void deliverMulticallResult(final Object result) {
+        parseResponseForFollowers(new FollowerResponseParser<Object>() {
+            @Override
+            public Response<Object> parse(BaseRequest<Object> follower) {
+                return Response.success(copyValue(result), null);
+            }
+        });
+        deliverResponse(result);
+    }
+
+    /**
+     * Identical calls to read-only methods share a single response. The body holds the method and all its
+     * parameters, credentials included.
+     */
+    @Override
+    protected String getSingleFlightKey() {
+        String methodName = mMethod.toString();
+        String action = methodName.substring(methodName.lastIndexOf('.') + 1);
+        if (!action.startsWith("get") && !action.startsWith("list")) {
+            return null;
+        }
+        byte[] body;
+        try {
+            body = getBody();
+        } catch (AuthFailureError e) {
+            return null;
+        }
+        if (body == null) {
+            return null;
+        }
+        String authorization = mHeaders.get(AUTHORIZATION_HEADER);
+        String parser = mResponseParser != null ? mResponseParser.getClass().getName() : "";
+        return getUrl() + " " + methodName + " " + sha256(body)
+               + (authorization != null ? " " + sha256(authorization) : "") + " " + parser;
+    }
+
+    /**
+     * @return true if this call can be sent as part of a system.multicall, whose results are always deserialized
+     * to HashMap and Object[] trees
+     */
+    boolean isBatchable() {
+        return mResponseParser == null;
     }
 
     @Override
-    protected Response<Object> parseNetworkResponse(NetworkResponse response) {
+    protected Response<Object> parseNetworkResponse(final NetworkResponse response) {
         try {
-            String data = new String(response.data, HttpHeaderParser.parseCharset(response.headers));
-            InputStream is = new ByteArrayInputStream(data.getBytes(Charset.forName("UTF-8")));
-            Object obj = XMLSerializerUtils.deserialize(XMLSerializerUtils.scrubXmlResponse(is));
+            String charset = HttpHeaderParser.parseCharset(response.headers);
+            Object obj = mResponseParser != null
+                    ? XMLSerializerUtils.deserialize(response.data, charset, mResponseParser)
+                    : XMLSerializerUtils.deserialize(response.data, charset);
+            parseResponseForFollowers(new FollowerResponseParser<Object>() {
+                @Override
+                public Response<Object> parse(BaseRequest<Object> follower) {
+                    return ((XMLRPCRequest) follower).parseNetworkResponse(response);
+                }
+            });
             return Response.success(obj, HttpHeaderParser.parseCacheHeaders(response));
         } catch (XMLRPCFault e) {
             return Response.error(new VolleyError(e));
@@ -83,9 +158,13 @@ public class XMLRPCRequest extends BaseRequest<Object> {
 
     @Override
     public byte[] getBody() throws AuthFailureError {
+        if (mBody != null) {
+            return mBody;
+        }
         try {
             StringWriter stringWriter = XMLSerializerUtils.serialize(mSerializer, mMethod, mParams);
-            return stringWriter.toString().getBytes("UTF-8");
+            mBody = stringWriter.toString().getBytes("UTF-8");
+            return mBody;
         } catch (UnsupportedEncodingException e) {
             AppLog.e(T.API, "Can't encode XMLRPC request", e);
         } catch (IOException e) {
@@ -132,6 +211,32 @@ public class XMLRPCRequest extends BaseRequest<Object> {
         return error;
     }
 
+    /**
+     * @return a deep copy of a deserialized XML-RPC value: structs and arrays are copied, along with the mutable
+     * values they hold
+     */
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), copyValue(entry.getValue()));
+            }
+            return copy;
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            Object[] copy = new Object[array.length];
+            for (int i = 0; i < array.length; i++) {
+                copy[i] = copyValue(array[i]);
+            }
+            return copy;
+        } else if (value instanceof Date) {
+            return new Date(((Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+        return value;
+    }
+
     /**
      * Helper method to capture the Listener's wildcard parameter type and use it to cast the response before
      * calling {@code onResponse()}.
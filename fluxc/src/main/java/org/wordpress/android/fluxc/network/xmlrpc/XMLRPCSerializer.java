@@ -202,6 +202,14 @@ public class XMLRPCSerializer {
         parser.require(XmlPullParser.START_TAG, null, TAG_VALUE);
 
         parser.nextTag();
+        return deserializeTypedValue(parser);
+    }
+
+    /**
+     * Deserializes a value from its type tag, the parser being past the opening {@code <value>}.
+     */
+    static Object deserializeTypedValue(XmlPullParser parser) throws XmlPullParserException, IOException,
+            NumberFormatException {
         String typeNodeName = parser.getName();
 
         Object obj;
@@ -0,0 +1,224 @@
+package org.wordpress.android.fluxc.network.xmlrpc;
+
+import android.support.annotation.Nullable;
+
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.SimpleTimeZone;
+
+/**
+ * Reads XML-RPC values one at a time straight from the pull parser, in the manner of Gson's JsonReader. Lets a
+ * response be mapped to models while it's parsed, instead of going through the HashMap/Object[] tree built by
+ * {@link XMLRPCSerializer#deserialize(XmlPullParser)}.
+ *
+ * Every value must be consumed, either by one of the {@code next*()} methods or by {@link #skipValue()}. Scalar
+ * reads of a struct or an array skip it and return the default value.
+ */
+public class XMLRPCValueReader {
+    private final XmlPullParser mParser;
+    private SimpleDateFormat mDateFormat;
+
+    XMLRPCValueReader(XmlPullParser parser) {
+        mParser = parser;
+    }
+
+    /**
+     * @return the type of the next value, e.g. {@link XMLRPCSerializer#TYPE_STRUCT}
+     */
+    public String peek() throws IOException, XmlPullParserException {
+        enterValue();
+        return mParser.getName();
+    }
+
+    public void beginArray() throws IOException, XmlPullParserException {
+        enterValue();
+        mParser.require(XmlPullParser.START_TAG, null, XMLRPCSerializer.TYPE_ARRAY);
+        mParser.nextTag();
+        mParser.require(XmlPullParser.START_TAG, null, XMLRPCSerializer.TAG_DATA);
+        mParser.nextTag();
+    }
+
+    public boolean hasNext() throws IOException, XmlPullParserException {
+        leaveConsumedValue();
+        return mParser.getEventType() == XmlPullParser.START_TAG
+               && XMLRPCSerializer.TAG_VALUE.equals(mParser.getName());
+    }
+
+    public void endArray() throws IOException, XmlPullParserException {
+        leaveConsumedValue();
+        mParser.require(XmlPullParser.END_TAG, null, XMLRPCSerializer.TAG_DATA);
+        mParser.nextTag();
+        mParser.require(XmlPullParser.END_TAG, null, XMLRPCSerializer.TYPE_ARRAY);
+        mParser.nextTag();
+        mParser.require(XmlPullParser.END_TAG, null, XMLRPCSerializer.TAG_VALUE);
+    }
+
+    public void beginStruct() throws IOException, XmlPullParserException {
+        enterValue();
+        mParser.require(XmlPullParser.START_TAG, null, XMLRPCSerializer.TYPE_STRUCT);
+        mParser.nextTag();
+    }
+
+    /**
+     * @return the name of the next struct member, whose value must be read next, or null at the end of the struct
+     */
+    @Nullable
+    public String nextMemberName() throws IOException, XmlPullParserException {
+        leaveConsumedMember();
+        if (mParser.getEventType() == XmlPullParser.END_TAG) {
+            mParser.require(XmlPullParser.END_TAG, null, XMLRPCSerializer.TYPE_STRUCT);
+            return null;
+        }
+        mParser.require(XmlPullParser.START_TAG, null, XMLRPCSerializer.TAG_MEMBER);
+        mParser.nextTag();
+        mParser.require(XmlPullParser.START_TAG, null, XMLRPCSerializer.TAG_NAME);
+        String name = mParser.nextText();
+        mParser.nextTag();
+        mParser.require(XmlPullParser.START_TAG, null, XMLRPCSerializer.TAG_VALUE);
+        return name;
+    }
+
+    public void endStruct() throws IOException, XmlPullParserException {
+        leaveConsumedMember();
+        mParser.require(XmlPullParser.END_TAG, null, XMLRPCSerializer.TYPE_STRUCT);
+        mParser.nextTag();
+        mParser.require(XmlPullParser.END_TAG, null, XMLRPCSerializer.TAG_VALUE);
+    }
+
+    /**
+     * @return the text of the next scalar value, whatever its type, or null if it's a struct or an array
+     */
+    @Nullable
+    public String nextString() throws IOException, XmlPullParserException {
+        enterValue();
+        String type = mParser.getName();
+        if (XMLRPCSerializer.TYPE_STRUCT.equals(type) || XMLRPCSerializer.TYPE_ARRAY.equals(type)) {
+            skipValue();
+            return null;
+        }
+        String text = mParser.nextText();
+        mParser.nextTag();
+        mParser.require(XmlPullParser.END_TAG, null, XMLRPCSerializer.TAG_VALUE);
+        return text;
+    }
+
+    /**
+     * @return the next value as a long (WordPress sends most IDs as strings), or the default value if it isn't one
+     */
+    public long nextLong(long defaultValue) throws IOException, XmlPullParserException {
+        String text = nextString();
+        if (text == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public int nextInt(int defaultValue) throws IOException, XmlPullParserException {
+        long value = nextLong(defaultValue);
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (int) value : defaultValue;
+    }
+
+    public double nextDouble(double defaultValue) throws IOException, XmlPullParserException {
+        String text = nextString();
+        if (text == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public boolean nextBoolean() throws IOException, XmlPullParserException {
+        String text = nextString();
+        return "1".equals(text) || "true".equalsIgnoreCase(text);
+    }
+
+    /**
+     * @return the next value as a date, or null if it isn't a {@link XMLRPCSerializer#TYPE_DATE_TIME_ISO8601}
+     */
+    @Nullable
+    public Date nextDate() throws IOException, XmlPullParserException {
+        boolean isDate = XMLRPCSerializer.TYPE_DATE_TIME_ISO8601.equals(peek());
+        String text = nextString();
+        if (!isDate || text == null) {
+            return null;
+        }
+        if (mDateFormat == null) {
+            // The shared format in XMLRPCSerializer isn't thread safe, and readers run on concurrent network threads
+            mDateFormat = new SimpleDateFormat("yyyyMMdd'T'HH:mm:ss", Locale.US);
+            mDateFormat.setCalendar(Calendar.getInstance(new SimpleTimeZone(0, "GMT")));
+        }
+        try {
+            return mDateFormat.parse(text);
+        } catch (ParseException e) {
+            AppLog.e(T.API, "Can't parse Date:" + text, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the next value as built by {@link XMLRPCSerializer#deserialize(XmlPullParser)}
+     */
+    public Object nextValue() throws IOException, XmlPullParserException {
+        enterValue();
+        return XMLRPCSerializer.deserializeTypedValue(mParser);
+    }
+
+    public void skipValue() throws IOException, XmlPullParserException {
+        enterValue();
+        int depth = 1;
+        while (depth > 0) {
+            int event = mParser.next();
+            if (event == XmlPullParser.START_TAG) {
+                depth++;
+            } else if (event == XmlPullParser.END_TAG) {
+                depth--;
+            } else if (event == XmlPullParser.END_DOCUMENT) {
+                throw new XmlPullParserException("Unexpected end of document", mParser, null);
+            }
+        }
+        mParser.nextTag();
+        mParser.require(XmlPullParser.END_TAG, null, XMLRPCSerializer.TAG_VALUE);
+    }
+
+    // Moves from <value> to its type tag, if not already done by peek()
+    private void enterValue() throws IOException, XmlPullParserException {
+        if (mParser.getEventType() == XmlPullParser.START_TAG
+            && XMLRPCSerializer.TAG_VALUE.equals(mParser.getName())) {
+            mParser.nextTag();
+        }
+    }
+
+    // Moves past the </value> of the previous array element
+    private void leaveConsumedValue() throws IOException, XmlPullParserException {
+        if (mParser.getEventType() == XmlPullParser.END_TAG
+            && XMLRPCSerializer.TAG_VALUE.equals(mParser.getName())) {
+            mParser.nextTag();
+        }
+    }
+
+    // Moves past the </value></member> of the previous struct member
+    private void leaveConsumedMember() throws IOException, XmlPullParserException {
+        if (mParser.getEventType() == XmlPullParser.END_TAG
+            && XMLRPCSerializer.TAG_VALUE.equals(mParser.getName())) {
+            mParser.nextTag();
+            mParser.require(XmlPullParser.END_TAG, null, XMLRPCSerializer.TAG_MEMBER);
+            mParser.nextTag();
+        }
+    }
+}
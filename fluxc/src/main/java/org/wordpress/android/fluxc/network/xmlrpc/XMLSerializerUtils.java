@@ -1,19 +1,18 @@
 package org.wordpress.android.fluxc.network.xmlrpc;
 
 import org.wordpress.android.fluxc.generated.endpoint.XMLRPC;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest.ResponseStreamParser;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 import org.xmlpull.v1.XmlSerializer;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.SequenceInputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 
 public class XMLSerializerUtils {
@@ -27,13 +26,37 @@ public class XMLSerializerUtils {
     private static final String TAG_FAULT_STRING = "faultString";
 
     private static final int MAX_SCRUB_CHARACTERS = 5000;
+    private static final byte[] XML_DECLARATION_START = {'<', '?', 'x', 'm', 'l'};
+
+    private static final ResponseStreamParser<Object> VALUE_PARSER = new ResponseStreamParser<Object>() {
+        @Override
+        public Object parse(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+            return reader.nextValue();
+        }
+    };
+
+    private static XmlPullParserFactory sParserFactory;
 
     public static StringWriter serialize(XmlSerializer serializer, XMLRPC method, Object[] params)
             throws IOException {
         StringWriter bodyWriter = new StringWriter();
         serializer.setOutput(bodyWriter);
+        writeMethodCall(serializer, null, method, params);
+        return bodyWriter;
+    }
+
+    /**
+     * Writes the UTF-8 encoded method call to the given stream as it's serialized, without building it in memory.
+     */
+    public static void serialize(XmlSerializer serializer, OutputStream os, XMLRPC method, Object[] params)
+            throws IOException {
+        serializer.setOutput(os, "UTF-8");
+        writeMethodCall(serializer, "UTF-8", method, params);
+    }
 
-        serializer.startDocument(null, null);
+    private static void writeMethodCall(XmlSerializer serializer, String encoding, XMLRPC method, Object[] params)
+            throws IOException {
+        serializer.startDocument(encoding, null);
         serializer.startTag(null, TAG_METHOD_CALL);
         // set method name
         serializer.startTag(null, TAG_METHOD_NAME).text(method.toString()).endTag(null, TAG_METHOD_NAME);
@@ -49,15 +72,38 @@ public class XMLSerializerUtils {
         }
         serializer.endTag(null, TAG_METHOD_CALL);
         serializer.endDocument();
+    }
 
-        return bodyWriter;
+    /**
+     * Deserializes a raw XML-RPC response, skipping any junk output before the XML declaration. The response is
+     * parsed in place, without being copied or decoded to a String first.
+     *
+     * @param encoding the charset of the response, or null to detect it from the XML declaration
+     */
+    public static Object deserialize(byte[] data, String encoding)
+            throws IOException, XmlPullParserException, XMLRPCException {
+        return deserialize(data, encoding, VALUE_PARSER);
+    }
+
+    /**
+     * Same as {@link #deserialize(byte[], String)}, with the response value read by the given parser.
+     */
+    public static <T> T deserialize(byte[] data, String encoding, ResponseStreamParser<T> parser)
+            throws IOException, XmlPullParserException, XMLRPCException {
+        int start = findXmlStart(data);
+        return deserialize(new ByteArrayInputStream(data, start, data.length - start), encoding, parser);
     }
 
     public static Object deserialize(InputStream is)
             throws IOException, XmlPullParserException, XMLRPCException {
+        return deserialize(is, "UTF-8", VALUE_PARSER);
+    }
+
+    private static <T> T deserialize(InputStream is, String encoding, ResponseStreamParser<T> parser)
+            throws IOException, XmlPullParserException, XMLRPCException {
         // setup pull parser
-        XmlPullParser pullParser = XmlPullParserFactory.newInstance().newPullParser();
-        pullParser.setInput(is, "UTF-8");
+        XmlPullParser pullParser = getParserFactory().newPullParser();
+        pullParser.setInput(is, encoding);
 
         // lets start pulling...
         pullParser.nextTag();
@@ -70,9 +116,9 @@ public class XMLSerializerUtils {
             pullParser.nextTag(); // TAG_PARAM (<param>)
             pullParser.require(XmlPullParser.START_TAG, null, TAG_PARAM);
             pullParser.nextTag(); // TAG_VALUE (<value>)
-            // no parser.require() here since its called in XMLRPCSerializer.deserialize() below
+            pullParser.require(XmlPullParser.START_TAG, null, XMLRPCSerializer.TAG_VALUE);
             // deserialize result
-            return XMLRPCSerializer.deserialize(pullParser);
+            return parser.parse(new XMLRPCValueReader(pullParser));
         } else if (tag.equals(TAG_FAULT)) {
             // fault response
             pullParser.nextTag(); // TAG_VALUE (<value>)
@@ -87,36 +133,55 @@ public class XMLSerializerUtils {
         }
     }
 
+    /**
+     * Many WordPress configs can output junk before the xml response (php warnings for example): returns the offset
+     * of the XML declaration if it's found within the first {@value #MAX_SCRUB_CHARACTERS} bytes, 0 otherwise.
+     */
+    public static int findXmlStart(byte[] data) {
+        return findXmlStart(data, Math.min(data.length, MAX_SCRUB_CHARACTERS + XML_DECLARATION_START.length));
+    }
+
     public static InputStream scrubXmlResponse(InputStream is) throws IOException {
-        // Many WordPress configs can output junk before the xml response (php warnings for example), this cleans it.
-        int bomCheck = -1;
-        int stopper = 0;
-        while ((bomCheck = is.read()) != -1 && stopper <= MAX_SCRUB_CHARACTERS) {
-            stopper++;
-            String snippet = "";
-            // 60 == '<' character
-            if (bomCheck == 60) {
-                for (int i = 0; i < 4; i++) {
-                    byte[] chunk = new byte[1];
-                    int numRead = is.read(chunk);
-                    if (numRead > 0) {
-                        snippet += new String(chunk, "UTF-8");
-                    }
-                }
-                if (snippet.equals("?xml")) {
-                    // it's all good, add xml tag back and start parsing
-                    String start = "<" + snippet;
-                    List<InputStream> streams = Arrays.asList(new ByteArrayInputStream(start.getBytes()), is);
-                    is = new SequenceInputStream(Collections.enumeration(streams));
-                    break;
-                } else {
-                    // keep searching...
-                    List<InputStream> streams = Arrays.asList(new ByteArrayInputStream(snippet.getBytes()), is);
-                    is = new SequenceInputStream(Collections.enumeration(streams));
-                }
+        int limit = MAX_SCRUB_CHARACTERS + XML_DECLARATION_START.length;
+        BufferedInputStream bis = new BufferedInputStream(is, limit);
+        bis.mark(limit);
+        byte[] head = new byte[limit];
+        int length = 0;
+        int numRead;
+        while (length < limit && (numRead = bis.read(head, length, limit - length)) != -1) {
+            length += numRead;
+        }
+        bis.reset();
+
+        long toSkip = findXmlStart(head, length);
+        while (toSkip > 0) {
+            toSkip -= bis.skip(toSkip);
+        }
+        return bis;
+    }
+
+    private static int findXmlStart(byte[] data, int length) {
+        int last = length - XML_DECLARATION_START.length;
+        for (int i = 0; i <= last; i++) {
+            if (data[i] != XML_DECLARATION_START[0]) {
+                continue;
+            }
+            int j = 1;
+            while (j < XML_DECLARATION_START.length && data[i + j] == XML_DECLARATION_START[j]) {
+                j++;
+            }
+            if (j == XML_DECLARATION_START.length) {
+                return i;
             }
         }
+        return 0;
+    }
 
-        return is;
+    private static synchronized XmlPullParserFactory getParserFactory() throws XmlPullParserException {
+        // Looking up the factory implementation is costly, and the factory is never reconfigured: share a single one
+        if (sParserFactory == null) {
+            sParserFactory = XmlPullParserFactory.newInstance();
+        }
+        return sParserFactory;
     }
 }
@@ -20,14 +20,19 @@ import org.wordpress.android.fluxc.network.HTTPAuthManager;
 import org.wordpress.android.fluxc.network.UserAgent;
 import org.wordpress.android.fluxc.network.xmlrpc.BaseXMLRPCClient;
 import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest;
-import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCUtils;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest.ResponseStreamParser;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCSerializer;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCValueReader;
 import org.wordpress.android.fluxc.store.CommentStore.CommentError;
 import org.wordpress.android.fluxc.store.CommentStore.CommentErrorType;
 import org.wordpress.android.fluxc.store.CommentStore.FetchCommentsResponsePayload;
 import org.wordpress.android.fluxc.store.CommentStore.RemoteCommentResponsePayload;
 import org.wordpress.android.fluxc.utils.CommentErrorUtils;
 import org.wordpress.android.util.DateTimeUtils;
+import org.wordpress.android.util.StringUtils;
+import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -59,11 +64,13 @@ public class CommentXMLRPCClient extends BaseXMLRPCClient {
         params.add(site.getPassword());
         params.add(commentParams);
         final XMLRPCRequest request = new XMLRPCRequest(
-                site.getXmlRpcUrl(), XMLRPC.GET_COMMENTS, params,
-                new Listener<Object>() {
+                site.getXmlRpcUrl(), XMLRPC.GET_COMMENTS, params, COMMENTS_PARSER,
+                new Listener<List<CommentModel>>() {
                     @Override
-                    public void onResponse(Object response) {
-                        List<CommentModel> comments = commentsResponseToCommentList(response, site);
+                    public void onResponse(List<CommentModel> comments) {
+                        for (CommentModel comment : comments) {
+                            setSite(comment, site);
+                        }
                         FetchCommentsResponsePayload payload = new FetchCommentsResponsePayload(comments, site, number,
                                 offset);
                         mDispatcher.dispatch(CommentActionBuilder.newFetchedCommentsAction(payload));
@@ -125,11 +132,13 @@ public class CommentXMLRPCClient extends BaseXMLRPCClient {
         params.add(site.getPassword());
         params.add(remoteCommentId);
         final XMLRPCRequest request = new XMLRPCRequest(
-                site.getXmlRpcUrl(), XMLRPC.GET_COMMENT, params,
-                new Listener<Object>() {
+                site.getXmlRpcUrl(), XMLRPC.GET_COMMENT, params, COMMENT_PARSER,
+                new Listener<CommentModel>() {
                     @Override
-                    public void onResponse(Object response) {
-                        CommentModel updatedComment = commentResponseToComment(response, site);
+                    public void onResponse(CommentModel updatedComment) {
+                        if (updatedComment != null) {
+                            setSite(updatedComment, site);
+                        }
                         RemoteCommentResponsePayload payload = new RemoteCommentResponsePayload(updatedComment);
                         mDispatcher.dispatch(CommentActionBuilder.newFetchedCommentAction(payload));
                     }
@@ -291,7 +300,7 @@ public class CommentXMLRPCClient extends BaseXMLRPCClient {
         }
     }
 
-    private CommentStatus getCommentStatusFromXMLRPCStatusString(String stringStatus) {
+    private static CommentStatus getCommentStatusFromXMLRPCStatusString(String stringStatus) {
         // Default
         CommentStatus status = CommentStatus.APPROVED;
         if ("approve".equals(stringStatus)) {
@@ -306,49 +315,106 @@ public class CommentXMLRPCClient extends BaseXMLRPCClient {
         return status;
     }
 
-    private List<CommentModel> commentsResponseToCommentList(Object response, SiteModel site) {
-        List<CommentModel> comments = new ArrayList<>();
-        if (!(response instanceof Object[])) {
-            return comments;
+    private static final ResponseStreamParser<CommentModel> COMMENT_PARSER = new ResponseStreamParser<CommentModel>() {
+        @Override
+        public CommentModel parse(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+            return readComment(reader);
         }
-        Object[] responseArray = (Object[]) response;
-        for (Object commentObject : responseArray) {
-            CommentModel commentModel = commentResponseToComment(commentObject, site);
-            if (commentModel != null) {
-                comments.add(commentModel);
-            }
-        }
-        return comments;
+    };
+
+    // Entries that aren't comment structs are skipped, an unexpected response gives an empty list
+    private static final ResponseStreamParser<List<CommentModel>> COMMENTS_PARSER =
+            new ResponseStreamParser<List<CommentModel>>() {
+                @Override
+                public List<CommentModel> parse(XMLRPCValueReader reader)
+                        throws IOException, XmlPullParserException {
+                    List<CommentModel> comments = new ArrayList<>();
+                    if (!XMLRPCSerializer.TYPE_ARRAY.equals(reader.peek())) {
+                        reader.skipValue();
+                        return comments;
+                    }
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        CommentModel comment = readComment(reader);
+                        if (comment != null) {
+                            comments.add(comment);
+                        }
+                    }
+                    reader.endArray();
+                    return comments;
+                }
+            };
+
+    private static void setSite(CommentModel comment, SiteModel site) {
+        comment.setLocalSiteId(site.getId());
+        comment.setRemoteSiteId(site.getSelfHostedSiteId());
     }
 
-    private CommentModel commentResponseToComment(Object commentObject, SiteModel site) {
-        if (!(commentObject instanceof HashMap)) {
+    /**
+     * Reads a comment struct straight into a {@link CommentModel}, or returns null if it isn't a struct. The site
+     * of the comment is left to the caller.
+     */
+    private static CommentModel readComment(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+        if (!XMLRPCSerializer.TYPE_STRUCT.equals(reader.peek())) {
+            reader.skipValue();
             return null;
         }
-        HashMap<?, ?> commentMap = (HashMap<?, ?>) commentObject;
         CommentModel comment = new CommentModel();
+        String stringStatus = "approve";
+        Date datePublished = null;
 
-        comment.setRemoteCommentId(XMLRPCUtils.safeGetMapValue(commentMap, "comment_id", 0L));
-        comment.setLocalSiteId(site.getId());
-        comment.setRemoteSiteId(site.getSelfHostedSiteId());
-        String stringStatus = XMLRPCUtils.safeGetMapValue(commentMap, "status", "approve");
-        comment.setStatus(getCommentStatusFromXMLRPCStatusString(stringStatus).toString());
-        Date datePublished = XMLRPCUtils.safeGetMapValue(commentMap, "date_created_gmt", new Date());
-        comment.setDatePublished(DateTimeUtils.iso8601UTCFromDate(datePublished));
-        comment.setContent(XMLRPCUtils.safeGetMapValue(commentMap, "content", ""));
-        comment.setRemoteParentCommentId(XMLRPCUtils.safeGetMapValue(commentMap, "parent", 0L));
-
-        // Author
-        comment.setAuthorUrl(XMLRPCUtils.safeGetMapValue(commentMap, "author_url", ""));
-        comment.setAuthorName(StringEscapeUtils.unescapeHtml4(XMLRPCUtils.safeGetMapValue(commentMap, "author", "")));
-        comment.setAuthorEmail(XMLRPCUtils.safeGetMapValue(commentMap, "author_email", ""));
-        // TODO: comment.setAuthorProfileImageUrl(); - get the hash from the email address?
+        comment.setContent("");
+        comment.setAuthorUrl("");
+        comment.setAuthorName("");
+        comment.setAuthorEmail("");
+        comment.setPostTitle("");
 
-        // Post
-        comment.setRemotePostId(XMLRPCUtils.safeGetMapValue(commentMap, "post_id", 0L));
-        comment.setPostTitle(StringEscapeUtils.unescapeHtml4(XMLRPCUtils.safeGetMapValue(commentMap,
-                "post_title", "")));
+        reader.beginStruct();
+        String name;
+        while ((name = reader.nextMemberName()) != null) {
+            switch (name) {
+                case "comment_id":
+                    comment.setRemoteCommentId(reader.nextLong(0));
+                    break;
+                case "status":
+                    stringStatus = StringUtils.notNullStr(reader.nextString());
+                    break;
+                case "date_created_gmt":
+                    datePublished = reader.nextDate();
+                    break;
+                case "content":
+                    comment.setContent(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "parent":
+                    comment.setRemoteParentCommentId(reader.nextLong(0));
+                    break;
+                // Author
+                case "author_url":
+                    comment.setAuthorUrl(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "author":
+                    comment.setAuthorName(StringEscapeUtils.unescapeHtml4(StringUtils.notNullStr(reader.nextString())));
+                    break;
+                case "author_email":
+                    comment.setAuthorEmail(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                // TODO: comment.setAuthorProfileImageUrl(); - get the hash from the email address?
+                // Post
+                case "post_id":
+                    comment.setRemotePostId(reader.nextLong(0));
+                    break;
+                case "post_title":
+                    comment.setPostTitle(StringEscapeUtils.unescapeHtml4(StringUtils.notNullStr(reader.nextString())));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endStruct();
 
+        comment.setStatus(getCommentStatusFromXMLRPCStatusString(stringStatus).toString());
+        comment.setDatePublished(DateTimeUtils.iso8601UTCFromDate(datePublished != null ? datePublished : new Date()));
         return comment;
     }
 }
@@ -4,6 +4,7 @@ import android.support.annotation.NonNull;
 import android.text.TextUtils;
 import android.util.Base64;
 
+import com.android.volley.Request.Priority;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response.Listener;
 import com.android.volley.VolleyError;
@@ -27,6 +28,9 @@ import org.wordpress.android.fluxc.network.xmlrpc.BaseXMLRPCClient;
 import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCException;
 import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCFault;
 import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest.ResponseStreamParser;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCSerializer;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCValueReader;
 import org.wordpress.android.fluxc.network.xmlrpc.XMLSerializerUtils;
 import org.wordpress.android.fluxc.store.MediaStore.FetchMediaListResponsePayload;
 import org.wordpress.android.fluxc.store.MediaStore.MediaError;
@@ -37,22 +41,20 @@ import org.wordpress.android.fluxc.utils.MediaUtils;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
 import org.wordpress.android.util.DateTimeUtils;
-import org.wordpress.android.util.MapUtils;
+import org.wordpress.android.util.StringUtils;
 import org.xmlpull.v1.XmlPullParserException;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Singleton;
@@ -191,18 +193,18 @@ public class MediaXMLRPCClient extends BaseXMLRPCClient implements ProgressListe
                     // HTTP_OK code doesn't mean the upload is successful, XML-RPC API returns code 200 with an
                     // xml field "faultCode" on error.
                     try {
-                        Map responseMap = getMapFromUploadResponse(response);
-                        if (responseMap != null) {
+                        Set<String> memberNames = new HashSet<>();
+                        MediaModel responseMedia = getMediaFromUploadResponse(response, memberNames);
+                        if (responseMedia != null) {
                             AppLog.d(T.MEDIA, "media upload successful, local id=" + media.getId());
-                            if (isDeprecatedUploadResponse(responseMap)) {
-                                media.setMediaId(MapUtils.getMapLong(responseMap, "id"));
+                            if (isDeprecatedUploadResponse(memberNames)) {
+                                media.setMediaId(responseMedia.getMediaId());
                                 // Upload media response only has `type, id, file, url` fields whereas we need
                                 // `parent, title, caption, description, videopress_shortcode, thumbnail,
                                 // date_created_gmt, link, width, height` fields, so we need to make a fetch for them
                                 // This only applies to WordPress sites running versions older than WordPress 4.4
                                 fetchMedia(site, media, true);
                             } else {
-                                MediaModel responseMedia = getMediaFromXmlrpcResponse(responseMap);
                                 // Retain local IDs
                                 responseMedia.setId(media.getId());
                                 responseMedia.setLocalSiteId(site.getId());
@@ -258,18 +260,19 @@ public class MediaXMLRPCClient extends BaseXMLRPCClient implements ProgressListe
         }
         params.add(queryParams);
 
-        add(new XMLRPCRequest(site.getXmlRpcUrl(), XMLRPC.GET_MEDIA_LIBRARY, params,
-                new Listener<Object[]>() {
+        XMLRPCRequest request = new XMLRPCRequest(site.getXmlRpcUrl(), XMLRPC.GET_MEDIA_LIBRARY, params,
+                MEDIA_LIST_PARSER, new Listener<List<MediaModel>>() {
                     @Override
-                    public void onResponse(Object[] response) {
-                        List<MediaModel> mediaList = getMediaListFromXmlrpcResponse(response, site.getId());
+                    public void onResponse(List<MediaModel> mediaList) {
                         if (mediaList != null) {
                             AppLog.v(T.MEDIA, "Fetched media list for site via XMLRPC.GET_MEDIA_LIBRARY");
+                            for (MediaModel media : mediaList) {
+                                media.setLocalSiteId(site.getId());
+                            }
                             boolean canLoadMore = mediaList.size() == number;
                             notifyMediaListFetched(site, mediaList, offset > 0, canLoadMore, mimeType);
                         } else {
-                            AppLog.w(T.MEDIA, "could not parse XMLRPC.GET_MEDIA_LIBRARY response: "
-                                    + Arrays.toString(response));
+                            AppLog.w(T.MEDIA, "could not parse XMLRPC.GET_MEDIA_LIBRARY response");
                             MediaError error = new MediaError(MediaErrorType.PARSE_ERROR);
                             notifyMediaListFetched(site, error, mimeType);
                         }
@@ -282,7 +285,9 @@ public class MediaXMLRPCClient extends BaseXMLRPCClient implements ProgressListe
                         notifyMediaListFetched(site, mediaError, mimeType);
                     }
                 }
-        ));
+        );
+        request.setPriority(Priority.LOW);
+        add(request);
     }
 
     public void fetchMedia(final SiteModel site, final MediaModel media) {
@@ -305,12 +310,11 @@ public class MediaXMLRPCClient extends BaseXMLRPCClient implements ProgressListe
         }
 
         List<Object> params = getBasicParams(site, media);
-        add(new XMLRPCRequest(site.getXmlRpcUrl(), XMLRPC.GET_MEDIA_ITEM, params,
-                new Listener<Object>() {
+        add(new XMLRPCRequest(site.getXmlRpcUrl(), XMLRPC.GET_MEDIA_ITEM, params, MEDIA_PARSER,
+                new Listener<MediaModel>() {
                     @Override
-                    public void onResponse(Object response) {
+                    public void onResponse(MediaModel responseMedia) {
                         AppLog.v(T.MEDIA, "Fetched media for site via XMLRPC.GET_MEDIA_ITEM");
-                        MediaModel responseMedia = getMediaFromXmlrpcResponse((HashMap) response);
                         if (responseMedia != null) {
                             AppLog.v(T.MEDIA, "Fetched media with remoteId= " + media.getMediaId()
                                               + " localId=" + media.getId());
@@ -469,64 +473,189 @@ public class MediaXMLRPCClient extends BaseXMLRPCClient implements ProgressListe
     // Utility methods
     //
 
-    // media list responses should be of type Object[] with each media item in the array represented by a HashMap
-    private List<MediaModel> getMediaListFromXmlrpcResponse(Object[] response, int localSiteId) {
-        if (response == null) return null;
+    private static final ResponseStreamParser<MediaModel> MEDIA_PARSER = new ResponseStreamParser<MediaModel>() {
+        @Override
+        public MediaModel parse(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+            return readMedia(reader, null);
+        }
+    };
+
+    // Media list responses are arrays of media structs, entries that aren't valid media are skipped
+    private static final ResponseStreamParser<List<MediaModel>> MEDIA_LIST_PARSER =
+            new ResponseStreamParser<List<MediaModel>>() {
+                @Override
+                public List<MediaModel> parse(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+                    if (!XMLRPCSerializer.TYPE_ARRAY.equals(reader.peek())) {
+                        reader.skipValue();
+                        return null;
+                    }
+                    List<MediaModel> mediaList = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        MediaModel media = readMedia(reader, null);
+                        if (media != null) {
+                            mediaList.add(media);
+                        }
+                    }
+                    reader.endArray();
+                    return mediaList;
+                }
+            };
 
-        List<MediaModel> responseMedia = new ArrayList<>();
-        for (Object mediaObject : response) {
-            if (!(mediaObject instanceof HashMap)) continue;
-            MediaModel media = getMediaFromXmlrpcResponse((HashMap) mediaObject);
-            if (media != null) {
-                media.setLocalSiteId(localSiteId);
-                responseMedia.add(media);
-            }
+    /**
+     * Reads a media struct straight into a {@link MediaModel}, or returns null if it's empty or isn't a struct.
+     *
+     * @param memberNames if not null, gets the names of all the members of the struct
+     */
+    private static MediaModel readMedia(XMLRPCValueReader reader, Set<String> memberNames)
+            throws IOException, XmlPullParserException {
+        if (!XMLRPCSerializer.TYPE_STRUCT.equals(reader.peek())) {
+            reader.skipValue();
+            return null;
         }
 
-        return responseMedia;
-    }
+        MediaModel media = new MediaModel();
+        boolean isEmpty = true;
+        long deprecatedId = 0;
+        Date uploadDate = null;
+        String link = "";
+        Map<String, String> sizeFiles = new HashMap<>();
+
+        media.setTitle("");
+        media.setCaption("");
+        media.setDescription("");
+        media.setVideoPressGuid("");
+        media.setThumbnailUrl("");
+
+        reader.beginStruct();
+        String name;
+        while ((name = reader.nextMemberName()) != null) {
+            isEmpty = false;
+            if (memberNames != null) {
+                memberNames.add(name);
+            }
+            switch (name) {
+                case "attachment_id":
+                    media.setMediaId(reader.nextLong(0));
+                    break;
+                case "id":
+                    // Sent instead of attachment_id by wp.uploadFile before WordPress 4.4
+                    deprecatedId = reader.nextLong(0);
+                    break;
+                case "parent":
+                    media.setPostId(reader.nextLong(0));
+                    break;
+                case "title":
+                    media.setTitle(StringEscapeUtils.unescapeHtml4(StringUtils.notNullStr(reader.nextString())));
+                    break;
+                case "caption":
+                    media.setCaption(StringEscapeUtils.unescapeHtml4(StringUtils.notNullStr(reader.nextString())));
+                    break;
+                case "description":
+                    media.setDescription(
+                            StringEscapeUtils.unescapeHtml4(StringUtils.notNullStr(reader.nextString())));
+                    break;
+                case "videopress_shortcode":
+                    media.setVideoPressGuid(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "thumbnail":
+                    media.setThumbnailUrl(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "date_created_gmt":
+                    uploadDate = reader.nextDate();
+                    break;
+                case "link":
+                    link = StringUtils.notNullStr(reader.nextString());
+                    break;
+                case "metadata":
+                    readMetadata(reader, media, sizeFiles);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endStruct();
 
-    private MediaModel getMediaFromXmlrpcResponse(Map response) {
-        if (response == null || response.isEmpty()) return null;
+        if (isEmpty) {
+            return null;
+        }
+        if (media.getMediaId() == 0) {
+            media.setMediaId(deprecatedId);
+        }
 
-        MediaModel media = new MediaModel();
-        media.setMediaId(MapUtils.getMapLong(response, "attachment_id"));
-        media.setPostId(MapUtils.getMapLong(response, "parent"));
-        media.setTitle(StringEscapeUtils.unescapeHtml4(MapUtils.getMapStr(response, "title")));
-        media.setCaption(StringEscapeUtils.unescapeHtml4(MapUtils.getMapStr(response, "caption")));
-        media.setDescription(StringEscapeUtils.unescapeHtml4(MapUtils.getMapStr(response, "description")));
-        media.setVideoPressGuid(MapUtils.getMapStr(response, "videopress_shortcode"));
-        media.setThumbnailUrl(MapUtils.getMapStr(response, "thumbnail"));
-        Date uploadDate = MapUtils.getMapDate(response, "date_created_gmt");
         media.setUploadDate(DateTimeUtils.iso8601UTCFromDate(uploadDate));
-        String link = MapUtils.getMapStr(response, "link");
         String fileExtension = MediaUtils.getExtension(link);
         media.setUrl(link);
         media.setFileName(MediaUtils.getFileName(link));
         media.setFileExtension(fileExtension);
         media.setMimeType(MediaUtils.getMimeTypeForExtension(fileExtension));
-
-        Object metadataObject = response.get("metadata");
-        if (metadataObject instanceof Map) {
-            Map metadataMap = (Map) metadataObject;
-            media.setWidth(MapUtils.getMapInt(metadataMap, "width"));
-            media.setHeight(MapUtils.getMapInt(metadataMap, "height"));
-            media.setFileUrlMediumSize(getFileUrlForSize(link, metadataMap, "medium"));
-            media.setFileUrlMediumLargeSize(getFileUrlForSize(link, metadataMap, "medium_large"));
-            media.setFileUrlLargeSize(getFileUrlForSize(link, metadataMap, "large"));
-        }
+        // Sizes are files in the same directory as the original
+        media.setFileUrlMediumSize(getFileUrlForSize(link, sizeFiles.get("medium")));
+        media.setFileUrlMediumLargeSize(getFileUrlForSize(link, sizeFiles.get("medium_large")));
+        media.setFileUrlLargeSize(getFileUrlForSize(link, sizeFiles.get("large")));
 
         media.setUploadState(MediaUploadState.UPLOADED);
         return media;
     }
 
-    private String getFileUrlForSize(String mediaUrl, Map metadataMap, String size) {
-        if (metadataMap == null || TextUtils.isEmpty(mediaUrl) || !mediaUrl.contains("/")) {
-            return null;
+    // Reads the dimensions of the media, and the file names of its sizes
+    private static void readMetadata(XMLRPCValueReader reader, MediaModel media, Map<String, String> sizeFiles)
+            throws IOException, XmlPullParserException {
+        if (!XMLRPCSerializer.TYPE_STRUCT.equals(reader.peek())) {
+            reader.skipValue();
+            return;
         }
+        reader.beginStruct();
+        String name;
+        while ((name = reader.nextMemberName()) != null) {
+            switch (name) {
+                case "width":
+                    media.setWidth(reader.nextInt(0));
+                    break;
+                case "height":
+                    media.setHeight(reader.nextInt(0));
+                    break;
+                case "sizes":
+                    readSizeFiles(reader, sizeFiles);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endStruct();
+    }
 
-        String fileName = getFileForSize(metadataMap, size);
-        if (TextUtils.isEmpty(fileName)) {
+    private static void readSizeFiles(XMLRPCValueReader reader, Map<String, String> sizeFiles)
+            throws IOException, XmlPullParserException {
+        if (!XMLRPCSerializer.TYPE_STRUCT.equals(reader.peek())) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginStruct();
+        String size;
+        while ((size = reader.nextMemberName()) != null) {
+            if (!XMLRPCSerializer.TYPE_STRUCT.equals(reader.peek())) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginStruct();
+            String name;
+            while ((name = reader.nextMemberName()) != null) {
+                if (name.equals("file")) {
+                    sizeFiles.put(size, reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endStruct();
+        }
+        reader.endStruct();
+    }
+
+    private static String getFileUrlForSize(String mediaUrl, String fileName) {
+        if (TextUtils.isEmpty(mediaUrl) || !mediaUrl.contains("/") || TextUtils.isEmpty(fileName)) {
             return null;
         }
 
@@ -537,22 +666,6 @@ public class MediaXMLRPCClient extends BaseXMLRPCClient implements ProgressListe
         return baseURL + fileName;
     }
 
-    private String getFileForSize(Map metadataMap, String size) {
-        if (metadataMap == null) {
-            return null;
-        }
-        Object sizesObject = metadataMap.get("sizes");
-        if (sizesObject instanceof Map) {
-            Map sizesMap = (Map) sizesObject;
-            Object requestedSizeObject = sizesMap.get(size);
-            if (requestedSizeObject instanceof Map) {
-                Map requestedSizeMap = (Map) requestedSizeObject;
-                return MapUtils.getMapStr(requestedSizeMap, "file");
-            }
-        }
-        return null;
-    }
-
     private MediaError getMediaErrorFromXMLRPCException(XMLRPCException exception) {
         MediaError mediaError = new MediaError(MediaErrorType.GENERIC_ERROR);
         mediaError.message = exception.getLocalizedMessage();
@@ -569,29 +682,33 @@ public class MediaXMLRPCClient extends BaseXMLRPCClient implements ProgressListe
         return mediaError;
     }
 
-    private static Map getMapFromUploadResponse(Response response) throws XMLRPCException {
+    /**
+     * @param memberNames gets the names of all the members of the response struct
+     */
+    private static MediaModel getMediaFromUploadResponse(Response response, final Set<String> memberNames)
+            throws XMLRPCException {
         try {
             ResponseBody responseBody = response.body();
             if (responseBody == null) {
                 AppLog.e(T.MEDIA, "Failed to parse XMLRPC.wpUploadFile response - body was empty: " + response);
                 return null;
             }
-            String data = new String(responseBody.bytes(), "UTF-8");
-            InputStream is = new ByteArrayInputStream(data.getBytes(Charset.forName("UTF-8")));
-            Object responseObject = XMLSerializerUtils.deserialize(XMLSerializerUtils.scrubXmlResponse(is));
-            if (responseObject instanceof Map) {
-                return (Map) responseObject;
-            }
+            return XMLSerializerUtils.deserialize(responseBody.bytes(), "UTF-8",
+                    new ResponseStreamParser<MediaModel>() {
+                        @Override
+                        public MediaModel parse(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+                            return readMedia(reader, memberNames);
+                        }
+                    });
         } catch (IOException | XmlPullParserException e) {
             AppLog.e(T.MEDIA, "Failed to parse XMLRPC.wpUploadFile response: " + response);
             return null;
         }
-        return null;
     }
 
-    private static boolean isDeprecatedUploadResponse(Map responseMap) {
+    private static boolean isDeprecatedUploadResponse(Set<String> memberNames) {
         for (String requiredResponseField : REQUIRED_UPLOAD_RESPONSE_FIELDS) {
-            if (!responseMap.containsKey(requiredResponseField)) {
+            if (!memberNames.contains(requiredResponseField)) {
                 return true;
             }
         }
@@ -1,19 +1,21 @@
 package org.wordpress.android.fluxc.network.xmlrpc.media;
 
 import android.support.annotation.NonNull;
-import android.util.Base64;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.wordpress.android.fluxc.model.MediaModel;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.network.BaseUploadRequestBody;
+import org.wordpress.android.fluxc.utils.Base64StreamEncoder;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Locale;
 
 import okhttp3.MediaType;
 import okio.BufferedSink;
+import okio.ByteString;
 import okio.Okio;
 
 public class XmlrpcUploadRequestBody extends BaseUploadRequestBody {
@@ -34,10 +36,11 @@ public class XmlrpcUploadRequestBody extends BaseUploadRequestBody {
             + "<member><name>overwrite</name><value><boolean>1</boolean></value></member>"
             + "<member><name>post_id</name><value><int>%d</int></value></member>" // remote post ID
             + "<member><name>bits</name><value><base64>"; // bits
-    private static final String APPEND_XML =
-            "</base64></value></member></struct></value></param></params></methodCall>";
+    private static final ByteString APPEND_XML =
+            ByteString.encodeUtf8("</base64></value></member></struct></value></param></params></methodCall>");
+    private static final int BUFFER_SIZE = 8192;
 
-    private final String mPrependString;
+    private final ByteString mPrependXml;
     private long mMediaSize;
     private long mContentSize = -1;
     private long mMediaBytesWritten = 0;
@@ -46,13 +49,13 @@ public class XmlrpcUploadRequestBody extends BaseUploadRequestBody {
         super(media, listener);
 
         // TODO: we should use the XMLRPCSerializer instead of doing this
-        mPrependString = String.format(Locale.ENGLISH, PREPEND_XML_FORMAT,
+        mPrependXml = ByteString.encodeUtf8(String.format(Locale.ENGLISH, PREPEND_XML_FORMAT,
                 site.getSelfHostedSiteId(),
                 StringEscapeUtils.escapeXml(site.getUsername()),
                 StringEscapeUtils.escapeXml(site.getPassword()),
                 StringEscapeUtils.escapeXml(media.getFileName()),
                 StringEscapeUtils.escapeXml(media.getMimeType()),
-                media.getPostId());
+                media.getPostId()));
 
         try {
             mMediaSize = contentLength();
@@ -75,24 +78,18 @@ public class XmlrpcUploadRequestBody extends BaseUploadRequestBody {
     @Override
     public long contentLength() throws IOException {
         if (mContentSize == -1) {
-            mContentSize = getMediaBase64EncodedSize() + mPrependString.length() + APPEND_XML.length();
+            // The XML is written as UTF-8, and the base64 encoding of the file is ASCII
+            mContentSize = mPrependXml.size() + getMediaBase64EncodedSize() + APPEND_XML.size();
         }
         return mContentSize;
     }
 
     private long getMediaBase64EncodedSize() throws IOException {
-        FileInputStream fis = new FileInputStream(getMedia().getFilePath());
-        int totalSize = 0;
-        try {
-            byte[] buffer = new byte[3600];
-            int length;
-            while ((length = fis.read(buffer)) > 0) {
-                totalSize += Base64.encodeToString(buffer, 0, length, Base64.DEFAULT).length();
-            }
-        } finally {
-            fis.close();
+        File file = new File(getMedia().getFilePath());
+        if (!file.isFile()) {
+            throw new IOException("Can't read media file: " + getMedia().getFilePath());
         }
-        return totalSize;
+        return Base64StreamEncoder.getEncodedLength(file.length());
     }
 
     @Override
@@ -101,26 +98,25 @@ public class XmlrpcUploadRequestBody extends BaseUploadRequestBody {
         BufferedSink bufferedSink = Okio.buffer(countingSink);
 
         // write XML up to point of file
-        bufferedSink.writeUtf8(mPrependString);
+        bufferedSink.write(mPrependXml);
 
         // write file to xml
-
+        Base64StreamEncoder encoder = new Base64StreamEncoder(bufferedSink);
         FileInputStream fis = new FileInputStream(getMedia().getFilePath());
         try {
-            byte[] buffer = new byte[3600]; // you must use a 24bit multiple
+            byte[] buffer = new byte[BUFFER_SIZE];
             int length;
-            String chunk;
             while ((length = fis.read(buffer)) > 0) {
-                chunk = Base64.encodeToString(buffer, 0, length, Base64.DEFAULT);
+                encoder.write(buffer, 0, length);
                 mMediaBytesWritten += length;
-                bufferedSink.writeUtf8(chunk);
             }
+            encoder.finish();
         } finally {
             fis.close();
         }
 
         // write remainder or XML
-        bufferedSink.writeUtf8(APPEND_XML);
+        bufferedSink.write(APPEND_XML);
 
         bufferedSink.flush();
     }
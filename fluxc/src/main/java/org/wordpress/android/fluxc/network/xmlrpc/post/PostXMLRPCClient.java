@@ -3,6 +3,7 @@ package org.wordpress.android.fluxc.network.xmlrpc.post;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import com.android.volley.Request.Priority;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response.Listener;
 
@@ -24,8 +25,12 @@ import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
 import org.wordpress.android.fluxc.network.HTTPAuthManager;
 import org.wordpress.android.fluxc.network.UserAgent;
 import org.wordpress.android.fluxc.network.xmlrpc.BaseXMLRPCClient;
+import org.wordpress.android.fluxc.network.xmlrpc.StreamingXMLRPCRequest;
 import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCRequest.ResponseStreamParser;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCSerializer;
 import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCUtils;
+import org.wordpress.android.fluxc.network.xmlrpc.XMLRPCValueReader;
 import org.wordpress.android.fluxc.store.PostStore;
 import org.wordpress.android.fluxc.store.PostStore.FetchPostResponsePayload;
 import org.wordpress.android.fluxc.store.PostStore.FetchPostsResponsePayload;
@@ -35,8 +40,10 @@ import org.wordpress.android.fluxc.store.PostStore.RemotePostPayload;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
 import org.wordpress.android.util.DateTimeUtils;
-import org.wordpress.android.util.MapUtils;
+import org.wordpress.android.util.StringUtils;
+import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -63,26 +70,24 @@ public class PostXMLRPCClient extends BaseXMLRPCClient {
         params.add(site.getPassword());
         params.add(post.getRemotePostId());
 
-        final XMLRPCRequest request = new XMLRPCRequest(site.getXmlRpcUrl(), XMLRPC.GET_POST, params,
-                new Listener<Object>() {
+        final XMLRPCRequest request = new XMLRPCRequest(site.getXmlRpcUrl(), XMLRPC.GET_POST, params, POST_PARSER,
+                new Listener<PostModel>() {
                     @Override
-                    public void onResponse(Object response) {
-                        if (response != null && response instanceof Map) {
-                            PostModel postModel = postResponseObjectToPostModel(response, site);
-                            FetchPostResponsePayload payload;
-                            if (postModel != null) {
-                                if (origin == PostAction.PUSH_POST) {
-                                    postModel.setId(post.getId());
-                                }
-                                payload = new FetchPostResponsePayload(postModel, site);
-                            } else {
-                                payload = new FetchPostResponsePayload(post, site);
-                                payload.error = new PostError(PostErrorType.INVALID_RESPONSE);
+                    public void onResponse(PostModel postModel) {
+                        FetchPostResponsePayload payload;
+                        if (postModel != null) {
+                            postModel.setLocalSiteId(site.getId());
+                            if (origin == PostAction.PUSH_POST) {
+                                postModel.setId(post.getId());
                             }
-                            payload.origin = origin;
-
-                            mDispatcher.dispatch(PostActionBuilder.newFetchedPostAction(payload));
+                            payload = new FetchPostResponsePayload(postModel, site);
+                        } else {
+                            payload = new FetchPostResponsePayload(post, site);
+                            payload.error = new PostError(PostErrorType.INVALID_RESPONSE);
                         }
+                        payload.origin = origin;
+
+                        mDispatcher.dispatch(PostActionBuilder.newFetchedPostAction(payload));
                     }
                 }, new BaseErrorListener() {
                     @Override
@@ -106,6 +111,8 @@ public class PostXMLRPCClient extends BaseXMLRPCClient {
                     }
                 });
 
+        // Posts are fetched while the user waits to edit them
+        request.setPriority(Priority.HIGH);
         add(request);
     }
 
@@ -125,16 +132,16 @@ public class PostXMLRPCClient extends BaseXMLRPCClient {
         params.add(site.getPassword());
         params.add(contentStruct);
 
-        final XMLRPCRequest request = new XMLRPCRequest(site.getXmlRpcUrl(), XMLRPC.GET_POSTS, params,
-                new Listener<Object[]>() {
+        final XMLRPCRequest request = new XMLRPCRequest(site.getXmlRpcUrl(), XMLRPC.GET_POSTS, params, POSTS_PARSER,
+                new Listener<List<PostModel>>() {
                     @Override
-                    public void onResponse(Object[] response) {
+                    public void onResponse(List<PostModel> response) {
                         boolean canLoadMore = false;
-                        if (response != null && response.length == PostStore.NUM_POSTS_PER_FETCH) {
+                        if (response != null && response.size() == PostStore.NUM_POSTS_PER_FETCH) {
                             canLoadMore = true;
                         }
 
-                        PostsModel posts = postsResponseToPostsModel(response, site);
+                        PostsModel posts = response != null ? postsResponseToPostsModel(response, site) : null;
 
                         FetchPostsResponsePayload payload = new FetchPostsResponsePayload(posts, site, getPages,
                                 offset > 0, canLoadMore);
@@ -147,25 +154,78 @@ public class PostXMLRPCClient extends BaseXMLRPCClient {
                         }
                     }
                 },
-                new BaseErrorListener() {
+                getFetchPostsErrorListener()
+        );
+
+        add(request);
+    }
+
+    /**
+     * Fetches the posts modified on the server after the given date. wp.getPosts has no modification date filter:
+     * posts are fetched from the latest modification, until one is older than the given date. Posts modified at the
+     * given date are fetched again, we may not have all of them.
+     */
+    public void fetchPostsModifiedAfter(final SiteModel site, final boolean getPages, final String modifiedAfter,
+                                        final int offset) {
+        Map<String, Object> contentStruct = new HashMap<>();
+
+        contentStruct.put("number", PostStore.NUM_MODIFIED_POSTS_PER_FETCH);
+        contentStruct.put("offset", offset);
+        contentStruct.put("orderby", "post_modified");
+        contentStruct.put("order", "DESC");
+
+        if (getPages) {
+            contentStruct.put("post_type", "page");
+        }
+
+        List<Object> params = new ArrayList<>(4);
+        params.add(site.getSelfHostedSiteId());
+        params.add(site.getUsername());
+        params.add(site.getPassword());
+        params.add(contentStruct);
+
+        final Date lastModified = DateTimeUtils.dateUTCFromIso8601(modifiedAfter);
+        final XMLRPCRequest request = new XMLRPCRequest(site.getXmlRpcUrl(), XMLRPC.GET_POSTS, params, POSTS_PARSER,
+                new Listener<List<PostModel>>() {
                     @Override
-                    public void onErrorResponse(@NonNull BaseNetworkError error) {
-                        // Possible non-generic errors:
-                        // 403 - "The post type specified is not valid"
-                        // TODO: Check the error message and flag this as INVALID_POST_TYPE if applicable
-                        // Convert GenericErrorType to PostErrorType where applicable
-                        PostError postError;
-                        switch (error.type) {
-                            case AUTHORIZATION_REQUIRED:
-                                postError = new PostError(PostErrorType.UNAUTHORIZED, error.message);
+                    public void onResponse(List<PostModel> response) {
+                        if (response == null) {
+                            FetchPostsResponsePayload payload =
+                                    new FetchPostsResponsePayload(new PostError(PostErrorType.INVALID_RESPONSE));
+                            mDispatcher.dispatch(PostActionBuilder.newFetchedPostsAction(payload));
+                            return;
+                        }
+
+                        List<PostModel> modifiedPosts = new ArrayList<>();
+                        boolean caughtUp = false;
+                        for (PostModel post : response) {
+                            if (post == null) {
+                                continue;
+                            }
+                            Date modified = DateTimeUtils.dateUTCFromIso8601(post.getDateModified());
+                            // Dates have a one second precision: posts modified at the same time as the latest
+                            // one we have may not have been fetched yet
+                            if (lastModified != null && modified != null && modified.before(lastModified)) {
+                                caughtUp = true;
                                 break;
-                            default:
-                                postError = new PostError(PostErrorType.GENERIC_ERROR, error.message);
+                            }
+                            post.setLocalSiteId(site.getId());
+                            modifiedPosts.add(post);
                         }
-                        FetchPostsResponsePayload payload = new FetchPostsResponsePayload(postError);
+
+                        // Older posts can still be loaded with loadMore
+                        FetchPostsResponsePayload payload = new FetchPostsResponsePayload(
+                                new PostsModel(modifiedPosts), site, getPages, false, true);
+                        payload.incremental = true;
                         mDispatcher.dispatch(PostActionBuilder.newFetchedPostsAction(payload));
+
+                        if (!caughtUp && response.size() == PostStore.NUM_MODIFIED_POSTS_PER_FETCH) {
+                            fetchPostsModifiedAfter(site, getPages, modifiedAfter,
+                                    offset + PostStore.NUM_MODIFIED_POSTS_PER_FETCH);
+                        }
                     }
-                }
+                },
+                getFetchPostsErrorListener()
         );
 
         add(request);
@@ -195,7 +255,7 @@ public class PostXMLRPCClient extends BaseXMLRPCClient {
 
         final XMLRPC method = post.isLocalDraft() ? XMLRPC.NEW_POST : XMLRPC.EDIT_POST;
 
-        final XMLRPCRequest request = new XMLRPCRequest(site.getXmlRpcUrl(), method, params,
+        final XMLRPCRequest request = new StreamingXMLRPCRequest(site.getXmlRpcUrl(), method, params,
                 new Listener<Object>() {
                     @Override
                     public void onResponse(Object response) {
@@ -277,19 +337,59 @@ public class PostXMLRPCClient extends BaseXMLRPCClient {
         add(request);
     }
 
-    private PostsModel postsResponseToPostsModel(Object[] response, SiteModel site) {
-        List<Map<?, ?>> postsList = new ArrayList<>();
-        for (Object responseObject : response) {
-            Map<?, ?> postMap = (Map<?, ?>) responseObject;
-            postsList.add(postMap);
+    private static final ResponseStreamParser<PostModel> POST_PARSER = new ResponseStreamParser<PostModel>() {
+        @Override
+        public PostModel parse(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+            return readPost(reader);
         }
+    };
+
+    // Invalid posts are kept as null entries, so the caller can compare the response size with the page size
+    private static final ResponseStreamParser<List<PostModel>> POSTS_PARSER =
+            new ResponseStreamParser<List<PostModel>>() {
+                @Override
+                public List<PostModel> parse(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+                    if (!XMLRPCSerializer.TYPE_ARRAY.equals(reader.peek())) {
+                        reader.skipValue();
+                        return null;
+                    }
+                    List<PostModel> posts = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        posts.add(readPost(reader));
+                    }
+                    reader.endArray();
+                    return posts;
+                }
+            };
+
+    private BaseErrorListener getFetchPostsErrorListener() {
+        return new BaseErrorListener() {
+            @Override
+            public void onErrorResponse(@NonNull BaseNetworkError error) {
+                // Possible non-generic errors:
+                // 403 - "The post type specified is not valid"
+                // TODO: Check the error message and flag this as INVALID_POST_TYPE if applicable
+                // Convert GenericErrorType to PostErrorType where applicable
+                PostError postError;
+                switch (error.type) {
+                    case AUTHORIZATION_REQUIRED:
+                        postError = new PostError(PostErrorType.UNAUTHORIZED, error.message);
+                        break;
+                    default:
+                        postError = new PostError(PostErrorType.GENERIC_ERROR, error.message);
+                }
+                FetchPostsResponsePayload payload = new FetchPostsResponsePayload(postError);
+                mDispatcher.dispatch(PostActionBuilder.newFetchedPostsAction(payload));
+            }
+        };
+    }
 
+    private static PostsModel postsResponseToPostsModel(List<PostModel> response, SiteModel site) {
         List<PostModel> postArray = new ArrayList<>();
-        PostModel post;
-
-        for (Object postObject : postsList) {
-            post = postResponseObjectToPostModel(postObject, site);
+        for (PostModel post : response) {
             if (post != null) {
+                post.setLocalSiteId(site.getId());
                 postArray.add(post);
             }
         }
@@ -301,51 +401,111 @@ public class PostXMLRPCClient extends BaseXMLRPCClient {
         return new PostsModel(postArray);
     }
 
-    private static PostModel postResponseObjectToPostModel(Object postObject, SiteModel site) {
+    /**
+     * Reads a post struct straight into a {@link PostModel}, or returns null if it isn't a valid post.
+     */
+    private static PostModel readPost(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
         // Sanity checks
-        if (!(postObject instanceof Map)) {
+        if (!XMLRPCSerializer.TYPE_STRUCT.equals(reader.peek())) {
+            reader.skipValue();
             return null;
         }
 
-        Map<?, ?> postMap = (Map<?, ?>) postObject;
         PostModel post = new PostModel();
+        String postID = null;
+        String postType = null;
+        long parentId = 0;
+        String parentTitle = "";
+        String slug = "";
+        String postFormat = "";
+        int featuredImageId = 0;
+        List<Long> categoryIds = new ArrayList<>();
+        List<String> tagNames = new ArrayList<>();
+        Object[] customFields = null;
+
+        post.setTitle("");
+        post.setContent("");
+        post.setLink("");
+        post.setExcerpt("");
+        post.setPassword("");
+        post.setStatus("");
+
+        reader.beginStruct();
+        String name;
+        while ((name = reader.nextMemberName()) != null) {
+            switch (name) {
+                case "post_id":
+                    postID = reader.nextString();
+                    break;
+                case "post_title":
+                    post.setTitle(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "post_date_gmt":
+                    post.setDateCreated(DateTimeUtils.iso8601UTCFromDate(reader.nextDate()));
+                    break;
+                case "post_modified_gmt":
+                    post.setDateModified(DateTimeUtils.iso8601UTCFromDate(reader.nextDate()));
+                    break;
+                case "post_content":
+                    post.setContent(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "link":
+                    post.setLink(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "terms":
+                    readTerms(reader, categoryIds, tagNames);
+                    break;
+                case "custom_fields":
+                    Object value = reader.nextValue();
+                    customFields = value instanceof Object[] ? (Object[]) value : null;
+                    break;
+                case "post_excerpt":
+                    post.setExcerpt(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "post_password":
+                    post.setPassword(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "post_status":
+                    post.setStatus(StringUtils.notNullStr(reader.nextString()));
+                    break;
+                case "post_type":
+                    postType = reader.nextString();
+                    break;
+                case "wp_page_parent_id":
+                    parentId = reader.nextLong(0);
+                    break;
+                case "wp_page_parent":
+                    parentTitle = StringUtils.notNullStr(reader.nextString());
+                    break;
+                case "wp_slug":
+                    slug = StringUtils.notNullStr(reader.nextString());
+                    break;
+                case "post_format":
+                    postFormat = StringUtils.notNullStr(reader.nextString());
+                    break;
+                case "post_thumbnail":
+                    featuredImageId = readFeaturedImageId(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endStruct();
 
-        String postID = MapUtils.getMapStr(postMap, "post_id");
         if (TextUtils.isEmpty(postID)) {
             // If we don't have a post or page ID, move on
             return null;
         }
-
-        post.setLocalSiteId(site.getId());
-        post.setRemotePostId(Long.valueOf(postID));
-        post.setTitle(MapUtils.getMapStr(postMap, "post_title"));
-
-        Date dateCreatedGmt = MapUtils.getMapDate(postMap, "post_date_gmt");
-        String timeAsIso8601 = DateTimeUtils.iso8601UTCFromDate(dateCreatedGmt);
-        post.setDateCreated(timeAsIso8601);
-
-        post.setContent(MapUtils.getMapStr(postMap, "post_content"));
-        post.setLink(MapUtils.getMapStr(postMap, "link"));
-
-        Object[] terms = (Object[]) postMap.get("terms");
-        List<Long> categoryIds = new ArrayList<>();
-        List<String> tagNames = new ArrayList<>();
-        for (Object term : terms) {
-            if (!(term instanceof Map)) {
-                continue;
-            }
-            Map<?, ?> termMap = (Map<?, ?>) term;
-            String taxonomy = MapUtils.getMapStr(termMap, "taxonomy");
-            if (taxonomy.equals("category")) {
-                categoryIds.add(MapUtils.getMapLong(termMap, "term_id"));
-            } else if (taxonomy.equals("post_tag")) {
-                tagNames.add(MapUtils.getMapStr(termMap, "name"));
-            }
+        try {
+            post.setRemotePostId(Long.valueOf(postID));
+        } catch (NumberFormatException e) {
+            return null;
         }
+
         post.setCategoryIdList(categoryIds);
         post.setTagNameList(tagNames);
 
-        Object[] customFields = (Object[]) postMap.get("custom_fields");
         JSONArray jsonCustomFieldsArray = new JSONArray();
         if (customFields != null) {
             PostLocation postLocation = new PostLocation();
@@ -371,33 +531,85 @@ public class PostXMLRPCClient extends BaseXMLRPCClient {
         }
         post.setCustomFields(jsonCustomFieldsArray.toString());
 
-        post.setExcerpt(MapUtils.getMapStr(postMap, "post_excerpt"));
-
-        post.setPassword(MapUtils.getMapStr(postMap, "post_password"));
-        post.setStatus(MapUtils.getMapStr(postMap, "post_status"));
-
-        if ("page".equals(MapUtils.getMapStr(postMap, "post_type"))) {
+        if ("page".equals(postType)) {
             post.setIsPage(true);
         }
 
         if (post.isPage()) {
-            post.setParentId(MapUtils.getMapLong(postMap, "wp_page_parent_id"));
-            post.setParentTitle(MapUtils.getMapStr(postMap, "wp_page_parent"));
-            post.setSlug(MapUtils.getMapStr(postMap, "wp_slug"));
+            post.setParentId(parentId);
+            post.setParentTitle(parentTitle);
+            post.setSlug(slug);
         } else {
-            // Extract featured image ID from post_thumbnail struct
-            Object featuredImageObject = postMap.get("post_thumbnail");
-            if (featuredImageObject instanceof Map) {
-                Map<?, ?> featuredImageMap = (Map<?, ?>) featuredImageObject;
-                post.setFeaturedImageId(MapUtils.getMapInt(featuredImageMap, "attachment_id"));
-            }
-
-            post.setPostFormat(MapUtils.getMapStr(postMap, "post_format"));
+            post.setFeaturedImageId(featuredImageId);
+            post.setPostFormat(postFormat);
         }
 
         return post;
     }
 
+    private static void readTerms(XMLRPCValueReader reader, List<Long> categoryIds, List<String> tagNames)
+            throws IOException, XmlPullParserException {
+        if (!XMLRPCSerializer.TYPE_ARRAY.equals(reader.peek())) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (!XMLRPCSerializer.TYPE_STRUCT.equals(reader.peek())) {
+                reader.skipValue();
+                continue;
+            }
+            String taxonomy = null;
+            long termId = 0;
+            String termName = "";
+            reader.beginStruct();
+            String name;
+            while ((name = reader.nextMemberName()) != null) {
+                switch (name) {
+                    case "taxonomy":
+                        taxonomy = reader.nextString();
+                        break;
+                    case "term_id":
+                        termId = reader.nextLong(0);
+                        break;
+                    case "name":
+                        termName = StringUtils.notNullStr(reader.nextString());
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endStruct();
+            if ("category".equals(taxonomy)) {
+                categoryIds.add(termId);
+            } else if ("post_tag".equals(taxonomy)) {
+                tagNames.add(termName);
+            }
+        }
+        reader.endArray();
+    }
+
+    // The post_thumbnail member is an empty array when the post has no featured image
+    private static int readFeaturedImageId(XMLRPCValueReader reader) throws IOException, XmlPullParserException {
+        if (!XMLRPCSerializer.TYPE_STRUCT.equals(reader.peek())) {
+            reader.skipValue();
+            return 0;
+        }
+        int featuredImageId = 0;
+        reader.beginStruct();
+        String name;
+        while ((name = reader.nextMemberName()) != null) {
+            if (name.equals("attachment_id")) {
+                featuredImageId = reader.nextInt(0);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endStruct();
+        return featuredImageId;
+    }
+
     private static Map<String, Object> postModelToContentStruct(PostModel post) {
         Map<String, Object> contentStruct = new HashMap<>();
 
@@ -63,7 +63,7 @@ public class SiteXMLRPCClient extends BaseXMLRPCClient {
                 }
         );
 
-        add(request);
+        addBatched(request);
     }
 
     public void fetchSites(final String xmlrpcUrl, final String username, final String password) {
@@ -129,7 +129,7 @@ public class SiteXMLRPCClient extends BaseXMLRPCClient {
                     }
                 }
         );
-        add(request);
+        addBatched(request);
     }
 
     public void fetchPostFormats(final SiteModel site) {
@@ -175,7 +175,7 @@ public class SiteXMLRPCClient extends BaseXMLRPCClient {
                     }
                 }
         );
-        add(request);
+        addBatched(request);
     }
 
     private SiteModel profileResponseToAccountModel(Object response, SiteModel site) {
@@ -0,0 +1,330 @@
+package org.wordpress.android.fluxc.persistence;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import com.yarolegovich.wellsql.WellSql;
+import com.yarolegovich.wellsql.core.Identifiable;
+import com.yarolegovich.wellsql.mapper.SQLiteMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts or updates a list of fetched models in a single transaction. Existing rows are looked up with one query
+ * per site (and per chunk of remote IDs) instead of one per model, and the insert statement is compiled once and
+ * reused for every row. Existing rows are only updated if the model changed, and then only the changed columns.
+ * Unchanged rows are detected by SQLite, without reading their values back: only the rows that changed are read,
+ * to find their changed columns.
+ *
+ * Models that can't be matched by their remote ID alone (local models, or matches on several existing rows) go
+ * through the per-model insertOrUpdate method of their SqlUtils, inside the same transaction, so the duplicate
+ * resolution rules stay in a single place.
+ */
+abstract class BulkUpsert<T extends Identifiable> {
+    private static final String ID_COLUMN = "_id";
+
+    private final Class<T> mClass;
+    private final String mTableName;
+    private final String[] mScopeColumns;
+    private final String mRemoteIdColumn;
+    private final String mLocallyChangedColumn;
+
+    /**
+     * @param scopeColumns columns that, along with the remote ID, identify a row, e.g. the local site ID
+     * @param locallyChangedColumn boolean column flagging rows with local changes, which are only overwritten if
+     * asked to, or null if the model has none
+     */
+    BulkUpsert(Class<T> clazz, String[] scopeColumns, String remoteIdColumn, @Nullable String locallyChangedColumn) {
+        mClass = clazz;
+        mTableName = WellSqlUtils.getTableName(clazz);
+        mScopeColumns = scopeColumns;
+        mRemoteIdColumn = remoteIdColumn;
+        mLocallyChangedColumn = locallyChangedColumn;
+    }
+
+    /**
+     * @return true if the model can be matched on its scope and remote ID only, i.e. it has no local ID yet
+     */
+    abstract boolean isKeyedByRemoteId(T item);
+
+    /**
+     * @return the values of the scope columns for this model, in the order given to the constructor
+     */
+    abstract String[] getScope(T item);
+
+    abstract long getRemoteId(T item);
+
+    /**
+     * Inserts or updates a single model, with the same rules as the bulk path.
+     */
+    abstract int insertOrUpdate(T item, boolean overwriteLocalChanges);
+
+    /**
+     * @return the number of rows inserted or updated. Inserted and updated models get the local ID of their row.
+     */
+    int execute(List<T> items, boolean overwriteLocalChanges) {
+        if (items == null || items.isEmpty()) {
+            return 0;
+        }
+
+        SQLiteDatabase db = WellSql.giveMeWritableDb();
+        SQLiteMapper<T> mapper = WellSql.mapperFor(mClass);
+        Statements statements = new Statements(db);
+        int rowsAffected = 0;
+
+        db.beginTransaction();
+        try {
+            Map<String, ExistingRow> existingRows = findExistingRows(db, items);
+            for (T item : items) {
+                if (item == null) {
+                    continue;
+                }
+                if (!isKeyedByRemoteId(item)) {
+                    rowsAffected += insertOrUpdate(item, overwriteLocalChanges);
+                    continue;
+                }
+
+                String key = getKey(getScope(item), getRemoteId(item));
+                ExistingRow existingRow = existingRows.get(key);
+                if (existingRow == null) {
+                    ContentValues cv = mapper.toCv(item);
+                    cv.remove(ID_COLUMN);
+                    long rowId = statements.insert(cv);
+                    if (rowId != -1) {
+                        item.setId((int) rowId);
+                        // The same remote model can show up twice in a list, e.g. when it moved between two pages
+                        existingRows.put(key, new ExistingRow(item.getId(), false, cv));
+                        rowsAffected++;
+                    }
+                } else if (existingRow.mIsDuplicated) {
+                    rowsAffected += insertOrUpdate(item, overwriteLocalChanges);
+                } else if (overwriteLocalChanges || !existingRow.mIsLocallyChanged) {
+                    ContentValues cv = mapper.toCv(item);
+                    cv.remove(ID_COLUMN);
+                    item.setId(existingRow.mId);
+                    if (existingRow.mValues == null && statements.isUnchanged(existingRow.mId, cv)) {
+                        continue;
+                    }
+                    if (existingRow.mValues == null) {
+                        existingRow.mValues = readRow(db, existingRow.mId, cv);
+                    }
+                    ContentValues changedValues = UpdateChangedColumns.getChangedValues(cv, existingRow.mValues);
+                    if (changedValues.size() > 0) {
+                        rowsAffected += db.update(mTableName, changedValues, ID_COLUMN + " = ?",
+                                new String[]{String.valueOf(existingRow.mId)});
+                        existingRow.mValues.putAll(changedValues);
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statements.close();
+        }
+        return rowsAffected;
+    }
+
+    private Map<String, ExistingRow> findExistingRows(SQLiteDatabase db, List<T> items) {
+        // Remote IDs to look up, grouped by scope
+        Map<String, List<Long>> remoteIdsByScope = new LinkedHashMap<>();
+        Map<String, String[]> scopes = new HashMap<>();
+        for (T item : items) {
+            if (item == null || !isKeyedByRemoteId(item)) {
+                continue;
+            }
+            String[] scope = getScope(item);
+            String scopeKey = TextUtils.join("\u0000", scope);
+            List<Long> remoteIds = remoteIdsByScope.get(scopeKey);
+            if (remoteIds == null) {
+                remoteIds = new ArrayList<>();
+                remoteIdsByScope.put(scopeKey, remoteIds);
+                scopes.put(scopeKey, scope);
+            }
+            remoteIds.add(getRemoteId(item));
+        }
+
+        Map<String, ExistingRow> existingRows = new HashMap<>();
+        for (Map.Entry<String, List<Long>> entry : remoteIdsByScope.entrySet()) {
+            String[] scope = scopes.get(entry.getKey());
+            List<Long> remoteIds = entry.getValue();
+            for (int start = 0; start < remoteIds.size(); start += WellSqlUtils.MAX_ARGS_PER_QUERY) {
+                List<Long> chunk = remoteIds.subList(start,
+                        Math.min(start + WellSqlUtils.MAX_ARGS_PER_QUERY, remoteIds.size()));
+                Cursor cursor = db.rawQuery(buildSelectQuery(chunk), scope);
+                try {
+                    int idIndex = cursor.getColumnIndexOrThrow(ID_COLUMN);
+                    int remoteIdIndex = cursor.getColumnIndexOrThrow(mRemoteIdColumn);
+                    int locallyChangedIndex = mLocallyChangedColumn != null
+                            ? cursor.getColumnIndexOrThrow(mLocallyChangedColumn) : -1;
+                    while (cursor.moveToNext()) {
+                        String key = getKey(scope, cursor.getLong(remoteIdIndex));
+                        ExistingRow existingRow = existingRows.get(key);
+                        if (existingRow == null) {
+                            boolean isLocallyChanged = locallyChangedIndex != -1
+                                                       && cursor.getInt(locallyChangedIndex) != 0;
+                            existingRows.put(key, new ExistingRow(cursor.getInt(idIndex), isLocallyChanged, null));
+                        } else {
+                            existingRow.mIsDuplicated = true;
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+        return existingRows;
+    }
+
+    private String buildSelectQuery(List<Long> remoteIds) {
+        // Only the keys are read, models are compared with their row when updated
+        StringBuilder query = new StringBuilder("SELECT ").append(ID_COLUMN).append(", ").append(mRemoteIdColumn);
+        if (mLocallyChangedColumn != null) {
+            query.append(", ").append(mLocallyChangedColumn);
+        }
+        query.append(" FROM ").append(mTableName).append(" WHERE ");
+        for (String scopeColumn : mScopeColumns) {
+            query.append(scopeColumn).append(" = ? AND ");
+        }
+        // Remote IDs are numbers, they can be inlined safely
+        query.append(mRemoteIdColumn).append(" IN (").append(TextUtils.join(",", remoteIds)).append(")");
+        return query.toString();
+    }
+
+    /**
+     * Reads the stored values of the columns of {@code cv}, for the row with the given local ID.
+     */
+    private ContentValues readRow(SQLiteDatabase db, int id, ContentValues cv) {
+        String query = "SELECT " + TextUtils.join(", ", cv.keySet()) + " FROM " + mTableName
+                       + " WHERE " + ID_COLUMN + " = ?";
+        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(id)});
+        try {
+            return cursor.moveToFirst() ? UpdateChangedColumns.readRow(cursor) : new ContentValues();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String getKey(String[] scope, long remoteId) {
+        return TextUtils.join("\u0000", scope) + "\u0000" + remoteId;
+    }
+
+    private static class ExistingRow {
+        private final int mId;
+        private final boolean mIsLocallyChanged;
+        // Stored values, null until read
+        private ContentValues mValues;
+        private boolean mIsDuplicated;
+
+        ExistingRow(int id, boolean isLocallyChanged, @Nullable ContentValues values) {
+            mId = id;
+            mIsLocallyChanged = isLocallyChanged;
+            mValues = values;
+        }
+    }
+
+    /**
+     * Insert and comparison statements, compiled on first use for the columns of the model.
+     */
+    private class Statements {
+        private final SQLiteDatabase mDb;
+        private String[] mColumns;
+        private SQLiteStatement mInsert;
+        private SQLiteStatement mUnchanged;
+
+        Statements(SQLiteDatabase db) {
+            mDb = db;
+        }
+
+        long insert(ContentValues cv) {
+            if (!hasColumns(cv)) {
+                return mDb.insert(mTableName, null, cv);
+            }
+            if (mInsert == null) {
+                StringBuilder sql = new StringBuilder("INSERT INTO ").append(mTableName).append(" (")
+                        .append(TextUtils.join(", ", mColumns)).append(") VALUES (");
+                for (int i = 0; i < mColumns.length; i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                mInsert = mDb.compileStatement(sql.append(")").toString());
+            }
+            mInsert.clearBindings();
+            bindValues(mInsert, cv, 1);
+            return mInsert.executeInsert();
+        }
+
+        /**
+         * @return true if the row with the given local ID already holds the values of {@code cv}
+         */
+        boolean isUnchanged(int id, ContentValues cv) {
+            if (!hasColumns(cv)) {
+                return false;
+            }
+            if (mUnchanged == null) {
+                StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(mTableName)
+                        .append(" WHERE ").append(ID_COLUMN).append(" = ?");
+                for (String column : mColumns) {
+                    sql.append(" AND ").append(column).append(" IS ?");
+                }
+                mUnchanged = mDb.compileStatement(sql.toString());
+            }
+            mUnchanged.clearBindings();
+            mUnchanged.bindLong(1, id);
+            bindValues(mUnchanged, cv, 2);
+            return mUnchanged.simpleQueryForLong() > 0;
+        }
+
+        void close() {
+            if (mInsert != null) {
+                mInsert.close();
+            }
+            if (mUnchanged != null) {
+                mUnchanged.close();
+            }
+        }
+
+        // Models of a class map to the same columns, the first one sets the column order of the statement
+        private boolean hasColumns(ContentValues cv) {
+            if (mColumns == null) {
+                mColumns = cv.keySet().toArray(new String[cv.size()]);
+                return true;
+            }
+            if (cv.size() != mColumns.length) {
+                return false;
+            }
+            for (String column : mColumns) {
+                if (!cv.containsKey(column)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void bindValues(SQLiteStatement statement, ContentValues cv, int firstIndex) {
+            for (int i = 0; i < mColumns.length; i++) {
+                Object value = cv.get(mColumns[i]);
+                int index = firstIndex + i;
+                if (value == null) {
+                    statement.bindNull(index);
+                } else if (value instanceof byte[]) {
+                    statement.bindBlob(index, (byte[]) value);
+                } else if (value instanceof Double || value instanceof Float) {
+                    statement.bindDouble(index, ((Number) value).doubleValue());
+                } else if (value instanceof Number) {
+                    statement.bindLong(index, ((Number) value).longValue());
+                } else if (value instanceof Boolean) {
+                    statement.bindLong(index, (Boolean) value ? 1 : 0);
+                } else {
+                    statement.bindString(index, value.toString());
+                }
+            }
+        }
+    }
+}
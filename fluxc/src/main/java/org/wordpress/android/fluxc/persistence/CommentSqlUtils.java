@@ -4,17 +4,43 @@ import com.wellsql.generated.CommentModelTable;
 import com.yarolegovich.wellsql.ConditionClauseBuilder;
 import com.yarolegovich.wellsql.SelectQuery;
 import com.yarolegovich.wellsql.SelectQuery.Order;
+import com.yarolegovich.wellsql.WellCursor;
 import com.yarolegovich.wellsql.WellSql;
 
 import org.wordpress.android.fluxc.model.CommentModel;
 import org.wordpress.android.fluxc.model.CommentStatus;
+import org.wordpress.android.fluxc.model.CommentSummary;
 import org.wordpress.android.fluxc.model.SiteModel;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 public class CommentSqlUtils {
+    private static final BulkUpsert<CommentModel> COMMENT_UPSERT = new BulkUpsert<CommentModel>(CommentModel.class,
+            new String[]{CommentModelTable.LOCAL_SITE_ID}, CommentModelTable.REMOTE_COMMENT_ID, null) {
+        @Override
+        boolean isKeyedByRemoteId(CommentModel comment) {
+            return comment.getId() == 0;
+        }
+
+        @Override
+        String[] getScope(CommentModel comment) {
+            return new String[]{String.valueOf(comment.getLocalSiteId())};
+        }
+
+        @Override
+        long getRemoteId(CommentModel comment) {
+            return comment.getRemoteCommentId();
+        }
+
+        @Override
+        int insertOrUpdate(CommentModel comment, boolean overwriteLocalChanges) {
+            return insertOrUpdateComment(comment);
+        }
+    };
+
     public static int insertOrUpdateComment(CommentModel comment) {
         if (comment == null) {
             return 0;
@@ -43,12 +69,19 @@ public class CommentSqlUtils {
             return 1;
         } else {
             // update
-            int oldId = commentResult.get(0).getId();
-            return WellSql.update(CommentModel.class).whereId(oldId)
-                    .put(comment, new UpdateAllExceptId<>(CommentModel.class)).execute();
+            return UpdateChangedColumns.execute(CommentModel.class, commentResult.get(0), comment);
         }
     }
 
+    /**
+     * Inserts or updates a list of comments, typically a fetched page, in a single transaction.
+     *
+     * @return the number of rows inserted or updated
+     */
+    public static int insertOrUpdateComments(List<CommentModel> comments) {
+        return COMMENT_UPSERT.execute(comments, true);
+    }
+
     public static CommentModel insertCommentForResult(CommentModel comment) {
         WellSql.insert(comment).asSingleTransaction(true).execute();
 
@@ -105,8 +138,13 @@ public class CommentSqlUtils {
             return null;
         }
 
+        return getCommentsQueryForSite(WellSql.select(CommentModel.class), site, statuses);
+    }
+
+    private static SelectQuery<CommentModel> getCommentsQueryForSite(SelectQuery<CommentModel> selectQuery,
+                                                                     SiteModel site, CommentStatus... statuses) {
         ConditionClauseBuilder<SelectQuery<CommentModel>> selectQueryBuilder =
-                WellSql.select(CommentModel.class)
+                selectQuery
                         .where().beginGroup()
                         .equals(CommentModelTable.LOCAL_SITE_ID, site.getId());
 
@@ -127,6 +165,58 @@ public class CommentSqlUtils {
                 .getAsModel();
     }
 
+    /**
+     * Same as {@link #getCommentsForSite(SiteModel, int, CommentStatus...)}, reading only the columns of a
+     * {@link CommentSummary}.
+     */
+    public static List<CommentSummary> getCommentSummariesForSite(SiteModel site, @Order int order,
+                                                                  CommentStatus... statuses) {
+        if (site == null) {
+            return Collections.emptyList();
+        }
+
+        SelectQuery<CommentModel> selectQuery = WellSql.select(CommentModel.class)
+                .columns(CommentModelTable.ID, CommentModelTable.REMOTE_COMMENT_ID, CommentModelTable.REMOTE_POST_ID,
+                        CommentModelTable.AUTHOR_NAME, CommentModelTable.AUTHOR_PROFILE_IMAGE_URL,
+                        CommentModelTable.POST_TITLE, CommentModelTable.STATUS, CommentModelTable.DATE_PUBLISHED);
+        WellCursor<CommentModel> cursor = getCommentsQueryForSite(selectQuery, site, statuses)
+                .orderBy(CommentModelTable.DATE_PUBLISHED, order)
+                .getAsCursor();
+        List<CommentSummary> summaries = new ArrayList<>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                CommentSummary summary = new CommentSummary();
+                summary.setId(cursor.getInt(0));
+                summary.setRemoteCommentId(cursor.getLong(1));
+                summary.setRemotePostId(cursor.getLong(2));
+                summary.setAuthorName(cursor.getString(3));
+                summary.setAuthorProfileImageUrl(cursor.getString(4));
+                summary.setPostTitle(cursor.getString(5));
+                summary.setStatus(cursor.getString(6));
+                summary.setDatePublished(cursor.getString(7));
+                summaries.add(summary);
+            }
+        } finally {
+            cursor.close();
+        }
+        return summaries;
+    }
+
+    /**
+     * Searches the author name and content of the comments of a site, using the full-text index.
+     *
+     * @return comments containing words starting with every word of the search term, best matches first
+     */
+    public static List<CommentModel> searchCommentsIndex(SiteModel site, String searchTerm) {
+        if (site == null) {
+            return Collections.emptyList();
+        }
+
+        List<Integer> ids = FullTextIndex.COMMENTS.search(searchTerm,
+                new String[]{CommentModelTable.LOCAL_SITE_ID}, new Object[]{site.getId()});
+        return FullTextIndex.getModels(CommentModel.class, ids);
+    }
+
     public static int getCommentsCountForSite(SiteModel site, CommentStatus... statuses) {
         if (site == null) {
             return 0;
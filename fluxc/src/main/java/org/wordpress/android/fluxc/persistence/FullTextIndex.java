@@ -0,0 +1,240 @@
+package org.wordpress.android.fluxc.persistence;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import com.yarolegovich.wellsql.WellSql;
+import com.yarolegovich.wellsql.core.Identifiable;
+
+import org.wordpress.android.fluxc.model.CommentModel;
+import org.wordpress.android.fluxc.model.MediaModel;
+import org.wordpress.android.fluxc.model.PostModel;
+import org.wordpress.android.fluxc.model.SiteModel;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FTS4 index over the text columns of a table. It's an external content index: it stores the terms only, and is
+ * kept in sync with its table by triggers, so every write path (WellSql, bulk upserts and raw SQL) updates it.
+ *
+ * Matches are ranked by the weighted frequency of the search terms in each column, relative to their frequency in
+ * the whole index, so that matches on titles come before matches deep in a post's content.
+ */
+class FullTextIndex {
+    static final FullTextIndex COMMENTS = new FullTextIndex(CommentModel.class,
+            new String[]{"AUTHOR_NAME", "CONTENT"}, new double[]{2, 1});
+    static final FullTextIndex MEDIA = new FullTextIndex(MediaModel.class,
+            new String[]{"TITLE", "CAPTION", "DESCRIPTION"}, new double[]{4, 2, 1});
+    static final FullTextIndex POSTS = new FullTextIndex(PostModel.class,
+            new String[]{"TITLE", "CONTENT"}, new double[]{4, 1});
+    static final FullTextIndex SITES = new FullTextIndex(SiteModel.class,
+            new String[]{"NAME", "URL"}, new double[]{2, 1});
+
+    private static final Map<Class<? extends Identifiable>, FullTextIndex> INDEXES =
+            new HashMap<Class<? extends Identifiable>, FullTextIndex>() {{
+        put(CommentModel.class, COMMENTS);
+        put(MediaModel.class, MEDIA);
+        put(PostModel.class, POSTS);
+        put(SiteModel.class, SITES);
+    }};
+
+    private static final String ID_COLUMN = "_id";
+
+    private final String mTableName;
+    private final String mIndexName;
+    private final String[] mColumns;
+    private final double[] mWeights;
+
+    private FullTextIndex(Class<? extends Identifiable> clazz, String[] columns, double[] weights) {
+        mTableName = WellSqlUtils.getTableName(clazz);
+        mIndexName = mTableName + "Fts";
+        mColumns = columns;
+        mWeights = weights;
+    }
+
+    /**
+     * @return the full-text index of the table of this model, or null if it doesn't have one
+     */
+    @Nullable
+    static FullTextIndex forClass(Class<? extends Identifiable> clazz) {
+        return INDEXES.get(clazz);
+    }
+
+    static List<FullTextIndex> getAll() {
+        return new ArrayList<>(INDEXES.values());
+    }
+
+    /**
+     * Creates the index and its triggers if they don't exist yet, and (re)builds it from the rows of the table.
+     * The table must exist.
+     */
+    void create(SQLiteDatabase db) {
+        String columns = TextUtils.join(",", mColumns);
+        StringBuilder newValues = new StringBuilder("new.").append(ID_COLUMN);
+        for (String column : mColumns) {
+            newValues.append(",new.").append(column);
+        }
+        String deleteOld = "DELETE FROM " + mIndexName + " WHERE docid=old." + ID_COLUMN + ";";
+        String insertNew = "INSERT INTO " + mIndexName + "(docid," + columns + ") VALUES(" + newValues + ");";
+
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + mIndexName + " USING fts4(content=\"" + mTableName + "\","
+                   + columns + ")");
+        // The old terms must be removed before the row changes, they're read from the table
+        createTrigger(db, "bu", "BEFORE UPDATE OF " + columns, deleteOld);
+        createTrigger(db, "bd", "BEFORE DELETE", deleteOld);
+        createTrigger(db, "au", "AFTER UPDATE OF " + columns, insertNew);
+        createTrigger(db, "ai", "AFTER INSERT", insertNew);
+        // Indexes the rows of existing tables, and drops stale terms of tables that were dropped and recreated
+        db.execSQL("INSERT INTO " + mIndexName + "(" + mIndexName + ") VALUES('rebuild')");
+    }
+
+    private void createTrigger(SQLiteDatabase db, String suffix, String event, String statement) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + mIndexName + "_" + suffix + " " + event + " ON " + mTableName
+                   + " BEGIN " + statement + " END");
+    }
+
+    /**
+     * Searches the index for rows containing all the words of the query, words being matched by prefix.
+     *
+     * @param filterColumns columns of the table the matching rows must have the given values for
+     * @return the local ids of the matching rows, best matches first
+     */
+    @NonNull
+    List<Integer> search(@Nullable String query, @NonNull String[] filterColumns, @NonNull Object[] filterValues) {
+        List<Integer> ids = new ArrayList<>();
+        String matchQuery = toMatchQuery(query);
+        if (matchQuery == null) {
+            return ids;
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(mIndexName).append(".docid, matchinfo(")
+                .append(mIndexName).append(", 'pcx') FROM ").append(mIndexName).append(" JOIN ").append(mTableName)
+                .append(" ON ").append(mTableName).append('.').append(ID_COLUMN).append(" = ")
+                .append(mIndexName).append(".docid WHERE ").append(mIndexName).append(" MATCH ?");
+        String[] args = new String[filterColumns.length + 1];
+        args[0] = matchQuery;
+        for (int i = 0; i < filterColumns.length; i++) {
+            sql.append(" AND ").append(mTableName).append('.').append(filterColumns[i]).append(" = ?");
+            args[i + 1] = toArg(filterValues[i]);
+        }
+
+        final Map<Integer, Double> scores = new HashMap<>();
+        Cursor cursor = WellSql.giveMeWritableDb().rawQuery(sql.toString(), args);
+        try {
+            while (cursor.moveToNext()) {
+                int id = cursor.getInt(0);
+                ids.add(id);
+                scores.put(id, getScore(cursor.getBlob(1)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Collections.sort(ids, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer id1, Integer id2) {
+                int result = Double.compare(scores.get(id2), scores.get(id1));
+                // Most recently inserted rows first for equal scores
+                return result != 0 ? result : id2.compareTo(id1);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Loads the models with the given local ids, in the same order.
+     */
+    @NonNull
+    static <T extends Identifiable> List<T> getModels(@NonNull Class<T> clazz, @NonNull List<Integer> ids) {
+        Map<Integer, T> modelsById = new HashMap<>();
+        for (int start = 0; start < ids.size(); start += WellSqlUtils.MAX_ARGS_PER_QUERY) {
+            List<Integer> chunk = ids.subList(start, Math.min(start + WellSqlUtils.MAX_ARGS_PER_QUERY, ids.size()));
+            for (T model : WellSql.select(clazz).where().isIn(ID_COLUMN, chunk).endWhere().getAsModel()) {
+                modelsById.put(model.getId(), model);
+            }
+        }
+        List<T> models = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T model = modelsById.get(id);
+            if (model != null) {
+                models.add(model);
+            }
+        }
+        return models;
+    }
+
+    /**
+     * Adds up, for every search term and column, the weighted share of the term's hits in the index that are
+     * in this row. See the 'pcx' format of matchinfo() in the SQLite FTS3 and FTS4 documentation.
+     */
+    private double getScore(byte[] matchInfo) {
+        // matchinfo() returns 32-bit unsigned integers in the byte order of the device
+        IntBuffer values = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = values.get(0);
+        int columnCount = values.get(1);
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount && column < mWeights.length; column++) {
+                int offset = 2 + 3 * (phrase * columnCount + column);
+                int hitsInRow = values.get(offset);
+                int hitsInAllRows = values.get(offset + 1);
+                if (hitsInRow > 0) {
+                    score += mWeights[column] * hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Turns a search string into an FTS query matching rows containing words starting with each of its words.
+     * Words are split and folded like the default 'simple' FTS tokenizer does, the only one available before
+     * Android 5.0: split on ASCII characters that aren't letters or digits, with only ASCII letters lowercased.
+     * Lowercasing also makes sure words are never read as FTS operators.
+     *
+     * @return the FTS query, or null if the search string doesn't contain any word
+     */
+    @Nullable
+    static String toMatchQuery(@Nullable String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder matchQuery = new StringBuilder();
+        for (String word : query.split("[^A-Za-z0-9\\u0080-\\uffff]+")) {
+            if (!word.isEmpty()) {
+                if (matchQuery.length() > 0) {
+                    matchQuery.append(' ');
+                }
+                appendAsciiLowerCase(matchQuery, word);
+                matchQuery.append('*');
+            }
+        }
+        return matchQuery.length() > 0 ? matchQuery.toString() : null;
+    }
+
+    private static void appendAsciiLowerCase(StringBuilder builder, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            builder.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+    }
+
+    private static String toArg(Object value) {
+        // Booleans are stored as 0 or 1
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "1" : "0";
+        }
+        return String.valueOf(value);
+    }
+}
@@ -11,6 +11,7 @@ import com.yarolegovich.wellsql.WellSql;
 
 import org.wordpress.android.fluxc.model.MediaModel;
 import org.wordpress.android.fluxc.model.MediaModel.MediaUploadState;
+import org.wordpress.android.fluxc.model.MediaSummary;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.utils.MediaUtils;
 
@@ -18,6 +19,30 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class MediaSqlUtils {
+    private static final BulkUpsert<MediaModel> MEDIA_UPSERT = new BulkUpsert<MediaModel>(MediaModel.class,
+            new String[]{MediaModelTable.LOCAL_SITE_ID}, MediaModelTable.MEDIA_ID, null) {
+        @Override
+        boolean isKeyedByRemoteId(MediaModel media) {
+            // Local media files (remote media ID 0) are only matched by local ID
+            return media.getId() == 0 && media.getMediaId() != 0;
+        }
+
+        @Override
+        String[] getScope(MediaModel media) {
+            return new String[]{String.valueOf(media.getLocalSiteId())};
+        }
+
+        @Override
+        long getRemoteId(MediaModel media) {
+            return media.getMediaId();
+        }
+
+        @Override
+        int insertOrUpdate(MediaModel media, boolean overwriteLocalChanges) {
+            return insertOrUpdateMedia(media);
+        }
+    };
+
     public static List<MediaModel> getAllSiteMedia(SiteModel siteModel) {
         return getAllSiteMediaQuery(siteModel).getAsModel();
     }
@@ -26,6 +51,38 @@ public class MediaSqlUtils {
         return getAllSiteMediaQuery(siteModel).getAsCursor();
     }
 
+    /**
+     * Same as {@link #getAllSiteMedia(SiteModel)}, reading only the columns of a {@link MediaSummary}.
+     */
+    public static List<MediaSummary> getAllSiteMediaSummaries(SiteModel siteModel) {
+        WellCursor<MediaModel> cursor = WellSql.select(MediaModel.class)
+                .columns(MediaModelTable.ID, MediaModelTable.LOCAL_SITE_ID, MediaModelTable.MEDIA_ID,
+                        MediaModelTable.TITLE, MediaModelTable.UPLOAD_DATE, MediaModelTable.URL,
+                        MediaModelTable.THUMBNAIL_URL, MediaModelTable.MIME_TYPE, MediaModelTable.UPLOAD_STATE)
+                .where().equals(MediaModelTable.LOCAL_SITE_ID, siteModel.getId()).endWhere()
+                .orderBy(MediaModelTable.UPLOAD_DATE, SelectQuery.ORDER_DESCENDING)
+                .getAsCursor();
+        List<MediaSummary> summaries = new ArrayList<>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                MediaSummary summary = new MediaSummary();
+                summary.setId(cursor.getInt(0));
+                summary.setLocalSiteId(cursor.getInt(1));
+                summary.setMediaId(cursor.getLong(2));
+                summary.setTitle(cursor.getString(3));
+                summary.setUploadDate(cursor.getString(4));
+                summary.setUrl(cursor.getString(5));
+                summary.setThumbnailUrl(cursor.getString(6));
+                summary.setMimeType(cursor.getString(7));
+                summary.setUploadState(cursor.getString(8));
+                summaries.add(summary);
+            }
+        } finally {
+            cursor.close();
+        }
+        return summaries;
+    }
+
     public static List<MediaModel> getMediaWithStates(SiteModel site, List<String> uploadStates) {
         return getMediaWithStatesQuery(site, uploadStates).getAsModel();
     }
@@ -146,6 +203,17 @@ public class MediaSqlUtils {
                 .orderBy(MediaModelTable.UPLOAD_DATE, SelectQuery.ORDER_DESCENDING);
     }
 
+    /**
+     * Searches the title, caption and description of the media of a site, using the full-text index.
+     *
+     * @return media containing words starting with every word of the search term, best matches first
+     */
+    public static List<MediaModel> searchSiteMediaIndex(SiteModel siteModel, String searchTerm) {
+        List<Integer> ids = FullTextIndex.MEDIA.search(searchTerm,
+                new String[]{MediaModelTable.LOCAL_SITE_ID}, new Object[]{siteModel.getId()});
+        return FullTextIndex.getModels(MediaModel.class, ids);
+    }
+
     public static List<MediaModel> getSiteImages(SiteModel siteModel) {
         return getSiteImagesQuery(siteModel).getAsModel();
     }
@@ -287,12 +355,20 @@ public class MediaSqlUtils {
                 return WellSql.delete(MediaModel.class).whereId(media.getId());
             }
             // update, media item already exists
-            int oldId = existingMedia.get(0).getId();
-            return WellSql.update(MediaModel.class).whereId(oldId)
-                    .put(media, new UpdateAllExceptId<>(MediaModel.class)).execute();
+            media.setId(existingMedia.get(0).getId());
+            return UpdateChangedColumns.execute(MediaModel.class, existingMedia.get(0), media);
         }
     }
 
+    /**
+     * Inserts or updates a list of media, typically a fetched page, in a single transaction.
+     *
+     * @return the number of rows inserted or updated
+     */
+    public static int insertOrUpdateMediaList(List<MediaModel> mediaList) {
+        return MEDIA_UPSERT.execute(mediaList, true);
+    }
+
     public static MediaModel insertMediaForResult(MediaModel media) {
         WellSql.insert(media).asSingleTransaction(true).execute();
         return media;
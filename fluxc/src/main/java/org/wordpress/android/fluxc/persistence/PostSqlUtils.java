@@ -1,16 +1,54 @@
 package org.wordpress.android.fluxc.persistence;
 
+import android.database.DatabaseUtils;
+
 import com.wellsql.generated.PostModelTable;
 import com.yarolegovich.wellsql.SelectQuery;
+import com.yarolegovich.wellsql.WellCursor;
 import com.yarolegovich.wellsql.WellSql;
 
 import org.wordpress.android.fluxc.model.PostModel;
+import org.wordpress.android.fluxc.model.PostSummary;
 import org.wordpress.android.fluxc.model.SiteModel;
+import org.wordpress.android.fluxc.utils.DateUtils;
+import org.wordpress.android.util.DateTimeUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 public class PostSqlUtils {
+    private static final String TABLE_NAME = WellSqlUtils.getTableName(PostModel.class);
+    private static final String POSTS_SELECTION = PostModelTable.LOCAL_SITE_ID + " = ? AND "
+            + PostModelTable.IS_PAGE + " = ?";
+    private static final String UPLOADED_POSTS_SELECTION = POSTS_SELECTION + " AND "
+            + PostModelTable.IS_LOCAL_DRAFT + " = 0";
+
+    private static final BulkUpsert<PostModel> POST_UPSERT = new BulkUpsert<PostModel>(PostModel.class,
+            new String[]{PostModelTable.LOCAL_SITE_ID}, PostModelTable.REMOTE_POST_ID,
+            PostModelTable.IS_LOCALLY_CHANGED) {
+        @Override
+        boolean isKeyedByRemoteId(PostModel post) {
+            return !post.isLocalDraft() && post.getId() == 0;
+        }
+
+        @Override
+        String[] getScope(PostModel post) {
+            return new String[]{String.valueOf(post.getLocalSiteId())};
+        }
+
+        @Override
+        long getRemoteId(PostModel post) {
+            return post.getRemotePostId();
+        }
+
+        @Override
+        int insertOrUpdate(PostModel post, boolean overwriteLocalChanges) {
+            return insertOrUpdatePost(post, overwriteLocalChanges);
+        }
+    };
+
     public static int insertOrUpdatePost(PostModel post, boolean overwriteLocalChanges) {
         if (post == null) {
             return 0;
@@ -48,9 +86,7 @@ public class PostSqlUtils {
             }
             // Update only if local changes for this post don't exist
             if (overwriteLocalChanges || !postResult.get(0).isLocallyChanged()) {
-                int oldId = postResult.get(0).getId();
-                return WellSql.update(PostModel.class).whereId(oldId)
-                        .put(post, new UpdateAllExceptId<>(PostModel.class)).execute();
+                return UpdateChangedColumns.execute(PostModel.class, postResult.get(0), post);
             }
         }
         return 0;
@@ -64,6 +100,15 @@ public class PostSqlUtils {
         return insertOrUpdatePost(post, true);
     }
 
+    /**
+     * Inserts or updates a list of posts, typically a fetched page, in a single transaction.
+     *
+     * @return the number of rows inserted or updated
+     */
+    public static int insertOrUpdatePosts(List<PostModel> posts, boolean overwriteLocalChanges) {
+        return POST_UPSERT.execute(posts, overwriteLocalChanges);
+    }
+
     public static List<PostModel> getPostsForSite(SiteModel site, boolean getPages) {
         if (site == null) {
             return Collections.emptyList();
@@ -79,6 +124,64 @@ public class PostSqlUtils {
                 .getAsModel();
     }
 
+    /**
+     * Same as {@link #getPostsForSite(SiteModel, boolean)}, reading only the columns of a {@link PostSummary}.
+     */
+    public static List<PostSummary> getPostSummariesForSite(SiteModel site, boolean getPages) {
+        if (site == null) {
+            return Collections.emptyList();
+        }
+
+        WellCursor<PostModel> cursor = WellSql.select(PostModel.class)
+                .columns(PostModelTable.ID, PostModelTable.LOCAL_SITE_ID, PostModelTable.REMOTE_POST_ID,
+                        PostModelTable.TITLE, PostModelTable.DATE_CREATED, PostModelTable.STATUS,
+                        PostModelTable.FEATURED_IMAGE_ID, PostModelTable.IS_PAGE, PostModelTable.IS_LOCAL_DRAFT,
+                        PostModelTable.IS_LOCALLY_CHANGED)
+                .where().beginGroup()
+                .equals(PostModelTable.LOCAL_SITE_ID, site.getId())
+                .equals(PostModelTable.IS_PAGE, getPages)
+                .endGroup().endWhere()
+                .orderBy(PostModelTable.IS_LOCAL_DRAFT, SelectQuery.ORDER_DESCENDING)
+                .orderBy(PostModelTable.DATE_CREATED, SelectQuery.ORDER_DESCENDING)
+                .getAsCursor();
+        List<PostSummary> summaries = new ArrayList<>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                PostSummary summary = new PostSummary();
+                summary.setId(cursor.getInt(0));
+                summary.setLocalSiteId(cursor.getInt(1));
+                summary.setRemotePostId(cursor.getLong(2));
+                summary.setTitle(cursor.getString(3));
+                summary.setDateCreated(cursor.getString(4));
+                summary.setStatus(cursor.getString(5));
+                summary.setFeaturedImageId(cursor.getLong(6));
+                summary.setIsPage(cursor.getInt(7) != 0);
+                summary.setIsLocalDraft(cursor.getInt(8) != 0);
+                summary.setIsLocallyChanged(cursor.getInt(9) != 0);
+                summaries.add(summary);
+            }
+        } finally {
+            cursor.close();
+        }
+        return summaries;
+    }
+
+    /**
+     * Searches the title and content of the posts or pages of a site, using the full-text index.
+     *
+     * @return posts containing words starting with every word of the search term, best matches first
+     */
+    public static List<PostModel> searchPostsIndex(SiteModel site, String searchTerm, boolean getPages) {
+        if (site == null) {
+            return Collections.emptyList();
+        }
+
+        List<Integer> ids = FullTextIndex.POSTS.search(searchTerm,
+                new String[]{PostModelTable.LOCAL_SITE_ID, PostModelTable.IS_PAGE},
+                new Object[]{site.getId(), getPages});
+        return FullTextIndex.getModels(PostModel.class, ids);
+    }
+
     public static List<PostModel> getPostsForSiteWithFormat(SiteModel site, List<String> postFormat, boolean getPages) {
         if (site == null) {
             return Collections.emptyList();
@@ -111,6 +214,101 @@ public class PostSqlUtils {
                 .getAsModel();
     }
 
+    public static int getPostsCountForSite(SiteModel site, boolean getPages) {
+        if (site == null) {
+            return 0;
+        }
+
+        return (int) DatabaseUtils.queryNumEntries(WellSql.giveMeWritableDb(), TABLE_NAME,
+                POSTS_SELECTION, getSelectionArgs(site, getPages));
+    }
+
+    public static int getUploadedPostsCountForSite(SiteModel site, boolean getPages) {
+        if (site == null) {
+            return 0;
+        }
+
+        return (int) DatabaseUtils.queryNumEntries(WellSql.giveMeWritableDb(), TABLE_NAME,
+                UPLOADED_POSTS_SELECTION, getSelectionArgs(site, getPages));
+    }
+
+    /**
+     * @return the creation date of the oldest uploaded post of the site in UTC, or null if there is none
+     */
+    public static String getOldestUploadedPostDate(SiteModel site, boolean getPages) {
+        return getUploadedPostTimestamp(site, getPages, "MIN", PostModelTable.DATE_CREATED_MILLIS);
+    }
+
+    /**
+     * @return the latest server modification date of the uploaded posts of the site in UTC, or null if there is none
+     */
+    public static String getLatestUploadedPostModifiedDate(SiteModel site, boolean getPages) {
+        return getUploadedPostTimestamp(site, getPages, "MAX", PostModelTable.DATE_MODIFIED_MILLIS);
+    }
+
+    /**
+     * @return the remote IDs of the uploaded posts of the site created at the given date, whatever its offset
+     */
+    public static List<Long> getUploadedPostRemoteIdsWithDate(SiteModel site, boolean getPages, String dateCreated) {
+        return getUploadedPostRemoteIdsWithTimestamp(site, getPages, PostModelTable.DATE_CREATED_MILLIS,
+                dateCreated);
+    }
+
+    /**
+     * @return the remote IDs of the uploaded posts of the site modified on the server at the given date, whatever
+     * its offset
+     */
+    public static List<Long> getUploadedPostRemoteIdsModifiedAt(SiteModel site, boolean getPages,
+                                                               String dateModified) {
+        return getUploadedPostRemoteIdsWithTimestamp(site, getPages, PostModelTable.DATE_MODIFIED_MILLIS,
+                dateModified);
+    }
+
+    /**
+     * @return the result of an aggregate function over a timestamp column of the uploaded posts of the site, as a
+     * UTC date, or null if none of them has a valid date
+     */
+    private static String getUploadedPostTimestamp(SiteModel site, boolean getPages, String aggregate,
+                                                   String timestampColumn) {
+        if (site == null) {
+            return null;
+        }
+
+        // Dates keep the offset they were received with: compare their timestamps, not the strings
+        long timestamp = DatabaseUtils.longForQuery(WellSql.giveMeWritableDb(),
+                "SELECT " + aggregate + "(" + timestampColumn + ") FROM " + TABLE_NAME
+                + " WHERE " + UPLOADED_POSTS_SELECTION + " AND " + timestampColumn + " > 0",
+                getSelectionArgs(site, getPages));
+        return timestamp != 0 ? DateTimeUtils.iso8601UTCFromDate(new Date(timestamp)) : null;
+    }
+
+    private static List<Long> getUploadedPostRemoteIdsWithTimestamp(SiteModel site, boolean getPages,
+                                                                    String timestampColumn, String iso8601date) {
+        long timestamp = DateUtils.timestampFromIso8601(iso8601date);
+        if (site == null || timestamp == 0) {
+            return Collections.emptyList();
+        }
+
+        WellCursor<PostModel> cursor = WellSql.select(PostModel.class)
+                .columns(PostModelTable.REMOTE_POST_ID)
+                .where().beginGroup()
+                .equals(PostModelTable.LOCAL_SITE_ID, site.getId())
+                .equals(PostModelTable.IS_PAGE, getPages)
+                .equals(PostModelTable.IS_LOCAL_DRAFT, false)
+                .equals(timestampColumn, timestamp)
+                .endGroup().endWhere()
+                .getAsCursor();
+        List<Long> remotePostIds = new ArrayList<>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                remotePostIds.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return remotePostIds;
+    }
+
     public static PostModel insertPostForResult(PostModel post) {
         WellSql.insert(post).asSingleTransaction(true).execute();
 
@@ -147,6 +345,25 @@ public class PostSqlUtils {
                 .execute();
     }
 
+    /**
+     * Deletes the uploaded posts with the given remote IDs, unless they have local changes.
+     */
+    public static int deleteUploadedPostsWithRemoteIds(SiteModel site, List<Long> remotePostIds) {
+        if (site == null || remotePostIds.isEmpty()) {
+            return 0;
+        }
+
+        return WellSql.delete(PostModel.class)
+                .where().beginGroup()
+                .equals(PostModelTable.LOCAL_SITE_ID, site.getId())
+                .isIn(PostModelTable.REMOTE_POST_ID, remotePostIds)
+                .equals(PostModelTable.IS_LOCAL_DRAFT, false)
+                .equals(PostModelTable.IS_LOCALLY_CHANGED, false)
+                .endGroup()
+                .endWhere()
+                .execute();
+    }
+
     public static int deleteAllPosts() {
         return WellSql.delete(PostModel.class).execute();
     }
@@ -161,4 +378,8 @@ public class PostSqlUtils {
                 .equals(PostModelTable.IS_LOCALLY_CHANGED, true)
                 .endGroup().endGroup().endWhere().getAsCursor().getCount() > 0;
     }
+
+    private static String[] getSelectionArgs(SiteModel site, boolean getPages) {
+        return new String[]{String.valueOf(site.getId()), getPages ? "1" : "0"};
+    }
 }
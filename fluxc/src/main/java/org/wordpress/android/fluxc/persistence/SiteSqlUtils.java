@@ -22,11 +22,31 @@ import org.wordpress.android.util.UrlUtils;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SiteSqlUtils {
     public static class DuplicateSiteException extends Exception {
     }
 
+    public static class SitesUpdateResult {
+        public int rowsAffected = 0;
+        public boolean duplicateSiteFound = false;
+    }
+
+    // Bumped by every write to the SiteModel table, lets in-memory copies of the table know they're stale
+    private static final AtomicInteger SITES_VERSION = new AtomicInteger();
+
+    /**
+     * @return a number that changes every time sites are inserted, updated or deleted through this class
+     */
+    public static int getSitesVersion() {
+        return SITES_VERSION.get();
+    }
+
+    static void onSitesChanged() {
+        SITES_VERSION.incrementAndGet();
+    }
+
     public static SelectQuery<SiteModel> getSitesWith(String field, Object value) {
         return WellSql.select(SiteModel.class)
                 .where().equals(field, value).endWhere();
@@ -55,6 +75,16 @@ public class SiteSqlUtils {
                 .endWhere().getAsModel();
     }
 
+    /**
+     * Searches the name and url of the sites, using the full-text index.
+     *
+     * @return sites containing words starting with every word of the search string, best matches first
+     */
+    public static List<SiteModel> searchSitesIndex(String searchString) {
+        List<Integer> ids = FullTextIndex.SITES.search(searchString, new String[0], new Object[0]);
+        return FullTextIndex.getModels(SiteModel.class, ids);
+    }
+
     /**
      * Inserts the given SiteModel into the DB, or updates an existing entry where sites match.
      *
@@ -155,14 +185,17 @@ public class SiteSqlUtils {
             // No site with this local ID, REMOTE_ID + URL, or XMLRPC URL, then insert it
             AppLog.d(T.DB, "Inserting site: " + site.getUrl());
             WellSql.insert(site).asSingleTransaction(true).execute();
+            onSitesChanged();
             return 1;
         } else {
             // Update old site
             AppLog.d(T.DB, "Updating site: " + site.getUrl());
-            int oldId = siteResult.get(0).getId();
             try {
-                return WellSql.update(SiteModel.class).whereId(oldId)
-                        .put(site, new UpdateAllExceptId<>(SiteModel.class)).execute();
+                int rowsAffected = UpdateChangedColumns.execute(SiteModel.class, siteResult.get(0), site);
+                if (rowsAffected > 0) {
+                    onSitesChanged();
+                }
+                return rowsAffected;
             } catch (SQLiteConstraintException e) {
                 AppLog.e(T.DB, "Error while updating site: siteId=" + site.getSiteId() + " url=" + site.getUrl()
                         + " xmlrpc=" + site.getXmlRpcUrl(), e);
@@ -173,24 +206,41 @@ public class SiteSqlUtils {
         }
     }
 
+    /**
+     * Inserts or updates a list of sites in a single transaction, matching them with the stored sites like
+     * {@link #insertOrUpdateSite(SiteModel)} does, but without querying the database for every site. Sites that
+     * would throw a {@link DuplicateSiteException} are skipped and flagged in the result.
+     *
+     * @param removeAbsentWPComRestSites if true, WP.com and Jetpack sites absent from the list are removed in the same
+     * transaction, as {@link #removeWPComRestSitesAbsentFromList(List)} does
+     */
+    public static SitesUpdateResult insertOrUpdateSites(@NonNull List<SiteModel> sites,
+                                                        boolean removeAbsentWPComRestSites) {
+        return new SitesReconciler().execute(sites, removeAbsentWPComRestSites);
+    }
+
     public static int deleteSite(SiteModel site) {
         if (site == null) {
             return 0;
         }
-        return WellSql.delete(SiteModel.class)
+        int rowsAffected = WellSql.delete(SiteModel.class)
                  .where().equals(SiteModelTable.ID, site.getId()).endWhere()
                  .execute();
+        onSitesChanged();
+        return rowsAffected;
     }
 
     public static int deleteAllSites() {
-        return WellSql.delete(SiteModel.class).execute();
+        int rowsAffected = WellSql.delete(SiteModel.class).execute();
+        onSitesChanged();
+        return rowsAffected;
     }
 
     public static int setSiteVisibility(SiteModel site, boolean visible) {
         if (site == null) {
             return 0;
         }
-        return WellSql.update(SiteModel.class)
+        int rowsAffected = WellSql.update(SiteModel.class)
                 .whereId(site.getId())
                 .where().equals(SiteModelTable.IS_WPCOM, true).endWhere()
                 .put(visible, new InsertMapper<Boolean>() {
@@ -201,6 +251,8 @@ public class SiteSqlUtils {
                         return cv;
                     }
                 }).execute();
+        onSitesChanged();
+        return rowsAffected;
     }
 
     public static SelectQuery<SiteModel> getWPComSites() {
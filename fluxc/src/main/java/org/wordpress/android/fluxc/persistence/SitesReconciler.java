@@ -0,0 +1,248 @@
+package org.wordpress.android.fluxc.persistence;
+
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.wellsql.generated.AccountModelTable;
+import com.yarolegovich.wellsql.WellSql;
+
+import org.wordpress.android.fluxc.model.AccountModel;
+import org.wordpress.android.fluxc.model.SiteModel;
+import org.wordpress.android.fluxc.persistence.SiteSqlUtils.DuplicateSiteException;
+import org.wordpress.android.fluxc.persistence.SiteSqlUtils.SitesUpdateResult;
+import org.wordpress.android.util.AppLog;
+import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.UrlUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inserts or updates a list of sites in a single transaction. The stored sites are loaded once, and every incoming
+ * site is matched against them in memory, by local id, SITE_ID, URL and XML-RPC url, following the rules of
+ * {@link SiteSqlUtils#insertOrUpdateSite(SiteModel)}. They are kept up to date as sites are written, so a site matches
+ * exactly what it would have matched if the list had been saved one site at a time, and only columns that changed
+ * are written.
+ */
+class SitesReconciler {
+    private final Map<Integer, SiteKey> mSitesById = new HashMap<>();
+    private final Map<Long, List<SiteKey>> mSitesBySiteId = new HashMap<>();
+    private final Map<String, List<SiteKey>> mSitesByUrl = new HashMap<>();
+    private final Map<String, List<SiteKey>> mSitesByXmlRpcUrl = new HashMap<>();
+    private Boolean mHasWPComAccount;
+
+    SitesUpdateResult execute(@NonNull List<SiteModel> sites, boolean removeAbsentWPComRestSites) {
+        SitesUpdateResult result = new SitesUpdateResult();
+        SQLiteDatabase db = WellSql.giveMeWritableDb();
+        db.beginTransaction();
+        try {
+            loadSiteKeys();
+            for (SiteModel site : sites) {
+                try {
+                    result.rowsAffected += insertOrUpdateSite(site);
+                } catch (DuplicateSiteException e) {
+                    result.duplicateSiteFound = true;
+                }
+            }
+            if (removeAbsentWPComRestSites) {
+                removeWPComRestSitesAbsentFromList(sites);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            SiteSqlUtils.onSitesChanged();
+        }
+        return result;
+    }
+
+    private int insertOrUpdateSite(SiteModel site) throws DuplicateSiteException {
+        if (site == null) {
+            return 0;
+        }
+
+        // Don't re-populate the database with WP.com sites after sign out from WordPress.com
+        if (site.isUsingWpComRestApi() && !hasWPComAccount()) {
+            AppLog.w(T.DB, "Can't insert WP.com site " + site.getUrl() + ", missing user account");
+            return 0;
+        }
+
+        // 1. Matches by local id
+        SiteKey existingSite = mSitesById.get(site.getId());
+        if (existingSite == null) {
+            if (site.getSiteId() > 0) {
+                // 2. WordPress.com and Jetpack sites match by SITE_ID
+                existingSite = findFirst(mSitesBySiteId.get(site.getSiteId()), site.getSiteId(), null);
+            } else {
+                // 3. Pure self hosted sites match by SITE_ID + URL
+                existingSite = findFirst(mSitesByUrl.get(site.getUrl()), site.getSiteId(), site.getUrl());
+            }
+        }
+
+        if (existingSite == null) {
+            // 4. and 5. Self hosted sites already stored as a Jetpack site match by XML-RPC url
+            String forcedHttpXmlRpcUrl = "http://" + UrlUtils.removeScheme(site.getXmlRpcUrl());
+            String forcedHttpsXmlRpcUrl = "https://" + UrlUtils.removeScheme(site.getXmlRpcUrl());
+            existingSite = first(findFirst(mSitesByXmlRpcUrl.get(forcedHttpXmlRpcUrl)),
+                    findFirst(mSitesByXmlRpcUrl.get(forcedHttpsXmlRpcUrl)));
+            if (existingSite != null && existingSite.mOrigin == SiteModel.ORIGIN_WPCOM_REST) {
+                AppLog.d(T.DB, "Site is a duplicate");
+                throw new DuplicateSiteException();
+            }
+        }
+
+        if (existingSite == null) {
+            // 6. Inserts new sites
+            WellSql.insert(site).execute();
+            addSiteKey(new SiteKey(site.getId(), site));
+            return 1;
+        }
+
+        try {
+            int rowsAffected = UpdateChangedColumns.execute(SiteModel.class, existingSite.mSite, site);
+            removeSiteKey(existingSite);
+            addSiteKey(new SiteKey(existingSite.mId, site));
+            return rowsAffected;
+        } catch (SQLiteConstraintException e) {
+            AppLog.e(T.DB, "Error while updating site: siteId=" + site.getSiteId() + " url=" + site.getUrl()
+                    + " xmlrpc=" + site.getXmlRpcUrl(), e);
+            throw new DuplicateSiteException();
+        }
+    }
+
+    private void removeWPComRestSitesAbsentFromList(List<SiteModel> sites) {
+        Set<Long> siteIdsToKeep = new HashSet<>();
+        for (SiteModel site : sites) {
+            if (site != null) {
+                siteIdsToKeep.add(site.getSiteId());
+            }
+        }
+
+        for (SiteKey siteKey : new ArrayList<>(mSitesById.values())) {
+            if (siteKey.mOrigin != SiteModel.ORIGIN_WPCOM_REST || siteIdsToKeep.contains(siteKey.mSiteId)) {
+                continue;
+            }
+            SiteModel site = new SiteModel();
+            site.setId(siteKey.mId);
+            // Don't remove sites with local changes
+            if (!PostSqlUtils.getSiteHasLocalChanges(site)) {
+                SiteSqlUtils.deleteSite(site);
+                removeSiteKey(siteKey);
+            }
+        }
+    }
+
+    private boolean hasWPComAccount() {
+        if (mHasWPComAccount == null) {
+            mHasWPComAccount = WellSql.select(AccountModel.class)
+                    .where()
+                    .not().equals(AccountModelTable.USER_ID, 0)
+                    .endWhere()
+                    .getAsCursor().getCount() > 0;
+        }
+        return mHasWPComAccount;
+    }
+
+    private void loadSiteKeys() {
+        for (SiteModel site : WellSql.select(SiteModel.class).getAsModel()) {
+            addSiteKey(new SiteKey(site.getId(), site));
+        }
+    }
+
+    private void addSiteKey(SiteKey siteKey) {
+        mSitesById.put(siteKey.mId, siteKey);
+        addToList(mSitesBySiteId, siteKey.mSiteId, siteKey);
+        addToList(mSitesByUrl, siteKey.mUrl, siteKey);
+        addToList(mSitesByXmlRpcUrl, siteKey.mXmlRpcUrl, siteKey);
+    }
+
+    private void removeSiteKey(SiteKey siteKey) {
+        mSitesById.remove(siteKey.mId);
+        removeFromList(mSitesBySiteId, siteKey.mSiteId, siteKey);
+        removeFromList(mSitesByUrl, siteKey.mUrl, siteKey);
+        removeFromList(mSitesByXmlRpcUrl, siteKey.mXmlRpcUrl, siteKey);
+    }
+
+    private static <K> void addToList(Map<K, List<SiteKey>> map, K key, SiteKey siteKey) {
+        // Like in SQL, null values never match
+        if (key == null) {
+            return;
+        }
+        List<SiteKey> siteKeys = map.get(key);
+        if (siteKeys == null) {
+            siteKeys = new ArrayList<>(1);
+            map.put(key, siteKeys);
+        }
+        siteKeys.add(siteKey);
+    }
+
+    private static <K> void removeFromList(Map<K, List<SiteKey>> map, K key, SiteKey siteKey) {
+        List<SiteKey> siteKeys = key != null ? map.get(key) : null;
+        if (siteKeys != null) {
+            siteKeys.remove(siteKey);
+        }
+    }
+
+    /**
+     * @return the site with the lowest local id among the given sites matching the SITE_ID and, if not null, the URL
+     */
+    @Nullable
+    private static SiteKey findFirst(@Nullable List<SiteKey> siteKeys, long siteId, @Nullable String url) {
+        SiteKey firstSiteKey = null;
+        if (siteKeys != null) {
+            for (SiteKey siteKey : siteKeys) {
+                if (siteKey.mSiteId == siteId && (url == null || url.equals(siteKey.mUrl))) {
+                    firstSiteKey = first(firstSiteKey, siteKey);
+                }
+            }
+        }
+        return firstSiteKey;
+    }
+
+    @Nullable
+    private static SiteKey findFirst(@Nullable List<SiteKey> siteKeys) {
+        SiteKey firstSiteKey = null;
+        if (siteKeys != null) {
+            for (SiteKey siteKey : siteKeys) {
+                firstSiteKey = first(firstSiteKey, siteKey);
+            }
+        }
+        return firstSiteKey;
+    }
+
+    @Nullable
+    private static SiteKey first(@Nullable SiteKey siteKey1, @Nullable SiteKey siteKey2) {
+        if (siteKey1 == null || siteKey2 == null) {
+            return siteKey1 != null ? siteKey1 : siteKey2;
+        }
+        return siteKey1.mId <= siteKey2.mId ? siteKey1 : siteKey2;
+    }
+
+    /**
+     * Stored site, with the columns used to match incoming sites.
+     */
+    private static class SiteKey {
+        private final int mId;
+        private final long mSiteId;
+        private final String mUrl;
+        private final String mXmlRpcUrl;
+        private final int mOrigin;
+        private final SiteModel mSite;
+
+        SiteKey(int id, SiteModel site) {
+            mId = id;
+            mSiteId = site.getSiteId();
+            mUrl = site.getUrl();
+            mXmlRpcUrl = site.getXmlRpcUrl();
+            mOrigin = site.getOrigin();
+            // Copied, the incoming site could be changed later on, and doesn't get the id of the row it updates
+            mSite = site.clone();
+            mSite.setId(id);
+        }
+    }
+}
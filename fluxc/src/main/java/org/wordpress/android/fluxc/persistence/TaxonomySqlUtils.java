@@ -10,6 +10,29 @@ import java.util.Collections;
 import java.util.List;
 
 public class TaxonomySqlUtils {
+    private static final BulkUpsert<TermModel> TERM_UPSERT = new BulkUpsert<TermModel>(TermModel.class,
+            new String[]{TermModelTable.LOCAL_SITE_ID, TermModelTable.TAXONOMY}, TermModelTable.REMOTE_TERM_ID, null) {
+        @Override
+        boolean isKeyedByRemoteId(TermModel term) {
+            return term.getId() == 0 && term.getTaxonomy() != null;
+        }
+
+        @Override
+        String[] getScope(TermModel term) {
+            return new String[]{String.valueOf(term.getLocalSiteId()), term.getTaxonomy()};
+        }
+
+        @Override
+        long getRemoteId(TermModel term) {
+            return term.getRemoteTermId();
+        }
+
+        @Override
+        int insertOrUpdate(TermModel term, boolean overwriteLocalChanges) {
+            return insertOrUpdateTerm(term);
+        }
+    };
+
     public static int insertOrUpdateTerm(TermModel term) {
         if (term == null) {
             return 0;
@@ -31,11 +54,19 @@ public class TaxonomySqlUtils {
             WellSql.insert(term).asSingleTransaction(true).execute();
             return 1;
         } else {
-            return WellSql.update(TermModel.class).whereId(termResult.get(0).getId())
-                    .put(term, new UpdateAllExceptId<>(TermModel.class)).execute();
+            return UpdateChangedColumns.execute(TermModel.class, termResult.get(0), term);
         }
     }
 
+    /**
+     * Inserts or updates a list of terms, typically a fetched taxonomy, in a single transaction.
+     *
+     * @return the number of rows inserted or updated
+     */
+    public static int insertOrUpdateTerms(List<TermModel> terms) {
+        return TERM_UPSERT.execute(terms, true);
+    }
+
     public static TermModel insertTermForResult(TermModel term) {
         WellSql.insert(term).asSingleTransaction(true).execute();
 
@@ -93,6 +93,15 @@ public class ThemeSqlUtils {
                 .endWhere().getAsCursor();
     }
 
+    public static boolean hasWpComThemes() {
+        Cursor cursor = getWpComThemesCursor();
+        try {
+            return cursor.getCount() > 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
     public static List<ThemeModel> getWpComThemes() {
         return WellSql.select(ThemeModel.class)
                 .where()
@@ -0,0 +1,139 @@
+package org.wordpress.android.fluxc.persistence;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.yarolegovich.wellsql.WellSql;
+import com.yarolegovich.wellsql.core.Identifiable;
+import com.yarolegovich.wellsql.mapper.InsertMapper;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Maps a model to the columns whose values differ from the stored row it updates, so unchanged rows aren't
+ * rewritten, and updates only report the rows that actually changed.
+ */
+class UpdateChangedColumns<T> implements InsertMapper<T> {
+    private static final String ID_COLUMN = "_id";
+
+    private final ContentValues mChangedValues;
+
+    private UpdateChangedColumns(ContentValues changedValues) {
+        mChangedValues = changedValues;
+    }
+
+    @Override
+    public ContentValues toCv(T item) {
+        return mChangedValues;
+    }
+
+    /**
+     * Updates the stored row of {@code storedItem} with the values of {@code item} that differ from it.
+     *
+     * @return 1 if the row was updated, 0 if it already held the same values
+     */
+    static <T extends Identifiable> int execute(Class<T> clazz, T storedItem, T item) {
+        ContentValues changedValues = getChangedValues(WellSql.mapperFor(clazz).toCv(item),
+                WellSql.mapperFor(clazz).toCv(storedItem));
+        if (changedValues.size() == 0) {
+            return 0;
+        }
+        return WellSql.update(clazz).whereId(storedItem.getId())
+                .put(item, new UpdateChangedColumns<T>(changedValues)).execute();
+    }
+
+    /**
+     * @return the entries of {@code values} that differ from {@code storedValues}, without the id column
+     */
+    static ContentValues getChangedValues(ContentValues values, ContentValues storedValues) {
+        ContentValues changedValues = new ContentValues();
+        for (Map.Entry<String, Object> entry : values.valueSet()) {
+            String column = entry.getKey();
+            if (!ID_COLUMN.equals(column) && !isSameValue(entry.getValue(), storedValues.get(column))) {
+                putValue(changedValues, column, entry.getValue());
+            }
+        }
+        return changedValues;
+    }
+
+    /**
+     * Reads the current row of the cursor, with the types SQLite stored its values with.
+     */
+    static ContentValues readRow(Cursor cursor) {
+        ContentValues row = new ContentValues(cursor.getColumnCount());
+        for (int i = 0; i < cursor.getColumnCount(); i++) {
+            String column = cursor.getColumnName(i);
+            switch (cursor.getType(i)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    row.put(column, cursor.getLong(i));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    row.put(column, cursor.getDouble(i));
+                    break;
+                case Cursor.FIELD_TYPE_STRING:
+                    row.put(column, cursor.getString(i));
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    row.put(column, cursor.getBlob(i));
+                    break;
+                default:
+                    row.putNull(column);
+                    break;
+            }
+        }
+        return row;
+    }
+
+    // Booleans are stored as 0 or 1, and numbers compared by value whatever their boxed type
+    private static boolean isSameValue(Object value, Object storedValue) {
+        if (value instanceof Boolean) {
+            value = (Boolean) value ? 1L : 0L;
+        }
+        if (storedValue instanceof Boolean) {
+            storedValue = (Boolean) storedValue ? 1L : 0L;
+        }
+        if (value instanceof Number && storedValue instanceof Number) {
+            Number number = (Number) value;
+            Number storedNumber = (Number) storedValue;
+            if (isFloatingPoint(number) || isFloatingPoint(storedNumber)) {
+                return Double.compare(number.doubleValue(), storedNumber.doubleValue()) == 0;
+            }
+            return number.longValue() == storedNumber.longValue();
+        }
+        if (value instanceof byte[] && storedValue instanceof byte[]) {
+            return Arrays.equals((byte[]) value, (byte[]) storedValue);
+        }
+        return value == null ? storedValue == null : value.equals(storedValue);
+    }
+
+    private static boolean isFloatingPoint(Number number) {
+        return number instanceof Double || number instanceof Float;
+    }
+
+    private static void putValue(ContentValues cv, String column, Object value) {
+        if (value == null) {
+            cv.putNull(column);
+        } else if (value instanceof String) {
+            cv.put(column, (String) value);
+        } else if (value instanceof Long) {
+            cv.put(column, (Long) value);
+        } else if (value instanceof Integer) {
+            cv.put(column, (Integer) value);
+        } else if (value instanceof Boolean) {
+            cv.put(column, (Boolean) value);
+        } else if (value instanceof Double) {
+            cv.put(column, (Double) value);
+        } else if (value instanceof Float) {
+            cv.put(column, (Float) value);
+        } else if (value instanceof Short) {
+            cv.put(column, (Short) value);
+        } else if (value instanceof Byte) {
+            cv.put(column, (Byte) value);
+        } else if (value instanceof byte[]) {
+            cv.put(column, (byte[]) value);
+        } else {
+            cv.put(column, value.toString());
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package org.wordpress.android.fluxc.persistence;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.os.Build;
+import android.text.TextUtils;
 
 import com.yarolegovich.wellsql.DefaultWellConfig;
 import com.yarolegovich.wellsql.WellSql;
@@ -26,10 +29,12 @@ import org.wordpress.android.fluxc.model.TaxonomyModel;
 import org.wordpress.android.fluxc.model.TermModel;
 import org.wordpress.android.fluxc.model.ThemeModel;
 import org.wordpress.android.fluxc.network.HTTPAuthModel;
+import org.wordpress.android.fluxc.utils.DateUtils;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -56,9 +61,21 @@ public class WellSqlConfig extends DefaultWellConfig {
         add(WPOrgPluginModel.class);
     }};
 
+    // Secondary indexes on the columns of frequent lookups, created along with their table
+    private static final Map<Class<? extends Identifiable>, String[][]> INDEXES =
+            new HashMap<Class<? extends Identifiable>, String[][]>() {{
+        put(CommentModel.class, new String[][]{{"LOCAL_SITE_ID", "REMOTE_COMMENT_ID"}});
+        put(MediaModel.class, new String[][]{{"LOCAL_SITE_ID", "MEDIA_ID"}, {"LOCAL_POST_ID"}});
+        put(PostModel.class, new String[][]{{"LOCAL_SITE_ID", "REMOTE_POST_ID"},
+                {"LOCAL_SITE_ID", "IS_PAGE", "IS_LOCAL_DRAFT", "DATE_CREATED_MILLIS"},
+                {"LOCAL_SITE_ID", "IS_PAGE", "IS_LOCAL_DRAFT", "DATE_MODIFIED_MILLIS"}});
+        put(TermModel.class, new String[][]{{"LOCAL_SITE_ID", "TAXONOMY", "REMOTE_TERM_ID"}});
+        put(ThemeModel.class, new String[][]{{"LOCAL_SITE_ID", "THEME_ID"}});
+    }};
+
     @Override
     public int getDbVersion() {
-        return 22;
+        return 27;
     }
 
     @Override
@@ -70,6 +87,7 @@ public class WellSqlConfig extends DefaultWellConfig {
     public void onCreate(SQLiteDatabase db, WellTableManager helper) {
         for (Class<? extends Identifiable> table : TABLES) {
             helper.createTable(table);
+            createIndexes(db, table);
         }
     }
 
@@ -198,6 +216,33 @@ public class WellSqlConfig extends DefaultWellConfig {
                 db.execSQL("alter table WPOrgPluginModel add NUMBER_OF_RATINGS_OF_FOUR INTEGER;");
                 db.execSQL("alter table WPOrgPluginModel add NUMBER_OF_RATINGS_OF_FIVE INTEGER;");
                 oldVersion++;
+            case 22:
+                AppLog.d(T.DB, "Migrating to version " + (oldVersion + 1));
+                // The secondary indexes are created after the migrations, once all their columns exist
+                oldVersion++;
+            case 23:
+                AppLog.d(T.DB, "Migrating to version " + (oldVersion + 1));
+                db.execSQL("alter table PostModel add DATE_MODIFIED text;");
+                oldVersion++;
+            case 24:
+                AppLog.d(T.DB, "Migrating to version " + (oldVersion + 1));
+                for (FullTextIndex fullTextIndex : FullTextIndex.getAll()) {
+                    fullTextIndex.create(db);
+                }
+                oldVersion++;
+            case 25:
+                AppLog.d(T.DB, "Migrating to version " + (oldVersion + 1));
+                db.execSQL("alter table PostModel add DATE_CREATED_MILLIS integer;");
+                fillTimestamps(db, "PostModel", "DATE_CREATED", "DATE_CREATED_MILLIS");
+                oldVersion++;
+            case 26:
+                AppLog.d(T.DB, "Migrating to version " + (oldVersion + 1));
+                db.execSQL("alter table PostModel add DATE_MODIFIED_MILLIS integer;");
+                fillTimestamps(db, "PostModel", "DATE_MODIFIED", "DATE_MODIFIED_MILLIS");
+                oldVersion++;
+        }
+        for (Class<? extends Identifiable> table : INDEXES.keySet()) {
+            createSecondaryIndexes(db, table);
         }
         db.setTransactionSuccessful();
         db.endTransaction();
@@ -226,6 +271,49 @@ public class WellSqlConfig extends DefaultWellConfig {
             TableClass table = getTable(clazz);
             db.execSQL("DROP TABLE IF EXISTS " + table.getTableName());
             db.execSQL(table.createStatement());
+            createIndexes(db, clazz);
+        }
+        SiteSqlUtils.onSitesChanged();
+    }
+
+    /**
+     * Creates the secondary indexes and the full-text index of a table, if they don't exist yet
+     */
+    protected void createIndexes(SQLiteDatabase db, Class<? extends Identifiable> clazz) {
+        FullTextIndex fullTextIndex = FullTextIndex.forClass(clazz);
+        if (fullTextIndex != null) {
+            fullTextIndex.create(db);
+        }
+        createSecondaryIndexes(db, clazz);
+    }
+
+    private void createSecondaryIndexes(SQLiteDatabase db, Class<? extends Identifiable> clazz) {
+        String[][] indexes = INDEXES.get(clazz);
+        if (indexes == null) {
+            return;
+        }
+        String tableName = getTable(clazz).getTableName();
+        for (String[] columns : indexes) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + tableName + "_" + TextUtils.join("_", columns)
+                    + " ON " + tableName + " (" + TextUtils.join(",", columns) + ")");
+        }
+    }
+
+    /**
+     * Fills a timestamp column added to a table with the ISO 8601 dates of another column, see
+     * {@link DateUtils#timestampFromIso8601}.
+     */
+    private static void fillTimestamps(SQLiteDatabase db, String tableName, String dateColumn,
+                                       String timestampColumn) {
+        Cursor cursor = db.rawQuery("SELECT _id, " + dateColumn + " FROM " + tableName, null);
+        try {
+            ContentValues values = new ContentValues(1);
+            while (cursor.moveToNext()) {
+                values.put(timestampColumn, DateUtils.timestampFromIso8601(cursor.getString(1)));
+                db.update(tableName, values, "_id = ?", new String[]{cursor.getString(0)});
+            }
+        } finally {
+            cursor.close();
         }
     }
 }
@@ -0,0 +1,19 @@
+package org.wordpress.android.fluxc.persistence;
+
+/**
+ * Helpers for the persistence classes running raw SQL on WellSql tables.
+ */
+class WellSqlUtils {
+    /**
+     * Maximum number of values bound to a single query, staying well under SQLite's default limit of 999 host
+     * parameters: longer lists of ids must be queried in chunks.
+     */
+    static final int MAX_ARGS_PER_QUERY = 500;
+
+    /**
+     * @return the name of the table of the given model, WellSql names tables after their model class
+     */
+    static String getTableName(Class<?> clazz) {
+        return clazz.getSimpleName();
+    }
+}
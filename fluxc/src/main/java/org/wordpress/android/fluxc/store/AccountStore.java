@@ -4,13 +4,12 @@ import android.support.annotation.NonNull;
 
 import com.android.volley.VolleyError;
 
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.action.AccountAction;
 import org.wordpress.android.fluxc.action.AuthenticationAction;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
 import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.model.AccountModel;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
@@ -42,6 +41,7 @@ import javax.inject.Singleton;
 /**
  * In-memory based and persisted in SQLite.
  */
+@HandlesActions({AccountAction.class, AuthenticationAction.class})
 @Singleton
 public class AccountStore extends Store {
     // Payloads
@@ -498,7 +498,6 @@ public class AccountStore extends Store {
         AppLog.d(T.API, "AccountStore onRegister");
     }
 
-    @Subscribe(threadMode = ThreadMode.ASYNC)
     @Override
     public void onAction(Action action) {
         IAction actionType = action.getType();
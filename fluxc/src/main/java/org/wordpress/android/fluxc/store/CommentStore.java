@@ -6,15 +6,15 @@ import android.support.annotation.Nullable;
 import com.yarolegovich.wellsql.SelectQuery;
 import com.yarolegovich.wellsql.SelectQuery.Order;
 
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.action.CommentAction;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
 import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.model.CommentModel;
 import org.wordpress.android.fluxc.model.CommentStatus;
+import org.wordpress.android.fluxc.model.CommentSummary;
 import org.wordpress.android.fluxc.model.PostModel;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
@@ -26,11 +26,13 @@ import org.wordpress.android.util.AppLog.T;
 import org.wordpress.android.util.DateTimeUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+@HandlesActions(CommentAction.class)
 @Singleton
 public class CommentStore extends Store {
     private final CommentRestClient mCommentRestClient;
@@ -38,6 +40,8 @@ public class CommentStore extends Store {
 
     // Payloads
 
+    // TODO: incremental refreshes, like FetchPostsPayload#incremental. The comment endpoints only filter on creation
+    // date, so they need a server modification date to sync on first.
     public static class FetchCommentsPayload extends Payload<BaseNetworkError> {
         @NonNull public final SiteModel site;
         @NonNull public final CommentStatus status;
@@ -158,13 +162,40 @@ public class CommentStore extends Store {
 
     // Actions
 
-    public static class OnCommentChanged extends OnChanged<CommentError> {
+    public static class OnCommentChanged extends OnChanged<CommentError>
+            implements CoalescableChange<OnCommentChanged> {
         public int rowsAffected;
         public CommentAction causeOfChange;
         public List<Integer> changedCommentsLocalIds = new ArrayList<>();
+        /**
+         * Local id of the site the change applies to, 0 if it applies to all sites
+         */
+        public int localSiteId;
+
         public OnCommentChanged(int rowsAffected) {
             this.rowsAffected = rowsAffected;
         }
+
+        @Override
+        public Object getCoalescingKey() {
+            return isError() ? null : Arrays.asList(causeOfChange, localSiteId);
+        }
+
+        @Override
+        public OnCommentChanged coalesce(OnCommentChanged newer) {
+            rowsAffected += newer.rowsAffected;
+            for (Integer localId : newer.changedCommentsLocalIds) {
+                if (!changedCommentsLocalIds.contains(localId)) {
+                    changedCommentsLocalIds.add(localId);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public boolean isProgressUpdate() {
+            return false;
+        }
     }
 
     // Constructor
@@ -193,6 +224,24 @@ public class CommentStore extends Store {
         return CommentSqlUtils.getCommentsForSite(site, order, statuses);
     }
 
+    /**
+     * Same as {@link #getCommentsForSite(SiteModel, boolean, CommentStatus...)}, returning {@link CommentSummary}s
+     * without the content of the comments.
+     */
+    public List<CommentSummary> getCommentSummariesForSite(SiteModel site, boolean orderByDateAscending,
+                                                           CommentStatus... statuses) {
+        @Order int order = orderByDateAscending ? SelectQuery.ORDER_ASCENDING : SelectQuery.ORDER_DESCENDING;
+        return CommentSqlUtils.getCommentSummariesForSite(site, order, statuses);
+    }
+
+    /**
+     * Searches the comments in the store for the given site, without a network request: matches comments with an
+     * author name or content containing words starting with every word of the search term, best matches first.
+     */
+    public List<CommentModel> searchLocalComments(SiteModel site, String searchTerm) {
+        return CommentSqlUtils.searchCommentsIndex(site, searchTerm);
+    }
+
     public int getNumberOfCommentsForSite(SiteModel site, CommentStatus... statuses) {
         return CommentSqlUtils.getCommentsCountForSite(site, statuses);
     }
@@ -208,7 +257,6 @@ public class CommentStore extends Store {
     // Store Methods
 
     @Override
-    @Subscribe(threadMode = ThreadMode.ASYNC)
     public void onAction(Action action) {
         IAction actionType = action.getType();
         if (!(actionType instanceof CommentAction)) {
@@ -322,6 +370,7 @@ public class CommentStore extends Store {
         }
         if (payload.comment != null) {
             event.changedCommentsLocalIds.add(payload.comment.getId());
+            event.localSiteId = payload.comment.getLocalSiteId();
         }
         event.error = payload.error;
         emitChange(event);
@@ -334,6 +383,7 @@ public class CommentStore extends Store {
         }
         OnCommentChanged event = new OnCommentChanged(rowsAffected);
         event.changedCommentsLocalIds.add(payload.getId());
+        event.localSiteId = payload.getLocalSiteId();
         event.causeOfChange = CommentAction.UPDATE_COMMENT;
         emitChange(event);
     }
@@ -343,6 +393,7 @@ public class CommentStore extends Store {
         OnCommentChanged event = new OnCommentChanged(rowsAffected);
         event.causeOfChange = CommentAction.REMOVE_COMMENT;
         event.changedCommentsLocalIds.add(payload.getId());
+        event.localSiteId = payload.getLocalSiteId();
         emitChange(event);
     }
 
@@ -351,6 +402,7 @@ public class CommentStore extends Store {
         OnCommentChanged event = new OnCommentChanged(rowsAffected);
         // Doesn't make sense to update here event.changedCommentsLocalIds
         event.causeOfChange = CommentAction.REMOVE_COMMENTS;
+        event.localSiteId = payload.getId();
         emitChange(event);
     }
 
@@ -379,6 +431,7 @@ public class CommentStore extends Store {
         OnCommentChanged event = new OnCommentChanged(0);
         if (payload.comment != null) {
             event.changedCommentsLocalIds.add(payload.comment.getId());
+            event.localSiteId = payload.comment.getLocalSiteId();
         }
         event.causeOfChange = CommentAction.DELETE_COMMENT;
         event.error = payload.error;
@@ -414,12 +467,13 @@ public class CommentStore extends Store {
                 CommentSqlUtils.removeComments(payload.site);
             }
 
+            rowsAffected = CommentSqlUtils.insertOrUpdateComments(payload.comments);
             for (CommentModel comment : payload.comments) {
-                rowsAffected += CommentSqlUtils.insertOrUpdateComment(comment);
                 event.changedCommentsLocalIds.add(comment.getId());
             }
         }
         event.causeOfChange = CommentAction.FETCH_COMMENTS;
+        event.localSiteId = payload.site.getId();
         event.error = payload.error;
         emitChange(event);
     }
@@ -428,6 +482,7 @@ public class CommentStore extends Store {
         if (payload.comment == null) {
             OnCommentChanged event = new OnCommentChanged(0);
             event.causeOfChange = CommentAction.PUSH_COMMENT;
+            event.localSiteId = payload.site.getId();
             event.error = new CommentError(CommentErrorType.INVALID_INPUT, "Comment can't be null");
             emitChange(event);
             return;
@@ -447,6 +502,7 @@ public class CommentStore extends Store {
         OnCommentChanged event = new OnCommentChanged(rowsAffected);
         if (payload.comment != null) {
             event.changedCommentsLocalIds.add(payload.comment.getId());
+            event.localSiteId = payload.comment.getLocalSiteId();
         }
         event.causeOfChange = CommentAction.PUSH_COMMENT;
         event.error = payload.error;
@@ -469,6 +525,7 @@ public class CommentStore extends Store {
         OnCommentChanged event = new OnCommentChanged(rowsAffected);
         if (payload.comment != null) {
             event.changedCommentsLocalIds.add(payload.comment.getId());
+            event.localSiteId = payload.comment.getLocalSiteId();
         }
         event.causeOfChange = CommentAction.FETCH_COMMENT;
         event.error = payload.error;
@@ -487,6 +544,7 @@ public class CommentStore extends Store {
         } else {
             OnCommentChanged event = new OnCommentChanged(0);
             event.causeOfChange = CommentAction.LIKE_COMMENT;
+            event.localSiteId = payload.site.getId();
             if (payload.comment != null) {
                 event.changedCommentsLocalIds.add(payload.comment.getId());
             }
@@ -503,6 +561,7 @@ public class CommentStore extends Store {
         OnCommentChanged event = new OnCommentChanged(rowsAffected);
         if (payload.comment != null) {
             event.changedCommentsLocalIds.add(payload.comment.getId());
+            event.localSiteId = payload.comment.getLocalSiteId();
         }
         event.causeOfChange = CommentAction.LIKE_COMMENT;
         event.error = payload.error;
@@ -6,15 +6,15 @@ import android.text.TextUtils;
 import com.wellsql.generated.MediaModelTable;
 import com.yarolegovich.wellsql.WellCursor;
 
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.action.MediaAction;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
 import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.model.MediaModel;
 import org.wordpress.android.fluxc.model.MediaModel.MediaUploadState;
+import org.wordpress.android.fluxc.model.MediaSummary;
 import org.wordpress.android.fluxc.model.PostModel;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.network.BaseRequest.BaseNetworkError;
@@ -35,6 +35,7 @@ import java.util.Locale;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+@HandlesActions(MediaAction.class)
 @Singleton
 public class MediaStore extends Store {
     public static final int DEFAULT_NUM_MEDIA_PER_FETCH = 50;
@@ -62,6 +63,8 @@ public class MediaStore extends Store {
     /**
      * Actions: FETCH_MEDIA_LIST
      */
+    // TODO: incremental refreshes, like FetchPostsPayload#incremental. The media endpoints only filter on creation
+    // date, so they need a server modification date to sync on first.
     public static class FetchMediaListPayload extends Payload<BaseNetworkError> {
         public SiteModel site;
         public boolean loadMore;
@@ -231,7 +234,7 @@ public class MediaStore extends Store {
         }
     }
 
-    public static class OnMediaUploaded extends OnChanged<MediaError> {
+    public static class OnMediaUploaded extends OnChanged<MediaError> implements CoalescableChange<OnMediaUploaded> {
         public MediaModel media;
         public float progress;
         public boolean completed;
@@ -242,6 +245,22 @@ public class MediaStore extends Store {
             this.completed = completed;
             this.canceled = canceled;
         }
+
+        @Override
+        public Object getCoalescingKey() {
+            return isError() || media == null ? null : media.getId();
+        }
+
+        @Override
+        public OnMediaUploaded coalesce(OnMediaUploaded newer) {
+            // Only the latest state of an upload matters
+            return newer;
+        }
+
+        @Override
+        public boolean isProgressUpdate() {
+            return !completed && !canceled && !isError();
+        }
     }
 
     //
@@ -333,7 +352,6 @@ public class MediaStore extends Store {
         mMediaXmlrpcClient = xmlrpcClient;
     }
 
-    @Subscribe(threadMode = ThreadMode.ASYNC)
     @Override
     public void onAction(Action action) {
         IAction actionType = action.getType();
@@ -419,6 +437,13 @@ public class MediaStore extends Store {
         return MediaSqlUtils.getAllSiteMediaAsCursor(siteModel);
     }
 
+    /**
+     * Returns all media of the site as a {@link MediaSummary} list, without their description and caption.
+     */
+    public List<MediaSummary> getAllSiteMediaSummaries(SiteModel siteModel) {
+        return MediaSqlUtils.getAllSiteMediaSummaries(siteModel);
+    }
+
     public static final List<String> NOT_DELETED_STATES = new ArrayList<>();
     static {
         NOT_DELETED_STATES.add(MediaUploadState.DELETING.toString());
@@ -537,6 +562,14 @@ public class MediaStore extends Store {
         return MediaSqlUtils.searchSiteMediaAsCursor(siteModel, searchTerm);
     }
 
+    /**
+     * Searches the media of a site offline, with the full-text index: matches media with a title, caption or
+     * description containing words starting with every word of the search term, best matches first.
+     */
+    public List<MediaModel> searchSiteMediaOffline(SiteModel siteModel, String searchTerm) {
+        return MediaSqlUtils.searchSiteMediaIndex(siteModel, searchTerm);
+    }
+
     public MediaModel getMediaForPostWithPath(PostModel postModel, String filePath) {
         List<MediaModel> media = MediaSqlUtils.matchPostMedia(postModel.getId(), MediaModelTable.FILE_PATH, filePath);
         return media.size() > 0 ? media.get(0) : null;
@@ -576,7 +609,9 @@ public class MediaStore extends Store {
 
         if (media == null) {
             event.error = new MediaError(MediaErrorType.NULL_MEDIA_ARG);
-        } else if (MediaSqlUtils.insertOrUpdateMedia(media) > 0) {
+        } else if (MediaSqlUtils.insertOrUpdateMedia(media) > 0
+                   // No rows are affected when the stored media already holds the same values
+                   || MediaSqlUtils.getMediaWithLocalId(media.getId()) != null) {
             event.mediaList.add(media);
         } else {
             event.error = new MediaError(MediaErrorType.DB_QUERY_FAILURE);
@@ -742,37 +777,16 @@ public class MediaStore extends Store {
     }
 
     private void updateFetchedMediaList(@NonNull FetchMediaListResponsePayload payload) {
+        // existing media keep their local ID, new media get one
+        MediaSqlUtils.insertOrUpdateMediaList(payload.mediaList);
+
         // if we loaded another page, simply add the fetched media and be done
         if (payload.loadedMore) {
-            for (MediaModel media : payload.mediaList) {
-                updateMedia(media, false);
-            }
             return;
         }
 
-        // build separate lists of existing and new media
-        List<MediaModel> existingMediaList = new ArrayList<>();
-        List<MediaModel> newMediaList = new ArrayList<>();
-        for (MediaModel fetchedMedia : payload.mediaList) {
-            MediaModel media = getSiteMediaWithId(payload.site, fetchedMedia.getMediaId());
-            if (media != null) {
-                // retain the local ID, then update this media item
-                fetchedMedia.setId(media.getId());
-                existingMediaList.add(fetchedMedia);
-                updateMedia(fetchedMedia, false);
-            } else {
-                newMediaList.add(fetchedMedia);
-            }
-        }
-
-        // remove media that is NOT in the existing list
-        MediaSqlUtils.deleteUploadedSiteMediaNotInList(
-                payload.site, existingMediaList, payload.mimeType);
-
-        // add new media
-        for (MediaModel media : newMediaList) {
-            updateMedia(media, false);
-        }
+        // remove media that is NOT in the fetched list
+        MediaSqlUtils.deleteUploadedSiteMediaNotInList(payload.site, payload.mediaList, payload.mimeType);
     }
 
     private void handleMediaListFetched(@NonNull FetchMediaListResponsePayload payload) {
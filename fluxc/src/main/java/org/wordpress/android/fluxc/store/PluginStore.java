@@ -3,12 +3,11 @@ package org.wordpress.android.fluxc.store;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.action.PluginAction;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
 import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.model.WPOrgPluginModel;
 import org.wordpress.android.fluxc.model.SitePluginModel;
@@ -24,6 +23,7 @@ import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+@HandlesActions(PluginAction.class)
 @Singleton
 public class PluginStore extends Store {
     // Request payloads
@@ -90,6 +90,8 @@ public class PluginStore extends Store {
     public static class FetchedWPOrgPluginPayload extends Payload<FetchWPOrgPluginError> {
         public String pluginSlug;
         public WPOrgPluginModel wpOrgPlugin;
+        // True if the plugin didn't change since it was stored, wpOrgPlugin is then null
+        public boolean notModified;
 
         public FetchedWPOrgPluginPayload(String pluginSlug, FetchWPOrgPluginError error) {
             this.pluginSlug = pluginSlug;
@@ -416,7 +418,6 @@ public class PluginStore extends Store {
         AppLog.d(AppLog.T.API, "PluginStore onRegister");
     }
 
-    @Subscribe(threadMode = ThreadMode.ASYNC)
     @Override
     public void onAction(Action action) {
         IAction actionType = action.getType();
@@ -546,7 +547,7 @@ public class PluginStore extends Store {
         OnWPOrgPluginFetched event = new OnWPOrgPluginFetched(payload.pluginSlug);
         if (payload.isError()) {
             event.error = payload.error;
-        } else if (event.pluginSlug != null) {
+        } else if (event.pluginSlug != null && !payload.notModified) {
             PluginSqlUtils.insertOrUpdateWPOrgPlugin(payload.wpOrgPlugin);
         }
         emitChange(event);
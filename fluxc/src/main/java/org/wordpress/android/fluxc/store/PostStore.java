@@ -5,14 +5,14 @@ import android.support.annotation.NonNull;
 import com.wellsql.generated.PostModelTable;
 import com.yarolegovich.wellsql.WellSql;
 
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.action.PostAction;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
 import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.model.PostModel;
+import org.wordpress.android.fluxc.model.PostSummary;
 import org.wordpress.android.fluxc.model.PostsModel;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.model.post.PostStatus;
@@ -23,6 +23,7 @@ import org.wordpress.android.fluxc.persistence.PostSqlUtils;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.DateTimeUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -30,9 +31,11 @@ import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+@HandlesActions(PostAction.class)
 @Singleton
 public class PostStore extends Store {
     public static final int NUM_POSTS_PER_FETCH = 20;
+    public static final int NUM_MODIFIED_POSTS_PER_FETCH = 100;
 
     public static final List<PostStatus> DEFAULT_POST_STATUS_LIST = Collections.unmodifiableList(Arrays.asList(
             PostStatus.DRAFT,
@@ -44,6 +47,11 @@ public class PostStore extends Store {
     public static class FetchPostsPayload extends Payload<BaseNetworkError> {
         public SiteModel site;
         public boolean loadMore;
+        /**
+         * If set, a refresh only fetches the posts modified on the server since the latest modification we know of,
+         * instead of the first page. Ignored when loading more, or if there are no posts for the site yet.
+         */
+        public boolean incremental;
 
         public FetchPostsPayload(SiteModel site) {
             this.site = site;
@@ -103,6 +111,7 @@ public class PostStore extends Store {
         public boolean isPages;
         public boolean loadedMore;
         public boolean canLoadMore;
+        public boolean incremental;
 
         public FetchPostsResponsePayload(PostsModel posts, SiteModel site, boolean isPages, boolean loadedMore,
                                          boolean canLoadMore) {
@@ -156,10 +165,14 @@ public class PostStore extends Store {
     }
 
     // OnChanged events
-    public static class OnPostChanged extends OnChanged<PostError> {
+    public static class OnPostChanged extends OnChanged<PostError> implements CoalescableChange<OnPostChanged> {
         public int rowsAffected;
         public boolean canLoadMore;
         public PostAction causeOfChange;
+        /**
+         * Local id of the site the change applies to, 0 if it applies to all sites
+         */
+        public int localSiteId;
 
         public OnPostChanged(int rowsAffected) {
             this.rowsAffected = rowsAffected;
@@ -169,6 +182,23 @@ public class PostStore extends Store {
             this.rowsAffected = rowsAffected;
             this.canLoadMore = canLoadMore;
         }
+
+        @Override
+        public Object getCoalescingKey() {
+            return isError() ? null : Arrays.asList(causeOfChange, localSiteId);
+        }
+
+        @Override
+        public OnPostChanged coalesce(OnPostChanged newer) {
+            rowsAffected += newer.rowsAffected;
+            canLoadMore = newer.canLoadMore;
+            return this;
+        }
+
+        @Override
+        public boolean isProgressUpdate() {
+            return false;
+        }
     }
 
     public static class OnPostUploaded extends OnChanged<PostError> {
@@ -276,18 +306,47 @@ public class PostStore extends Store {
         return PostSqlUtils.getPostsForSite(site, true);
     }
 
+    /**
+     * Returns all posts in the store for the given site as a {@link PostSummary} list, without their content.
+     */
+    public List<PostSummary> getPostSummariesForSite(SiteModel site) {
+        return PostSqlUtils.getPostSummariesForSite(site, false);
+    }
+
+    /**
+     * Returns all pages in the store for the given site as a {@link PostSummary} list, without their content.
+     */
+    public List<PostSummary> getPageSummariesForSite(SiteModel site) {
+        return PostSqlUtils.getPostSummariesForSite(site, true);
+    }
+
+    /**
+     * Searches the posts in the store for the given site, without a network request: matches posts with a title or
+     * content containing words starting with every word of the search term, best matches first.
+     */
+    public List<PostModel> searchLocalPosts(SiteModel site, String searchTerm) {
+        return PostSqlUtils.searchPostsIndex(site, searchTerm, false);
+    }
+
+    /**
+     * Same as {@link #searchLocalPosts(SiteModel, String)}, for pages.
+     */
+    public List<PostModel> searchLocalPages(SiteModel site, String searchTerm) {
+        return PostSqlUtils.searchPostsIndex(site, searchTerm, true);
+    }
+
     /**
      * Returns the number of posts in the store for the given site.
      */
     public int getPostsCountForSite(SiteModel site) {
-        return getPostsForSite(site).size();
+        return PostSqlUtils.getPostsCountForSite(site, false);
     }
 
     /**
      * Returns the number of pages in the store for the given site.
      */
     public int getPagesCountForSite(SiteModel site) {
-        return getPagesForSite(site).size();
+        return PostSqlUtils.getPostsCountForSite(site, true);
     }
 
     /**
@@ -308,14 +367,14 @@ public class PostStore extends Store {
      * Returns the number of uploaded posts in the store for the given site.
      */
     public int getUploadedPostsCountForSite(SiteModel site) {
-        return getUploadedPostsForSite(site).size();
+        return PostSqlUtils.getUploadedPostsCountForSite(site, false);
     }
 
     /**
      * Returns the number of uploaded pages in the store for the given site.
      */
     public int getUploadedPagesCountForSite(SiteModel site) {
-        return getUploadedPagesForSite(site).size();
+        return PostSqlUtils.getUploadedPostsCountForSite(site, true);
     }
 
     /**
@@ -349,7 +408,6 @@ public class PostStore extends Store {
         }
     }
 
-    @Subscribe(threadMode = ThreadMode.ASYNC)
     @Override
     public void onAction(Action action) {
         IAction actionType = action.getType();
@@ -425,14 +483,37 @@ public class PostStore extends Store {
     }
 
     private void fetchPosts(FetchPostsPayload payload, boolean pages) {
-        int offset = 0;
-        if (payload.loadMore) {
-            offset = PostSqlUtils.getUploadedPostsForSite(payload.site, pages).size();
+        if (payload.incremental && !payload.loadMore) {
+            String lastModified = PostSqlUtils.getLatestUploadedPostModifiedDate(payload.site, pages);
+            if (lastModified != null) {
+                if (payload.site.isUsingWpComRestApi()) {
+                    List<Long> lastModifiedRemotePostIds =
+                            PostSqlUtils.getUploadedPostRemoteIdsModifiedAt(payload.site, pages, lastModified);
+                    mPostRestClient.fetchPostsModifiedAfter(payload.site, pages, lastModified,
+                            lastModifiedRemotePostIds);
+                } else {
+                    mPostXMLRPCClient.fetchPostsModifiedAfter(payload.site, pages, lastModified, 0);
+                }
+                return;
+            }
         }
 
         if (payload.site.isUsingWpComRestApi()) {
-            mPostRestClient.fetchPosts(payload.site, pages, DEFAULT_POST_STATUS_LIST, offset);
+            // Load more from the oldest post we have, skipping the ones we already have at that date
+            String oldestDate = null;
+            List<Long> oldestRemotePostIds = Collections.emptyList();
+            if (payload.loadMore) {
+                oldestDate = PostSqlUtils.getOldestUploadedPostDate(payload.site, pages);
+                oldestRemotePostIds = PostSqlUtils.getUploadedPostRemoteIdsWithDate(payload.site, pages, oldestDate);
+            }
+            mPostRestClient.fetchPosts(payload.site, pages, DEFAULT_POST_STATUS_LIST, oldestDate,
+                    oldestRemotePostIds);
         } else {
+            // wp.getPosts has no date filter, it can only page by offset
+            int offset = 0;
+            if (payload.loadMore) {
+                offset = PostSqlUtils.getUploadedPostsCountForSite(payload.site, pages);
+            }
             // TODO: check for WP-REST-API plugin and use it here
             mPostXMLRPCClient.fetchPosts(payload.site, pages, offset);
         }
@@ -454,6 +535,7 @@ public class PostStore extends Store {
     private void handleDeletePostCompleted(RemotePostPayload payload) {
         OnPostChanged event = new OnPostChanged(0);
         event.causeOfChange = PostAction.DELETE_POST;
+        event.localSiteId = payload.site.getId();
 
         if (payload.isError()) {
             event.error = payload.error;
@@ -474,18 +556,32 @@ public class PostStore extends Store {
             // Clear existing uploading posts if this is a fresh fetch (loadMore = false in the original request)
             // This is the simplest way of keeping our local posts in sync with remote posts (in case of deletions,
             // or if the user manual changed some post IDs)
-            if (!payload.loadedMore) {
+            if (!payload.loadedMore && !payload.incremental) {
                 PostSqlUtils.deleteUploadedPostsForSite(payload.site, payload.isPages);
             }
 
+            List<PostModel> posts = payload.posts.getPosts();
             int rowsAffected = 0;
-            for (PostModel post : payload.posts.getPosts()) {
-                rowsAffected += PostSqlUtils.insertOrUpdatePostKeepingLocalChanges(post);
+            if (payload.incremental) {
+                // Incremental fetches return the posts trashed since the last fetch: remove them instead
+                List<PostModel> updatedPosts = new ArrayList<>();
+                List<Long> trashedRemotePostIds = new ArrayList<>();
+                for (PostModel post : posts) {
+                    if (PostStatus.TRASHED.toString().equals(post.getStatus())) {
+                        trashedRemotePostIds.add(post.getRemotePostId());
+                    } else {
+                        updatedPosts.add(post);
+                    }
+                }
+                rowsAffected += PostSqlUtils.deleteUploadedPostsWithRemoteIds(payload.site, trashedRemotePostIds);
+                posts = updatedPosts;
             }
+            rowsAffected += PostSqlUtils.insertOrUpdatePosts(posts, false);
 
             onPostChanged = new OnPostChanged(rowsAffected, payload.canLoadMore);
         }
 
+        onPostChanged.localSiteId = payload.site.getId();
         if (payload.isPages) {
             onPostChanged.causeOfChange = PostAction.FETCH_PAGES;
         } else {
@@ -501,9 +597,7 @@ public class PostStore extends Store {
         if (payload.isError()) {
             onPostsSearched.error = payload.error;
         } else if (payload.posts.getPosts() != null && payload.posts.getPosts().size() > 0) {
-            for (PostModel post : payload.posts.getPosts()) {
-                PostSqlUtils.insertOrUpdatePostKeepingLocalChanges(post);
-            }
+            PostSqlUtils.insertOrUpdatePosts(payload.posts.getPosts(), false);
         }
 
         emitChange(onPostsSearched);
@@ -568,6 +662,7 @@ public class PostStore extends Store {
         int rowsAffected = PostSqlUtils.insertOrUpdatePostOverwritingLocalChanges(post);
         OnPostChanged onPostChanged = new OnPostChanged(rowsAffected);
         onPostChanged.causeOfChange = PostAction.UPDATE_POST;
+        onPostChanged.localSiteId = post.getLocalSiteId();
         emitChange(onPostChanged);
     }
 
@@ -576,6 +671,7 @@ public class PostStore extends Store {
 
         OnPostChanged onPostChanged = new OnPostChanged(rowsAffected);
         onPostChanged.causeOfChange = PostAction.REMOVE_POST;
+        onPostChanged.localSiteId = post.getLocalSiteId();
         emitChange(onPostChanged);
     }
 
@@ -5,15 +5,14 @@ import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
 import com.wellsql.generated.SiteModelTable;
+import com.yarolegovich.wellsql.SelectQuery;
 import com.yarolegovich.wellsql.WellSql;
-import com.yarolegovich.wellsql.mapper.SelectMapper;
 
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.action.SiteAction;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
 import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.model.PostFormatModel;
 import org.wordpress.android.fluxc.model.RoleModel;
@@ -32,20 +31,27 @@ import org.wordpress.android.fluxc.network.rest.wpcom.site.SiteRestClient.NewSit
 import org.wordpress.android.fluxc.network.xmlrpc.site.SiteXMLRPCClient;
 import org.wordpress.android.fluxc.persistence.SiteSqlUtils;
 import org.wordpress.android.fluxc.persistence.SiteSqlUtils.DuplicateSiteException;
+import org.wordpress.android.fluxc.persistence.SiteSqlUtils.SitesUpdateResult;
 import org.wordpress.android.fluxc.utils.SiteErrorUtils;
 import org.wordpress.android.util.AppLog;
 import org.wordpress.android.util.AppLog.T;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 /**
- * SQLite based only. There is no in memory copy of mapped data, everything is queried from the DB.
+ * Sites are read through an in-memory {@code SitesIndex} of the SiteModel table, rebuilt from the DB once
+ * {@link SiteSqlUtils#getSitesVersion()} tells a write made it stale. Getters return copies of the indexed sites:
+ * callers can modify them without altering the index.
+ * Other site data (user roles, post formats, search) is still queried from the DB.
  */
+@HandlesActions(SiteAction.class)
 @Singleton
 public class SiteStore extends Store {
     // Payloads
@@ -75,6 +81,8 @@ public class SiteStore extends Store {
     public static class FetchedPostFormatsPayload extends Payload<PostFormatsError> {
         public SiteModel site;
         public List<PostFormatModel> postFormats;
+        // True if the post formats didn't change since they were stored, postFormats is then empty
+        public boolean notModified;
         public FetchedPostFormatsPayload(@NonNull SiteModel site, @NonNull List<PostFormatModel> postFormats) {
             this.site = site;
             this.postFormats = postFormats;
@@ -84,6 +92,8 @@ public class SiteStore extends Store {
     public static class FetchedUserRolesPayload extends Payload<UserRolesError> {
         public SiteModel site;
         public List<RoleModel> roles;
+        // True if the roles didn't change since they were stored, roles is then empty
+        public boolean notModified;
         public FetchedUserRolesPayload(@NonNull SiteModel site, @NonNull List<RoleModel> roles) {
             this.site = site;
             this.roles = roles;
@@ -428,6 +438,63 @@ public class SiteStore extends Store {
         }
     }
 
+    /**
+     * In-memory copy of the SiteModel table, indexed by local id, remote site id and XML-RPC url. Built from a single
+     * query when first needed, and rebuilt once a write through {@link SiteSqlUtils} makes it stale. The models it
+     * holds are never handed out: getters return copies, so callers can't alter the index by mutating their sites.
+     */
+    private static class SitesIndex {
+        private final int mVersion;
+        private final List<SiteModel> mSites;
+        private final List<SiteModel> mWPComSites = new ArrayList<>();
+        private final List<SiteModel> mSitesAccessedViaWPComRest = new ArrayList<>();
+        private final List<SiteModel> mSitesAccessedViaXMLRPC = new ArrayList<>();
+        private final List<SiteModel> mVisibleSites = new ArrayList<>();
+        private final List<SiteModel> mVisibleSitesAccessedViaWPCom = new ArrayList<>();
+        private final Map<Integer, SiteModel> mSitesByLocalId = new HashMap<>();
+        // Both map to the site with the lowest local id, if several share the same remote id
+        private final Map<Long, SiteModel> mSitesBySiteId = new HashMap<>();
+        private final Map<Long, SiteModel> mSitesBySelfHostedSiteId = new HashMap<>();
+        private final Map<String, List<SiteModel>> mSitesByXmlRpcUrl = new HashMap<>();
+
+        SitesIndex(int version, List<SiteModel> sites) {
+            mVersion = version;
+            mSites = sites;
+            for (SiteModel site : sites) {
+                mSitesByLocalId.put(site.getId(), site);
+                if (!mSitesBySiteId.containsKey(site.getSiteId())) {
+                    mSitesBySiteId.put(site.getSiteId(), site);
+                }
+                if (!mSitesBySelfHostedSiteId.containsKey(site.getSelfHostedSiteId())) {
+                    mSitesBySelfHostedSiteId.put(site.getSelfHostedSiteId(), site);
+                }
+                List<SiteModel> sitesWithXmlRpcUrl = mSitesByXmlRpcUrl.get(site.getXmlRpcUrl());
+                if (sitesWithXmlRpcUrl == null) {
+                    sitesWithXmlRpcUrl = new ArrayList<>(1);
+                    mSitesByXmlRpcUrl.put(site.getXmlRpcUrl(), sitesWithXmlRpcUrl);
+                }
+                sitesWithXmlRpcUrl.add(site);
+
+                if (site.isWPCom()) {
+                    mWPComSites.add(site);
+                }
+                if (site.getOrigin() == SiteModel.ORIGIN_WPCOM_REST) {
+                    mSitesAccessedViaWPComRest.add(site);
+                    if (site.isVisible()) {
+                        mVisibleSitesAccessedViaWPCom.add(site);
+                    }
+                } else if (site.getOrigin() == SiteModel.ORIGIN_XMLRPC) {
+                    mSitesAccessedViaXMLRPC.add(site);
+                }
+                if (site.isVisible()) {
+                    mVisibleSites.add(site);
+                }
+            }
+        }
+    }
+
+    private volatile SitesIndex mSitesIndex;
+
     private SiteRestClient mSiteRestClient;
     private SiteXMLRPCClient mSiteXMLRPCClient;
 
@@ -447,7 +514,7 @@ public class SiteStore extends Store {
      * Returns all sites in the store as a {@link SiteModel} list.
      */
     public List<SiteModel> getSites() {
-        return WellSql.select(SiteModel.class).getAsModel();
+        return copyOf(getSitesIndex().mSites);
     }
 
     /**
@@ -461,7 +528,7 @@ public class SiteStore extends Store {
      * Returns the number of sites of any kind in the store.
      */
     public int getSitesCount() {
-        return getSitesCursor().getCount();
+        return getSitesIndex().mSites.size();
     }
 
     /**
@@ -475,32 +542,28 @@ public class SiteStore extends Store {
      * Obtains the site with the given (local) id and returns it as a {@link SiteModel}.
      */
     public SiteModel getSiteByLocalId(int id) {
-        List<SiteModel> result = SiteSqlUtils.getSitesWith(SiteModelTable.ID, id).getAsModel();
-        if (result.size() > 0) {
-            return result.get(0);
-        }
-        return null;
+        return copyOf(getSitesIndex().mSitesByLocalId.get(id));
     }
 
     /**
      * Checks whether the store contains a site matching the given (local) id.
      */
     public boolean hasSiteWithLocalId(int id) {
-        return SiteSqlUtils.getSitesWith(SiteModelTable.ID, id).getAsCursor().getCount() > 0;
+        return getSitesIndex().mSitesByLocalId.containsKey(id);
     }
 
     /**
      * Returns all .COM sites in the store.
      */
     public List<SiteModel> getWPComSites() {
-        return SiteSqlUtils.getSitesWith(SiteModelTable.IS_WPCOM, true).getAsModel();
+        return copyOf(getSitesIndex().mWPComSites);
     }
 
     /**
      * Returns sites accessed via WPCom REST API (WPCom sites or Jetpack sites connected via WPCom REST API).
      */
     public List<SiteModel> getSitesAccessedViaWPComRest() {
-        return SiteSqlUtils.getSitesAccessedViaWPComRest().getAsModel();
+        return copyOf(getSitesIndex().mSitesAccessedViaWPComRest);
     }
 
     /**
@@ -508,7 +571,7 @@ public class SiteStore extends Store {
      * via WPCom REST API).
      */
     public int getSitesAccessedViaWPComRestCount() {
-        return SiteSqlUtils.getSitesAccessedViaWPComRest().getAsCursor().getCount();
+        return getSitesIndex().mSitesAccessedViaWPComRest.size();
     }
 
     /**
@@ -523,7 +586,7 @@ public class SiteStore extends Store {
      * Returns the number of .COM sites in the store.
      */
     public int getWPComSitesCount() {
-        return SiteSqlUtils.getSitesWith(SiteModelTable.IS_WPCOM, true).getAsCursor().getCount();
+        return getSitesIndex().mWPComSites.size();
     }
 
     /**
@@ -534,6 +597,16 @@ public class SiteStore extends Store {
         return SiteSqlUtils.getSitesByNameOrUrlMatching(searchString);
     }
 
+    /**
+     * Returns sites with a name or url containing words starting with every word of the search string, best matches
+     * first. Unlike {@link #getSitesByNameOrUrlMatching(String)}, uses the full-text index instead of scanning the
+     * sites.
+     */
+    @NonNull
+    public List<SiteModel> searchSites(@NonNull String searchString) {
+        return SiteSqlUtils.searchSitesIndex(searchString);
+    }
+
     /**
      * Returns sites accessed via WPCom REST API (WPCom sites or Jetpack sites connected via WPCom REST API) with a
      * name or url matching the search string.
@@ -554,14 +627,14 @@ public class SiteStore extends Store {
      * Returns sites accessed via XMLRPC (self-hosted sites or Jetpack sites accessed via XMLRPC).
      */
     public List<SiteModel> getSitesAccessedViaXMLRPC() {
-        return SiteSqlUtils.getSitesAccessedViaXMLRPC().getAsModel();
+        return copyOf(getSitesIndex().mSitesAccessedViaXMLRPC);
     }
 
     /**
      * Returns the number of sites accessed via XMLRPC (self-hosted sites or Jetpack sites accessed via XMLRPC).
      */
     public int getSitesAccessedViaXMLRPCCount() {
-        return SiteSqlUtils.getSitesAccessedViaXMLRPC().getAsCursor().getCount();
+        return getSitesIndex().mSitesAccessedViaXMLRPC.size();
     }
 
     /**
@@ -576,63 +649,51 @@ public class SiteStore extends Store {
      * Returns all visible sites as {@link SiteModel}s. All self-hosted sites over XML-RPC are visible by default.
      */
     public List<SiteModel> getVisibleSites() {
-        return SiteSqlUtils.getSitesWith(SiteModelTable.IS_VISIBLE, true).getAsModel();
+        return copyOf(getSitesIndex().mVisibleSites);
     }
 
     /**
      * Returns the number of visible sites. All self-hosted sites over XML-RPC are visible by default.
      */
     public int getVisibleSitesCount() {
-        return SiteSqlUtils.getSitesWith(SiteModelTable.IS_VISIBLE, true).getAsCursor().getCount();
+        return getSitesIndex().mVisibleSites.size();
     }
 
     /**
      * Returns all visible .COM sites as {@link SiteModel}s.
      */
     public List<SiteModel> getVisibleSitesAccessedViaWPCom() {
-        return SiteSqlUtils.getVisibleSitesAccessedViaWPCom().getAsModel();
+        return copyOf(getSitesIndex().mVisibleSitesAccessedViaWPCom);
     }
 
     /**
      * Returns the number of visible .COM sites.
      */
     public int getVisibleSitesAccessedViaWPComCount() {
-        return SiteSqlUtils.getVisibleSitesAccessedViaWPCom().getAsCursor().getCount();
+        return getSitesIndex().mVisibleSitesAccessedViaWPCom.size();
     }
 
     /**
      * Checks whether the .COM site with the given (local) id is visible.
      */
     public boolean isWPComSiteVisibleByLocalId(int id) {
-        return WellSql.select(SiteModel.class)
-                .where().beginGroup()
-                .equals(SiteModelTable.ID, id)
-                .equals(SiteModelTable.IS_WPCOM, true)
-                .equals(SiteModelTable.IS_VISIBLE, true)
-                .endGroup().endWhere()
-                .getAsCursor().getCount() > 0;
+        SiteModel site = getSitesIndex().mSitesByLocalId.get(id);
+        return site != null && site.isWPCom() && site.isVisible();
     }
 
     /**
      * Given a (remote) site id, returns the corresponding (local) id.
      */
     public int getLocalIdForRemoteSiteId(long siteId) {
-        List<SiteModel> sites = WellSql.select(SiteModel.class)
-                .where().beginGroup()
-                .equals(SiteModelTable.SITE_ID, siteId)
-                .or()
-                .equals(SiteModelTable.SELF_HOSTED_SITE_ID, siteId)
-                .endGroup().endWhere()
-                .getAsModel(new SelectMapper<SiteModel>() {
-                    @Override
-                    public SiteModel convert(Cursor cursor) {
-                        SiteModel siteModel = new SiteModel();
-                        siteModel.setId(cursor.getInt(cursor.getColumnIndex(SiteModelTable.ID)));
-                        return siteModel;
-                    }
-                });
-        if (sites.size() > 0) {
-            return sites.get(0).getId();
+        SitesIndex index = getSitesIndex();
+        SiteModel site = index.mSitesBySiteId.get(siteId);
+        SiteModel selfHostedSite = index.mSitesBySelfHostedSiteId.get(siteId);
+        if (site != null && selfHostedSite != null) {
+            return Math.min(site.getId(), selfHostedSite.getId());
+        } else if (site != null) {
+            return site.getId();
+        } else if (selfHostedSite != null) {
+            return selfHostedSite.getId();
         }
         return 0;
     }
@@ -641,21 +702,13 @@ public class SiteStore extends Store {
      * Given a (remote) self-hosted site id and XML-RPC url, returns the corresponding (local) id.
      */
     public int getLocalIdForSelfHostedSiteIdAndXmlRpcUrl(long selfHostedSiteId, String xmlRpcUrl) {
-        List<SiteModel> sites = WellSql.select(SiteModel.class)
-                .where().beginGroup()
-                .equals(SiteModelTable.SELF_HOSTED_SITE_ID, selfHostedSiteId)
-                .equals(SiteModelTable.XMLRPC_URL, xmlRpcUrl)
-                .endGroup().endWhere()
-                .getAsModel(new SelectMapper<SiteModel>() {
-                    @Override
-                    public SiteModel convert(Cursor cursor) {
-                        SiteModel siteModel = new SiteModel();
-                        siteModel.setId(cursor.getInt(cursor.getColumnIndex(SiteModelTable.ID)));
-                        return siteModel;
-                    }
-                });
-        if (sites.size() > 0) {
-            return sites.get(0).getId();
+        List<SiteModel> sites = getSitesIndex().mSitesByXmlRpcUrl.get(xmlRpcUrl);
+        if (sites != null) {
+            for (SiteModel site : sites) {
+                if (site.getSelfHostedSiteId() == selfHostedSiteId) {
+                    return site.getId();
+                }
+            }
         }
         return 0;
     }
@@ -665,28 +718,15 @@ public class SiteStore extends Store {
      * sites.
      */
     public long getSiteIdForLocalId(int id) {
-        List<SiteModel> result = WellSql.select(SiteModel.class)
-                .where().beginGroup()
-                .equals(SiteModelTable.ID, id)
-                .endGroup().endWhere()
-                .getAsModel(new SelectMapper<SiteModel>() {
-                    @Override
-                    public SiteModel convert(Cursor cursor) {
-                        SiteModel siteModel = new SiteModel();
-                        siteModel.setSiteId(cursor.getInt(cursor.getColumnIndex(SiteModelTable.SITE_ID)));
-                        siteModel.setSelfHostedSiteId(cursor.getLong(
-                                cursor.getColumnIndex(SiteModelTable.SELF_HOSTED_SITE_ID)));
-                        return siteModel;
-                    }
-                });
-        if (result.isEmpty()) {
+        SiteModel site = getSitesIndex().mSitesByLocalId.get(id);
+        if (site == null) {
             return 0;
         }
 
-        if (result.get(0).getSiteId() > 0) {
-            return result.get(0).getSiteId();
+        if (site.getSiteId() > 0) {
+            return site.getSiteId();
         } else {
-            return result.get(0).getSelfHostedSiteId();
+            return site.getSelfHostedSiteId();
         }
     }
 
@@ -699,13 +739,7 @@ public class SiteStore extends Store {
             return null;
         }
 
-        List<SiteModel> sites = SiteSqlUtils.getSitesWith(SiteModelTable.SITE_ID, siteId).getAsModel();
-
-        if (sites.isEmpty()) {
-            return null;
-        } else {
-            return sites.get(0);
-        }
+        return copyOf(getSitesIndex().mSitesBySiteId.get(siteId));
     }
 
     public List<PostFormatModel> getPostFormats(SiteModel site) {
@@ -716,7 +750,37 @@ public class SiteStore extends Store {
         return SiteSqlUtils.getUserRoles(site);
     }
 
-    @Subscribe(threadMode = ThreadMode.ASYNC)
+    private SitesIndex getSitesIndex() {
+        SitesIndex index = mSitesIndex;
+        if (index != null && index.mVersion == SiteSqlUtils.getSitesVersion()) {
+            return index;
+        }
+        synchronized (this) {
+            index = mSitesIndex;
+            // Read before querying the table: a write landing during the query leaves the index stale, not wrong
+            int version = SiteSqlUtils.getSitesVersion();
+            if (index == null || index.mVersion != version) {
+                List<SiteModel> sites = WellSql.select(SiteModel.class)
+                        .orderBy(SiteModelTable.ID, SelectQuery.ORDER_ASCENDING).getAsModel();
+                index = new SitesIndex(version, sites);
+                mSitesIndex = index;
+            }
+            return index;
+        }
+    }
+
+    private static SiteModel copyOf(SiteModel site) {
+        return site != null ? site.clone() : null;
+    }
+
+    private static List<SiteModel> copyOf(List<SiteModel> sites) {
+        List<SiteModel> copies = new ArrayList<>(sites.size());
+        for (SiteModel site : sites) {
+            copies.add(site.clone());
+        }
+        return copies;
+    }
+
     @Override
     public void onAction(Action action) {
         IAction actionType = action.getType();
@@ -891,25 +955,24 @@ public class SiteStore extends Store {
             // TODO: what kind of error could we get here?
             event.error = SiteErrorUtils.genericToSiteError(fetchedSites.error);
         } else {
-            UpdateSitesResult res = createOrUpdateSites(fetchedSites);
+            UpdateSitesResult res = createOrUpdateSites(fetchedSites, true);
             event.rowsAffected = res.rowsAffected;
             if (res.duplicateSiteFound) {
                 event.error = new SiteError(SiteErrorType.DUPLICATE_SITE);
             }
-            SiteSqlUtils.removeWPComRestSitesAbsentFromList(fetchedSites.getSites());
         }
         emitChange(event);
     }
 
     private UpdateSitesResult createOrUpdateSites(SitesModel sites) {
+        return createOrUpdateSites(sites, false);
+    }
+
+    private UpdateSitesResult createOrUpdateSites(SitesModel sites, boolean removeAbsentWPComRestSites) {
+        SitesUpdateResult sitesUpdate = SiteSqlUtils.insertOrUpdateSites(sites.getSites(), removeAbsentWPComRestSites);
         UpdateSitesResult result = new UpdateSitesResult();
-        for (SiteModel site : sites.getSites()) {
-            try {
-                result.rowsAffected += SiteSqlUtils.insertOrUpdateSite(site);
-            } catch (DuplicateSiteException caughtException) {
-                result.duplicateSiteFound = true;
-            }
-        }
+        result.rowsAffected = sitesUpdate.rowsAffected;
+        result.duplicateSiteFound = sitesUpdate.duplicateSiteFound;
         return result;
     }
 
@@ -1003,7 +1066,7 @@ public class SiteStore extends Store {
         OnPostFormatsChanged event = new OnPostFormatsChanged(payload.site);
         if (payload.isError()) {
             event.error = payload.error;
-        } else {
+        } else if (!payload.notModified) {
             SiteSqlUtils.insertOrReplacePostFormats(payload.site, payload.postFormats);
         }
         emitChange(event);
@@ -1019,7 +1082,7 @@ public class SiteStore extends Store {
         OnUserRolesChanged event = new OnUserRolesChanged(payload.site);
         if (payload.isError()) {
             event.error = payload.error;
-        } else {
+        } else if (!payload.notModified) {
             SiteSqlUtils.insertOrReplaceUserRoles(payload.site, payload.roles);
         }
         emitChange(event);
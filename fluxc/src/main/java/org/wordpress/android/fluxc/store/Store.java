@@ -1,5 +1,9 @@
 package org.wordpress.android.fluxc.store;
 
+import android.support.annotation.Nullable;
+
+import org.greenrobot.eventbus.Subscribe;
+import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.FluxCError;
 import org.wordpress.android.fluxc.annotations.action.Action;
@@ -23,7 +27,40 @@ public abstract class Store {
     }
 
     /**
-     * onAction should {@link org.greenrobot.eventbus.Subscribe} with ASYNC {@link org.greenrobot.eventbus.ThreadMode}.
+     * Implemented by {@link OnChanged} events which can be merged together when the {@link Dispatcher} coalesces
+     * changes, see {@link Dispatcher#setChangeCoalescing(long, int)}.
+     */
+    public interface CoalescableChange<T extends OnChanged> {
+        /**
+         * @return events of the same class with equal keys can be merged, null if this event must not be delayed
+         */
+        @Nullable Object getCoalescingKey();
+
+        /**
+         * @return the event standing for this event followed by {@code newer}
+         */
+        T coalesce(T newer);
+
+        /**
+         * @return true if this event is an intermediate progress update, rate limited separately
+         */
+        boolean isProgressUpdate();
+    }
+
+    /**
+     * Receives the actions posted on the event bus and hands them to {@link #onAction} through the {@link Dispatcher},
+     * which times the store handler when it has metrics. Stores only override it to change its subscription.
+     */
+    @Subscribe(threadMode = ThreadMode.ASYNC)
+    public void onActionPosted(Action action) {
+        mDispatcher.handlePostedAction(this, action);
+    }
+
+    /**
+     * Called for each dispatched action, on a background thread, see {@link #onActionPosted}. onAction must not
+     * {@link Subscribe} to the event bus itself. Stores should also declare the action enums they handle with
+     * {@link org.wordpress.android.fluxc.annotations.action.HandlesActions}, used when the {@link Dispatcher} routes
+     * actions per store.
      */
     public abstract void onAction(Action action);
     public abstract void onRegister();
@@ -2,12 +2,11 @@ package org.wordpress.android.fluxc.store;
 
 import android.support.annotation.NonNull;
 
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.action.TaxonomyAction;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
 import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.model.PostModel;
 import org.wordpress.android.fluxc.model.SiteModel;
@@ -25,6 +24,7 @@ import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+@HandlesActions(TaxonomyAction.class)
 @Singleton
 public class TaxonomyStore extends Store {
     public static final String DEFAULT_TAXONOMY_CATEGORY = "category";
@@ -257,7 +257,6 @@ public class TaxonomyStore extends Store {
         return TaxonomySqlUtils.getTermsFromRemoteNameList(post.getTagNameList(), site, DEFAULT_TAXONOMY_TAG);
     }
 
-    @Subscribe(threadMode = ThreadMode.ASYNC)
     @Override
     public void onAction(Action action) {
         IAction actionType = action.getType();
@@ -338,10 +337,7 @@ public class TaxonomyStore extends Store {
             // TODO: This may have to change when we support large numbers of terms and require multiple requests
             TaxonomySqlUtils.clearTaxonomyForSite(payload.site, payload.taxonomy);
 
-            int rowsAffected = 0;
-            for (TermModel term : payload.terms.getTerms()) {
-                rowsAffected += TaxonomySqlUtils.insertOrUpdateTerm(term);
-            }
+            int rowsAffected = TaxonomySqlUtils.insertOrUpdateTerms(payload.terms.getTerms());
 
             onTaxonomyChanged = new OnTaxonomyChanged(rowsAffected, payload.taxonomy);
         }
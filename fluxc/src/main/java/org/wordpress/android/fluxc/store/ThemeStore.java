@@ -4,12 +4,11 @@ import android.database.Cursor;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
 import org.wordpress.android.fluxc.Dispatcher;
 import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.action.ThemeAction;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
 import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.model.SiteModel;
 import org.wordpress.android.fluxc.model.ThemeModel;
@@ -22,6 +21,7 @@ import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+@HandlesActions(ThemeAction.class)
 @Singleton
 public class ThemeStore extends Store {
     // Payloads
@@ -57,6 +57,8 @@ public class ThemeStore extends Store {
 
     public static class FetchedWpComThemesPayload extends Payload<ThemesError> {
         public List<ThemeModel> themes;
+        // True if the themes didn't change since they were stored, themes is then empty
+        public boolean notModified;
 
         public FetchedWpComThemesPayload(@NonNull ThemesError error) {
             this.error = error;
@@ -191,7 +193,6 @@ public class ThemeStore extends Store {
         mThemeRestClient = themeRestClient;
     }
 
-    @Subscribe(threadMode = ThreadMode.ASYNC)
     @Override
     public void onAction(Action action) {
         IAction actionType = action.getType();
@@ -290,7 +291,7 @@ public class ThemeStore extends Store {
         OnWpComThemesChanged event = new OnWpComThemesChanged();
         if (payload.isError()) {
             event.error = payload.error;
-        } else {
+        } else if (!payload.notModified) {
             ThemeSqlUtils.insertOrReplaceWpComThemes(payload.themes);
         }
         emitChange(event);
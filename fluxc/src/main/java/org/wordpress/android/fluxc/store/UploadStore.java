@@ -10,6 +10,7 @@ import org.wordpress.android.fluxc.Payload;
 import org.wordpress.android.fluxc.action.MediaAction;
 import org.wordpress.android.fluxc.action.UploadAction;
 import org.wordpress.android.fluxc.annotations.action.Action;
+import org.wordpress.android.fluxc.annotations.action.HandlesActions;
 import org.wordpress.android.fluxc.annotations.action.IAction;
 import org.wordpress.android.fluxc.generated.MediaActionBuilder;
 import org.wordpress.android.fluxc.generated.PostActionBuilder;
@@ -40,6 +41,7 @@ import java.util.Set;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+@HandlesActions({UploadAction.class, MediaAction.class})
 @Singleton
 public class UploadStore extends Store {
     public static class ClearMediaPayload extends Payload<BaseNetworkError> {
@@ -89,6 +91,11 @@ public class UploadStore extends Store {
 
     // Ensure that events reach the UploadStore before their main stores (MediaStore, PostStore)
     @Subscribe(threadMode = ThreadMode.ASYNC, priority = 1)
+    @Override
+    public void onActionPosted(Action action) {
+        super.onActionPosted(action);
+    }
+
     @Override
     public void onAction(Action action) {
         IAction actionType = action.getType();
@@ -0,0 +1,119 @@
+package org.wordpress.android.fluxc.utils;
+
+import java.io.IOException;
+
+import okio.BufferedSink;
+
+/**
+ * Streaming base64 encoder, writing to an okio sink. The output is the same as
+ * {@link android.util.Base64#encode(byte[], int)} with {@link android.util.Base64#DEFAULT} flags on the whole input:
+ * padded, in lines of {@link #LINE_LENGTH} characters, each followed by a line feed.
+ *
+ * Input can be written in chunks of any size, and is encoded through a single reused buffer, so encoding doesn't
+ * allocate.
+ */
+public class Base64StreamEncoder {
+    public static final int LINE_LENGTH = 76;
+
+    private static final byte[] ALPHABET = {
+            'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M',
+            'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z',
+            'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm',
+            'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/'
+    };
+    private static final byte PADDING = '=';
+    private static final byte NEW_LINE = '\n';
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
+
+    private final BufferedSink mSink;
+    private final byte[] mOutput = new byte[OUTPUT_BUFFER_SIZE];
+    private int mOutputLength;
+    // Input bytes waiting for a complete group of 3
+    private int mPendingBytes;
+    private int mPendingCount;
+    private int mLineLength;
+
+    public Base64StreamEncoder(BufferedSink sink) {
+        mSink = sink;
+    }
+
+    /**
+     * @return the number of characters the encoding of {@code inputLength} bytes takes, line feeds included
+     */
+    public static long getEncodedLength(long inputLength) {
+        long length = (inputLength + 2) / 3 * 4;
+        return length + (length + LINE_LENGTH - 1) / LINE_LENGTH;
+    }
+
+    public void write(byte[] input, int offset, int length) throws IOException {
+        int end = offset + length;
+        int i = offset;
+        // Completes the group started by the previous write
+        while (mPendingCount > 0 && i < end) {
+            mPendingBytes = (mPendingBytes << 8) | (input[i++] & 0xff);
+            if (++mPendingCount == 3) {
+                writeGroup(mPendingBytes);
+                mPendingBytes = 0;
+                mPendingCount = 0;
+            }
+        }
+        for (; i + 3 <= end; i += 3) {
+            writeGroup(((input[i] & 0xff) << 16) | ((input[i + 1] & 0xff) << 8) | (input[i + 2] & 0xff));
+        }
+        for (; i < end; i++) {
+            mPendingBytes = (mPendingBytes << 8) | (input[i] & 0xff);
+            mPendingCount++;
+        }
+    }
+
+    /**
+     * Writes the padded last group and the last line feed, and flushes the encoded output to the sink. The encoder
+     * can then be reused for another input.
+     */
+    public void finish() throws IOException {
+        ensureCapacity();
+        if (mPendingCount > 0) {
+            int bits = mPendingBytes << (8 * (3 - mPendingCount));
+            mOutput[mOutputLength++] = ALPHABET[(bits >> 18) & 0x3f];
+            mOutput[mOutputLength++] = ALPHABET[(bits >> 12) & 0x3f];
+            mOutput[mOutputLength++] = mPendingCount == 2 ? ALPHABET[(bits >> 6) & 0x3f] : PADDING;
+            mOutput[mOutputLength++] = PADDING;
+            mLineLength += 4;
+            mPendingCount = 0;
+            mPendingBytes = 0;
+        }
+        if (mLineLength > 0) {
+            mOutput[mOutputLength++] = NEW_LINE;
+            mLineLength = 0;
+        }
+        flushOutput();
+    }
+
+    private void writeGroup(int bits) throws IOException {
+        ensureCapacity();
+        mOutput[mOutputLength++] = ALPHABET[(bits >> 18) & 0x3f];
+        mOutput[mOutputLength++] = ALPHABET[(bits >> 12) & 0x3f];
+        mOutput[mOutputLength++] = ALPHABET[(bits >> 6) & 0x3f];
+        mOutput[mOutputLength++] = ALPHABET[bits & 0x3f];
+        mLineLength += 4;
+        if (mLineLength == LINE_LENGTH) {
+            mOutput[mOutputLength++] = NEW_LINE;
+            mLineLength = 0;
+        }
+    }
+
+    // Room for a group and its line feed
+    private void ensureCapacity() throws IOException {
+        if (mOutputLength + 5 > OUTPUT_BUFFER_SIZE) {
+            flushOutput();
+        }
+    }
+
+    private void flushOutput() throws IOException {
+        if (mOutputLength > 0) {
+            mSink.write(mOutput, 0, mOutputLength);
+            mOutputLength = 0;
+        }
+    }
+}
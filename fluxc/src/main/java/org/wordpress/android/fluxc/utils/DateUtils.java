@@ -0,0 +1,36 @@
+package org.wordpress.android.fluxc.utils;
+
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import org.wordpress.android.util.DateTimeUtils;
+
+import java.util.Date;
+import java.util.regex.Pattern;
+
+public class DateUtils {
+    private static final Pattern OFFSET_WITH_COLON = Pattern.compile("([+-]\\d{2}):(\\d{2})$");
+
+    /**
+     * Parses an ISO 8601 date whose offset may contain a colon, as returned by the WP.com REST API
+     * (e.g. "2017-06-01T12:00:00+02:00"), which {@link DateTimeUtils#dateUTCFromIso8601} only accepts for UTC.
+     *
+     * @return the date, or null if it's empty or can't be parsed
+     */
+    @Nullable
+    public static Date dateFromIso8601(@Nullable String iso8601date) {
+        if (TextUtils.isEmpty(iso8601date)) {
+            return null;
+        }
+        return DateTimeUtils.dateUTCFromIso8601(OFFSET_WITH_COLON.matcher(iso8601date).replaceFirst("$1$2"));
+    }
+
+    /**
+     * @return the number of milliseconds since the epoch of an ISO 8601 date parsed with {@link #dateFromIso8601},
+     * or 0 if it's empty or can't be parsed
+     */
+    public static long timestampFromIso8601(@Nullable String iso8601date) {
+        Date date = dateFromIso8601(iso8601date);
+        return date != null ? date.getTime() : 0;
+    }
+}